@@ -19,7 +19,6 @@ public class CacheConfig {
     private static final Logger log = LoggerFactory.getLogger(CacheConfig.class);
 
     // Cache names
-    public static final String AVAILABILITY_CACHE = "availabilityCache";
     public static final String SURVEYORS_CACHE = "surveyorsCache";
     public static final String SURVEYOR_DETAILS_CACHE = "surveyorDetailsCache";
     public static final String APPOINTMENTS_CACHE = "appointmentsCache";
@@ -57,9 +56,8 @@ public class CacheConfig {
     public CacheManager cacheManager() {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager();
         cacheManager.setCaffeine(caffeineConfig());
+        // Availability ranges are cached per surveyor-day by CalendarDayCache, not here
         cacheManager.setCacheNames(java.util.List.of(
-                AVAILABILITY_CACHE,
-                SURVEYORS_CACHE,
                 SURVEYOR_DETAILS_CACHE,
                 APPOINTMENTS_CACHE,
                 CHAT_MESSAGES_CACHE,
@@ -67,6 +65,8 @@ public class CacheConfig {
                 FEATURE_FLAGS_CACHE,
                 FEATURE_FLAGS_USER_CACHE
         ));
+        // Fleet list spans every surveyor's state and position, so it is only kept briefly
+        cacheManager.registerCustomCache(SURVEYORS_CACHE, shortLivedCaffeineConfig().build());
         return cacheManager;
     }
 
@@ -33,7 +33,9 @@ public class CorsConfig {
             "Content-Type",
             "X-Total-Count",
             "X-Page-Number",
-            "X-Page-Size"
+            "X-Page-Size",
+            "X-Next-Cursor",
+            "ETag"
         ));
 
         // Cache preflight response for 1 hour
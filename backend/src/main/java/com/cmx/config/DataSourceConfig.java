@@ -96,6 +96,11 @@ public class DataSourceConfig {
         dataSource.setIdleTimeout(600000);
         dataSource.setMaxLifetime(1800000);
 
+        // Let the PostgreSQL driver rewrite JDBC batches of INSERTs into multi-row statements
+        if (dataSource.getJdbcUrl() != null && dataSource.getJdbcUrl().startsWith("jdbc:postgresql:")) {
+            dataSource.addDataSourceProperty("reWriteBatchedInserts", "true");
+        }
+
         logger.info("DataSource configured with URL: {}",
             dataSource.getJdbcUrl() != null ? dataSource.getJdbcUrl().replaceAll("password=.*?(&|$)", "password=***$1") : "null");
 
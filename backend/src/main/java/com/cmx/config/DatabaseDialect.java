@@ -0,0 +1,37 @@
+package com.cmx.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports which database the application is running against.
+ * Production runs on PostgreSQL (Railway), local development and tests on H2 in PostgreSQL mode;
+ * services use this to pick PostgreSQL-only SQL (partitions, UPDATE ... FROM, ANY(array)) and
+ * fall back to portable statements on H2.
+ */
+@Component
+public class DatabaseDialect {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseDialect.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    public DatabaseDialect(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            result = product != null && product.toLowerCase().contains("postgres");
+            postgres = result;
+            logger.info("Detected database product: {}", product);
+        }
+        return result;
+    }
+}
@@ -1,18 +1,36 @@
 package com.cmx.controller;
 
+import com.cmx.dto.AvailabilityDto.AvailabilityEntry;
+import com.cmx.dto.AvailabilityDto.AvailabilityPage;
 import com.cmx.dto.AvailabilityDto.AvailabilityUpdateRequest;
 import com.cmx.dto.AvailabilityDto.AvailabilityUpsertRequest;
+import com.cmx.dto.AvailabilityDto.ImportResult;
+import com.cmx.dto.AvailabilityDto.UpsertResult;
 import com.cmx.model.SurveyorAvailability;
+import com.cmx.schedule.CalendarImportReader;
+import com.cmx.schedule.FreeSlotFinder.FreeSlot;
+import com.cmx.service.AvailabilityExportService;
 import com.cmx.service.AvailabilityService;
+import com.cmx.service.CalendarImportService;
+import com.cmx.service.FreeSlotService;
 import com.cmx.service.NotificationService;
+import com.cmx.service.ResourceVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
@@ -25,50 +43,227 @@ public class AvailabilityController {
 
     private final AvailabilityService availabilityService;
     private final NotificationService notificationService;
+    private final ResourceVersions resourceVersions;
+    private final AvailabilityExportService exportService;
+    private final FreeSlotService freeSlotService;
+    private final CalendarImportService importService;
+
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     public AvailabilityController(AvailabilityService availabilityService,
-                                   NotificationService notificationService) {
+                                   NotificationService notificationService,
+                                   ResourceVersions resourceVersions,
+                                   AvailabilityExportService exportService,
+                                   FreeSlotService freeSlotService,
+                                   CalendarImportService importService) {
         this.availabilityService = availabilityService;
         this.notificationService = notificationService;
+        this.resourceVersions = resourceVersions;
+        this.exportService = exportService;
+        this.freeSlotService = freeSlotService;
+        this.importService = importService;
     }
 
     @Operation(
         summary = "Get availability",
-        description = "Retrieves surveyor availability for a given time range"
+        description = "Retrieves surveyor availability for a given time range. " +
+                      "Pass cursor (empty for the first page) for keyset paging: the next page's cursor is " +
+                      "returned in X-Next-Cursor, absent on the last page. Without cursor, limit/offset paging applies. " +
+                      "Supports If-None-Match; returns 304 when nothing changed."
     )
     @ApiResponse(responseCode = "200", description = "Availability retrieved successfully")
+    @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match")
     @GetMapping("/availability")
-    public List<Map<String, Object>> getAvailability(
+    public ResponseEntity<List<AvailabilityEntry>> getAvailability(
             @Parameter(description = "Start date/time (ISO format)") @RequestParam("from") String from,
             @Parameter(description = "End date/time (ISO format)") @RequestParam("to") String to,
             @Parameter(description = "Filter by single surveyor ID") @RequestParam(value = "surveyorId", required = false) Long surveyorId,
             @Parameter(description = "Filter by comma-separated surveyor IDs") @RequestParam(value = "surveyorIds", required = false) String surveyorIds,
             @Parameter(description = "Maximum results") @RequestParam(value = "limit", defaultValue = "500") Integer limit,
-            @Parameter(description = "Offset for pagination") @RequestParam(value = "offset", defaultValue = "0") Integer offset) {
-        return availabilityService.getAvailability(from, to, surveyorId, surveyorIds, limit, offset);
+            @Parameter(description = "Offset for pagination") @RequestParam(value = "offset", defaultValue = "0") Integer offset,
+            @Parameter(description = "Keyset cursor from X-Next-Cursor (empty for the first page)") @RequestParam(value = "cursor", required = false) String cursor,
+            WebRequest request) {
+        String etag = resourceVersions.etag(ResourceVersions.AVAILABILITY, null, from, to, surveyorId, surveyorIds, limit, offset, cursor);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        if (cursor == null) {
+            return ResponseEntity.ok(availabilityService.getAvailability(from, to, surveyorId, surveyorIds, limit, offset));
+        }
+        AvailabilityPage page = availabilityService.getAvailabilityPage(from, to, surveyorId, surveyorIds, limit, cursor);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.entries());
+    }
+
+    @Operation(
+        summary = "Find free slots",
+        description = "Free windows of at least the given duration for each surveyor within [from, to), " +
+                      "ranked by earliest start, then longest window. Blocks in AVAILABLE or CANCELLED state do not count as busy."
+    )
+    @ApiResponse(responseCode = "200", description = "Free slots computed successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid surveyor IDs, time range or duration")
+    @GetMapping("/availability/free-slots")
+    public ResponseEntity<Map<String, Object>> findFreeSlots(
+            @Parameter(description = "Comma-separated surveyor IDs") @RequestParam("surveyorIds") String surveyorIds,
+            @Parameter(description = "Start date/time (ISO format)") @RequestParam("from") String from,
+            @Parameter(description = "End date/time (ISO format)") @RequestParam("to") String to,
+            @Parameter(description = "Minimum slot length: minutes, or ISO-8601 duration such as PT1H30M") @RequestParam("duration") String duration,
+            @Parameter(description = "Maximum slots returned") @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        Duration minLength = duration.chars().allMatch(Character::isDigit)
+                ? Duration.ofMinutes(Long.parseLong(duration))
+                : Duration.parse(duration);
+        List<FreeSlot> slots = freeSlotService.findFreeSlots(AvailabilityService.surveyorFilter(null, surveyorIds),
+                OffsetDateTime.parse(from).toInstant(), OffsetDateTime.parse(to).toInstant(), minLength, limit);
+
+        return ResponseEntity.ok(Map.of(
+                "from", from,
+                "to", to,
+                "durationMinutes", minLength.toMinutes(),
+                "count", slots.size(),
+                "slots", slots.stream().map(slot -> Map.of(
+                        "surveyorId", slot.surveyorId(),
+                        "start", slot.start().toString(),
+                        "end", slot.end().toString(),
+                        "minutes", slot.lengthSeconds() / 60
+                )).toList()
+        ));
+    }
+
+    @Operation(
+        summary = "Check for schedule conflicts",
+        description = "Busy blocks of one surveyor overlapping [from, to); blocks in AVAILABLE or CANCELLED state are ignored"
+    )
+    @ApiResponse(responseCode = "200", description = "Overlap check completed")
+    @ApiResponse(responseCode = "400", description = "Invalid time range")
+    @GetMapping("/availability/conflicts")
+    public ResponseEntity<Map<String, Object>> findConflicts(
+            @Parameter(description = "Surveyor ID") @RequestParam("surveyorId") Long surveyorId,
+            @Parameter(description = "Start date/time (ISO format)") @RequestParam("from") String from,
+            @Parameter(description = "End date/time (ISO format)") @RequestParam("to") String to) {
+        List<AvailabilityEntry> conflicts = availabilityService.findConflicts(surveyorId,
+                OffsetDateTime.parse(from), OffsetDateTime.parse(to));
+        return ResponseEntity.ok(Map.of(
+                "surveyorId", surveyorId,
+                "from", from,
+                "to", to,
+                "conflict", !conflicts.isEmpty(),
+                "blocks", conflicts
+        ));
+    }
+
+    @Operation(
+        summary = "Export availability",
+        description = "Streams every availability block in a time range as NDJSON (one JSON object per line, " +
+                      "same fields as GET /availability) or CSV. No row limit; intended for calendar sync jobs."
+    )
+    @ApiResponse(responseCode = "200", description = "Export streamed successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid time range, surveyor IDs or format")
+    @GetMapping("/availability/export")
+    public ResponseEntity<StreamingResponseBody> exportAvailability(
+            @Parameter(description = "Start date/time (ISO format)") @RequestParam("from") String from,
+            @Parameter(description = "End date/time (ISO format)") @RequestParam("to") String to,
+            @Parameter(description = "Filter by single surveyor ID") @RequestParam(value = "surveyorId", required = false) Long surveyorId,
+            @Parameter(description = "Filter by comma-separated surveyor IDs") @RequestParam(value = "surveyorIds", required = false) String surveyorIds,
+            @Parameter(description = "ndjson or csv") @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        // Validate before the body starts streaming, so errors still get a proper status
+        AvailabilityExportService.Format exportFormat = AvailabilityExportService.Format.parse(format);
+        OffsetDateTime fromTime = OffsetDateTime.parse(from);
+        OffsetDateTime toTime = OffsetDateTime.parse(to);
+        if (!toTime.isAfter(fromTime)) {
+            throw new IllegalArgumentException("'to' must be after 'from'");
+        }
+        List<Long> ids = AvailabilityService.surveyorFilter(surveyorId, surveyorIds);
+
+        StreamingResponseBody body = out -> exportService.export(exportFormat, fromTime, toTime, ids, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"availability." + exportFormat.extension() + "\"")
+                .body(body);
+    }
+
+    @Operation(
+        summary = "Import calendars",
+        description = "Bulk-loads an ICS or CSV file of availability blocks, e.g. when onboarding a team. " +
+                      "CSV needs a header with surveyor_id (unless surveyorId is given), start_time, end_time and " +
+                      "optionally state, title, description. Blocks with the same surveyor and times are updated, " +
+                      "the rest inserted; all in one transaction. Unreadable rows and unknown surveyors are skipped " +
+                      "and reported. Each affected surveyor gets one summary notification. " +
+                      "Multipart uploads are limited to 10MB and buffered before parsing; send larger files as a " +
+                      "text/csv or text/calendar request body, which is parsed as it arrives."
+    )
+    @ApiResponse(responseCode = "200", description = "Calendar imported")
+    @ApiResponse(responseCode = "400", description = "Unknown format or the import has overlapping busy blocks")
+    @PostMapping(value = "/availability/import", consumes = "multipart/form-data")
+    public ResponseEntity<Map<String, Object>> importCalendar(
+            @Parameter(description = "ICS or CSV file") @RequestParam("file") MultipartFile file,
+            @Parameter(description = "ics or csv; taken from the file name if absent") @RequestParam(value = "format", required = false) String format,
+            @Parameter(description = "Surveyor for rows that do not name one") @RequestParam(value = "surveyorId", required = false) Long surveyorId,
+            @Parameter(description = "Send each affected surveyor a summary notification") @RequestParam(value = "notify", defaultValue = "true") boolean notify)
+            throws IOException {
+        CalendarImportReader.Format importFormat = CalendarImportReader.Format.of(format, file.getOriginalFilename());
+        try (InputStream in = file.getInputStream()) {
+            return importResponse(importService.importCalendar(importFormat, in, surveyorId, notify));
+        }
+    }
+
+    @Operation(
+        summary = "Import calendars from the request body",
+        description = "Same as the multipart import, but the file is the request body and is parsed as it is " +
+                      "received, so it has no upload size limit. The format comes from the Content-Type " +
+                      "(text/csv or text/calendar) unless format is given."
+    )
+    @ApiResponse(responseCode = "200", description = "Calendar imported")
+    @ApiResponse(responseCode = "400", description = "Unknown format or the import has overlapping busy blocks")
+    @PostMapping(value = "/availability/import", consumes = {"text/csv", "text/calendar", "application/octet-stream"})
+    public ResponseEntity<Map<String, Object>> importCalendarBody(
+            InputStream body,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @Parameter(description = "ics or csv; taken from the Content-Type if absent") @RequestParam(value = "format", required = false) String format,
+            @Parameter(description = "Surveyor for rows that do not name one") @RequestParam(value = "surveyorId", required = false) Long surveyorId,
+            @Parameter(description = "Send each affected surveyor a summary notification") @RequestParam(value = "notify", defaultValue = "true") boolean notify)
+            throws IOException {
+        CalendarImportReader.Format importFormat = CalendarImportReader.Format.of(
+                format, "body." + MediaType.parseMediaType(contentType).getSubtype());
+        return importResponse(importService.importCalendar(importFormat, body, surveyorId, notify));
+    }
+
+    private static ResponseEntity<Map<String, Object>> importResponse(ImportResult result) {
+        return ResponseEntity.ok(Map.of(
+                "ok", true,
+                "rows", result.rows(),
+                "inserted", result.insertedCount(),
+                "updated", result.updatedCount(),
+                "skipped", result.skipped(),
+                "surveyors", result.surveyors(),
+                "errors", result.errors()
+        ));
     }
 
     @Operation(
         summary = "Create or update availability",
-        description = "Creates or updates availability blocks for a surveyor"
+        description = "Creates or updates availability blocks for a surveyor in one transaction. " +
+                      "Returns each block's row ID and whether it was inserted or updated."
     )
     @ApiResponse(responseCode = "200", description = "Availability updated successfully")
     @PostMapping("/mobile/availability")
     public ResponseEntity<Map<String, Object>> upsertAvailability(
             @Valid @RequestBody AvailabilityUpsertRequest req) {
 
-        availabilityService.upsertAvailability(req.surveyorId(), req.blocks());
+        UpsertResult result = availabilityService.upsertAvailability(req.surveyorId(), req.blocks());
 
-        // Send notifications for each block
-        for (var block : req.blocks()) {
-            OffsetDateTime start = OffsetDateTime.parse(block.startTime());
-            OffsetDateTime end = OffsetDateTime.parse(block.endTime());
-            notificationService.sendAppointmentNotification(
-                    req.surveyorId(), block.state(), block.title(), block.description(), start, end
-            );
-        }
+        // One notification for the whole batch
+        notificationService.sendScheduleBatchNotification(result);
 
-        return ResponseEntity.ok(Map.of("ok", true));
+        return ResponseEntity.ok(Map.of(
+                "ok", true,
+                "inserted", result.insertedCount(),
+                "updated", result.updatedCount(),
+                "blocks", result.blocks()
+        ));
     }
 
     @Operation(
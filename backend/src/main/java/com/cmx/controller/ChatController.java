@@ -4,6 +4,7 @@ import com.cmx.dto.ChatConversationDto;
 import com.cmx.dto.ChatMessageDto;
 import com.cmx.dto.TypingIndicatorDto;
 import com.cmx.service.ChatService;
+import com.cmx.service.ResourceVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -12,6 +13,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -25,6 +27,7 @@ import java.util.Map;
 public class ChatController {
 
     private final ChatService chatService;
+    private final ResourceVersions resourceVersions;
 
     // ============ WebSocket Message Handlers ============
 
@@ -140,11 +143,16 @@ public class ChatController {
      * Get unread message count
      */
     @GetMapping("/unread")
-    @Operation(summary = "Get unread message count")
+    @Operation(summary = "Get unread message count",
+               description = "Supports If-None-Match; returns 304 when the count has not changed")
     public ResponseEntity<Map<String, Integer>> getUnreadCount(
             @RequestParam Long userId,
-            @RequestParam String userType) {
+            @RequestParam String userType,
+            WebRequest request) {
 
+        if (request.checkNotModified(resourceVersions.etag(ResourceVersions.unread(userId, userType), null))) {
+            return null;
+        }
         int count = chatService.getUnreadCount(userId, userType);
         return ResponseEntity.ok(Map.of("unreadCount", count));
     }
@@ -4,6 +4,8 @@ import com.cmx.dto.DispatchDto.AcceptOfferRequest;
 import com.cmx.dto.DispatchDto.AcceptOfferResponse;
 import com.cmx.dto.DispatchDto.CreateOfferRequest;
 import com.cmx.dto.DispatchDto.OfferResponse;
+import com.cmx.dto.DispatchDto.RankedCandidate;
+import com.cmx.service.CandidateRanker;
 import com.cmx.service.DispatchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,6 +15,7 @@ import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -21,23 +24,52 @@ import java.util.Map;
 @Tag(name = "Dispatch", description = "Job dispatch and offer management APIs")
 public class DispatchController {
 
+    private static final int DEFAULT_CANDIDATES = 10;
+
     private final DispatchService dispatchService;
+    private final CandidateRanker candidateRanker;
 
-    public DispatchController(DispatchService dispatchService) {
+    public DispatchController(DispatchService dispatchService, CandidateRanker candidateRanker) {
         this.dispatchService = dispatchService;
+        this.candidateRanker = candidateRanker;
+    }
+
+    @Operation(
+        summary = "Rank dispatch candidates",
+        description = "Returns the nearest surveyors to a location that are currently available, optionally of one " +
+                      "type and with at most maxOpenJobs assigned jobs, nearest first with distance in metres"
+    )
+    @ApiResponse(responseCode = "200", description = "Candidates ranked successfully")
+    @GetMapping("/dispatch/candidates")
+    public ResponseEntity<List<RankedCandidate>> rankCandidates(
+            @Parameter(description = "Latitude of the loss location") @RequestParam("lat") double lat,
+            @Parameter(description = "Longitude of the loss location") @RequestParam("lng") double lng,
+            @Parameter(description = "Number of candidates, 1 to 200") @RequestParam(value = "k", defaultValue = "" + DEFAULT_CANDIDATES) int k,
+            @Parameter(description = "Only this surveyor type") @RequestParam(value = "surveyorType", required = false) String surveyorType,
+            @Parameter(description = "Maximum assigned jobs") @RequestParam(value = "maxOpenJobs", required = false) Integer maxOpenJobs) {
+        return ResponseEntity.ok(candidateRanker.rank(new CandidateRanker.Criteria(lat, lng, k, surveyorType, maxOpenJobs)));
     }
 
     @Operation(
         summary = "Create job offers",
-        description = "Creates job offers for candidate surveyors for a given FNOL"
+        description = "Creates job offers for candidate surveyors for a given FNOL. Without candidateSurveyorIds, the " +
+                      "candidateCount nearest available surveyors to lat/lng are picked server-side. With waveSize, " +
+                      "candidates are offered in waves of that size, the next wave opening when the previous one expires unaccepted."
     )
     @ApiResponse(responseCode = "200", description = "Offers created successfully")
     @PostMapping("/fnol/{fnolId}/offers")
     public ResponseEntity<OfferResponse> createOffers(
             @Parameter(description = "FNOL ID") @PathVariable("fnolId") String fnolId,
             @Valid @RequestBody CreateOfferRequest req) {
-        OfferResponse response = dispatchService.createOffers(fnolId, req.candidateSurveyorIds(), req.ttlSeconds());
-        return ResponseEntity.ok(response);
+        if (req.candidateSurveyorIds() != null && !req.candidateSurveyorIds().isEmpty()) {
+            return ResponseEntity.ok(dispatchService.createOffers(fnolId, req.candidateSurveyorIds(), req.ttlSeconds(), req.waveSize()));
+        }
+        if (req.lat() == null || req.lng() == null) {
+            throw new IllegalArgumentException("Either candidateSurveyorIds or lat/lng is required");
+        }
+        CandidateRanker.Criteria criteria = new CandidateRanker.Criteria(req.lat(), req.lng(),
+                req.candidateCount() != null ? req.candidateCount() : DEFAULT_CANDIDATES, req.surveyorType(), req.maxOpenJobs());
+        return ResponseEntity.ok(dispatchService.createOffers(fnolId, criteria, req.ttlSeconds(), req.waveSize()));
     }
 
     @Operation(
@@ -0,0 +1,66 @@
+package com.cmx.controller;
+
+import com.cmx.service.EventHubService;
+import com.cmx.service.EventHubService.Topic;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+
+/**
+ * Multiplexed Server-Sent Events endpoint.
+ * A single connection can carry any combination of the location, activity, offer and chat streams,
+ * replacing separate connections to /api/locations/stream and /api/dispatcher/stream.
+ */
+@RestController
+@RequestMapping("/api/events")
+@CrossOrigin(origins = "*")
+@Tag(name = "Event Stream", description = "Multiplexed real-time event stream via SSE")
+public class EventStreamController {
+
+    private static final long STREAM_TIMEOUT = 30 * 60 * 1000L; // 30 minutes, clients reconnect
+
+    private final EventHubService eventHub;
+
+    public EventStreamController(EventHubService eventHub) {
+        this.eventHub = eventHub;
+    }
+
+    /**
+     * Subscribe to one or more topics over a single SSE connection.
+     * Event names are the same as on the single-topic streams
+     * ("location", "status", "surveyor-activity", "offer-created", ...).
+     */
+    @Operation(
+        summary = "Subscribe to multiplexed event stream",
+        description = "Opens one SSE connection for the requested topics (locations, activity, offers, chat). " +
+                      "Omitting the topics parameter subscribes to all topics."
+    )
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @Parameter(description = "Comma-separated topics, e.g. locations,activity,offers")
+            @RequestParam(value = "topics", required = false) String topics) {
+        return eventHub.subscribe(Topic.parse(topics), STREAM_TIMEOUT, "Event stream connected");
+    }
+
+    /**
+     * Get stream status
+     */
+    @Operation(
+        summary = "Get event stream status",
+        description = "Returns the number of open connections and subscribers per topic"
+    )
+    @GetMapping("/stream/status")
+    public ResponseEntity<Map<String, Object>> getStreamStatus() {
+        return ResponseEntity.ok(Map.of(
+            "activeConnections", eventHub.getConnectionCount(),
+            "subscribers", eventHub.getSubscriberCounts(),
+            "timestamp", System.currentTimeMillis()
+        ));
+    }
+}
@@ -1,7 +1,10 @@
 package com.cmx.controller;
 
+import com.cmx.location.CompactLocationCodec;
 import com.cmx.service.LocationBroadcastService;
+import com.cmx.service.LocationHistoryService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -22,9 +25,12 @@ import java.util.Map;
 public class LocationStreamController {
 
     private final LocationBroadcastService broadcastService;
+    private final LocationHistoryService historyService;
 
-    public LocationStreamController(LocationBroadcastService broadcastService) {
+    public LocationStreamController(LocationBroadcastService broadcastService,
+                                    LocationHistoryService historyService) {
         this.broadcastService = broadcastService;
+        this.historyService = historyService;
     }
 
     /**
@@ -33,15 +39,24 @@ public class LocationStreamController {
      * - "connected": Initial connection confirmation
      * - "location": Surveyor location update with trail data
      * - "status": Surveyor status change
+     *
+     * The compact encoding is selected with ?encoding=compact or by listing
+     * application/vnd.cmx.location-compact in the Accept header.
      */
     @Operation(
         summary = "Subscribe to location stream",
         description = "Opens an SSE connection to receive real-time surveyor location updates. " +
-                      "Events include 'location' (with lat, lng, trail) and 'status' updates."
+                      "Events include 'location' (with lat, lng, trail) and 'status' updates. " +
+                      "With encoding=compact, 'location' events carry base64 binary frames."
     )
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamLocations() {
-        return broadcastService.subscribe();
+    public SseEmitter streamLocations(
+            @Parameter(description = "Event encoding: json (default) or compact")
+            @RequestParam(value = "encoding", required = false) String encoding,
+            @RequestHeader(value = "Accept", required = false) String accept) {
+        boolean compact = "compact".equalsIgnoreCase(encoding)
+                || (encoding == null && accept != null && accept.contains(CompactLocationCodec.MEDIA_TYPE));
+        return broadcastService.subscribe(compact);
     }
 
     /**
@@ -68,6 +83,24 @@ public class LocationStreamController {
         return ResponseEntity.ok(broadcastService.getLocationTrail(surveyorId));
     }
 
+    /**
+     * Get the persisted location history for a surveyor, downsampled to a point budget.
+     */
+    @Operation(
+        summary = "Get surveyor location history",
+        description = "Returns the recorded trail between two instants (max 7 days), simplified with " +
+                      "Douglas-Peucker to at most maxPoints points"
+    )
+    @GetMapping("/history/{surveyorId}")
+    public ResponseEntity<Map<String, Object>> getLocationHistory(
+            @PathVariable("surveyorId") Long surveyorId,
+            @Parameter(description = "Start date/time (ISO format)") @RequestParam("from") String from,
+            @Parameter(description = "End date/time (ISO format)") @RequestParam("to") String to,
+            @Parameter(description = "Maximum number of points to return (2-5000)")
+            @RequestParam(value = "maxPoints", defaultValue = "300") Integer maxPoints) {
+        return ResponseEntity.ok(historyService.getTrail(surveyorId, from, to, maxPoints));
+    }
+
     /**
      * Get stream status
      */
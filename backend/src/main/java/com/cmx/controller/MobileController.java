@@ -1,12 +1,17 @@
 package com.cmx.controller;
 
+import com.cmx.dto.AvailabilityDto.AppointmentEntry;
 import com.cmx.dto.DeviceTokenDto.DeviceTokenRequest;
+import com.cmx.dto.InspectionDto.InspectionDetail;
+import com.cmx.dto.InspectionDto.InspectionSummary;
 import com.cmx.dto.NotificationDto.NotificationAuditEntry;
 import com.cmx.service.AvailabilityService;
 import com.cmx.service.DeviceTokenService;
 import com.cmx.service.InspectionService;
+import com.cmx.service.LocationIngestService;
 import com.cmx.service.NotificationAuditService;
 import com.cmx.service.NotificationService;
+import com.cmx.service.ResourceVersions;
 import com.cmx.service.SurveyorService;
 import com.cmx.service.SurveyorActivityService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -16,7 +21,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,7 +41,12 @@ public class MobileController {
     private final NotificationService notificationService;
     private final SurveyorActivityService activityService;
     private final InspectionService inspectionService;
+    private final LocationIngestService ingestService;
     private final com.cmx.repository.SurveyorRepository surveyorRepository;
+    private final ResourceVersions resourceVersions;
+
+    // "Upcoming" depends on the clock, so that view's ETag also rolls over once a minute
+    private static final Duration UPCOMING_BUCKET = Duration.ofMinutes(1);
 
     public MobileController(DeviceTokenService deviceTokenService,
                             NotificationAuditService auditService,
@@ -43,7 +55,9 @@ public class MobileController {
                             NotificationService notificationService,
                             SurveyorActivityService activityService,
                             InspectionService inspectionService,
-                            com.cmx.repository.SurveyorRepository surveyorRepository) {
+                            LocationIngestService ingestService,
+                            com.cmx.repository.SurveyorRepository surveyorRepository,
+                            ResourceVersions resourceVersions) {
         this.deviceTokenService = deviceTokenService;
         this.auditService = auditService;
         this.availabilityService = availabilityService;
@@ -51,7 +65,9 @@ public class MobileController {
         this.notificationService = notificationService;
         this.activityService = activityService;
         this.inspectionService = inspectionService;
+        this.ingestService = ingestService;
         this.surveyorRepository = surveyorRepository;
+        this.resourceVersions = resourceVersions;
     }
 
     // ==================== Authentication ====================
@@ -216,13 +232,20 @@ public class MobileController {
 
     @Operation(
         summary = "Get surveyor appointments",
-        description = "Retrieves appointments for a specific surveyor"
+        description = "Retrieves appointments for a specific surveyor. Supports If-None-Match; returns 304 when nothing changed."
     )
     @ApiResponse(responseCode = "200", description = "Appointments retrieved successfully")
+    @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match")
     @GetMapping("/appointments/{surveyorId}")
-    public ResponseEntity<List<Map<String, Object>>> getAppointments(
+    public ResponseEntity<List<AppointmentEntry>> getAppointments(
             @Parameter(description = "Surveyor ID") @PathVariable("surveyorId") Long surveyorId,
-            @Parameter(description = "Only return upcoming appointments") @RequestParam(value = "upcoming", defaultValue = "true") boolean upcomingOnly) {
+            @Parameter(description = "Only return upcoming appointments") @RequestParam(value = "upcoming", defaultValue = "true") boolean upcomingOnly,
+            WebRequest request) {
+        String etag = resourceVersions.etag(ResourceVersions.appointments(surveyorId),
+                upcomingOnly ? UPCOMING_BUCKET : null, upcomingOnly);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         return ResponseEntity.ok(availabilityService.getAppointmentsForSurveyor(surveyorId, upcomingOnly));
     }
 
@@ -257,9 +280,9 @@ public class MobileController {
                 notificationService.sendAppointmentResponseConfirmation(
                     surveyorId,
                     appointmentId,
-                    (String) appointmentDetails.get("title"),
-                    java.time.OffsetDateTime.parse((String) appointmentDetails.get("start_time")),
-                    java.time.OffsetDateTime.parse((String) appointmentDetails.get("end_time")),
+                    appointmentDetails.block().title(),
+                    appointmentDetails.block().startTime(),
+                    appointmentDetails.block().endTime(),
                     response
                 );
             }
@@ -288,8 +311,9 @@ public class MobileController {
         Long surveyorId = ((Number) request.get("surveyorId")).longValue();
         Double lat = ((Number) request.get("lat")).doubleValue();
         Double lng = ((Number) request.get("lng")).doubleValue();
+        Long timestamp = LocationIngestService.deviceTimestamp(request.get("timestamp"));
 
-        boolean success = surveyorService.updateLocation(surveyorId, lat, lng);
+        boolean success = ingestService.ingest(surveyorId, lat, lng, null, timestamp);
 
         return ResponseEntity.ok(Map.of(
             "success", success,
@@ -313,7 +337,7 @@ public class MobileController {
         var surveyor = surveyorRepository.findById(surveyorId).orElse(null);
         String previousStatus = surveyor != null ? surveyor.getCurrentStatus() : null;
 
-        boolean success = surveyorService.updateStatus(surveyorId, newStatus);
+        boolean success = ingestService.updateStatus(surveyorId, newStatus);
 
         if (success) {
             // Log activity and notify dispatcher (don't fail on logging errors)
@@ -364,7 +388,7 @@ public class MobileController {
 
         // Also update location if provided
         if (lat != null && lng != null) {
-            surveyorService.updateLocation(surveyorId, lat, lng);
+            ingestService.ingest(surveyorId, lat, lng, null);
         }
 
         return ResponseEntity.ok(Map.of(
@@ -384,8 +408,9 @@ public class MobileController {
         Double lat = ((Number) request.get("lat")).doubleValue();
         Double lng = ((Number) request.get("lng")).doubleValue();
         String status = (String) request.get("status");
+        Long timestamp = LocationIngestService.deviceTimestamp(request.get("timestamp"));
 
-        boolean success = surveyorService.updateLocationAndStatus(surveyorId, lat, lng, status);
+        boolean success = ingestService.ingest(surveyorId, lat, lng, status, timestamp);
 
         return ResponseEntity.ok(Map.of(
             "success", success,
@@ -491,7 +516,7 @@ public class MobileController {
     @ApiResponse(responseCode = "200", description = "Inspection report retrieved successfully")
     @ApiResponse(responseCode = "404", description = "Report not found")
     @GetMapping("/inspections/{reportId}")
-    public ResponseEntity<Map<String, Object>> getInspection(
+    public ResponseEntity<InspectionDetail> getInspection(
             @Parameter(description = "Report ID") @PathVariable("reportId") Long reportId) {
         return inspectionService.getInspectionById(reportId)
                 .map(ResponseEntity::ok)
@@ -505,7 +530,7 @@ public class MobileController {
     @ApiResponse(responseCode = "200", description = "Inspection report retrieved successfully")
     @ApiResponse(responseCode = "404", description = "Report not found")
     @GetMapping("/inspections/appointment/{appointmentId}")
-    public ResponseEntity<Map<String, Object>> getInspectionByAppointment(
+    public ResponseEntity<InspectionDetail> getInspectionByAppointment(
             @Parameter(description = "Appointment ID") @PathVariable("appointmentId") Long appointmentId) {
         return inspectionService.getInspectionByAppointment(appointmentId)
                 .map(ResponseEntity::ok)
@@ -518,7 +543,7 @@ public class MobileController {
     )
     @ApiResponse(responseCode = "200", description = "Inspections retrieved successfully")
     @GetMapping("/inspections/surveyor/{surveyorId}")
-    public ResponseEntity<List<Map<String, Object>>> getSurveyorInspections(
+    public ResponseEntity<List<InspectionSummary>> getSurveyorInspections(
             @Parameter(description = "Surveyor ID") @PathVariable("surveyorId") Long surveyorId,
             @Parameter(description = "Maximum number of records") @RequestParam(value = "limit", defaultValue = "50") int limit,
             @Parameter(description = "Offset for pagination") @RequestParam(value = "offset", defaultValue = "0") int offset) {
@@ -1,6 +1,12 @@
 package com.cmx.controller;
 
+import com.cmx.dto.LocationDto.LocationBatchResponse;
+import com.cmx.dto.LocationDto.LocationMessage;
 import com.cmx.service.LocationBroadcastService;
+import com.cmx.service.LocationIngestService;
+import com.cmx.service.LocationPipelineMetrics;
+import com.cmx.service.LocationPipelineMetrics.Stage;
+import com.cmx.service.MessageDeduplicator;
 import com.cmx.service.SurveyorService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -15,16 +21,23 @@ import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * QStash Webhook Controller v1.0.3
  * Receives location and status updates from mobile devices via Upstash QStash.
  * Now broadcasts updates to connected SSE clients for real-time tracking.
  *
- * Flow: Mobile App -> QStash -> This Webhook -> Database -> SSE Broadcast
+ * Flow: Mobile App -> QStash -> This Webhook -> SSE Broadcast + write-behind buffer -> batched Database flush
  *
- * Enhanced logging for message visibility and debugging.
+ * Redeliveries (same Upstash-Message-Id) are acknowledged without being processed again.
+ *
+ * Each pipeline stage is timed (see LocationPipelineMetrics); per-message INFO logging is sampled
+ * via qstash.log.sample-rate, full payloads are only logged at DEBUG.
  */
 @RestController
 @RequestMapping("/api/webhook/qstash")
@@ -34,15 +47,22 @@ public class QStashWebhookController {
 
     private static final Logger logger = LoggerFactory.getLogger(QStashWebhookController.class);
 
-    // Track message statistics
-    private long totalMessagesReceived = 0;
-    private long locationUpdates = 0;
-    private long statusUpdates = 0;
-    private long appointmentResponses = 0;
-    private long failedMessages = 0;
+    // Track message statistics; updated from concurrent request threads
+    private final LongAdder totalMessagesReceived = new LongAdder();
+    private final LongAdder locationUpdates = new LongAdder();
+    private final LongAdder statusUpdates = new LongAdder();
+    private final LongAdder appointmentResponses = new LongAdder();
+    private final LongAdder failedMessages = new LongAdder();
 
     private final SurveyorService surveyorService;
     private final LocationBroadcastService broadcastService;
+    private final LocationIngestService ingestService;
+    private final MessageDeduplicator deduplicator;
+    private final LocationPipelineMetrics metrics;
+
+    // Log one in this many messages at INFO (1 logs every message)
+    @Value("${qstash.log.sample-rate:100}")
+    private int logSampleRate;
 
     @Value("${qstash.current-signing-key:}")
     private String currentSigningKey;
@@ -50,9 +70,16 @@ public class QStashWebhookController {
     @Value("${qstash.next-signing-key:}")
     private String nextSigningKey;
 
-    public QStashWebhookController(SurveyorService surveyorService, LocationBroadcastService broadcastService) {
+    public QStashWebhookController(SurveyorService surveyorService,
+                                   LocationBroadcastService broadcastService,
+                                   LocationIngestService ingestService,
+                                   MessageDeduplicator deduplicator,
+                                   LocationPipelineMetrics metrics) {
         this.surveyorService = surveyorService;
         this.broadcastService = broadcastService;
+        this.ingestService = ingestService;
+        this.deduplicator = deduplicator;
+        this.metrics = metrics;
     }
 
     @Operation(
@@ -62,12 +89,23 @@ public class QStashWebhookController {
     @PostMapping("/location")
     public ResponseEntity<Map<String, Object>> receiveLocationUpdate(
             @RequestHeader(value = "Upstash-Signature", required = false) String signature,
+            @RequestHeader(value = "Upstash-Message-Id", required = false) String messageId,
             @RequestBody Map<String, Object> payload) {
 
-        totalMessagesReceived++;
-        logger.info("========== QSTASH MESSAGE #{} ==========", totalMessagesReceived);
-        logger.info("Received QStash location webhook: {}", payload);
-        logger.info("Headers - Upstash-Signature: {}", signature != null ? "present" : "missing");
+        ResponseEntity<Map<String, Object>> redelivery = checkRedelivery(messageId);
+        if (redelivery != null) {
+            return redelivery;
+        }
+
+        ResponseEntity<Map<String, Object>> response = processLocationUpdate(signature, payload);
+        settle(messageId, response.getStatusCode().is5xxServerError());
+        return response;
+    }
+
+    private ResponseEntity<Map<String, Object>> processLocationUpdate(String signature, Map<String, Object> payload) {
+        totalMessagesReceived.increment();
+        boolean sampled = sampleLog();
+        logger.debug("Received QStash location webhook: {}", payload);
 
         // Verify signature in production (skip if keys not configured)
         // In production, you should always verify the signature
@@ -78,127 +116,95 @@ public class QStashWebhookController {
         }
 
         try {
-            // Extract payload data
+            long parseStart = System.nanoTime();
             String type = (String) payload.get("type");
-            logger.info("Message type: {}", type);
 
             if ("location".equals(type) || "location_status".equals(type)) {
-                locationUpdates++;
+                locationUpdates.increment();
                 Long surveyorId = ((Number) payload.get("surveyorId")).longValue();
                 Double lat = payload.get("lat") != null ? ((Number) payload.get("lat")).doubleValue() : null;
                 Double lng = payload.get("lng") != null ? ((Number) payload.get("lng")).doubleValue() : null;
                 String status = (String) payload.get("status");
-
-                logger.info("LOCATION UPDATE - Surveyor: {}, Lat: {}, Lng: {}, Status: {}",
-                    surveyorId, lat, lng, status);
-
-                // Get surveyor name for broadcast
-                String displayName = null;
-                try {
-                    var details = surveyorService.getSurveyorDetails(surveyorId);
-                    displayName = (String) details.get("display_name");
-                    logger.info("Surveyor name resolved: {}", displayName);
-                } catch (Exception e) {
-                    logger.warn("Could not get surveyor name for broadcast: {}", e.getMessage());
-                }
+                Long timestamp = LocationIngestService.deviceTimestamp(payload.get("timestamp"));
+                metrics.record(Stage.PARSE, parseStart);
 
                 boolean success;
-                if (lat != null && lng != null && status != null) {
-                    success = surveyorService.updateLocationAndStatus(surveyorId, lat, lng, status);
-                    logger.info("SUCCESS: Updated location and status for surveyor {} ({}): ({}, {}) - {}",
-                        surveyorId, displayName, lat, lng, status);
-                    // Broadcast to connected SSE clients
-                    broadcastService.broadcastLocationUpdate(surveyorId, lat, lng, status, displayName);
-                    logger.info("SSE broadcast sent to {} active clients", broadcastService.getActiveClientCount());
-                } else if (lat != null && lng != null) {
-                    success = surveyorService.updateLocation(surveyorId, lat, lng);
-                    logger.info("SUCCESS: Updated location for surveyor {} ({}): ({}, {})",
-                        surveyorId, displayName, lat, lng);
-                    // Broadcast to connected SSE clients
-                    broadcastService.broadcastLocationUpdate(surveyorId, lat, lng, status, displayName);
-                    logger.info("SSE broadcast sent to {} active clients", broadcastService.getActiveClientCount());
+                if (lat != null && lng != null) {
+                    // Broadcast now, persist on the next write-behind flush
+                    success = ingestService.ingest(surveyorId, lat, lng, status, timestamp);
                 } else if (status != null) {
-                    success = surveyorService.updateStatus(surveyorId, status);
-                    logger.info("SUCCESS: Updated status for surveyor {} ({}): {}", surveyorId, displayName, status);
-                    // Broadcast status-only update
-                    broadcastService.broadcastStatusUpdate(surveyorId, status, displayName);
-                    logger.info("SSE status broadcast sent to {} active clients", broadcastService.getActiveClientCount());
+                    success = applyStatus(surveyorId, status);
                 } else {
-                    failedMessages++;
-                    logger.error("FAILED: No location or status provided in payload");
+                    failedMessages.increment();
+                    logger.warn("QStash {} message for surveyor {} has no location or status", type, surveyorId);
                     return ResponseEntity.badRequest().body(Map.of(
                         "success", false,
                         "error", "No location or status provided"
                     ));
                 }
 
-                logger.info("========== END QSTASH MESSAGE #{} (SUCCESS) ==========", totalMessagesReceived);
+                if (sampled) {
+                    logger.info("QStash {} message (sampled): surveyor {} at ({}, {}) status {} - {}",
+                        type, surveyorId, lat, lng, status, success ? "processed" : "failed");
+                }
                 return ResponseEntity.ok(Map.of(
                     "success", success,
                     "message", success ? "Update processed" : "Failed to update"
                 ));
 
             } else if ("status".equals(type)) {
-                statusUpdates++;
+                statusUpdates.increment();
                 Long surveyorId = ((Number) payload.get("surveyorId")).longValue();
                 String status = (String) payload.get("status");
+                metrics.record(Stage.PARSE, parseStart);
 
-                logger.info("STATUS UPDATE - Surveyor: {}, New Status: {}", surveyorId, status);
+                boolean success = applyStatus(surveyorId, status);
 
-                // Get surveyor name for broadcast
-                String displayName = null;
-                try {
-                    var details = surveyorService.getSurveyorDetails(surveyorId);
-                    displayName = (String) details.get("display_name");
-                    logger.info("Surveyor name resolved: {}", displayName);
-                } catch (Exception e) {
-                    logger.warn("Could not get surveyor name for broadcast: {}", e.getMessage());
+                if (sampled) {
+                    logger.info("QStash status message (sampled): surveyor {} status {} - {}",
+                        surveyorId, status, success ? "processed" : "failed");
                 }
-
-                boolean success = surveyorService.updateStatus(surveyorId, status);
-                logger.info("SUCCESS: Updated status for surveyor {} ({}): {}", surveyorId, displayName, status);
-
-                // Broadcast status update
-                broadcastService.broadcastStatusUpdate(surveyorId, status, displayName);
-                logger.info("SSE status broadcast sent to {} active clients", broadcastService.getActiveClientCount());
-
-                logger.info("========== END QSTASH MESSAGE #{} (SUCCESS) ==========", totalMessagesReceived);
                 return ResponseEntity.ok(Map.of(
                     "success", success,
                     "message", success ? "Status updated" : "Failed to update status"
                 ));
 
             } else if ("appointment_response".equals(type)) {
-                appointmentResponses++;
+                appointmentResponses.increment();
                 // Handle appointment accept/reject via QStash
                 Long appointmentId = ((Number) payload.get("appointmentId")).longValue();
                 Long surveyorId = ((Number) payload.get("surveyorId")).longValue();
                 String response = (String) payload.get("response"); // ACCEPTED or REJECTED
-
-                logger.info("APPOINTMENT RESPONSE - AppointmentId: {}, SurveyorId: {}, Response: {}",
-                    appointmentId, surveyorId, response);
+                metrics.record(Stage.PARSE, parseStart);
 
                 // This would need AvailabilityService - for now just log it
-                logger.info("========== END QSTASH MESSAGE #{} (SUCCESS) ==========", totalMessagesReceived);
+                logger.info("QStash appointment response: appointment {}, surveyor {}, response {}",
+                    appointmentId, surveyorId, response);
                 return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "Appointment response received (processing not implemented yet)"
                 ));
 
             } else {
-                failedMessages++;
-                logger.warn("UNKNOWN TYPE: {}", type);
-                logger.info("========== END QSTASH MESSAGE #{} (FAILED - Unknown type) ==========", totalMessagesReceived);
+                failedMessages.increment();
+                logger.warn("Unknown QStash payload type: {}", type);
                 return ResponseEntity.badRequest().body(Map.of(
                     "success", false,
                     "error", "Unknown payload type: " + type
                 ));
             }
 
+        } catch (IllegalArgumentException e) {
+            // Invalid content; a 4xx settles the message instead of having QStash redeliver it
+            failedMessages.increment();
+            logger.warn("Rejected QStash webhook {}: {}", payload, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "error", e.getMessage()
+            ));
         } catch (Exception e) {
-            failedMessages++;
-            logger.error("ERROR processing QStash webhook: {}", e.getMessage(), e);
-            logger.info("========== END QSTASH MESSAGE #{} (ERROR) ==========", totalMessagesReceived);
+            failedMessages.increment();
+            logger.error("ERROR processing QStash webhook {}: {}", payload, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
                 "success", false,
                 "error", e.getMessage()
@@ -206,6 +212,83 @@ public class QStashWebhookController {
         }
     }
 
+    /**
+     * Write a status-only update through and broadcast it, timing each stage.
+     */
+    private boolean applyStatus(Long surveyorId, String status) {
+        long start = System.nanoTime();
+        String displayName = surveyorService.getDisplayName(surveyorId);
+        metrics.record(Stage.LOOKUP, start);
+
+        start = System.nanoTime();
+        boolean success = ingestService.updateStatus(surveyorId, status);
+        metrics.record(Stage.DB_WRITE, start);
+
+        start = System.nanoTime();
+        broadcastService.broadcastStatusUpdate(surveyorId, status, displayName);
+        metrics.record(Stage.BROADCAST, start);
+        return success;
+    }
+
+    /**
+     * Whether this message's summary line should be logged at INFO. Sampling keeps per-message
+     * logging off the hot path while still showing what traffic looks like.
+     */
+    private boolean sampleLog() {
+        return logSampleRate <= 1 || ThreadLocalRandom.current().nextInt(logSampleRate) == 0;
+    }
+
+    /**
+     * Receive a batch of buffered messages in one delivery. Invalid items are reported per index;
+     * valid ones are persisted together, so a database failure fails the whole batch and QStash retries it.
+     */
+    @Operation(
+        summary = "Receive batched location/status updates from QStash",
+        description = "Accepts an array of location, status and location_status messages (max 500). " +
+                      "Keeps the newest position per surveyor for live state, appends every position to history " +
+                      "and returns a result per item."
+    )
+    @PostMapping("/location/batch")
+    public ResponseEntity<?> receiveLocationBatch(
+            @RequestHeader(value = "Upstash-Signature", required = false) String signature,
+            @RequestHeader(value = "Upstash-Message-Id", required = false) String messageId,
+            @RequestBody List<LocationMessage> messages) {
+
+        MessageDeduplicator.Outcome outcome = deduplicator.tryAcquire(messageId);
+        if (outcome == MessageDeduplicator.Outcome.DUPLICATE) {
+            logger.debug("Skipping redelivered QStash batch {}", messageId);
+            return ResponseEntity.ok(new LocationBatchResponse(messages.size(), 0, 0, 0, 0, List.of()));
+        }
+        if (outcome == MessageDeduplicator.Outcome.IN_PROGRESS) {
+            return stillProcessing();
+        }
+
+        LocationBatchResponse response;
+        try {
+            response = ingestService.ingestBatch(messages);
+        } catch (RuntimeException e) {
+            // A rejected or failed batch may be redelivered and must then be processed again
+            deduplicator.release(messageId);
+            throw e;
+        }
+        deduplicator.complete(messageId);
+
+        totalMessagesReceived.add(response.received());
+        failedMessages.add(response.rejected());
+        for (LocationMessage message : messages) {
+            if (message != null && "status".equals(message.type())) {
+                statusUpdates.increment();
+            } else {
+                locationUpdates.increment();
+            }
+        }
+        logger.info("QStash batch processed: {} received, {} accepted, {} rejected, {} positions and {} statuses applied",
+            response.received(), response.accepted(), response.rejected(),
+            response.positionsUpdated(), response.statusesUpdated());
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Get QStash message statistics for monitoring
      */
@@ -215,16 +298,19 @@ public class QStashWebhookController {
     )
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getStats() {
-        return ResponseEntity.ok(Map.of(
-            "status", "running",
-            "totalMessagesReceived", totalMessagesReceived,
-            "locationUpdates", locationUpdates,
-            "statusUpdates", statusUpdates,
-            "appointmentResponses", appointmentResponses,
-            "failedMessages", failedMessages,
-            "activeSSEClients", broadcastService.getActiveClientCount(),
-            "timestamp", System.currentTimeMillis()
-        ));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("status", "running");
+        stats.put("totalMessagesReceived", totalMessagesReceived.sum());
+        stats.put("locationUpdates", locationUpdates.sum());
+        stats.put("statusUpdates", statusUpdates.sum());
+        stats.put("appointmentResponses", appointmentResponses.sum());
+        stats.put("failedMessages", failedMessages.sum());
+        stats.put("activeSSEClients", broadcastService.getActiveClientCount());
+        stats.put("ingest", ingestService.getStats());
+        stats.put("deduplication", deduplicator.getStats());
+        stats.put("pipeline", metrics.getStats());
+        stats.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(stats);
     }
 
     /**
@@ -239,6 +325,48 @@ public class QStashWebhookController {
         ));
     }
 
+    /**
+     * Short-circuit a redelivered message: duplicates of processed messages are acknowledged,
+     * redeliveries of a message still in flight get a 409 so QStash retries them later.
+     * Returns null if the message should be processed.
+     */
+    private ResponseEntity<Map<String, Object>> checkRedelivery(String messageId) {
+        switch (deduplicator.tryAcquire(messageId)) {
+            case DUPLICATE:
+                logger.debug("Skipping redelivered QStash message {}", messageId);
+                return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "duplicate", true,
+                    "message", "Already processed"
+                ));
+            case IN_PROGRESS:
+                return stillProcessing();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 409 for a redelivery of a message still in flight, so QStash retries it later.
+     */
+    private ResponseEntity<Map<String, Object>> stillProcessing() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+            "success", false,
+            "error", "Message is still being processed"
+        ));
+    }
+
+    /**
+     * Remember a processed message, or forget it after a server-side failure so its redelivery is retried.
+     */
+    private void settle(String messageId, boolean failed) {
+        if (failed) {
+            deduplicator.release(messageId);
+        } else {
+            deduplicator.complete(messageId);
+        }
+    }
+
     /**
      * Verify QStash signature (optional but recommended for production)
      */
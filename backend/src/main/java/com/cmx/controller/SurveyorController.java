@@ -1,12 +1,18 @@
 package com.cmx.controller;
 
+import com.cmx.dto.SurveyorDto.SurveyorListItem;
+import com.cmx.service.ResourceVersions;
+import com.cmx.service.SurveyorDirectory;
 import com.cmx.service.SurveyorService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -17,22 +23,51 @@ import java.util.Map;
 public class SurveyorController {
 
     private final SurveyorService surveyorService;
+    private final SurveyorDirectory surveyorDirectory;
+    private final ResourceVersions resourceVersions;
 
-    public SurveyorController(SurveyorService surveyorService) {
+    // Current status depends on the clock, so the ETag also rolls over once a minute
+    private static final Duration STATE_BUCKET = Duration.ofMinutes(1);
+
+    public SurveyorController(SurveyorService surveyorService, SurveyorDirectory surveyorDirectory,
+                              ResourceVersions resourceVersions) {
         this.surveyorService = surveyorService;
+        this.surveyorDirectory = surveyorDirectory;
+        this.resourceVersions = resourceVersions;
     }
 
     @Operation(
         summary = "List all surveyors",
-        description = "Retrieves a list of all surveyors, optionally filtered by type and status"
+        description = "Retrieves a list of all surveyors, optionally filtered by type and status. " +
+                      "Supports If-None-Match; returns 304 when nothing changed."
     )
     @ApiResponse(responseCode = "200", description = "Successfully retrieved list of surveyors")
+    @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match")
     @GetMapping("/surveyors")
-    public List<Map<String, Object>> listSurveyors(
+    public List<SurveyorListItem> listSurveyors(
             @Parameter(description = "Filter by surveyor type (INTERNAL/EXTERNAL)")
             @RequestParam(value = "type", required = false) String type,
             @Parameter(description = "Filter by current status (AVAILABLE/BUSY/OFFLINE)")
-            @RequestParam(value = "currentStatus", required = false) String currentStatus) {
+            @RequestParam(value = "currentStatus", required = false) String currentStatus,
+            WebRequest request) {
+        if (request.checkNotModified(resourceVersions.etag(ResourceVersions.SURVEYORS, STATE_BUCKET, type, currentStatus))) {
+            return null;
+        }
         return surveyorService.listSurveyors(type, currentStatus);
     }
+
+    @Operation(
+        summary = "Refresh surveyor directory",
+        description = "Rebuilds the in-memory surveyor directory after surveyor rows were changed outside the API"
+    )
+    @ApiResponse(responseCode = "200", description = "Directory refreshed")
+    @PostMapping("/surveyors/directory/refresh")
+    public ResponseEntity<Map<String, Object>> refreshDirectory() {
+        SurveyorDirectory.Snapshot snapshot = surveyorDirectory.refresh();
+        return ResponseEntity.ok(Map.of(
+            "version", snapshot.version(),
+            "surveyors", snapshot.entries().size(),
+            "builtAt", snapshot.builtAt().toString()
+        ));
+    }
 }
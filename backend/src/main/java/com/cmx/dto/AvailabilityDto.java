@@ -1,5 +1,6 @@
 package com.cmx.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -7,6 +8,7 @@ import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 public class AvailabilityDto {
@@ -52,4 +54,90 @@ public class AvailabilityDto {
             String description,
             String updatedAt
     ) {}
+
+    /**
+     * Availability block as returned by the availability query. Text columns are defaulted to ""
+     * when the row is read; a missing {@code updatedAt} is written as "".
+     */
+    @JsonSerialize(using = ResponseSerializers.AvailabilityEntrySerializer.class)
+    public record AvailabilityEntry(
+            long id,
+            long surveyorId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            String state,
+            String source,
+            String title,
+            String description,
+            OffsetDateTime updatedAt
+    ) {}
+
+    /**
+     * One keyset page of availability. {@code nextCursor} is null on the last page.
+     */
+    public record AvailabilityPage(List<AvailabilityEntry> entries, String nextCursor) {}
+
+    /**
+     * Availability block with the surveyor's response, as shown in the mobile appointment list.
+     */
+    @JsonSerialize(using = ResponseSerializers.AppointmentEntrySerializer.class)
+    public record AppointmentEntry(
+            AvailabilityEntry block,
+            String responseStatus,
+            OffsetDateTime respondedAt
+    ) {}
+
+    /**
+     * One block of an upsert batch and the row it ended up in.
+     */
+    public record UpsertedBlock(
+            long id,
+            boolean inserted,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            String state,
+            String title,
+            String description
+    ) {}
+
+    /**
+     * Outcome of an availability upsert batch, in request order (duplicate time ranges collapsed).
+     */
+    public record UpsertResult(Long surveyorId, List<UpsertedBlock> blocks) {
+
+        public long insertedCount() {
+            return blocks.stream().filter(UpsertedBlock::inserted).count();
+        }
+
+        public long updatedCount() {
+            return blocks.size() - insertedCount();
+        }
+    }
+
+    /**
+     * Per-surveyor outcome of a bulk calendar import.
+     */
+    public record ImportedSurveyor(
+            Long surveyorId,
+            int inserted,
+            int updated,
+            OffsetDateTime firstStart,
+            OffsetDateTime lastEnd
+    ) {}
+
+    /**
+     * Outcome of a bulk calendar import. {@code rows} counts usable rows read from the file,
+     * {@code skipped} the rows left out (unreadable or for unknown surveyors); {@code errors} lists
+     * the first of them by line.
+     */
+    public record ImportResult(int rows, int skipped, List<String> errors, List<ImportedSurveyor> surveyors) {
+
+        public long insertedCount() {
+            return surveyors.stream().mapToLong(ImportedSurveyor::inserted).sum();
+        }
+
+        public long updatedCount() {
+            return surveyors.stream().mapToLong(ImportedSurveyor::updated).sum();
+        }
+    }
 }
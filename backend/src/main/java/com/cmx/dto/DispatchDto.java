@@ -1,14 +1,28 @@
 package com.cmx.dto;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
 import java.util.List;
 
 public class DispatchDto {
 
+    /**
+     * Either explicit {@code candidateSurveyorIds}, or a loss location ({@code lat}/{@code lng}) for the
+     * service to pick the {@code candidateCount} nearest eligible surveyors itself.
+     */
     public record CreateOfferRequest(
-            @NotNull List<Long> candidateSurveyorIds,
-            long ttlSeconds
+            List<Long> candidateSurveyorIds,
+            long ttlSeconds,
+            Integer waveSize,
+            @DecimalMin("-90") @DecimalMax("90") Double lat,
+            @DecimalMin("-180") @DecimalMax("180") Double lng,
+            @Min(1) @Max(200) Integer candidateCount,
+            String surveyorType,
+            @Min(0) Integer maxOpenJobs
     ) {}
 
     public record AcceptOfferRequest(
@@ -17,7 +31,8 @@ public class DispatchDto {
 
     public record OfferResponse(
             String offerGroup,
-            String expiresAt
+            String expiresAt,
+            List<Long> offerIds
     ) {}
 
     public record AcceptOfferResponse(
@@ -26,6 +41,13 @@ public class DispatchDto {
             String reason
     ) {}
 
+    public record RankedCandidate(
+            Long surveyorId,
+            String surveyorType,
+            int openJobs,
+            long distanceMeters
+    ) {}
+
     public record CompleteJobResponse(
             boolean ok
     ) {}
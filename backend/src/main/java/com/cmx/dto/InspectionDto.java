@@ -0,0 +1,45 @@
+package com.cmx.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.time.Instant;
+import java.util.List;
+
+public class InspectionDto {
+
+    /**
+     * Full inspection report. {@code surveyorName} and {@code surveyorCode} are null, and omitted
+     * from the JSON, when the surveyor no longer exists.
+     */
+    @JsonSerialize(using = ResponseSerializers.InspectionDetailSerializer.class)
+    public record InspectionDetail(
+            Long id,
+            Long surveyorId,
+            Long appointmentId,
+            String vehicleTitle,
+            String notes,
+            String signatureUrl,
+            Integer totalSteps,
+            Double latitude,
+            Double longitude,
+            String status,
+            Instant submittedAt,
+            Instant updatedAt,
+            List<?> photoUrls,
+            List<?> completedSteps,
+            String surveyorName,
+            String surveyorCode
+    ) {}
+
+    @JsonSerialize(using = ResponseSerializers.InspectionSummarySerializer.class)
+    public record InspectionSummary(
+            Long id,
+            Long surveyorId,
+            Long appointmentId,
+            String vehicleTitle,
+            int photoCount,
+            boolean hasSignature,
+            String status,
+            Instant submittedAt
+    ) {}
+}
@@ -0,0 +1,35 @@
+package com.cmx.dto;
+
+import java.util.List;
+
+public class LocationDto {
+
+    /**
+     * A single mobile location message as delivered by QStash:
+     * {@code {type, surveyorId, lat, lng, status, timestamp}}. The timestamp is an ISO-8601
+     * instant or epoch millis; when absent the server receive time is used.
+     */
+    public record LocationMessage(
+            String type,
+            Long surveyorId,
+            Double lat,
+            Double lng,
+            String status,
+            String timestamp
+    ) {}
+
+    public record BatchItemResult(
+            int index,
+            boolean success,
+            String error
+    ) {}
+
+    public record LocationBatchResponse(
+            int received,
+            int accepted,
+            int rejected,
+            int positionsUpdated,
+            int statusesUpdated,
+            List<BatchItemResult> results
+    ) {}
+}
@@ -0,0 +1,187 @@
+package com.cmx.dto;
+
+import com.cmx.dto.AvailabilityDto.AppointmentEntry;
+import com.cmx.dto.AvailabilityDto.AvailabilityEntry;
+import com.cmx.dto.InspectionDto.InspectionDetail;
+import com.cmx.dto.InspectionDto.InspectionSummary;
+import com.cmx.dto.SurveyorDto.SurveyorListItem;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Hand-written serializers for the typed list responses.
+ *
+ * Each row is written field by field straight to the generator: no intermediate map, no boxing of
+ * primitive columns, and timestamps are formatted only while being written. Field names and the
+ * null/"" conventions match the map-based responses these records replaced, so the wire format is
+ * unchanged.
+ */
+public final class ResponseSerializers {
+
+    private ResponseSerializers() {
+    }
+
+    public static class SurveyorListItemSerializer extends StdSerializer<SurveyorListItem> {
+
+        public SurveyorListItemSerializer() {
+            super(SurveyorListItem.class);
+        }
+
+        @Override
+        public void serialize(SurveyorListItem s, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeNumberField("id", s.id());
+            gen.writeStringField("code", s.code());
+            gen.writeStringField("display_name", s.displayName());
+            gen.writeNumberField("home_lat", s.homeLat());
+            gen.writeNumberField("home_lng", s.homeLng());
+            gen.writeStringField("status", s.status());
+            gen.writeStringField("surveyor_type", s.surveyorType());
+            gen.writeStringField("email", s.email());
+            gen.writeStringField("phone", s.phone());
+            gen.writeStringField("current_status", s.currentStatus());
+            writeNumber(gen, "current_lat", s.currentLat());
+            writeNumber(gen, "current_lng", s.currentLng());
+            writeText(gen, "last_location_update", s.lastLocationUpdate(), null);
+            gen.writeEndObject();
+        }
+    }
+
+    public static class AvailabilityEntrySerializer extends StdSerializer<AvailabilityEntry> {
+
+        public AvailabilityEntrySerializer() {
+            super(AvailabilityEntry.class);
+        }
+
+        @Override
+        public void serialize(AvailabilityEntry a, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            writeBlockFields(a, gen);
+            gen.writeEndObject();
+        }
+    }
+
+    public static class AppointmentEntrySerializer extends StdSerializer<AppointmentEntry> {
+
+        public AppointmentEntrySerializer() {
+            super(AppointmentEntry.class);
+        }
+
+        @Override
+        public void serialize(AppointmentEntry a, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            writeBlockFields(a.block(), gen);
+            gen.writeStringField("response_status", a.responseStatus());
+            writeText(gen, "responded_at", a.respondedAt(), null);
+            gen.writeEndObject();
+        }
+    }
+
+    public static class InspectionDetailSerializer extends StdSerializer<InspectionDetail> {
+
+        public InspectionDetailSerializer() {
+            super(InspectionDetail.class);
+        }
+
+        @Override
+        public void serialize(InspectionDetail r, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            writeNumber(gen, "id", r.id());
+            writeNumber(gen, "surveyorId", r.surveyorId());
+            writeNumber(gen, "appointmentId", r.appointmentId());
+            gen.writeStringField("vehicleTitle", r.vehicleTitle());
+            gen.writeStringField("notes", r.notes());
+            gen.writeStringField("signatureUrl", r.signatureUrl());
+            writeNumber(gen, "totalSteps", r.totalSteps());
+            writeNumber(gen, "latitude", r.latitude());
+            writeNumber(gen, "longitude", r.longitude());
+            gen.writeStringField("status", r.status());
+            writeText(gen, "submittedAt", r.submittedAt(), null);
+            writeText(gen, "updatedAt", r.updatedAt(), null);
+            writeList(gen, "photoUrls", r.photoUrls(), provider);
+            writeList(gen, "completedSteps", r.completedSteps(), provider);
+            if (r.surveyorName() != null || r.surveyorCode() != null) {
+                gen.writeStringField("surveyorName", r.surveyorName());
+                gen.writeStringField("surveyorCode", r.surveyorCode());
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    public static class InspectionSummarySerializer extends StdSerializer<InspectionSummary> {
+
+        public InspectionSummarySerializer() {
+            super(InspectionSummary.class);
+        }
+
+        @Override
+        public void serialize(InspectionSummary r, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            writeNumber(gen, "id", r.id());
+            writeNumber(gen, "surveyorId", r.surveyorId());
+            writeNumber(gen, "appointmentId", r.appointmentId());
+            gen.writeStringField("vehicleTitle", r.vehicleTitle());
+            gen.writeNumberField("photoCount", r.photoCount());
+            gen.writeBooleanField("hasSignature", r.hasSignature());
+            gen.writeStringField("status", r.status());
+            writeText(gen, "submittedAt", r.submittedAt(), null);
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeBlockFields(AvailabilityEntry a, JsonGenerator gen) throws IOException {
+        gen.writeNumberField("id", a.id());
+        gen.writeNumberField("surveyor_id", a.surveyorId());
+        writeText(gen, "start_time", a.startTime(), null);
+        writeText(gen, "end_time", a.endTime(), null);
+        gen.writeStringField("state", a.state());
+        gen.writeStringField("source", a.source());
+        gen.writeStringField("title", a.title());
+        gen.writeStringField("description", a.description());
+        writeText(gen, "updated_at", a.updatedAt(), "");
+    }
+
+    private static void writeNumber(JsonGenerator gen, String name, Long value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    private static void writeNumber(JsonGenerator gen, String name, Integer value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    private static void writeNumber(JsonGenerator gen, String name, Double value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    /**
+     * Writes {@code value.toString()}, or {@code ifNull} (JSON null when that is null).
+     */
+    private static void writeText(JsonGenerator gen, String name, Object value, String ifNull) throws IOException {
+        gen.writeStringField(name, value != null ? value.toString() : ifNull);
+    }
+
+    private static void writeList(JsonGenerator gen, String name, List<?> values, SerializerProvider provider)
+            throws IOException {
+        gen.writeFieldName(name);
+        provider.defaultSerializeValue(values != null ? values : List.of(), gen);
+    }
+}
@@ -1,5 +1,9 @@
 package com.cmx.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.time.OffsetDateTime;
+
 public class SurveyorDto {
 
     public record SurveyorResponse(
@@ -29,4 +33,25 @@ public class SurveyorDto {
             return phone != null && !phone.isBlank();
         }
     }
+
+    /**
+     * Row of the surveyor list. Nulls in the text columns and home position are defaulted when the
+     * row is read; the current position and last update stay null until the first location ping.
+     */
+    @JsonSerialize(using = ResponseSerializers.SurveyorListItemSerializer.class)
+    public record SurveyorListItem(
+            long id,
+            String code,
+            String displayName,
+            double homeLat,
+            double homeLng,
+            String status,
+            String surveyorType,
+            String email,
+            String phone,
+            String currentStatus,
+            Double currentLat,
+            Double currentLng,
+            OffsetDateTime lastLocationUpdate
+    ) {}
 }
@@ -67,6 +67,17 @@ public class GlobalExceptionHandler {
         ));
     }
 
+    @ExceptionHandler(ScheduleConflictException.class)
+    public ResponseEntity<Map<String, Object>> handleScheduleConflict(ScheduleConflictException ex) {
+        log.warn("Schedule conflict: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "ok", false,
+                "reason", ex.getMessage(),
+                "surveyorId", ex.getSurveyorId(),
+                "conflictingIds", ex.getConflictingIds()
+        ));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidationErrors(MethodArgumentNotValidException ex) {
         Map<String, String> fieldErrors = new HashMap<>();
@@ -0,0 +1,23 @@
+package com.cmx.exception;
+
+import java.util.List;
+
+public class ScheduleConflictException extends RuntimeException {
+
+    private final Long surveyorId;
+    private final List<Long> conflictingIds;
+
+    public ScheduleConflictException(Long surveyorId, List<Long> conflictingIds) {
+        super(String.format("Surveyor %d is already busy in the requested time range", surveyorId));
+        this.surveyorId = surveyorId;
+        this.conflictingIds = conflictingIds;
+    }
+
+    public Long getSurveyorId() {
+        return surveyorId;
+    }
+
+    public List<Long> getConflictingIds() {
+        return conflictingIds;
+    }
+}
@@ -0,0 +1,198 @@
+package com.cmx.location;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Compact binary encoding for location stream events.
+ *
+ * Layout of a frame (all integers are LEB128 varints, signed values are zigzag encoded):
+ * <pre>
+ *   version        1 byte (currently 1)
+ *   surveyorId     varint
+ *   lat, lng       signed varint, fixed point in micro-degrees (same precision as DECIMAL(9,6))
+ *   timestamp      varint, epoch millis
+ *   status         1 byte ordinal of {@link #KNOWN_STATUSES}, or 0xFF followed by a length-prefixed UTF-8 string
+ *   displayName    varint length + UTF-8 bytes
+ *   trail count    varint
+ *   trail points   signed varint deltas (lat, lng, timestamp) from the previous point,
+ *                  the first point is relative to the frame position and timestamp
+ * </pre>
+ * Frames are self-contained so one encoded frame can be shared by every subscriber.
+ */
+public final class CompactLocationCodec {
+
+    /** Media type clients put in {@code Accept} to negotiate the compact stream. */
+    public static final String MEDIA_TYPE = "application/vnd.cmx.location-compact";
+
+    static final int VERSION = 1;
+    static final String[] KNOWN_STATUSES = {"AVAILABLE", "BUSY", "OFFLINE"};
+    private static final int CUSTOM_STATUS = 0xFF;
+    private static final double SCALE = 1_000_000d;
+
+    public record LocationFrame(long surveyorId, double lat, double lng, long timestamp,
+                                String status, String displayName, List<TrailPoint> trail) {}
+
+    private CompactLocationCodec() {
+    }
+
+    public static String encodeBase64(LocationFrame frame) {
+        return Base64.getEncoder().encodeToString(encode(frame));
+    }
+
+    public static LocationFrame decodeBase64(String data) {
+        return decode(Base64.getDecoder().decode(data));
+    }
+
+    public static byte[] encode(LocationFrame frame) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + frame.trail().size() * 8);
+        out.write(VERSION);
+        writeVarLong(out, frame.surveyorId());
+
+        long lat = toFixed(frame.lat());
+        long lng = toFixed(frame.lng());
+        writeSignedVarLong(out, lat);
+        writeSignedVarLong(out, lng);
+        writeVarLong(out, frame.timestamp());
+
+        writeStatus(out, frame.status());
+        writeString(out, frame.displayName());
+
+        writeVarLong(out, frame.trail().size());
+        long prevLat = lat;
+        long prevLng = lng;
+        long prevTs = frame.timestamp();
+        for (TrailPoint p : frame.trail()) {
+            long pLat = toFixed(p.lat());
+            long pLng = toFixed(p.lng());
+            writeSignedVarLong(out, pLat - prevLat);
+            writeSignedVarLong(out, pLng - prevLng);
+            writeSignedVarLong(out, p.timestamp() - prevTs);
+            prevLat = pLat;
+            prevLng = pLng;
+            prevTs = p.timestamp();
+        }
+        return out.toByteArray();
+    }
+
+    public static LocationFrame decode(byte[] data) {
+        Reader in = new Reader(data);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported location frame version: " + version);
+        }
+        long surveyorId = in.readVarLong();
+        long lat = in.readSignedVarLong();
+        long lng = in.readSignedVarLong();
+        long timestamp = in.readVarLong();
+        String status = readStatus(in);
+        String displayName = in.readString();
+
+        int count = (int) in.readVarLong();
+        List<TrailPoint> trail = new ArrayList<>(count);
+        long prevLat = lat;
+        long prevLng = lng;
+        long prevTs = timestamp;
+        for (int i = 0; i < count; i++) {
+            prevLat += in.readSignedVarLong();
+            prevLng += in.readSignedVarLong();
+            prevTs += in.readSignedVarLong();
+            trail.add(new TrailPoint(fromFixed(prevLat), fromFixed(prevLng), prevTs));
+        }
+        return new LocationFrame(surveyorId, fromFixed(lat), fromFixed(lng), timestamp, status, displayName, trail);
+    }
+
+    private static long toFixed(double degrees) {
+        return Math.round(degrees * SCALE);
+    }
+
+    private static double fromFixed(long fixed) {
+        return fixed / SCALE;
+    }
+
+    private static void writeStatus(ByteArrayOutputStream out, String status) {
+        for (int i = 0; i < KNOWN_STATUSES.length; i++) {
+            if (KNOWN_STATUSES[i].equals(status)) {
+                out.write(i);
+                return;
+            }
+        }
+        out.write(CUSTOM_STATUS);
+        writeString(out, status);
+    }
+
+    private static String readStatus(Reader in) {
+        int ordinal = in.readByte();
+        if (ordinal == CUSTOM_STATUS) {
+            return in.readString();
+        }
+        if (ordinal >= KNOWN_STATUSES.length) {
+            throw new IllegalArgumentException("Unknown status ordinal: " + ordinal);
+        }
+        return KNOWN_STATUSES[ordinal];
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeSignedVarLong(ByteArrayOutputStream out, long value) {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int pos;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() {
+            if (pos >= data.length) {
+                throw new IllegalArgumentException("Truncated location frame");
+            }
+            return data[pos++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in location frame");
+        }
+
+        long readSignedVarLong() {
+            long raw = readVarLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            if (length < 0 || pos + length > data.length) {
+                throw new IllegalArgumentException("Truncated location frame");
+            }
+            String value = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+    }
+}
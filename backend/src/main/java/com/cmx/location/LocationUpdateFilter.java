@@ -0,0 +1,112 @@
+package com.cmx.location;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-surveyor gate in front of location ingestion.
+ *
+ * Phones keep reporting while stationary, and each ping would otherwise cost a write-behind row,
+ * a history sample and a broadcast to every dispatcher. A ping is suppressed when the surveyor moved
+ * less than {@code location.filter.min-distance-meters} since the last accepted ping, unless the
+ * status changed or {@code location.filter.keep-alive-ms} has passed, in which case it is let through
+ * as a keep-alive so dispatchers can tell a stationary surveyor from a silent one. A ping whose device
+ * timestamp is older than the last accepted one (a late retry or out-of-order delivery) is rejected.
+ *
+ * The decision and the state update for a surveyor are made atomically.
+ */
+@Component
+public class LocationUpdateFilter {
+
+    public enum Decision {
+        ACCEPTED, KEEP_ALIVE, SUPPRESSED, STALE;
+
+        public boolean isAccepted() {
+            return this == ACCEPTED || this == KEEP_ALIVE;
+        }
+    }
+
+    private record LastAccepted(double lat, double lng, long deviceTimestamp, long acceptedAt) {}
+
+    private final boolean enabled;
+    private final double minDistanceMeters;
+    private final long keepAliveMs;
+
+    private final Map<Long, LastAccepted> state = new ConcurrentHashMap<>();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder keepAlives = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+
+    public LocationUpdateFilter(@Value("${location.filter.enabled:true}") boolean enabled,
+                                @Value("${location.filter.min-distance-meters:10}") double minDistanceMeters,
+                                @Value("${location.filter.keep-alive-ms:60000}") long keepAliveMs) {
+        this.enabled = enabled;
+        this.minDistanceMeters = minDistanceMeters;
+        this.keepAliveMs = keepAliveMs;
+    }
+
+    /**
+     * Decide whether a ping should be ingested, and remember it if so.
+     *
+     * @param deviceTimestamp when the device took the fix (epoch millis); the receive time if unknown
+     * @param statusChanged   true if the ping carries a status different from the current one
+     * @param now             current time (epoch millis)
+     */
+    public Decision evaluate(long surveyorId, double lat, double lng, long deviceTimestamp,
+                             boolean statusChanged, long now) {
+        Decision[] decision = new Decision[1];
+        state.compute(surveyorId, (id, last) -> {
+            Decision d = decide(last, lat, lng, deviceTimestamp, statusChanged, now);
+            decision[0] = d;
+            return d.isAccepted() ? new LastAccepted(lat, lng, deviceTimestamp, now) : last;
+        });
+
+        switch (decision[0]) {
+            case ACCEPTED -> accepted.increment();
+            case KEEP_ALIVE -> keepAlives.increment();
+            case SUPPRESSED -> suppressed.increment();
+            case STALE -> stale.increment();
+        }
+        return decision[0];
+    }
+
+    private Decision decide(LastAccepted last, double lat, double lng, long deviceTimestamp,
+                            boolean statusChanged, long now) {
+        if (!enabled || last == null) {
+            return Decision.ACCEPTED;
+        }
+        if (deviceTimestamp < last.deviceTimestamp()) {
+            return Decision.STALE;
+        }
+        if (statusChanged
+                || GeoMath.haversineMeters(last.lat(), last.lng(), lat, lng) >= minDistanceMeters) {
+            return Decision.ACCEPTED;
+        }
+        return now - last.acceptedAt() >= keepAliveMs ? Decision.KEEP_ALIVE : Decision.SUPPRESSED;
+    }
+
+    /**
+     * Record a position applied through another path (e.g. a batch upload) so later pings are
+     * compared against it. Older positions are ignored.
+     */
+    public void record(long surveyorId, double lat, double lng, long deviceTimestamp, long now) {
+        state.merge(surveyorId, new LastAccepted(lat, lng, deviceTimestamp, now),
+                (last, next) -> next.deviceTimestamp() >= last.deviceTimestamp() ? next : last);
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "enabled", enabled,
+                "accepted", accepted.sum(),
+                "keepAlives", keepAlives.sum(),
+                "suppressedStationary", suppressed.sum(),
+                "rejectedStale", stale.sum()
+        );
+    }
+}
@@ -0,0 +1,10 @@
+package com.cmx.location;
+
+/**
+ * A single recorded position on a surveyor's trail.
+ *
+ * @param lat       latitude in degrees
+ * @param lng       longitude in degrees
+ * @param timestamp epoch millis the position was recorded
+ */
+public record TrailPoint(double lat, double lng, long timestamp) {}
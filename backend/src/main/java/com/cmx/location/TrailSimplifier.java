@@ -0,0 +1,113 @@
+package com.cmx.location;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Douglas-Peucker trail simplification to a point budget.
+ *
+ * Classic Douglas-Peucker needs a distance tolerance, which is hard to pick for a trail of unknown
+ * extent. Instead the segment whose farthest point deviates most is split first, repeatedly, until
+ * the budget is used up or every remaining point lies on its segment. The result keeps the first
+ * and last point and always keeps the points that carry the most shape.
+ *
+ * Distances are measured on a local equirectangular projection, which is accurate enough at trail
+ * scale and avoids trigonometry per point.
+ */
+public final class TrailSimplifier {
+
+    private TrailSimplifier() {
+    }
+
+    /**
+     * Simplify a time-ordered trail to at most {@code maxPoints} points.
+     */
+    public static List<TrailPoint> simplify(List<TrailPoint> points, int maxPoints) {
+        if (maxPoints < 2) {
+            throw new IllegalArgumentException("maxPoints must be at least 2");
+        }
+        int n = points.size();
+        if (n <= maxPoints) {
+            return points;
+        }
+
+        double cosLat = Math.cos(Math.toRadians(points.get(0).lat()));
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int kept = 2;
+
+        PriorityQueue<Segment> queue = new PriorityQueue<>((a, b) -> Double.compare(b.distance, a.distance));
+        Segment first = farthest(points, 0, n - 1, cosLat);
+        if (first != null) {
+            queue.add(first);
+        }
+
+        while (kept < maxPoints && !queue.isEmpty()) {
+            Segment segment = queue.poll();
+            if (segment.distance <= 0) {
+                break;
+            }
+            keep[segment.index] = true;
+            kept++;
+
+            Segment left = farthest(points, segment.start, segment.index, cosLat);
+            if (left != null) {
+                queue.add(left);
+            }
+            Segment right = farthest(points, segment.index, segment.end, cosLat);
+            if (right != null) {
+                queue.add(right);
+            }
+        }
+
+        List<TrailPoint> result = new ArrayList<>(kept);
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                result.add(points.get(i));
+            }
+        }
+        return result;
+    }
+
+    private record Segment(int start, int end, int index, double distance) {}
+
+    /**
+     * The interior point of (start, end) farthest from the chord, or null if there is none.
+     */
+    private static Segment farthest(List<TrailPoint> points, int start, int end, double cosLat) {
+        if (end - start < 2) {
+            return null;
+        }
+        TrailPoint a = points.get(start);
+        TrailPoint b = points.get(end);
+        double ax = a.lng() * cosLat;
+        double ay = a.lat();
+        double dx = b.lng() * cosLat - ax;
+        double dy = b.lat() - ay;
+        double lengthSq = dx * dx + dy * dy;
+
+        int index = -1;
+        double max = -1;
+        for (int i = start + 1; i < end; i++) {
+            TrailPoint p = points.get(i);
+            double px = p.lng() * cosLat - ax;
+            double py = p.lat() - ay;
+            double distSq;
+            if (lengthSq == 0) {
+                distSq = px * px + py * py;
+            } else {
+                double t = Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSq));
+                double ex = px - t * dx;
+                double ey = py - t * dy;
+                distSq = ex * ex + ey * ey;
+            }
+            if (distSq > max) {
+                max = distSq;
+                index = i;
+            }
+        }
+        return new Segment(start, end, index, max);
+    }
+}
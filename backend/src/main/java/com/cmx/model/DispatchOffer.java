@@ -15,7 +15,7 @@ import java.util.UUID;
 public class DispatchOffer {
 
     public enum Status {
-        PENDING, ACCEPTED, CLOSED, EXPIRED
+        QUEUED, PENDING, ACCEPTED, CLOSED, EXPIRED
     }
 
     @Id
@@ -41,6 +41,11 @@ public class DispatchOffer {
     @Column("accepted_at")
     private OffsetDateTime acceptedAt;
 
+    private Integer wave;
+
+    @Column("ttl_seconds")
+    private Integer ttlSeconds;
+
     public DispatchOffer(UUID offerGroup, String fnolId, Long surveyorId, OffsetDateTime expiresAt) {
         this.offerGroup = offerGroup.toString();
         this.fnolId = fnolId;
@@ -0,0 +1,264 @@
+package com.cmx.schedule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory interval index of {@code surveyor_availability} over a rolling horizon.
+ *
+ * Each surveyor's blocks are held as parallel arrays of start/end epoch seconds and state ordinals,
+ * sorted by start, so "which block covers T" is a binary search instead of a query. Timelines are
+ * immutable and swapped per surveyor, so reads never lock.
+ *
+ * The index is loaded at startup, rebuilt on a schedule to roll the horizon forward, and refreshed
+ * per surveyor by {@code AvailabilityService} after every write. Instants outside the horizon are
+ * not answered ({@link #covers} is false) and callers fall back to the database.
+ */
+@Component
+public class AvailabilityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityIndex.class);
+
+    public static final String DEFAULT_STATE = "AVAILABLE";
+
+    // How far back the horizon starts, so blocks that began earlier but still run are included
+    private static final Duration LOOKBEHIND = Duration.ofDays(1);
+
+    private static final String SELECT_COLUMNS = "SELECT surveyor_id, start_time, end_time, state FROM surveyor_availability ";
+
+    /**
+     * One surveyor's blocks in start order. {@code maxEnd[i]} is the latest end among blocks 0..i,
+     * which bounds the backwards scan for overlapping blocks.
+     */
+    private record Timeline(long[] starts, long[] ends, long[] maxEnd, byte[] states) {
+        static final Timeline EMPTY = new Timeline(new long[0], new long[0], new long[0], new byte[0]);
+    }
+
+    private record Block(long surveyorId, long start, long end, byte state) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration horizon;
+
+    // State names by ordinal; append-only so ordinals stay valid in published timelines
+    private final List<String> stateNames = new CopyOnWriteArrayList<>();
+    private final Map<String, Byte> stateOrdinals = new ConcurrentHashMap<>();
+
+    private final Map<Long, Timeline> timelines = new ConcurrentHashMap<>();
+    private volatile long windowStart;
+    private volatile long windowEnd;
+    private volatile boolean loaded;
+
+    public AvailabilityIndex(JdbcTemplate jdbcTemplate,
+                             @Value("${availability.index.horizon-days:7}") int horizonDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.horizon = Duration.ofDays(horizonDays);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        reload();
+    }
+
+    /**
+     * Rebuild the whole index for a horizon starting now.
+     */
+    @Scheduled(fixedDelayString = "${availability.index.reload-interval-ms:3600000}",
+               initialDelayString = "${availability.index.reload-interval-ms:3600000}")
+    public synchronized void reload() {
+        Instant now = Instant.now();
+        long from = now.minus(LOOKBEHIND).getEpochSecond();
+        long to = now.plus(horizon).getEpochSecond();
+        try {
+            Map<Long, List<Block>> bySurveyor = new HashMap<>();
+            jdbcTemplate.query(SELECT_COLUMNS + "WHERE start_time < ? AND end_time > ? ORDER BY surveyor_id, start_time",
+                    rs -> {
+                        Block block = toBlock(rs.getLong("surveyor_id"), rs.getTimestamp("start_time"),
+                                rs.getTimestamp("end_time"), rs.getString("state"));
+                        bySurveyor.computeIfAbsent(block.surveyorId(), id -> new ArrayList<>()).add(block);
+                    },
+                    new Timestamp(to * 1000), new Timestamp(from * 1000));
+
+            Map<Long, Timeline> next = new HashMap<>();
+            bySurveyor.forEach((id, blocks) -> next.put(id, toTimeline(blocks)));
+            windowStart = from;
+            windowEnd = to;
+            timelines.keySet().retainAll(next.keySet());
+            timelines.putAll(next);
+            loaded = true;
+            logger.info("Availability index loaded: {} blocks for {} surveyors",
+                    bySurveyor.values().stream().mapToInt(List::size).sum(), next.size());
+        } catch (DataAccessException e) {
+            logger.warn("Availability index reload failed, {}: {}",
+                    loaded ? "keeping previous index" : "falling back to database", e.getMessage());
+        }
+    }
+
+    /**
+     * Reload one surveyor's blocks after a write.
+     */
+    public synchronized void refreshSurveyor(Long surveyorId) {
+        if (surveyorId == null || !loaded) {
+            return;
+        }
+        try {
+            List<Block> blocks = jdbcTemplate.query(
+                    SELECT_COLUMNS + "WHERE surveyor_id = ? AND start_time < ? AND end_time > ? ORDER BY start_time",
+                    (rs, rowNum) -> toBlock(surveyorId, rs.getTimestamp("start_time"),
+                            rs.getTimestamp("end_time"), rs.getString("state")),
+                    surveyorId, new Timestamp(windowEnd * 1000), new Timestamp(windowStart * 1000));
+            if (blocks.isEmpty()) {
+                timelines.remove(surveyorId);
+            } else {
+                timelines.put(surveyorId, toTimeline(blocks));
+            }
+        } catch (DataAccessException e) {
+            // A stale timeline would give wrong answers; fall back to the database until the next reload
+            loaded = false;
+            logger.warn("Availability index refresh for surveyor {} failed, index disabled until reload: {}",
+                    surveyorId, e.getMessage());
+        }
+    }
+
+    /**
+     * Whether {@code at} lies within the indexed horizon.
+     */
+    public boolean covers(Instant at) {
+        long t = at.getEpochSecond();
+        return loaded && t >= windowStart && t < windowEnd;
+    }
+
+    /**
+     * State of the block covering {@code at} (the latest-starting one if blocks overlap),
+     * {@link #DEFAULT_STATE} if none, or null if {@code at} is outside the horizon.
+     */
+    public String stateAt(long surveyorId, Instant at) {
+        if (!covers(at)) {
+            return null;
+        }
+        Timeline timeline = timelines.getOrDefault(surveyorId, Timeline.EMPTY);
+        long t = at.getEpochSecond();
+        for (int i = lastStartingAtOrBefore(timeline.starts(), t); i >= 0 && timeline.maxEnd()[i] > t; i--) {
+            if (timeline.ends()[i] > t) {
+                return stateNames.get(timeline.states()[i]);
+            }
+        }
+        return DEFAULT_STATE;
+    }
+
+    /**
+     * Whether the surveyor is free at {@code at}, or null if {@code at} is outside the horizon.
+     */
+    public Boolean isFree(long surveyorId, Instant at) {
+        String state = stateAt(surveyorId, at);
+        return state == null ? null : DEFAULT_STATE.equals(state);
+    }
+
+    /**
+     * Blocks overlapping [from, to) whose state is not in {@code freeStates}, in start order, or null
+     * if the range is not fully within the horizon.
+     */
+    public FreeSlotFinder.Busy busyBetween(long surveyorId, Instant from, Instant to, Set<String> freeStates) {
+        if (!covers(from) || !covers(to.minusSeconds(1))) {
+            return null;
+        }
+        Timeline timeline = timelines.getOrDefault(surveyorId, Timeline.EMPTY);
+        long start = from.getEpochSecond();
+        long end = to.getEpochSecond();
+        int n = timeline.starts().length;
+        long[] starts = new long[n];
+        long[] ends = new long[n];
+        int count = 0;
+        for (int i = 0; i < n && timeline.starts()[i] < end; i++) {
+            if (timeline.ends()[i] > start && !freeStates.contains(stateNames.get(timeline.states()[i]))) {
+                starts[count] = timeline.starts()[i];
+                ends[count] = timeline.ends()[i];
+                count++;
+            }
+        }
+        return new FreeSlotFinder.Busy(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "loaded", loaded,
+                "surveyors", timelines.size(),
+                "blocks", timelines.values().stream().mapToInt(tl -> tl.starts().length).sum(),
+                "windowStart", Instant.ofEpochSecond(windowStart).toString(),
+                "windowEnd", Instant.ofEpochSecond(windowEnd).toString()
+        );
+    }
+
+    private static int lastStartingAtOrBefore(long[] starts, long t) {
+        int lo = 0;
+        int hi = starts.length - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= t) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private Block toBlock(long surveyorId, Timestamp start, Timestamp end, String state) {
+        return new Block(surveyorId, start.getTime() / 1000, end.getTime() / 1000,
+                ordinal(state != null ? state : DEFAULT_STATE));
+    }
+
+    private byte ordinal(String state) {
+        Byte ordinal = stateOrdinals.get(state);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        synchronized (stateNames) {
+            return stateOrdinals.computeIfAbsent(state, s -> {
+                if (stateNames.size() >= Byte.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct availability states");
+                }
+                stateNames.add(s);
+                return (byte) (stateNames.size() - 1);
+            });
+        }
+    }
+
+    private static Timeline toTimeline(List<Block> blocks) {
+        int n = blocks.size();
+        long[] starts = new long[n];
+        long[] ends = new long[n];
+        long[] maxEnd = new long[n];
+        byte[] states = new byte[n];
+        long runningMax = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            Block block = blocks.get(i);
+            starts[i] = block.start();
+            ends[i] = block.end();
+            states[i] = block.state();
+            runningMax = Math.max(runningMax, block.end());
+            maxEnd[i] = runningMax;
+        }
+        return new Timeline(starts, ends, maxEnd, states);
+    }
+}
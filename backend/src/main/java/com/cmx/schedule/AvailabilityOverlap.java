@@ -0,0 +1,48 @@
+package com.cmx.schedule;
+
+import com.cmx.config.DatabaseDialect;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * The "block overlaps [from, to)" predicate on {@code surveyor_availability}, bound as (from, to).
+ *
+ * On PostgreSQL this is {@code period && tsrange(from, to)} against the generated range column,
+ * which the GiST index on {@code (surveyor_id, period)} answers from both ends at once; a B-tree on
+ * start_time can only use one of the two inequalities and filters the rest. H2 has no range types
+ * and gets the equivalent pair of comparisons.
+ *
+ * The same range column backs {@code ex_av_busy_no_overlap}, which rejects a BUSY block overlapping
+ * another BUSY block of the surveyor; {@link #isBusyOverlap} recognises that rejection.
+ */
+@Component
+public class AvailabilityOverlap {
+
+    private static final String RANGE = "period && tsrange(?, ?, '[)')";
+    private static final String PORTABLE = "end_time > ? AND start_time < ?";
+
+    // PostgreSQL SQLSTATE for a violated exclusion constraint
+    private static final String EXCLUSION_VIOLATION = "23P01";
+
+    private final DatabaseDialect dialect;
+
+    public AvailabilityOverlap(DatabaseDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    /**
+     * SQL condition taking two parameters, from then to.
+     */
+    public String predicate() {
+        return dialect.isPostgres() ? RANGE : PORTABLE;
+    }
+
+    /**
+     * Whether {@code e} is the database refusing overlapping BUSY blocks of one surveyor.
+     */
+    public static boolean isBusyOverlap(DataIntegrityViolationException e) {
+        return e.getMostSpecificCause() instanceof SQLException sql && EXCLUSION_VIOLATION.equals(sql.getSQLState());
+    }
+}
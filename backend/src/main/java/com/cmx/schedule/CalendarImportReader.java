@@ -0,0 +1,411 @@
+package com.cmx.schedule;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streaming reader for bulk calendar uploads in iCalendar (RFC 5545) or CSV form.
+ *
+ * Input is read once, front to back, and each block is handed to a {@link RowHandler} as soon as
+ * it is complete, so memory does not grow with the file. Rows that cannot be used are reported with
+ * their line number and skipped; they never abort the read.
+ *
+ * CSV needs a header row; columns are matched by name ({@code surveyor_id, start_time, end_time,
+ * state, title, description}), others are ignored, so an availability export can be imported as is.
+ * ICS events map SUMMARY/DESCRIPTION to title/description, {@code STATUS:CANCELLED} to CANCELLED and
+ * everything else to BUSY; the surveyor comes from {@code X-CMX-SURVEYOR-ID} on the event.
+ * Either format falls back to the upload's default surveyor, and times without an offset or TZID are
+ * read in the default zone.
+ */
+public final class CalendarImportReader {
+
+    public static final int MAX_TITLE = 100;
+    public static final int MAX_DESCRIPTION = 255;
+    public static final int MAX_STATE = 16;
+
+    private static final DateTimeFormatter ICS_DATE_TIME = DateTimeFormatter.ofPattern("uuuuMMdd'T'HHmmss");
+    private static final DateTimeFormatter ICS_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    public enum Format {
+        ICS, CSV;
+
+        /**
+         * Format from an explicit value, else from the file name's extension.
+         */
+        public static Format of(String format, String filename) {
+            String value = format != null && !format.isBlank() ? format
+                    : filename != null && filename.contains(".") ? filename.substring(filename.lastIndexOf('.') + 1) : "";
+            return switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "ics", "ical", "icalendar", "calendar" -> ICS;
+                case "csv" -> CSV;
+                default -> throw new IllegalArgumentException("Unsupported import format: '" + value + "' (expected ics or csv)");
+            };
+        }
+    }
+
+    /**
+     * One block to import; text fields are already cut to the column lengths.
+     */
+    public record ImportRow(int line, long surveyorId, Instant start, Instant end,
+                            String state, String title, String description) {}
+
+    public interface RowHandler {
+        void row(ImportRow row) throws IOException;
+
+        void error(int line, String message);
+    }
+
+    private final RowHandler handler;
+    private final Long defaultSurveyorId;
+    private final ZoneId defaultZone;
+
+    private CalendarImportReader(RowHandler handler, Long defaultSurveyorId, ZoneId defaultZone) {
+        this.handler = handler;
+        this.defaultSurveyorId = defaultSurveyorId;
+        this.defaultZone = defaultZone;
+    }
+
+    /**
+     * Read the whole input, passing blocks and row errors to {@code handler}.
+     */
+    public static void read(Format format, Reader input, Long defaultSurveyorId, ZoneId defaultZone,
+                            RowHandler handler) throws IOException {
+        CalendarImportReader reader = new CalendarImportReader(handler, defaultSurveyorId, defaultZone);
+        BufferedReader in = input instanceof BufferedReader b ? b : new BufferedReader(input, 64 * 1024);
+        if (format == Format.ICS) {
+            reader.readIcs(in);
+        } else {
+            reader.readCsv(in);
+        }
+    }
+
+    // ---------------------------------------------------------------- CSV
+
+    private void readCsv(BufferedReader in) throws IOException {
+        CsvTokenizer csv = new CsvTokenizer(in);
+        List<String> header = csv.next();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT).replace('\uFEFF', ' ').trim(), i);
+        }
+        if (!columns.containsKey("start_time") || !columns.containsKey("end_time")) {
+            throw new IllegalArgumentException("CSV header must include start_time and end_time");
+        }
+        if (!columns.containsKey("surveyor_id") && defaultSurveyorId == null) {
+            throw new IllegalArgumentException("CSV header must include surveyor_id, or pass surveyorId");
+        }
+
+        List<String> fields;
+        while ((fields = csv.next()) != null) {
+            int line = csv.recordLine();
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            try {
+                String surveyor = field(fields, columns, "surveyor_id");
+                long surveyorId = surveyor.isBlank() ? requireDefaultSurveyor() : Long.parseLong(surveyor.trim());
+                Instant start = parseTime(field(fields, columns, "start_time"));
+                Instant end = parseTime(field(fields, columns, "end_time"));
+                String state = field(fields, columns, "state");
+                emit(line, surveyorId, start, end, state.isBlank() ? "BUSY" : state.trim().toUpperCase(Locale.ROOT),
+                        field(fields, columns, "title"), field(fields, columns, "description"));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                handler.error(line, e.getMessage());
+            }
+        }
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index != null && index < fields.size() ? fields.get(index) : "";
+    }
+
+    private Instant parseTime(String value) {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            throw new IllegalArgumentException("Missing start_time or end_time");
+        }
+        try {
+            return OffsetDateTime.parse(trimmed).toInstant();
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.parse(trimmed.replace(' ', 'T')).atZone(defaultZone).toInstant();
+        }
+    }
+
+    /**
+     * RFC 4180 records: quoted fields may contain commas, doubled quotes and line breaks.
+     */
+    private static final class CsvTokenizer {
+        private final BufferedReader in;
+        private int line;
+        private int recordLine;
+
+        CsvTokenizer(BufferedReader in) {
+            this.in = in;
+        }
+
+        int recordLine() {
+            return recordLine;
+        }
+
+        List<String> next() throws IOException {
+            String current = in.readLine();
+            if (current == null) {
+                return null;
+            }
+            recordLine = ++line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == current.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    // Line break inside a quoted field
+                    current = in.readLine();
+                    if (current == null) {
+                        throw new IllegalArgumentException("Unterminated quoted field starting on line " + recordLine);
+                    }
+                    line++;
+                    field.append('\n');
+                    i = 0;
+                    continue;
+                }
+                char c = current.charAt(i++);
+                if (quoted) {
+                    if (c == '"' && i < current.length() && current.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    // ---------------------------------------------------------------- ICS
+
+    private void readIcs(BufferedReader in) throws IOException {
+        Event event = null;
+        String pending = null;
+        int pendingLine = 0;
+        int line = 0;
+        String raw;
+        while ((raw = in.readLine()) != null) {
+            line++;
+            // Folded lines continue the previous content line after one leading space or tab
+            if (!raw.isEmpty() && (raw.charAt(0) == ' ' || raw.charAt(0) == '\t') && pending != null) {
+                pending += raw.substring(1);
+                continue;
+            }
+            if (pending != null) {
+                event = contentLine(pending, pendingLine, event);
+            }
+            pending = raw;
+            pendingLine = line;
+        }
+        if (pending != null) {
+            contentLine(pending, pendingLine, event);
+        }
+    }
+
+    private Event contentLine(String content, int line, Event event) throws IOException {
+        int colon = valueSeparator(content);
+        if (colon < 0) {
+            return event;
+        }
+        String[] nameAndParams = content.substring(0, colon).split(";");
+        String name = nameAndParams[0].trim().toUpperCase(Locale.ROOT);
+        String value = content.substring(colon + 1);
+
+        if (name.equals("BEGIN") && value.trim().equalsIgnoreCase("VEVENT")) {
+            return new Event(line);
+        }
+        if (event == null) {
+            return null;
+        }
+        if (name.equals("END") && value.trim().equalsIgnoreCase("VEVENT")) {
+            finish(event);
+            return null;
+        }
+        Map<String, String> params = new HashMap<>();
+        for (int i = 1; i < nameAndParams.length; i++) {
+            int eq = nameAndParams[i].indexOf('=');
+            if (eq > 0) {
+                params.put(nameAndParams[i].substring(0, eq).trim().toUpperCase(Locale.ROOT),
+                        unquote(nameAndParams[i].substring(eq + 1).trim()));
+            }
+        }
+        try {
+            switch (name) {
+                case "DTSTART" -> {
+                    event.start = icsTime(value, params);
+                    event.allDay = isDate(value, params);
+                }
+                case "DTEND" -> event.end = icsTime(value, params);
+                case "DURATION" -> event.duration = Duration.parse(value.trim());
+                case "SUMMARY" -> event.title = unescape(value);
+                case "DESCRIPTION" -> event.description = unescape(value);
+                case "STATUS" -> event.cancelled = value.trim().equalsIgnoreCase("CANCELLED");
+                case "X-CMX-SURVEYOR-ID" -> event.surveyorId = Long.parseLong(value.trim());
+                default -> { }
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            event.error = name + ": " + e.getMessage();
+        }
+        return event;
+    }
+
+    private void finish(Event event) throws IOException {
+        if (event.error != null) {
+            handler.error(event.line, event.error);
+            return;
+        }
+        if (event.start == null) {
+            handler.error(event.line, "Event without DTSTART");
+            return;
+        }
+        Instant end = event.end;
+        if (end == null) {
+            end = event.duration != null ? event.start.plus(event.duration)
+                    : event.allDay ? event.start.plus(Duration.ofDays(1)) : null;
+        }
+        try {
+            long surveyorId = event.surveyorId != null ? event.surveyorId : requireDefaultSurveyor();
+            emit(event.line, surveyorId, event.start, end, event.cancelled ? "CANCELLED" : "BUSY",
+                    event.title, event.description);
+        } catch (IllegalArgumentException e) {
+            handler.error(event.line, e.getMessage());
+        }
+    }
+
+    private Instant icsTime(String value, Map<String, String> params) {
+        String v = value.trim();
+        if (isDate(v, params)) {
+            return LocalDate.parse(v, ICS_DATE).atStartOfDay(zone(params)).toInstant();
+        }
+        if (v.endsWith("Z")) {
+            return LocalDateTime.parse(v.substring(0, v.length() - 1), ICS_DATE_TIME).toInstant(ZoneOffset.UTC);
+        }
+        return LocalDateTime.parse(v, ICS_DATE_TIME).atZone(zone(params)).toInstant();
+    }
+
+    private static boolean isDate(String value, Map<String, String> params) {
+        return "DATE".equalsIgnoreCase(params.get("VALUE")) || value.trim().length() == 8;
+    }
+
+    private ZoneId zone(Map<String, String> params) {
+        String tzid = params.get("TZID");
+        return tzid != null ? ZoneId.of(tzid) : defaultZone;
+    }
+
+    // The ':' ending the property name and parameters; colons inside quoted parameter values do not count
+    private static int valueSeparator(String content) {
+        boolean quoted = false;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ':' && !quoted) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String unquote(String value) {
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")
+                ? value.substring(1, value.length() - 1) : value;
+    }
+
+    private static String unescape(String value) {
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                out.append(next == 'n' || next == 'N' ? '\n' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static final class Event {
+        final int line;
+        Instant start;
+        Instant end;
+        Duration duration;
+        boolean allDay;
+        boolean cancelled;
+        Long surveyorId;
+        String title;
+        String description;
+        String error;
+
+        Event(int line) {
+            this.line = line;
+        }
+    }
+
+    // ---------------------------------------------------------------- shared
+
+    private long requireDefaultSurveyor() {
+        if (defaultSurveyorId == null) {
+            throw new IllegalArgumentException("No surveyor for this row; pass surveyorId or set it per row");
+        }
+        return defaultSurveyorId;
+    }
+
+    private void emit(int line, long surveyorId, Instant start, Instant end, String state,
+                      String title, String description) throws IOException {
+        if (end == null || !end.isAfter(start)) {
+            throw new IllegalArgumentException("End must be after start");
+        }
+        if (state.length() > MAX_STATE) {
+            throw new IllegalArgumentException("State longer than " + MAX_STATE + " characters: " + state);
+        }
+        handler.row(new ImportRow(line, surveyorId, start, end, state, cut(title, MAX_TITLE), cut(description, MAX_DESCRIPTION)));
+    }
+
+    private static String cut(String value, int max) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed.length() > max ? trimmed.substring(0, max) : trimmed;
+    }
+}
@@ -0,0 +1,106 @@
+package com.cmx.schedule;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds free windows of at least a given length across many surveyors' calendars.
+ *
+ * Each surveyor's busy intervals, sorted by start, are swept once: a running "free from" point is
+ * pushed past every busy interval (overlapping or nested intervals merge naturally through the max
+ * of their ends) and every gap long enough is emitted. Surveyors are independent, so they are swept
+ * in parallel and only the ranked top slots are kept.
+ *
+ * Times are epoch seconds throughout; no Spring or database dependencies.
+ */
+public final class FreeSlotFinder {
+
+    /**
+     * Block states that do not make a surveyor busy.
+     */
+    public static final Set<String> FREE_STATES = Set.of("AVAILABLE", "CANCELLED");
+
+    /**
+     * Slots ranked by earliest start, then the longest window (most slack), then surveyor id.
+     */
+    public static final Comparator<FreeSlot> RANKING = Comparator
+            .comparingLong(FreeSlot::startEpoch)
+            .thenComparing(Comparator.comparingLong(FreeSlot::lengthSeconds).reversed())
+            .thenComparingLong(FreeSlot::surveyorId);
+
+    /**
+     * One surveyor's busy intervals as parallel arrays sorted by start; ends need not be sorted.
+     */
+    public record Busy(long[] starts, long[] ends) {
+        public static final Busy NONE = new Busy(new long[0], new long[0]);
+
+        public Busy {
+            if (starts.length != ends.length) {
+                throw new IllegalArgumentException("starts and ends differ in length");
+            }
+        }
+    }
+
+    /**
+     * A free window of one surveyor, at least the requested duration long.
+     */
+    public record FreeSlot(long surveyorId, long startEpoch, long endEpoch) {
+
+        public Instant start() {
+            return Instant.ofEpochSecond(startEpoch);
+        }
+
+        public Instant end() {
+            return Instant.ofEpochSecond(endEpoch);
+        }
+
+        public long lengthSeconds() {
+            return endEpoch - startEpoch;
+        }
+    }
+
+    private FreeSlotFinder() {
+    }
+
+    /**
+     * Free windows of every surveyor within [from, to), ranked by {@link #RANKING}, at most {@code limit}.
+     */
+    public static List<FreeSlot> find(Map<Long, Busy> busyBySurveyor, Instant from, Instant to,
+                                      Duration duration, int limit) {
+        long fromEpoch = from.getEpochSecond();
+        long toEpoch = to.getEpochSecond();
+        long minLength = duration.getSeconds();
+        return busyBySurveyor.entrySet().parallelStream()
+                .flatMap(e -> freeWindows(e.getKey(), e.getValue(), fromEpoch, toEpoch, minLength).stream())
+                .sorted(RANKING)
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Sweep one surveyor's busy intervals and return the gaps of at least {@code minLength} seconds
+     * within [from, to), in time order.
+     */
+    public static List<FreeSlot> freeWindows(long surveyorId, Busy busy, long from, long to, long minLength) {
+        List<FreeSlot> slots = new ArrayList<>();
+        long[] starts = busy.starts();
+        long[] ends = busy.ends();
+        long freeFrom = from;
+        for (int i = 0; i < starts.length && freeFrom < to; i++) {
+            long busyStart = Math.min(starts[i], to);
+            if (busyStart - freeFrom >= minLength) {
+                slots.add(new FreeSlot(surveyorId, freeFrom, busyStart));
+            }
+            freeFrom = Math.max(freeFrom, ends[i]);
+        }
+        if (to - freeFrom >= minLength) {
+            slots.add(new FreeSlot(surveyorId, freeFrom, to));
+        }
+        return slots;
+    }
+}
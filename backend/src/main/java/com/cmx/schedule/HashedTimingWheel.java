@@ -0,0 +1,249 @@
+package com.cmx.schedule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel (Varghese and Lauck) for many coarse timeouts.
+ *
+ * Time is cut into ticks of {@code tickMillis}; a timeout due at tick {@code t} sits in bucket
+ * {@code t mod wheelSize} with the number of full turns still to wait. Scheduling and cancelling
+ * are O(1) and lock-free for callers (they only enqueue), and each tick the single worker thread
+ * touches just one bucket, so the cost does not grow with the number of pending timeouts. A timeout
+ * fires at most one tick after its deadline, never before.
+ *
+ * Deadlines are epoch milliseconds. Expiry callbacks run on the worker thread and should hand
+ * blocking work to an executor.
+ */
+public final class HashedTimingWheel<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private static final int WAITING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public final class Timeout {
+        private final T task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private long rounds;
+        private Timeout prev;
+        private Timeout next;
+        private Bucket bucket;
+
+        private Timeout(T task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public T task() {
+            return task;
+        }
+
+        public long deadline() {
+            return deadline;
+        }
+
+        /**
+         * Cancel if not yet expired; returns false if it already fired or was cancelled.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) {
+                return false;
+            }
+            cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    // Doubly linked list of timeouts; only touched by the worker thread
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        Timeout remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev == null) {
+                head = next;
+            } else {
+                timeout.prev.next = next;
+            }
+            if (next == null) {
+                tail = timeout.prev;
+            } else {
+                next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+    }
+
+    private final long tickMillis;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Consumer<T> onExpiry;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private long nextTick;
+    private volatile Thread worker;
+
+    /**
+     * @param wheelSize buckets, rounded up to a power of two
+     * @param startMillis time the wheel starts at; earlier deadlines fire on the first tick
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int wheelSize, long startMillis, Consumer<T> onExpiry) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.wheel = new HashedTimingWheel.Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.onExpiry = onExpiry;
+        this.nextTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedule {@code task} to expire at {@code deadlineMillis}. Safe from any thread.
+     */
+    public Timeout schedule(T task, long deadlineMillis) {
+        Timeout timeout = new Timeout(task, deadlineMillis);
+        pending.incrementAndGet();
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Timeouts scheduled and neither expired nor cancelled yet.
+     */
+    public int pending() {
+        return pending.get();
+    }
+
+    /**
+     * Start the worker thread, which ticks in real time until {@link #stop()}.
+     */
+    public synchronized void start(String threadName) {
+        if (worker != null) {
+            return;
+        }
+        Thread thread = new Thread(this::run, threadName);
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        while (worker == Thread.currentThread()) {
+            long now = System.currentTimeMillis();
+            advanceTo(now);
+            long sleep = nextTick * tickMillis - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Process every tick up to and including the one containing {@code nowMillis}. Called by the
+     * worker thread; tests drive it directly instead of starting the worker.
+     */
+    void advanceTo(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        while (nextTick <= nowTick) {
+            transferScheduled();
+            removeCancelled();
+            expire(wheel[(int) (nextTick & mask)]);
+            nextTick++;
+        }
+    }
+
+    private void transferScheduled() {
+        for (Timeout timeout; (timeout = scheduled.poll()) != null; ) {
+            if (timeout.state.get() != WAITING) {
+                continue;
+            }
+            // Rounded up so a timeout never fires before its deadline; past deadlines go into the current tick
+            long target = Math.max(Math.floorDiv(timeout.deadline + tickMillis - 1, tickMillis), nextTick);
+            timeout.rounds = (target - nextTick) / wheel.length;
+            wheel[(int) (target & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        for (Timeout timeout; (timeout = cancelled.poll()) != null; ) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+            pending.decrementAndGet();
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                timeout = timeout.next;
+                continue;
+            }
+            Timeout next = bucket.remove(timeout);
+            if (timeout.state.compareAndSet(WAITING, EXPIRED)) {
+                pending.decrementAndGet();
+                try {
+                    onExpiry.accept(timeout.task);
+                } catch (RuntimeException e) {
+                    logger.error("Timing wheel task {} failed: {}", timeout.task, e.getMessage(), e);
+                }
+            }
+            timeout = next;
+        }
+    }
+}
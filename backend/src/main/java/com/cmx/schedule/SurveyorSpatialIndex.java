@@ -0,0 +1,244 @@
+package com.cmx.schedule;
+
+import com.cmx.location.GeoMath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable uniform lat/lng grid over surveyor positions for k-nearest-neighbour queries.
+ *
+ * Points are sorted by cell, row then column, so each cell is a contiguous run of the parallel
+ * arrays, and the occupied cells of one row are a contiguous run of the sorted cell keys. A query scans rings of cells outwards from the query
+ * cell, keeping the k best haversine distances, and stops once no unscanned cell can hold anything
+ * closer than the current k-th best. Ineligible points are skipped during the scan, so filtering
+ * does not shrink the result below k while eligible points remain.
+ *
+ * Longitudes do not wrap at the antimeridian; positions are expected to lie in one operating region.
+ */
+public final class SurveyorSpatialIndex {
+
+    /**
+     * One result: position in the index, surveyor id and distance from the query point in metres.
+     */
+    public record Hit(int index, long surveyorId, double meters) {}
+
+    private static final double METERS_PER_RADIAN = GeoMath.EARTH_RADIUS_METERS;
+
+    private final double cellDegrees;
+    private final long[] ids;
+    private final double[] lats;
+    private final double[] lngs;
+    // Sorted distinct cell keys and, for each, the start of its run; cellStarts has one extra end entry
+    private final long[] cellKeys;
+    private final int[] cellStarts;
+    private final int minRow;
+    private final int maxRow;
+    private final int minCol;
+    private final int maxCol;
+
+    /**
+     * @param ids surveyor ids; index {@code i} of the three arrays is one surveyor
+     * @param cellDegrees grid cell edge in degrees, in both latitude and longitude
+     */
+    public SurveyorSpatialIndex(long[] ids, double[] lats, double[] lngs, double cellDegrees) {
+        if (ids.length != lats.length || ids.length != lngs.length) {
+            throw new IllegalArgumentException("ids, lats and lngs must have the same length");
+        }
+        if (cellDegrees <= 0) {
+            throw new IllegalArgumentException("cellDegrees must be positive");
+        }
+        this.cellDegrees = cellDegrees;
+        int n = ids.length;
+
+        long[] keyed = new long[n];
+        int rowLo = Integer.MAX_VALUE, rowHi = Integer.MIN_VALUE, colLo = Integer.MAX_VALUE, colHi = Integer.MIN_VALUE;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            int row = row(lats[i]);
+            int col = col(lngs[i]);
+            keyed[i] = key(row, col);
+            order[i] = i;
+            rowLo = Math.min(rowLo, row);
+            rowHi = Math.max(rowHi, row);
+            colLo = Math.min(colLo, col);
+            colHi = Math.max(colHi, col);
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keyed[a], keyed[b]));
+
+        this.ids = new long[n];
+        this.lats = new double[n];
+        this.lngs = new double[n];
+        long[] keys = new long[n];
+        int[] starts = new int[n + 1];
+        int cells = 0;
+        for (int i = 0; i < n; i++) {
+            int from = order[i];
+            this.ids[i] = ids[from];
+            this.lats[i] = lats[from];
+            this.lngs[i] = lngs[from];
+            if (cells == 0 || keys[cells - 1] != keyed[from]) {
+                keys[cells] = keyed[from];
+                starts[cells] = i;
+                cells++;
+            }
+        }
+        starts[cells] = n;
+        this.cellKeys = Arrays.copyOf(keys, cells);
+        this.cellStarts = Arrays.copyOf(starts, cells + 1);
+        this.minRow = rowLo;
+        this.maxRow = rowHi;
+        this.minCol = colLo;
+        this.maxCol = colHi;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Surveyor id at position {@code index}; positions are the index's own order, not the input order.
+     */
+    public long surveyorId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * The {@code k} nearest points to (lat, lng) whose position passes {@code eligible}, nearest first.
+     * Only the occupied bounding box is searched, and each edge row of a ring is one range lookup, so a
+     * lone far-away point or a filter leaving fewer than k eligible points cannot make a query probe
+     * every empty cell.
+     */
+    public List<Hit> nearest(double lat, double lng, int k, IntPredicate eligible) {
+        if (k <= 0 || ids.length == 0) {
+            return List.of();
+        }
+        int row = row(lat);
+        int col = col(lng);
+        // Past this ring every cell of the box has been scanned
+        int maxRing = Math.max(Math.max(row - minRow, maxRow - row), Math.max(col - minCol, maxCol - col));
+        Search search = new Search(lat, lng, k, eligible);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            int fromCol = Math.max(col - ring, minCol);
+            int toCol = Math.min(col + ring, maxCol);
+            if (row - ring >= minRow) {
+                search.scanRow(row - ring, fromCol, toCol);
+            }
+            if (ring > 0 && row + ring <= maxRow) {
+                search.scanRow(row + ring, fromCol, toCol);
+            }
+            // Side columns without the corners, which the edge rows covered
+            int fromRow = Math.max(row - ring + 1, minRow);
+            int toRow = Math.min(row + ring - 1, maxRow);
+            if (ring > 0 && col - ring >= minCol) {
+                for (int r = fromRow; r <= toRow; r++) {
+                    search.scan(r, col - ring);
+                }
+            }
+            if (ring > 0 && col + ring <= maxCol) {
+                for (int r = fromRow; r <= toRow; r++) {
+                    search.scan(r, col + ring);
+                }
+            }
+            if (search.found == k && search.bestMeters[k - 1]
+                    <= unscannedLowerBound(lat, lng, row, col, ring, search.bestMeters[k - 1])) {
+                break;
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(search.found);
+        for (int i = 0; i < search.found; i++) {
+            hits.add(new Hit(search.best[i], ids[search.best[i]], search.bestMeters[i]));
+        }
+        return hits;
+    }
+
+    /**
+     * State of one query: the best k so far, sorted by distance. k is small, so insertion beats a heap.
+     */
+    private final class Search {
+        private final double lat;
+        private final double lng;
+        private final int k;
+        private final IntPredicate eligible;
+        private final int[] best;
+        private final double[] bestMeters;
+        private int found;
+
+        Search(double lat, double lng, int k, IntPredicate eligible) {
+            this.lat = lat;
+            this.lng = lng;
+            this.k = k;
+            this.eligible = eligible;
+            this.best = new int[k];
+            this.bestMeters = new double[k];
+        }
+
+        void scan(int r, int c) {
+            int cell = Arrays.binarySearch(cellKeys, key(r, c));
+            if (cell >= 0) {
+                scanCell(cell);
+            }
+        }
+
+        void scanRow(int r, int fromCol, int toCol) {
+            int cell = Arrays.binarySearch(cellKeys, key(r, fromCol));
+            long last = key(r, toCol);
+            for (cell = cell < 0 ? -cell - 1 : cell; cell < cellKeys.length && cellKeys[cell] <= last; cell++) {
+                scanCell(cell);
+            }
+        }
+
+        private void scanCell(int cell) {
+            for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                // Until k are found nothing is pruned by distance, so the filter goes first
+                if (found < k && !eligible.test(i)) {
+                    continue;
+                }
+                double meters = GeoMath.haversineMeters(lat, lng, lats[i], lngs[i]);
+                if (found == k && (meters >= bestMeters[k - 1] || !eligible.test(i))) {
+                    continue;
+                }
+                int at = found < k ? found++ : k - 1;
+                while (at > 0 && bestMeters[at - 1] > meters) {
+                    best[at] = best[at - 1];
+                    bestMeters[at] = bestMeters[at - 1];
+                    at--;
+                }
+                best[at] = i;
+                bestMeters[at] = meters;
+            }
+        }
+    }
+
+    /**
+     * Lower bound on the distance from the query to any point outside rings 0..ring. Latitude: the
+     * meridian gap to the scanned box edge. Longitude: any point within {@code within} metres has
+     * |latitude| at most |lat| + within, so its distance is at least 2R cos(that) sin(dLng / 2).
+     */
+    private double unscannedLowerBound(double lat, double lng, int row, int col, int ring, double within) {
+        double latGap = Math.min(lat - (row - ring) * cellDegrees, (row + ring + 1) * cellDegrees - lat);
+        double lngGap = Math.min(lng - (col - ring) * cellDegrees, (col + ring + 1) * cellDegrees - lng);
+        double latMeters = Math.toRadians(latGap) * METERS_PER_RADIAN;
+        double maxAbsLat = Math.min(90, Math.abs(lat) + Math.toDegrees(within / METERS_PER_RADIAN));
+        double lngMeters = 2 * METERS_PER_RADIAN * Math.cos(Math.toRadians(maxAbsLat))
+                * Math.sin(Math.toRadians(Math.min(lngGap, 180)) / 2);
+        return Math.min(latMeters, lngMeters);
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor(lat / cellDegrees);
+    }
+
+    private int col(double lng) {
+        return (int) Math.floor(lng / cellDegrees);
+    }
+
+    // Flipping the column's sign bit keeps keys in (row, col) order for negative columns too
+    private static long key(int row, int col) {
+        return ((long) row << 32) | ((col ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+}
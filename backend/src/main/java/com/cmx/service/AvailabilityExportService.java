@@ -0,0 +1,227 @@
+package com.cmx.service;
+
+import com.cmx.dto.AvailabilityDto.AvailabilityEntry;
+import com.cmx.schedule.AvailabilityOverlap;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams availability blocks for a time range as NDJSON or CSV, for calendar sync jobs.
+ *
+ * Rows are read through a forward-only cursor with a bounded fetch size (PostgreSQL only honours
+ * the fetch size inside a transaction, hence the read-only transaction) and written to the output
+ * one at a time, so memory stays flat however many rows or weeks are requested. Unlike
+ * {@code GET /api/availability} there is no row limit.
+ *
+ * If the client disconnects the write fails, which aborts the query and closes the cursor.
+ */
+@Service
+public class AvailabilityExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityExportService.class);
+
+    public enum Format {
+        NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+        CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported export format: " + value + " (expected ndjson or csv)");
+            }
+        }
+    }
+
+    static final String CSV_HEADER = "id,surveyor_id,start_time,end_time,state,source,title,description,updated_at";
+
+    private static final String SELECT =
+            "SELECT id, surveyor_id, start_time, end_time, state, source, title, description, updated_at " +
+            "FROM surveyor_availability WHERE ";
+
+    private final JdbcTemplate jdbc;
+    private final AvailabilityOverlap overlap;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public AvailabilityExportService(JdbcTemplate jdbc,
+                                     AvailabilityOverlap overlap,
+                                     PlatformTransactionManager transactionManager,
+                                     ObjectMapper objectMapper,
+                                     @Value("${availability.export.fetch-size:500}") int fetchSize) {
+        this.jdbc = jdbc;
+        this.overlap = overlap;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Write every block overlapping [from, to), optionally restricted to some surveyors, ordered by
+     * surveyor and start time. Returns the number of rows written.
+     */
+    public long export(Format format, OffsetDateTime from, OffsetDateTime to, List<Long> surveyorIds,
+                       OutputStream out) throws IOException {
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("'to' must be after 'from'");
+        }
+        long started = System.currentTimeMillis();
+        RowSink sink = format == Format.CSV ? new CsvSink(out) : new NdjsonSink(out);
+        long[] rows = {0};
+        try {
+            readOnlyTx.executeWithoutResult(status -> jdbc.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql(surveyorIds),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                ps.setTimestamp(1, Timestamp.from(from.toInstant()));
+                ps.setTimestamp(2, Timestamp.from(to.toInstant()));
+                if (!surveyorIds.isEmpty()) {
+                    ps.setArray(3, con.createArrayOf("BIGINT", surveyorIds.toArray()));
+                }
+                return ps;
+            }, rs -> {
+                try {
+                    sink.write(AvailabilityService.ENTRY_MAPPER.mapRow(rs, (int) rows[0]));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }));
+        } catch (UncheckedIOException e) {
+            logger.info("Availability export aborted after {} rows: {}", rows[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+        sink.finish();
+        logger.info("Availability export: {} rows as {} in {}ms", rows[0], format, System.currentTimeMillis() - started);
+        return rows[0];
+    }
+
+    private String sql(List<Long> surveyorIds) {
+        StringBuilder sql = new StringBuilder(SELECT).append(overlap.predicate());
+        if (!surveyorIds.isEmpty()) {
+            sql.append(" AND surveyor_id = ANY(?)");
+        }
+        return sql.append(" ORDER BY surveyor_id, start_time").toString();
+    }
+
+    private interface RowSink {
+        void write(AvailabilityEntry entry) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    /**
+     * One JSON object per line, in the same shape as {@code GET /api/availability} rows.
+     */
+    private final class NdjsonSink implements RowSink {
+        private final JsonGenerator gen;
+
+        NdjsonSink(OutputStream out) throws IOException {
+            this.gen = objectMapper.getFactory().createGenerator(out);
+            // The servlet owns the stream; flushing is enough
+            this.gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void write(AvailabilityEntry entry) throws IOException {
+            gen.writeObject(entry);
+            gen.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            gen.close();
+        }
+    }
+
+    private static final class CsvSink implements RowSink {
+        private final Writer writer;
+
+        CsvSink(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(AvailabilityEntry a) throws IOException {
+            writer.write(Long.toString(a.id()));
+            writer.write(',');
+            writer.write(Long.toString(a.surveyorId()));
+            writer.write(',');
+            writeField(a.startTime());
+            writer.write(',');
+            writeField(a.endTime());
+            writer.write(',');
+            writeField(a.state());
+            writer.write(',');
+            writeField(a.source());
+            writer.write(',');
+            writeField(a.title());
+            writer.write(',');
+            writeField(a.description());
+            writer.write(',');
+            writeField(a.updatedAt());
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private void writeField(Object value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            String text = value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                writer.write(text);
+                return;
+            }
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
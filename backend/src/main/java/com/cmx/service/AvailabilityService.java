@@ -1,21 +1,44 @@
 package com.cmx.service;
 
+import com.cmx.config.CacheConfig;
+import com.cmx.config.DatabaseDialect;
+import com.cmx.dto.AvailabilityDto.AppointmentEntry;
 import com.cmx.dto.AvailabilityDto.AvailabilityBlock;
+import com.cmx.dto.AvailabilityDto.AvailabilityEntry;
+import com.cmx.dto.AvailabilityDto.AvailabilityPage;
+import com.cmx.dto.AvailabilityDto.UpsertResult;
+import com.cmx.dto.AvailabilityDto.UpsertedBlock;
 import com.cmx.exception.ResourceNotFoundException;
+import com.cmx.exception.ScheduleConflictException;
 import com.cmx.model.SurveyorAvailability;
 import com.cmx.repository.AvailabilityRepository;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Caching;
+import com.cmx.schedule.AvailabilityIndex;
+import com.cmx.schedule.AvailabilityOverlap;
+import com.cmx.schedule.FreeSlotFinder;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,8 +46,37 @@ public class AvailabilityService {
 
     private static final int MAX_AVAILABILITY_LIMIT = 1000;
 
+    // 6 parameters per row keeps a chunk well under the PostgreSQL bind parameter limit
+    private static final int UPSERT_ROWS_PER_STATEMENT = 1000;
+
+    private static final String UPSERT_POSTGRES = """
+            INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, title, description, source, updated_at)
+            VALUES {values}
+            ON CONFLICT (surveyor_id, start_time, end_time) DO UPDATE
+                SET state = EXCLUDED.state, title = EXCLUDED.title, description = EXCLUDED.description,
+                    updated_at = CURRENT_TIMESTAMP
+            RETURNING id, start_time, end_time, (xmax = 0) AS inserted
+            """;
+
+    private static final String MERGE_H2 = """
+            MERGE INTO surveyor_availability t
+            USING (VALUES (CAST(? AS BIGINT), CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP),
+                           CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS VARCHAR)))
+                  AS b(surveyor_id, start_time, end_time, state, title, description)
+            ON t.surveyor_id = b.surveyor_id AND t.start_time = b.start_time AND t.end_time = b.end_time
+            WHEN MATCHED THEN UPDATE SET state = b.state, title = b.title, description = b.description,
+                                         updated_at = CURRENT_TIMESTAMP
+            WHEN NOT MATCHED THEN INSERT (surveyor_id, start_time, end_time, state, title, description, source, updated_at)
+                                  VALUES (b.surveyor_id, b.start_time, b.end_time, b.state, b.title, b.description, 'MOBILE', CURRENT_TIMESTAMP)
+            """;
+
     private final AvailabilityRepository availabilityRepository;
     private final JdbcTemplate jdbc;
+    private final AvailabilityIndex availabilityIndex;
+    private final AvailabilityOverlap overlap;
+    private final DatabaseDialect dialect;
+    private final CalendarDayCache dayCache;
+    private final SurveyorCacheEvictor cacheEvictor;
 
     private static final RowMapper<SurveyorAvailability> AVAILABILITY_MAPPER = (rs, rowNum) -> {
         Timestamp startTs = rs.getTimestamp("start_time");
@@ -48,54 +100,167 @@ public class AvailabilityService {
         return availability;
     };
 
-    public AvailabilityService(AvailabilityRepository availabilityRepository, JdbcTemplate jdbc) {
+    // Read rows straight into the response records, without an intermediate entity or map
+    static final RowMapper<AvailabilityEntry> ENTRY_MAPPER = (rs, rowNum) -> new AvailabilityEntry(
+            rs.getLong("id"),
+            rs.getLong("surveyor_id"),
+            utc(rs.getTimestamp("start_time")),
+            utc(rs.getTimestamp("end_time")),
+            orEmpty(rs.getString("state")),
+            orEmpty(rs.getString("source")),
+            orEmpty(rs.getString("title")),
+            orEmpty(rs.getString("description")),
+            utc(rs.getTimestamp("updated_at"))
+    );
+
+    private static final RowMapper<AppointmentEntry> APPOINTMENT_MAPPER = (rs, rowNum) -> {
+        String responseStatus = rs.getString("response_status");
+        return new AppointmentEntry(
+                ENTRY_MAPPER.mapRow(rs, rowNum),
+                responseStatus != null ? responseStatus : "PENDING",
+                utc(rs.getTimestamp("responded_at")));
+    };
+
+    public AvailabilityService(AvailabilityRepository availabilityRepository, JdbcTemplate jdbc,
+                               AvailabilityIndex availabilityIndex, AvailabilityOverlap overlap, DatabaseDialect dialect,
+                               CalendarDayCache dayCache, SurveyorCacheEvictor cacheEvictor) {
         this.availabilityRepository = availabilityRepository;
         this.jdbc = jdbc;
+        this.availabilityIndex = availabilityIndex;
+        this.overlap = overlap;
+        this.dialect = dialect;
+        this.dayCache = dayCache;
+        this.cacheEvictor = cacheEvictor;
     }
 
-    public List<Map<String, Object>> getAvailability(String from, String to, Long surveyorId,
-                                                      String surveyorIds, Integer limit, Integer offset) {
+    /**
+     * Offset-paged availability for a time range. Prefer {@link #getAvailabilityPage} for deep paging.
+     * Reads for specific surveyors are assembled from the {@link CalendarDayCache}.
+     */
+    public List<AvailabilityEntry> getAvailability(String from, String to, Long surveyorId,
+                                                   String surveyorIds, Integer limit, Integer offset) {
         int safeLimit = Math.min(limit, MAX_AVAILABILITY_LIMIT);
-        OffsetDateTime fromTime = OffsetDateTime.parse(from);
-        OffsetDateTime toTime = OffsetDateTime.parse(to);
+        List<Long> ids = surveyorFilter(surveyorId, surveyorIds);
+        List<AvailabilityEntry> cached = cachedRange(ids, from, to);
+        if (cached != null) {
+            return page(cached, offset, safeLimit);
+        }
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = rangeQuery(from, to, ids, args);
+        sql.append(" ORDER BY surveyor_id, start_time, id LIMIT ? OFFSET ?");
+        args.add(safeLimit);
+        args.add(offset);
+        return jdbc.query(sql.toString(), ENTRY_MAPPER, args.toArray());
+    }
 
-        List<SurveyorAvailability> results;
+    /**
+     * Keyset-paged availability for a time range, ordered by (surveyor_id, start_time, id).
+     *
+     * Each page seeks past the last row of the previous one instead of skipping rows, so a deep page
+     * costs the same as the first ({@code ix_av_surveyor_start_id}). Surveyor ids are bound as one
+     * array, so the SQL text, and with it the cached plan, is the same for every id set.
+     *
+     * @param cursor null for the first page, otherwise the {@code nextCursor} of the previous page
+     */
+    public AvailabilityPage getAvailabilityPage(String from, String to, Long surveyorId,
+                                                String surveyorIds, Integer limit, String cursor) {
+        int safeLimit = Math.min(limit, MAX_AVAILABILITY_LIMIT);
+        PageKey after = cursor != null && !cursor.isBlank() ? PageKey.decode(cursor) : null;
+        List<Long> ids = surveyorFilter(surveyorId, surveyorIds);
+        List<AvailabilityEntry> entries;
+        List<AvailabilityEntry> cached = cachedRange(ids, from, to);
+        if (cached != null) {
+            entries = cached.stream().filter(e -> after == null || after.isBefore(e)).limit(safeLimit).toList();
+        } else {
+            List<Object> args = new ArrayList<>();
+            StringBuilder sql = rangeQuery(from, to, ids, args);
+            if (after != null) {
+                sql.append(" AND (surveyor_id, start_time, id) > (?, ?, ?)");
+                args.add(after.surveyorId());
+                args.add(Timestamp.from(after.startTime()));
+                args.add(after.id());
+            }
+            sql.append(" ORDER BY surveyor_id, start_time, id LIMIT ?");
+            args.add(safeLimit);
+            entries = jdbc.query(sql.toString(), ENTRY_MAPPER, args.toArray());
+        }
 
+        String nextCursor = null;
+        if (entries.size() == safeLimit && !entries.isEmpty()) {
+            AvailabilityEntry last = entries.get(entries.size() - 1);
+            nextCursor = new PageKey(last.surveyorId(), last.startTime().toInstant(), last.id()).encode();
+        }
+        return new AvailabilityPage(entries, nextCursor);
+    }
+
+    /**
+     * Surveyor ids selected by the single-id or comma-separated parameter; empty for all surveyors.
+     */
+    public static List<Long> surveyorFilter(Long surveyorId, String surveyorIds) {
         if (surveyorId != null) {
-            results = jdbc.query(
-                    "SELECT * FROM surveyor_availability WHERE start_time < ? AND end_time > ? AND surveyor_id = ? ORDER BY surveyor_id, start_time LIMIT ? OFFSET ?",
-                    AVAILABILITY_MAPPER,
-                    Timestamp.from(toTime.toInstant()),
-                    Timestamp.from(fromTime.toInstant()),
-                    surveyorId,
-                    safeLimit,
-                    offset
-            );
-        } else if (surveyorIds != null && !surveyorIds.isEmpty()) {
-            List<Long> ids = parseSurveyorIds(surveyorIds);
-            String inClause = ids.stream().map(Object::toString).collect(Collectors.joining(","));
-            results = jdbc.query(
-                    "SELECT * FROM surveyor_availability WHERE start_time < ? AND end_time > ? AND surveyor_id IN (" + inClause + ") ORDER BY surveyor_id, start_time LIMIT ? OFFSET ?",
-                    AVAILABILITY_MAPPER,
-                    Timestamp.from(toTime.toInstant()),
-                    Timestamp.from(fromTime.toInstant()),
-                    safeLimit,
-                    offset
-            );
-        } else {
-            results = jdbc.query(
-                    "SELECT * FROM surveyor_availability WHERE start_time < ? AND end_time > ? ORDER BY surveyor_id, start_time LIMIT ? OFFSET ?",
-                    AVAILABILITY_MAPPER,
-                    Timestamp.from(toTime.toInstant()),
-                    Timestamp.from(fromTime.toInstant()),
-                    safeLimit,
-                    offset
-            );
+            return List.of(surveyorId);
+        }
+        if (surveyorIds != null && !surveyorIds.isBlank()) {
+            return parseSurveyorIds(surveyorIds);
         }
+        return List.of();
+    }
 
-        return results.stream()
-                .map(this::toMap)
-                .collect(Collectors.toList());
+    // Range read from the day cache, or null when not filtered by surveyor or too large to cache
+    private List<AvailabilityEntry> cachedRange(List<Long> ids, String from, String to) {
+        if (ids.isEmpty()) {
+            return null;
+        }
+        return dayCache.read(ids, OffsetDateTime.parse(from).toInstant(), OffsetDateTime.parse(to).toInstant());
+    }
+
+    private static List<AvailabilityEntry> page(List<AvailabilityEntry> entries, int offset, int limit) {
+        int fromIndex = Math.min(Math.max(offset, 0), entries.size());
+        return entries.subList(fromIndex, Math.min(fromIndex + limit, entries.size()));
+    }
+
+    // Blocks overlapping [from, to), optionally for some surveyors bound as one array parameter
+    private StringBuilder rangeQuery(String from, String to, List<Long> ids, List<Object> args) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM surveyor_availability WHERE ").append(overlap.predicate());
+        args.add(Timestamp.from(OffsetDateTime.parse(from).toInstant()));
+        args.add(Timestamp.from(OffsetDateTime.parse(to).toInstant()));
+        if (!ids.isEmpty()) {
+            sql.append(" AND surveyor_id = ANY(?)");
+            args.add(ids.toArray(new Long[0]));
+        }
+        return sql;
+    }
+
+    /**
+     * Position after the last row of a page, carried by the client as an opaque URL-safe token.
+     */
+    record PageKey(long surveyorId, Instant startTime, long id) {
+
+        String encode() {
+            String raw = surveyorId + ":" + startTime.getEpochSecond() + ":" + startTime.getNano() + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Whether this key sorts before the entry in (surveyor_id, start_time, id) order
+        boolean isBefore(AvailabilityEntry entry) {
+            int bySurveyor = Long.compare(surveyorId, entry.surveyorId());
+            if (bySurveyor != 0) {
+                return bySurveyor < 0;
+            }
+            int byStart = startTime.compareTo(entry.startTime().toInstant());
+            return byStart != 0 ? byStart < 0 : id < entry.id();
+        }
+
+        static PageKey decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+                return new PageKey(Long.parseLong(parts[0]),
+                        Instant.ofEpochSecond(Long.parseLong(parts[1]), Long.parseLong(parts[2])),
+                        Long.parseLong(parts[3]));
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
     }
 
     public SurveyorAvailability findById(Long id) {
@@ -103,29 +268,130 @@ public class AvailabilityService {
                 .orElseThrow(() -> new ResourceNotFoundException("Availability", id));
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "availabilityCache", allEntries = true),
-            @CacheEvict(value = "surveyorsCache", allEntries = true)
-    })
-    public void upsertAvailability(Long surveyorId, List<AvailabilityBlock> blocks) {
-        // Use INSERT...ON CONFLICT for PostgreSQL upsert behavior
-        String upsert =
-                "INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, title, description, source, updated_at) " +
-                "VALUES (?, CAST(? AS TIMESTAMP WITH TIME ZONE), CAST(? AS TIMESTAMP WITH TIME ZONE), ?, ?, ?, 'MOBILE', CURRENT_TIMESTAMP) " +
-                "ON CONFLICT (surveyor_id, start_time, end_time) DO UPDATE SET state = EXCLUDED.state, title = EXCLUDED.title, description = EXCLUDED.description, updated_at = CURRENT_TIMESTAMP";
-
+    /**
+     * Insert or update a surveyor's blocks, keyed by (surveyor, start, end), in one transaction.
+     *
+     * On PostgreSQL each chunk of blocks is one multi-row {@code INSERT ... ON CONFLICT DO UPDATE}
+     * that returns the row ids and whether each was inserted, so concurrent upserts of the same block
+     * update it instead of failing on {@code uq_surveyor_availability_time}. H2 gets a batched
+     * {@code MERGE}, with ids and insert flags read around it. Blocks repeating a time range collapse
+     * into the last one, as sequential upserts would have. Callers get the row ids with
+     * inserted/updated flags and can notify once per batch.
+     *
+     * @throws ScheduleConflictException if {@code ex_av_busy_no_overlap} rejects overlapping BUSY blocks
+     */
+    @Transactional
+    public UpsertResult upsertAvailability(Long surveyorId, List<AvailabilityBlock> blocks) {
+        Map<BlockKey, PendingBlock> byKey = new LinkedHashMap<>();
         for (AvailabilityBlock b : blocks) {
-            jdbc.update(upsert, surveyorId, b.startTime(), b.endTime(), b.state(), b.title(), b.description());
+            // Timestamps are stored to the microsecond; keys must match what the database returns
+            PendingBlock pending = new PendingBlock(OffsetDateTime.parse(b.startTime()).truncatedTo(ChronoUnit.MICROS),
+                    OffsetDateTime.parse(b.endTime()).truncatedTo(ChronoUnit.MICROS), b);
+            byKey.put(pending.key(), pending);
+        }
+
+        List<UpsertedBlock> upserted = new ArrayList<>(byKey.size());
+        if (!byKey.isEmpty()) {
+            Map<BlockKey, UpsertedRow> rows;
+            try {
+                rows = dialect.isPostgres()
+                        ? upsertReturning(surveyorId, List.copyOf(byKey.values()))
+                        : merge(surveyorId, byKey);
+            } catch (DataIntegrityViolationException e) {
+                if (AvailabilityOverlap.isBusyOverlap(e)) {
+                    throw new ScheduleConflictException(surveyorId, List.of());
+                }
+                throw e;
+            }
+            for (PendingBlock p : byKey.values()) {
+                UpsertedRow row = rows.get(p.key());
+                upserted.add(new UpsertedBlock(row.id(), row.inserted(),
+                        p.start(), p.end(), p.block().state(), p.block().title(), p.block().description()));
+                cacheEvictor.daysChanged(surveyorId, p.start().toInstant(), p.end().toInstant());
+            }
+        }
+        refreshIndexAfterCommit(surveyorId);
+        cacheEvictor.calendarChanged(surveyorId);
+        return new UpsertResult(surveyorId, upserted);
+    }
+
+    private Map<BlockKey, UpsertedRow> upsertReturning(Long surveyorId, List<PendingBlock> blocks) {
+        Map<BlockKey, UpsertedRow> rows = new HashMap<>();
+        for (int from = 0; from < blocks.size(); from += UPSERT_ROWS_PER_STATEMENT) {
+            List<PendingBlock> chunk = blocks.subList(from, Math.min(from + UPSERT_ROWS_PER_STATEMENT, blocks.size()));
+            List<Object> args = new ArrayList<>(chunk.size() * 6);
+            for (PendingBlock p : chunk) {
+                args.add(surveyorId);
+                args.add(Timestamp.from(p.start().toInstant()));
+                args.add(Timestamp.from(p.end().toInstant()));
+                args.add(p.block().state());
+                args.add(p.block().title());
+                args.add(p.block().description());
+            }
+            String values = String.join(", ", Collections.nCopies(chunk.size(),
+                    "(?, ?, ?, ?, ?, ?, 'MOBILE', CURRENT_TIMESTAMP)"));
+            jdbc.query(UPSERT_POSTGRES.replace("{values}", values),
+                    rs -> {
+                        rows.put(new BlockKey(rs.getTimestamp("start_time").toInstant(), rs.getTimestamp("end_time").toInstant()),
+                                new UpsertedRow(rs.getLong("id"), rs.getBoolean("inserted")));
+                    },
+                    args.toArray());
+        }
+        return rows;
+    }
+
+    private Map<BlockKey, UpsertedRow> merge(Long surveyorId, Map<BlockKey, PendingBlock> byKey) {
+        // MERGE cannot report which rows it inserted, so look at what exists first
+        Map<BlockKey, Long> existing = findBlockIds(surveyorId, byKey.keySet());
+        List<PendingBlock> blocks = List.copyOf(byKey.values());
+        jdbc.batchUpdate(MERGE_H2, blocks, blocks.size(), (ps, p) -> {
+            ps.setLong(1, surveyorId);
+            ps.setTimestamp(2, Timestamp.from(p.start().toInstant()));
+            ps.setTimestamp(3, Timestamp.from(p.end().toInstant()));
+            ps.setString(4, p.block().state());
+            ps.setString(5, p.block().title());
+            ps.setString(6, p.block().description());
+        });
+        Map<BlockKey, Long> ids = findBlockIds(surveyorId, byKey.keySet());
+        Map<BlockKey, UpsertedRow> rows = new HashMap<>();
+        ids.forEach((key, id) -> rows.put(key, new UpsertedRow(id, !existing.containsKey(key))));
+        return rows;
+    }
+
+    /**
+     * Ids of the surveyor's rows with the given time ranges, in one query over their start span.
+     */
+    private Map<BlockKey, Long> findBlockIds(Long surveyorId, Set<BlockKey> keys) {
+        Instant minStart = keys.stream().map(BlockKey::start).min(Instant::compareTo).orElseThrow();
+        Instant maxStart = keys.stream().map(BlockKey::start).max(Instant::compareTo).orElseThrow();
+        Map<BlockKey, Long> ids = new HashMap<>();
+        jdbc.query("SELECT id, start_time, end_time FROM surveyor_availability WHERE surveyor_id = ? AND start_time >= ? AND start_time <= ?",
+                rs -> {
+                    BlockKey key = new BlockKey(rs.getTimestamp("start_time").toInstant(), rs.getTimestamp("end_time").toInstant());
+                    if (keys.contains(key)) {
+                        ids.put(key, rs.getLong("id"));
+                    }
+                },
+                surveyorId, Timestamp.from(minStart), Timestamp.from(maxStart));
+        return ids;
+    }
+
+    // The unique key of a block within one surveyor's calendar
+    private record BlockKey(Instant start, Instant end) {}
+
+    private record UpsertedRow(long id, boolean inserted) {}
+
+    private record PendingBlock(OffsetDateTime start, OffsetDateTime end, AvailabilityBlock block) {
+        BlockKey key() {
+            return new BlockKey(start.toInstant(), end.toInstant());
         }
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "availabilityCache", allEntries = true),
-            @CacheEvict(value = "surveyorsCache", allEntries = true)
-    })
     public boolean updateAvailability(Long id, String startTime, String endTime, String state, String title, String description) {
         OffsetDateTime start = OffsetDateTime.parse(startTime);
         OffsetDateTime end = OffsetDateTime.parse(endTime);
+        // The days the block leaves are invalidated along with the days it moves to
+        List<SurveyorAvailability> before = jdbc.query("SELECT * FROM surveyor_availability WHERE id = ?", AVAILABILITY_MAPPER, id);
         int updated = jdbc.update(
                 "UPDATE surveyor_availability SET start_time = ?, end_time = ?, state = ?, title = ?, description = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?",
                 Timestamp.from(start.toInstant()),
@@ -135,13 +401,16 @@ public class AvailabilityService {
                 description,
                 id
         );
+        if (updated == 1 && !before.isEmpty()) {
+            SurveyorAvailability old = before.get(0);
+            Long surveyorId = old.getSurveyorId();
+            refreshIndexAfterCommit(surveyorId);
+            cacheEvictor.daysChanged(surveyorId, old.getStartTime().toInstant(), old.getEndTime().toInstant());
+            cacheEvictor.calendarChanged(surveyorId, start.toInstant(), end.toInstant());
+        }
         return updated == 1;
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "availabilityCache", allEntries = true),
-            @CacheEvict(value = "surveyorsCache", allEntries = true)
-    })
     public SurveyorAvailability deleteAvailability(Long id) {
         List<SurveyorAvailability> results = jdbc.query(
                 "SELECT * FROM surveyor_availability WHERE id = ?",
@@ -149,27 +418,100 @@ public class AvailabilityService {
                 id
         );
         if (!results.isEmpty()) {
+            SurveyorAvailability deleted = results.get(0);
             jdbc.update("DELETE FROM surveyor_availability WHERE id = ?", id);
+            refreshIndexAfterCommit(deleted.getSurveyorId());
+            cacheEvictor.calendarChanged(deleted.getSurveyorId(), deleted.getStartTime().toInstant(),
+                    deleted.getEndTime().toInstant());
             return results.get(0);
         }
         return null;
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "availabilityCache", allEntries = true),
-            @CacheEvict(value = "surveyorsCache", allEntries = true)
-    })
+    /**
+     * Blocks of one surveyor overlapping [from, to) that make the surveyor busy, i.e. whose state is
+     * not one of {@link FreeSlotFinder#FREE_STATES}, in start order.
+     */
+    public List<AvailabilityEntry> findConflicts(Long surveyorId, OffsetDateTime from, OffsetDateTime to) {
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("'to' must be after 'from'");
+        }
+        return jdbc.query(
+                "SELECT * FROM surveyor_availability WHERE surveyor_id = ? AND " + overlap.predicate() +
+                " AND state NOT IN ('AVAILABLE', 'CANCELLED') ORDER BY start_time, id",
+                ENTRY_MAPPER,
+                surveyorId, Timestamp.from(from.toInstant()), Timestamp.from(to.toInstant()));
+    }
+
+    /**
+     * Insert a BUSY block, rejecting it if it overlaps another busy block of the same surveyor.
+     *
+     * The surveyor row is locked for the check and insert, so two concurrent bookings for the same
+     * surveyor cannot both pass the check. Where the exclusion constraint from changelog 027 is in
+     * place it is the backstop and its violation is reported the same way.
+     *
+     * @throws ScheduleConflictException if the range overlaps an existing busy block
+     */
+    @Transactional
     public void createBusyBlock(Long surveyorId, OffsetDateTime start, OffsetDateTime end) {
-        jdbc.update(
-                "INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, source, updated_at) " +
-                "VALUES (?, ?, ?, 'BUSY', 'CMX', CURRENT_TIMESTAMP)",
-                surveyorId,
-                Timestamp.from(start.toInstant()),
-                Timestamp.from(end.toInstant())
-        );
+        jdbc.query("SELECT id FROM surveyor WHERE id = ? FOR UPDATE", rs -> { }, surveyorId);
+        List<AvailabilityEntry> conflicts = findConflicts(surveyorId, start, end);
+        if (!conflicts.isEmpty()) {
+            throw new ScheduleConflictException(surveyorId, conflicts.stream().map(AvailabilityEntry::id).toList());
+        }
+        try {
+            jdbc.update(
+                    "INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, source, updated_at) " +
+                    "VALUES (?, ?, ?, 'BUSY', 'CMX', CURRENT_TIMESTAMP)",
+                    surveyorId,
+                    Timestamp.from(start.toInstant()),
+                    Timestamp.from(end.toInstant())
+            );
+        } catch (DataIntegrityViolationException e) {
+            if (AvailabilityOverlap.isBusyOverlap(e)) {
+                throw new ScheduleConflictException(surveyorId, List.of());
+            }
+            throw e;
+        }
+        busyBlockAdded(surveyorId, start, end);
+    }
+
+    /**
+     * Refresh the index and cached days after a busy block was inserted by other SQL, such as the
+     * single-statement offer acceptance.
+     */
+    public void busyBlockAdded(Long surveyorId, OffsetDateTime start, OffsetDateTime end) {
+        refreshIndexAfterCommit(surveyorId);
+        cacheEvictor.calendarChanged(surveyorId, start.toInstant(), end.toInstant());
+    }
+
+    /**
+     * Reload the surveyor's timeline into the {@link AvailabilityIndex} once the write is committed,
+     * so readers never see uncommitted blocks and a rollback leaves nothing behind; outside a
+     * transaction the write is already committed and the reload runs at once.
+     */
+    private void refreshIndexAfterCommit(Long surveyorId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    availabilityIndex.refreshSurveyor(surveyorId);
+                }
+            });
+        } else {
+            availabilityIndex.refreshSurveyor(surveyorId);
+        }
     }
 
+    /**
+     * State of the availability block covering {@code now}, or AVAILABLE if there is none.
+     * Answered from the in-memory {@link AvailabilityIndex} within its horizon.
+     */
     public String getCurrentState(Long surveyorId, OffsetDateTime now) {
+        String indexed = availabilityIndex.stateAt(surveyorId, now.toInstant());
+        if (indexed != null) {
+            return indexed;
+        }
         try {
             String state = availabilityRepository.findCurrentState(surveyorId, now);
             return state != null ? state : "AVAILABLE";
@@ -193,21 +535,7 @@ public class AvailabilityService {
         }
     }
 
-    private Map<String, Object> toMap(SurveyorAvailability a) {
-        return Map.of(
-                "id", a.getId(),
-                "surveyor_id", a.getSurveyorId(),
-                "start_time", a.getStartTime().toString(),
-                "end_time", a.getEndTime().toString(),
-                "state", a.getState() != null ? a.getState() : "",
-                "source", a.getSource() != null ? a.getSource() : "",
-                "title", a.getTitle() != null ? a.getTitle() : "",
-                "description", a.getDescription() != null ? a.getDescription() : "",
-                "updated_at", a.getUpdatedAt() != null ? a.getUpdatedAt().toString() : ""
-        );
-    }
-
-    private static List<Long> parseSurveyorIds(String surveyorIds) {
+    static List<Long> parseSurveyorIds(String surveyorIds) {
         return Arrays.stream(surveyorIds.split(","))
                 .map(String::trim)
                 .map(Long::parseLong)
@@ -215,9 +543,12 @@ public class AvailabilityService {
     }
 
     /**
-     * Get appointments for a specific surveyor (for mobile app)
+     * Get appointments for a specific surveyor (for mobile app). Cached per surveyor; entries are
+     * evicted by {@link SurveyorCacheEvictor#calendarChanged} when that surveyor's calendar changes.
      */
-    public List<Map<String, Object>> getAppointmentsForSurveyor(Long surveyorId, boolean upcomingOnly) {
+    @Cacheable(value = CacheConfig.APPOINTMENTS_CACHE,
+               key = "T(com.cmx.service.SurveyorCacheEvictor).appointmentsKey(#surveyorId, #upcomingOnly)")
+    public List<AppointmentEntry> getAppointmentsForSurveyor(Long surveyorId, boolean upcomingOnly) {
         String sql;
         if (upcomingOnly) {
             sql = "SELECT * FROM surveyor_availability WHERE surveyor_id = ? AND end_time > CURRENT_TIMESTAMP ORDER BY start_time ASC LIMIT 100";
@@ -225,24 +556,21 @@ public class AvailabilityService {
             sql = "SELECT * FROM surveyor_availability WHERE surveyor_id = ? ORDER BY start_time DESC LIMIT 100";
         }
 
-        List<SurveyorAvailability> results = jdbc.query(sql, AVAILABILITY_MAPPER, surveyorId);
-        return results.stream()
-                .map(this::toMapWithResponse)
-                .collect(Collectors.toList());
+        return jdbc.query(sql, APPOINTMENT_MAPPER, surveyorId);
     }
 
     /**
      * Get appointment by ID (for notifications)
      */
-    public Map<String, Object> getAppointmentById(Long appointmentId) {
+    public AppointmentEntry getAppointmentById(Long appointmentId) {
         try {
-            List<SurveyorAvailability> results = jdbc.query(
+            List<AppointmentEntry> results = jdbc.query(
                     "SELECT * FROM surveyor_availability WHERE id = ?",
-                    AVAILABILITY_MAPPER,
+                    APPOINTMENT_MAPPER,
                     appointmentId
             );
             if (!results.isEmpty()) {
-                return toMapWithResponse(results.get(0));
+                return results.get(0);
             }
         } catch (Exception e) {
             // ignore
@@ -253,10 +581,6 @@ public class AvailabilityService {
     /**
      * Respond to an appointment (accept/reject)
      */
-    @Caching(evict = {
-            @CacheEvict(value = "availabilityCache", allEntries = true),
-            @CacheEvict(value = "surveyorsCache", allEntries = true)
-    })
     public boolean respondToAppointment(Long appointmentId, Long surveyorId, String response) {
         // Verify the appointment belongs to this surveyor
         Long actualSurveyorId = getSurveyorIdForAvailability(appointmentId);
@@ -269,22 +593,17 @@ public class AvailabilityService {
                 response,
                 appointmentId
         );
+        if (updated == 1) {
+            cacheEvictor.calendarChanged(surveyorId);
+        }
         return updated == 1;
     }
 
-    private Map<String, Object> toMapWithResponse(SurveyorAvailability a) {
-        java.util.HashMap<String, Object> map = new java.util.HashMap<>();
-        map.put("id", a.getId());
-        map.put("surveyor_id", a.getSurveyorId());
-        map.put("start_time", a.getStartTime().toString());
-        map.put("end_time", a.getEndTime().toString());
-        map.put("state", a.getState() != null ? a.getState() : "");
-        map.put("source", a.getSource() != null ? a.getSource() : "");
-        map.put("title", a.getTitle() != null ? a.getTitle() : "");
-        map.put("description", a.getDescription() != null ? a.getDescription() : "");
-        map.put("updated_at", a.getUpdatedAt() != null ? a.getUpdatedAt().toString() : "");
-        map.put("response_status", a.getResponseStatus() != null ? a.getResponseStatus() : "PENDING");
-        map.put("responded_at", a.getRespondedAt() != null ? a.getRespondedAt().toString() : null);
-        return map;
+    static OffsetDateTime utc(Timestamp ts) {
+        return ts != null ? ts.toInstant().atOffset(ZoneOffset.UTC) : null;
+    }
+
+    static String orEmpty(String value) {
+        return value != null ? value : "";
     }
 }
@@ -0,0 +1,262 @@
+package com.cmx.service;
+
+import com.cmx.dto.AvailabilityDto.AvailabilityEntry;
+import com.cmx.schedule.AvailabilityOverlap;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Calendar blocks cached per (surveyor, day).
+ *
+ * Week and month views of the same surveyors hit the same days over and over. Each day holds the
+ * blocks overlapping it as immutable parallel arrays; a range read is assembled from its days and
+ * only the cold days are loaded, all with one query. Writes invalidate just the days their old and
+ * new ranges touch (see {@link SurveyorCacheEvictor#calendarChanged(Long, Instant, Instant)}).
+ *
+ * A load that raced a write is returned to its caller but not cached: every invalidation bumps a
+ * generation counter, and buckets are only stored if it did not move while they were loaded.
+ */
+@Component
+public class CalendarDayCache {
+
+    // Surveyor-days per read served from the cache; larger reads go straight to the database
+    static final int MAX_CELLS = 5000;
+
+    // Beyond this many days an invalidation drops all of the surveyor's days instead
+    private static final int MAX_INVALIDATED_DAYS = 366;
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    private static final Comparator<AvailabilityEntry> ORDER = Comparator
+            .comparingLong(AvailabilityEntry::surveyorId)
+            .thenComparing(AvailabilityEntry::startTime)
+            .thenComparingLong(AvailabilityEntry::id);
+
+    record DayKey(long surveyorId, LocalDate day) {}
+
+    /**
+     * Blocks overlapping one surveyor-day in (start, id) order. Times are epoch microseconds,
+     * {@link #NONE} for a missing updated_at.
+     */
+    record DayBucket(long[] ids, long[] starts, long[] ends, long[] updated,
+                     String[] states, String[] sources, String[] titles, String[] descriptions) {
+
+        static final DayBucket EMPTY = new DayBucket(new long[0], new long[0], new long[0], new long[0],
+                new String[0], new String[0], new String[0], new String[0]);
+
+        int size() {
+            return ids.length;
+        }
+
+        AvailabilityEntry entry(long surveyorId, int i) {
+            return new AvailabilityEntry(ids[i], surveyorId, toTime(starts[i]), toTime(ends[i]),
+                    states[i], sources[i], titles[i], descriptions[i], toTime(updated[i]));
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final AvailabilityOverlap overlap;
+    private final ZoneId zone;
+    private final Cache<DayKey, DayBucket> buckets;
+    private final AtomicLong generation = new AtomicLong();
+
+    public CalendarDayCache(JdbcTemplate jdbc, AvailabilityOverlap overlap,
+                            @Value("${calendar.cache.zone:UTC}") String zone,
+                            @Value("${calendar.cache.max-days:100000}") long maxDays,
+                            @Value("${calendar.cache.ttl-minutes:30}") long ttlMinutes) {
+        this.jdbc = jdbc;
+        this.overlap = overlap;
+        this.zone = ZoneId.of(zone);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxDays)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Blocks of the given surveyors overlapping [from, to), ordered by (surveyor, start, id), or null
+     * if the read spans more than {@link #MAX_CELLS} surveyor-days.
+     */
+    public List<AvailabilityEntry> read(List<Long> surveyorIds, Instant from, Instant to) {
+        Set<Long> ids = new TreeSet<>(surveyorIds);
+        List<LocalDate> days = days(from, to);
+        if (days.isEmpty() || (long) ids.size() * days.size() > MAX_CELLS) {
+            return null;
+        }
+
+        List<DayKey> keys = new ArrayList<>(ids.size() * days.size());
+        for (Long id : ids) {
+            for (LocalDate day : days) {
+                keys.add(new DayKey(id, day));
+            }
+        }
+        Map<DayKey, DayBucket> found = new HashMap<>(buckets.getAllPresent(keys));
+        if (found.size() < keys.size()) {
+            found.putAll(loadCold(keys.stream().filter(k -> !found.containsKey(k)).toList()));
+        }
+
+        long fromMicros = micros(from);
+        long toMicros = micros(to);
+        List<AvailabilityEntry> entries = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (DayKey key : keys) {
+            DayBucket bucket = found.get(key);
+            for (int i = 0; i < bucket.size(); i++) {
+                // Blocks spanning midnight are in every day they touch
+                if (bucket.starts()[i] < toMicros && bucket.ends()[i] > fromMicros && seen.add(bucket.ids()[i])) {
+                    entries.add(bucket.entry(key.surveyorId(), i));
+                }
+            }
+        }
+        entries.sort(ORDER);
+        return entries;
+    }
+
+    /**
+     * Drop the surveyor's days touched by [start, end).
+     */
+    public void invalidate(Long surveyorId, Instant start, Instant end) {
+        generation.incrementAndGet();
+        Instant until = end.isAfter(start) ? end : start.plusNanos(1);
+        if (Duration.between(start, until).toDays() >= MAX_INVALIDATED_DAYS) {
+            invalidateSurveyor(surveyorId);
+            return;
+        }
+        buckets.invalidateAll(days(start, until).stream().map(day -> new DayKey(surveyorId, day)).toList());
+    }
+
+    /**
+     * Drop all of the surveyor's days.
+     */
+    public void invalidateSurveyor(Long surveyorId) {
+        generation.incrementAndGet();
+        buckets.asMap().keySet().removeIf(key -> key.surveyorId() == surveyorId);
+    }
+
+    public Map<String, Object> getStats() {
+        var stats = buckets.stats();
+        return Map.of(
+                "days", buckets.estimatedSize(),
+                "hitRate", stats.hitRate(),
+                "loads", stats.missCount(),
+                "evictions", stats.evictionCount()
+        );
+    }
+
+    private Map<DayKey, DayBucket> loadCold(List<DayKey> cold) {
+        long startedAt = generation.get();
+        Set<Long> surveyors = new TreeSet<>();
+        LocalDate first = cold.get(0).day();
+        LocalDate last = first;
+        for (DayKey key : cold) {
+            surveyors.add(key.surveyorId());
+            first = key.day().isBefore(first) ? key.day() : first;
+            last = key.day().isAfter(last) ? key.day() : last;
+        }
+
+        Map<Long, List<Row>> rows = new HashMap<>();
+        jdbc.query("SELECT id, surveyor_id, start_time, end_time, state, source, title, description, updated_at " +
+                        "FROM surveyor_availability WHERE surveyor_id = ANY(?) AND " + overlap.predicate() +
+                        " ORDER BY surveyor_id, start_time, id",
+                rs -> {
+                    rows.computeIfAbsent(rs.getLong("surveyor_id"), k -> new ArrayList<>()).add(new Row(
+                            rs.getLong("id"),
+                            micros(rs.getTimestamp("start_time")),
+                            micros(rs.getTimestamp("end_time")),
+                            micros(rs.getTimestamp("updated_at")),
+                            AvailabilityService.orEmpty(rs.getString("state")),
+                            AvailabilityService.orEmpty(rs.getString("source")),
+                            AvailabilityService.orEmpty(rs.getString("title")),
+                            AvailabilityService.orEmpty(rs.getString("description"))));
+                },
+                surveyors.toArray(new Long[0]),
+                Timestamp.from(first.atStartOfDay(zone).toInstant()),
+                Timestamp.from(last.plusDays(1).atStartOfDay(zone).toInstant()));
+
+        Map<DayKey, DayBucket> loaded = new HashMap<>();
+        for (DayKey key : cold) {
+            loaded.put(key, bucket(rows.getOrDefault(key.surveyorId(), List.of()),
+                    micros(key.day().atStartOfDay(zone).toInstant()),
+                    micros(key.day().plusDays(1).atStartOfDay(zone).toInstant())));
+        }
+        if (generation.get() == startedAt) {
+            buckets.putAll(loaded);
+        }
+        return loaded;
+    }
+
+    private static DayBucket bucket(List<Row> rows, long dayStart, long dayEnd) {
+        List<Row> inDay = rows.stream().filter(r -> r.start() < dayEnd && r.end() > dayStart).toList();
+        if (inDay.isEmpty()) {
+            return DayBucket.EMPTY;
+        }
+        int n = inDay.size();
+        DayBucket b = new DayBucket(new long[n], new long[n], new long[n], new long[n],
+                new String[n], new String[n], new String[n], new String[n]);
+        for (int i = 0; i < n; i++) {
+            Row r = inDay.get(i);
+            b.ids()[i] = r.id();
+            b.starts()[i] = r.start();
+            b.ends()[i] = r.end();
+            b.updated()[i] = r.updated();
+            b.states()[i] = r.state();
+            b.sources()[i] = r.source();
+            b.titles()[i] = r.title();
+            b.descriptions()[i] = r.description();
+        }
+        return b;
+    }
+
+    private record Row(long id, long start, long end, long updated,
+                       String state, String source, String title, String description) {}
+
+    // Days in the cache zone touched by [from, to)
+    private List<LocalDate> days(Instant from, Instant to) {
+        List<LocalDate> days = new ArrayList<>();
+        if (!to.isAfter(from)) {
+            return days;
+        }
+        LocalDate last = to.minusNanos(1).atZone(zone).toLocalDate();
+        for (LocalDate day = from.atZone(zone).toLocalDate(); !day.isAfter(last); day = day.plusDays(1)) {
+            days.add(day);
+        }
+        return days;
+    }
+
+    private static long micros(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000;
+    }
+
+    private static long micros(Timestamp timestamp) {
+        return timestamp != null ? micros(timestamp.toInstant()) : NONE;
+    }
+
+    private static OffsetDateTime toTime(long micros) {
+        if (micros == NONE) {
+            return null;
+        }
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L)
+                .atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,374 @@
+package com.cmx.service;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.dto.AvailabilityDto.ImportResult;
+import com.cmx.dto.AvailabilityDto.ImportedSurveyor;
+import com.cmx.schedule.AvailabilityIndex;
+import com.cmx.schedule.AvailabilityOverlap;
+import com.cmx.schedule.CalendarImportReader;
+import com.cmx.schedule.CalendarImportReader.Format;
+import com.cmx.schedule.CalendarImportReader.ImportRow;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk calendar import for onboarding: an uploaded ICS or CSV file is parsed as a stream into a
+ * per-transaction staging table, then merged into {@code surveyor_availability} with one statement.
+ *
+ * On PostgreSQL rows are streamed into the staging table with {@code COPY ... FROM STDIN} and merged
+ * with a single {@code INSERT ... ON CONFLICT (surveyor_id, start_time, end_time) DO UPDATE}, whose
+ * RETURNING rows are aggregated per surveyor in the same statement. H2 has neither, so it stages with
+ * JDBC batches and merges with {@code MERGE}. Within one file the last row for a time range wins.
+ *
+ * Rows for unknown surveyors are skipped and reported instead of failing the import. Affected
+ * surveyors get their index and cached days refreshed, and one summary notification each.
+ */
+@Service
+public class CalendarImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CalendarImportService.class);
+
+    static final String SOURCE = "IMPORT";
+    static final int MAX_ERRORS = 100;
+
+    private static final int H2_BATCH_SIZE = 1000;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private static final String STAGING_COLUMNS = "(line INT, surveyor_id BIGINT, start_time TIMESTAMP, end_time TIMESTAMP, " +
+            "state VARCHAR(16), title VARCHAR(100), description VARCHAR(255))";
+
+    private static final String MERGE_POSTGRES = """
+            WITH merged AS (
+                INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, title, description, source, updated_at)
+                SELECT DISTINCT ON (i.surveyor_id, i.start_time, i.end_time)
+                       i.surveyor_id, i.start_time, i.end_time, i.state, i.title, i.description, ?, CURRENT_TIMESTAMP
+                FROM availability_import i
+                JOIN surveyor s ON s.id = i.surveyor_id
+                ORDER BY i.surveyor_id, i.start_time, i.end_time, i.line DESC
+                ON CONFLICT (surveyor_id, start_time, end_time) DO UPDATE
+                    SET state = EXCLUDED.state, title = EXCLUDED.title, description = EXCLUDED.description,
+                        updated_at = CURRENT_TIMESTAMP
+                RETURNING surveyor_id, start_time, end_time, (xmax = 0) AS inserted
+            )
+            SELECT surveyor_id,
+                   COUNT(*) FILTER (WHERE inserted) AS inserted,
+                   COUNT(*) FILTER (WHERE NOT inserted) AS updated,
+                   MIN(start_time) AS first_start,
+                   MAX(end_time) AS last_end
+            FROM merged
+            GROUP BY surveyor_id
+            ORDER BY surveyor_id
+            """;
+
+    // H2: counted before the merge, since MERGE cannot report which rows it inserted
+    private static final String SUMMARY_H2 = """
+            SELECT d.surveyor_id,
+                   COUNT(*) - COUNT(a.id) AS inserted,
+                   COUNT(a.id) AS updated,
+                   MIN(d.start_time) AS first_start,
+                   MAX(d.end_time) AS last_end
+            FROM (SELECT DISTINCT surveyor_id, start_time, end_time FROM availability_import) d
+            JOIN surveyor s ON s.id = d.surveyor_id
+            LEFT JOIN surveyor_availability a
+                   ON a.surveyor_id = d.surveyor_id AND a.start_time = d.start_time AND a.end_time = d.end_time
+            GROUP BY d.surveyor_id
+            ORDER BY d.surveyor_id
+            """;
+
+    private static final String MERGE_H2 = """
+            MERGE INTO surveyor_availability t
+            USING (SELECT i.* FROM availability_import i
+                   JOIN surveyor s ON s.id = i.surveyor_id
+                   WHERE i.line = (SELECT MAX(j.line) FROM availability_import j
+                                   WHERE j.surveyor_id = i.surveyor_id AND j.start_time = i.start_time
+                                     AND j.end_time = i.end_time)) i
+            ON t.surveyor_id = i.surveyor_id AND t.start_time = i.start_time AND t.end_time = i.end_time
+            WHEN MATCHED THEN UPDATE SET state = i.state, title = i.title, description = i.description,
+                                         updated_at = CURRENT_TIMESTAMP
+            WHEN NOT MATCHED THEN INSERT (surveyor_id, start_time, end_time, state, title, description, source, updated_at)
+                                  VALUES (i.surveyor_id, i.start_time, i.end_time, i.state, i.title, i.description, ?, CURRENT_TIMESTAMP)
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final DatabaseDialect dialect;
+    private final AvailabilityIndex availabilityIndex;
+    private final SurveyorCacheEvictor cacheEvictor;
+    private final NotificationService notificationService;
+    private final ZoneId defaultZone;
+
+    public CalendarImportService(JdbcTemplate jdbc,
+                                 PlatformTransactionManager transactionManager,
+                                 DatabaseDialect dialect,
+                                 AvailabilityIndex availabilityIndex,
+                                 SurveyorCacheEvictor cacheEvictor,
+                                 NotificationService notificationService,
+                                 @Value("${calendar.import.zone:UTC}") String defaultZone) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.dialect = dialect;
+        this.availabilityIndex = availabilityIndex;
+        this.cacheEvictor = cacheEvictor;
+        this.notificationService = notificationService;
+        this.defaultZone = ZoneId.of(defaultZone);
+    }
+
+    /**
+     * Import every block in {@code in}, all or nothing.
+     *
+     * @param defaultSurveyorId surveyor for rows that do not name one, or null
+     * @param notify            whether to send each affected surveyor a summary notification
+     */
+    public ImportResult importCalendar(Format format, InputStream in, Long defaultSurveyorId, boolean notify)
+            throws IOException {
+        long started = System.currentTimeMillis();
+        ImportResult result;
+        try {
+            result = tx.execute(status -> {
+                try {
+                    return stageAndMerge(format, in, defaultSurveyorId);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (DataIntegrityViolationException e) {
+            if (AvailabilityOverlap.isBusyOverlap(e)) {
+                throw new IllegalArgumentException("Import has BUSY blocks overlapping other BUSY blocks of the same surveyor");
+            }
+            throw e;
+        }
+
+        for (ImportedSurveyor s : result.surveyors()) {
+            availabilityIndex.refreshSurveyor(s.surveyorId());
+            cacheEvictor.calendarChanged(s.surveyorId(), s.firstStart().toInstant(), s.lastEnd().toInstant());
+        }
+        if (notify && !result.surveyors().isEmpty()) {
+            notificationService.sendImportSummaryNotifications(result);
+        }
+        logger.info("Calendar import ({}): {} rows, {} inserted, {} updated, {} skipped, {} surveyors in {}ms",
+                format, result.rows(), result.insertedCount(), result.updatedCount(), result.skipped(),
+                result.surveyors().size(), System.currentTimeMillis() - started);
+        return result;
+    }
+
+    private ImportResult stageAndMerge(Format format, InputStream in, Long defaultSurveyorId) throws IOException {
+        boolean postgres = dialect.isPostgres();
+        if (postgres) {
+            jdbc.execute("CREATE TEMP TABLE availability_import " + STAGING_COLUMNS + " ON COMMIT DROP");
+        } else {
+            jdbc.execute("DROP TABLE IF EXISTS availability_import");
+            jdbc.execute("CREATE LOCAL TEMPORARY TABLE availability_import " + STAGING_COLUMNS + " TRANSACTIONAL");
+        }
+
+        List<String> errors = new ArrayList<>();
+        int[] rejected = {0};
+        StagingSink sink = postgres ? new CopySink() : new BatchSink();
+        int rows;
+        try {
+            CalendarImportReader.read(format, new InputStreamReader(in, StandardCharsets.UTF_8), defaultSurveyorId, defaultZone,
+                    new CalendarImportReader.RowHandler() {
+                        @Override
+                        public void row(ImportRow row) throws IOException {
+                            sink.add(row);
+                        }
+
+                        @Override
+                        public void error(int line, String message) {
+                            rejected[0]++;
+                            addError(errors, "line " + line + ": " + message);
+                        }
+                    });
+            rows = sink.finish();
+        } catch (IOException | RuntimeException e) {
+            sink.abort(e);
+            throw e;
+        }
+
+        List<Long> unknown = jdbc.queryForList("SELECT DISTINCT i.surveyor_id FROM availability_import i " +
+                "WHERE NOT EXISTS (SELECT 1 FROM surveyor s WHERE s.id = i.surveyor_id) ORDER BY i.surveyor_id", Long.class);
+        int unknownRows = 0;
+        if (!unknown.isEmpty()) {
+            unknownRows = jdbc.queryForObject("SELECT COUNT(*) FROM availability_import i " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM surveyor s WHERE s.id = i.surveyor_id)", Integer.class);
+            unknown.forEach(id -> addError(errors, "unknown surveyor " + id));
+        }
+
+        List<ImportedSurveyor> surveyors;
+        if (postgres) {
+            surveyors = jdbc.query(MERGE_POSTGRES, (rs, rowNum) -> summary(rs), SOURCE);
+        } else {
+            surveyors = jdbc.query(SUMMARY_H2, (rs, rowNum) -> summary(rs));
+            jdbc.update(MERGE_H2, SOURCE);
+            jdbc.execute("DROP TABLE availability_import");
+        }
+        return new ImportResult(rows - unknownRows, rejected[0] + unknownRows, errors, surveyors);
+    }
+
+    private static ImportedSurveyor summary(java.sql.ResultSet rs) throws SQLException {
+        return new ImportedSurveyor(rs.getLong("surveyor_id"), rs.getInt("inserted"), rs.getInt("updated"),
+                AvailabilityService.utc(rs.getTimestamp("first_start")), AvailabilityService.utc(rs.getTimestamp("last_end")));
+    }
+
+    private static void addError(List<String> errors, String error) {
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    private interface StagingSink {
+        void add(ImportRow row) throws IOException;
+
+        /**
+         * Flush what is buffered and return the number of rows staged.
+         */
+        int finish() throws IOException;
+
+        /**
+         * Give up after {@code cause}, leaving the connection fit for the rollback.
+         */
+        void abort(Exception cause);
+    }
+
+    /**
+     * Streams rows into the staging table through {@code COPY ... FROM STDIN (FORMAT csv)} on the
+     * transaction's connection, flushing every {@value #COPY_BUFFER_BYTES} bytes.
+     */
+    private final class CopySink implements StagingSink {
+        private final CopyIn copy;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(COPY_BUFFER_BYTES + 1024);
+        private int rows;
+
+        CopySink() {
+            this.copy = jdbc.execute((ConnectionCallback<CopyIn>) con -> con.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY availability_import (line, surveyor_id, start_time, end_time, state, title, description) " +
+                            "FROM STDIN WITH (FORMAT csv)"));
+        }
+
+        @Override
+        public void add(ImportRow row) throws IOException {
+            String line = row.line() + "," + row.surveyorId() + "," + wallClock(row.start()) + "," + wallClock(row.end()) + ","
+                    + csv(row.state()) + "," + csv(row.title()) + "," + csv(row.description()) + "\n";
+            buffer.write(line.getBytes(StandardCharsets.UTF_8));
+            rows++;
+            if (buffer.size() >= COPY_BUFFER_BYTES) {
+                flush();
+            }
+        }
+
+        @Override
+        public int finish() throws IOException {
+            flush();
+            try {
+                copy.endCopy();
+            } catch (SQLException e) {
+                throw new IOException("COPY into staging table failed", e);
+            }
+            return rows;
+        }
+
+        @Override
+        public void abort(Exception cause) {
+            // A connection left in COPY mode rejects the rollback and goes back to the pool unusable
+            if (copy.isActive()) {
+                try {
+                    copy.cancelCopy();
+                } catch (SQLException e) {
+                    cause.addSuppressed(e);
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            if (buffer.size() == 0) {
+                return;
+            }
+            try {
+                copy.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+            } catch (SQLException e) {
+                throw new IOException("COPY into staging table failed", e);
+            }
+            buffer.reset();
+        }
+
+        // TIMESTAMP columns hold the wall clock the JDBC driver writes for Timestamp.from(instant), i.e. JVM zone time
+        private static String wallClock(Instant instant) {
+            return LocalDateTime.ofInstant(instant, ZoneId.systemDefault()).toString();
+        }
+
+        // Unquoted empty is NULL in COPY csv; anything else is quoted with doubled quotes
+        private static String csv(String value) {
+            return value == null ? "" : "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+    }
+
+    /**
+     * H2 fallback: plain JDBC batches into the staging table.
+     */
+    private final class BatchSink implements StagingSink {
+        private final List<ImportRow> batch = new ArrayList<>(H2_BATCH_SIZE);
+        private int rows;
+
+        @Override
+        public void add(ImportRow row) {
+            batch.add(row);
+            rows++;
+            if (batch.size() == H2_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public int finish() {
+            flush();
+            return rows;
+        }
+
+        @Override
+        public void abort(Exception cause) {
+            batch.clear();
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            jdbc.batchUpdate("INSERT INTO availability_import (line, surveyor_id, start_time, end_time, state, title, description) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    batch, batch.size(), (ps, r) -> {
+                        ps.setInt(1, r.line());
+                        ps.setLong(2, r.surveyorId());
+                        ps.setTimestamp(3, Timestamp.from(r.start()));
+                        ps.setTimestamp(4, Timestamp.from(r.end()));
+                        ps.setString(5, r.state());
+                        ps.setString(6, r.title());
+                        ps.setString(7, r.description());
+                    });
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.cmx.service;
+
+import com.cmx.dto.DispatchDto.RankedCandidate;
+import com.cmx.schedule.AvailabilityIndex;
+import com.cmx.schedule.SurveyorSpatialIndex;
+import com.cmx.schedule.SurveyorSpatialIndex.Hit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Server-side ranking of dispatch candidates by distance from the loss location.
+ *
+ * Active surveyors are held in a {@link SurveyorSpatialIndex} at their live position (from
+ * {@link LocationIngestService}), else their last persisted {@code current_lat/current_lng}, else
+ * {@code home_lat/home_lng}, together with their type and number of ASSIGNED jobs. Each pair is
+ * taken whole, so a half-set current position never mixes with the home one. The snapshot is
+ * rebuilt with one query on a schedule and swapped atomically, like {@link SurveyorDirectory}.
+ * Availability is not part of the snapshot: it is checked per candidate at query time against the
+ * in-memory {@link AvailabilityIndex}, so a surveyor who just accepted a job drops out at once.
+ *
+ * {@code dispatch.candidates.rank} times each query.
+ */
+@Service
+public class CandidateRanker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CandidateRanker.class);
+
+    private static final String SELECT_SURVEYORS = """
+            SELECT s.id, s.surveyor_type,
+                   CASE WHEN s.current_lat IS NOT NULL AND s.current_lng IS NOT NULL THEN s.current_lat ELSE s.home_lat END AS lat,
+                   CASE WHEN s.current_lat IS NOT NULL AND s.current_lng IS NOT NULL THEN s.current_lng ELSE s.home_lng END AS lng,
+                   COALESCE(j.open_jobs, 0) AS open_jobs
+            FROM surveyor s
+            LEFT JOIN (SELECT surveyor_id, COUNT(*) AS open_jobs FROM job_assignment
+                       WHERE status = 'ASSIGNED' GROUP BY surveyor_id) j ON j.surveyor_id = s.id
+            WHERE s.status = 'ACTIVE'
+            """;
+
+    /**
+     * What to rank for: the {@code limit} nearest to (lat, lng), optionally only of one
+     * {@code surveyorType} and with at most {@code maxOpenJobs} ASSIGNED jobs. The limit is capped
+     * because the search allocates for it up front.
+     */
+    public record Criteria(double lat, double lng, int limit, String surveyorType, Integer maxOpenJobs) {
+        public static final int MAX_LIMIT = 200;
+
+        public Criteria {
+            if (lat < -90 || lat > 90 || lng < -180 || lng > 180) {
+                throw new IllegalArgumentException("lat/lng out of range");
+            }
+            if (limit < 1 || limit > MAX_LIMIT) {
+                throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+            }
+        }
+    }
+
+    private record Row(long id, String surveyorType, int openJobs, double lat, double lng) {}
+
+    // Arrays are in the spatial index's own order
+    private record Snapshot(SurveyorSpatialIndex index, String[] types, int[] openJobs, Instant builtAt) {}
+
+    private final JdbcTemplate jdbc;
+    private final LocationIngestService locationIngest;
+    private final AvailabilityService availabilityService;
+    private final double cellDegrees;
+    private final Timer rankTimer;
+    private volatile Snapshot snapshot;
+
+    public CandidateRanker(JdbcTemplate jdbc, LocationIngestService locationIngest, AvailabilityService availabilityService,
+                           MeterRegistry meterRegistry,
+                           @Value("${dispatch.candidates.cell-degrees:0.05}") double cellDegrees) {
+        this.jdbc = jdbc;
+        this.locationIngest = locationIngest;
+        this.availabilityService = availabilityService;
+        this.cellDegrees = cellDegrees;
+        this.rankTimer = Timer.builder("dispatch.candidates.rank")
+                .description("Time to rank dispatch candidates by distance")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The nearest eligible surveyors, nearest first. Eligible means currently AVAILABLE in the
+     * calendar and matching the type and open-job filters.
+     */
+    public List<RankedCandidate> rank(Criteria criteria) {
+        return rankTimer.record(() -> {
+            Snapshot current = snapshot();
+            OffsetDateTime now = OffsetDateTime.now();
+            List<Hit> hits = current.index().nearest(criteria.lat(), criteria.lng(), criteria.limit(), i ->
+                    (criteria.surveyorType() == null || criteria.surveyorType().equalsIgnoreCase(current.types()[i]))
+                            && (criteria.maxOpenJobs() == null || current.openJobs()[i] <= criteria.maxOpenJobs())
+                            && AvailabilityIndex.DEFAULT_STATE.equals(
+                                    availabilityService.getCurrentState(current.index().surveyorId(i), now)));
+
+            List<RankedCandidate> ranked = new ArrayList<>(hits.size());
+            for (Hit hit : hits) {
+                ranked.add(new RankedCandidate(hit.surveyorId(), current.types()[hit.index()],
+                        current.openJobs()[hit.index()], Math.round(hit.meters())));
+            }
+            return ranked;
+        });
+    }
+
+    /**
+     * Rebuild the snapshot from the surveyor table, overlaying live positions not yet flushed.
+     * Surveyors with no position at all, or one outside the valid lat/lng range, are left out.
+     */
+    public synchronized void refresh() {
+        Map<Long, LocationIngestService.Position> live = locationIngest.getLastKnownPositions();
+        List<Row> rows = new ArrayList<>();
+        jdbc.query(SELECT_SURVEYORS, rs -> {
+            long id = rs.getLong("id");
+            LocationIngestService.Position position = live.get(id);
+            double lat;
+            double lng;
+            if (position != null) {
+                lat = position.lat();
+                lng = position.lng();
+            } else {
+                lat = rs.getDouble("lat");
+                boolean noLat = rs.wasNull();
+                lng = rs.getDouble("lng");
+                if (noLat || rs.wasNull()) {
+                    return;
+                }
+            }
+            // An impossible position would stretch the grid and slow every query
+            if (!(Math.abs(lat) <= 90 && Math.abs(lng) <= 180)) {
+                return;
+            }
+            rows.add(new Row(id, rs.getString("surveyor_type"), rs.getInt("open_jobs"), lat, lng));
+        });
+
+        int n = rows.size();
+        long[] ids = new long[n];
+        double[] lats = new double[n];
+        double[] lngs = new double[n];
+        Map<Long, Row> byId = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Row row = rows.get(i);
+            ids[i] = row.id();
+            lats[i] = row.lat();
+            lngs[i] = row.lng();
+            byId.put(row.id(), row);
+        }
+        SurveyorSpatialIndex index = new SurveyorSpatialIndex(ids, lats, lngs, cellDegrees);
+        String[] types = new String[n];
+        int[] openJobs = new int[n];
+        for (int i = 0; i < n; i++) {
+            Row row = byId.get(index.surveyorId(i));
+            types[i] = row.surveyorType();
+            openJobs[i] = row.openJobs();
+        }
+
+        if (snapshot == null) {
+            logger.info("Candidate index loaded: {} located surveyors", n);
+        }
+        snapshot = new Snapshot(index, types, openJobs, Instant.now());
+    }
+
+    @Scheduled(fixedDelayString = "${dispatch.candidates.refresh-interval-ms:5000}",
+               initialDelayString = "${dispatch.candidates.refresh-interval-ms:5000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (DataAccessException e) {
+            logger.warn("Candidate index refresh failed, keeping the one built at {}: {}",
+                    snapshot != null ? snapshot.builtAt() : null, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+        return Map.of(
+                "surveyors", current != null ? current.index().size() : 0,
+                "builtAt", current != null ? current.builtAt().toString() : "never"
+        );
+    }
+
+    private Snapshot snapshot() {
+        if (snapshot == null) {
+            refresh();
+        }
+        return snapshot;
+    }
+}
@@ -4,9 +4,8 @@ import com.cmx.dto.ChatConversationDto;
 import com.cmx.dto.ChatMessageDto;
 import com.cmx.dto.TypingIndicatorDto;
 import com.cmx.model.ChatMessage;
-import com.cmx.model.Surveyor;
 import com.cmx.repository.ChatMessageRepository;
-import com.cmx.repository.SurveyorRepository;
+import com.cmx.service.EventHubService.Topic;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -24,9 +23,11 @@ import java.util.Optional;
 public class ChatService {
 
     private final ChatMessageRepository chatMessageRepository;
-    private final SurveyorRepository surveyorRepository;
     private final SimpMessagingTemplate messagingTemplate;
     private final NotificationService notificationService;
+    private final EventHubService eventHub;
+    private final SurveyorDirectory surveyorDirectory;
+    private final ResourceVersions resourceVersions;
 
     /**
      * Send a new chat message
@@ -46,6 +47,7 @@ public class ChatService {
         );
 
         ChatMessage saved = chatMessageRepository.save(message);
+        resourceVersions.bump(ResourceVersions.unread(saved.getRecipientId(), saved.getRecipientType()));
         log.info("Chat message saved: {} -> {} in conversation {}",
                 saved.getSenderName(), saved.getRecipientId(), saved.getConversationId());
 
@@ -64,9 +66,17 @@ public class ChatService {
         );
         messagingTemplate.convertAndSend(senderDestination, responseDto);
 
-        // Send push notification if recipient is surveyor (mobile)
+        // Send push notification if recipient is surveyor (mobile),
+        // otherwise ping the dispatcher UI so it can refresh its unread badge
         if ("SURVEYOR".equals(saved.getRecipientType())) {
             sendPushNotification(saved);
+        } else {
+            eventHub.publish(Topic.CHAT, "chat-unread", java.util.Map.of(
+                "conversationId", saved.getConversationId(),
+                "recipientId", saved.getRecipientId(),
+                "senderId", saved.getSenderId(),
+                "senderName", saved.getSenderName() != null ? saved.getSenderName() : ""
+            ));
         }
 
         return responseDto;
@@ -99,6 +109,7 @@ public class ChatService {
     @Transactional
     public void markAsRead(String conversationId, Long recipientId, String recipientType) {
         chatMessageRepository.markAsRead(conversationId, recipientId, recipientType, Instant.now());
+        resourceVersions.bump(ResourceVersions.unread(recipientId, recipientType));
 
         // Notify the sender that messages were read
         String[] parts = conversationId.split("_");
@@ -218,9 +229,8 @@ public class ChatService {
 
     private String getPartyName(Long partyId, String partyType) {
         if ("SURVEYOR".equals(partyType)) {
-            return surveyorRepository.findById(partyId)
-                .map(Surveyor::getDisplayName)
-                .orElse("Surveyor " + partyId);
+            String name = surveyorDirectory.getDisplayName(partyId);
+            return name != null ? name : "Surveyor " + partyId;
         } else {
             // For now, dispatcher names are not stored - could enhance later
             return "Dispatcher";
@@ -1,126 +1,319 @@
 package com.cmx.service;
 
+import com.cmx.config.DatabaseDialect;
 import com.cmx.dto.DispatchDto.AcceptOfferResponse;
 import com.cmx.dto.DispatchDto.OfferResponse;
+import com.cmx.dto.DispatchDto.RankedCandidate;
 import com.cmx.exception.OfferExpiredException;
+import com.cmx.exception.ScheduleConflictException;
 import com.cmx.model.DispatchOffer;
 import com.cmx.model.JobAssignment;
 import com.cmx.repository.DispatchOfferRepository;
 import com.cmx.repository.JobAssignmentRepository;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Caching;
+import com.cmx.schedule.AvailabilityOverlap;
+import com.cmx.service.EventHubService.Topic;
+import com.cmx.service.OfferNotifier.Candidate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.IntStream;
 
 @Service
 public class DispatchService {
 
+    /*
+     * Accept, job, busy block and sibling closing in one round trip. "decided" moves every PENDING or
+     * QUEUED offer of the group, the caller's to ACCEPTED and the rest to CLOSED, but only while the caller's
+     * own offer is still open and the surveyor has no busy block in the slot. The inserts run off the
+     * accepted row, so nothing is written when it is absent. Runs after LOCK_SURVEYOR and
+     * OfferExpiryScheduler.LOCK_GROUP in the same transaction: an accept that waited on an expiry then
+     * sees the caller's offer EXPIRED, instead of re-checking only the rows it updates and closing the
+     * wave the expiry just opened. Parameters: conflicts (surveyor, from, to), decided (surveyor x2, group x2, surveyor,
+     * now), job (from, to), busy (from, to).
+     */
+    private static final String ACCEPT_POSTGRES = """
+            WITH conflicts AS (
+                SELECT id FROM surveyor_availability
+                WHERE surveyor_id = ? AND {overlap} AND state NOT IN ('AVAILABLE', 'CANCELLED')
+            ), decided AS (
+                UPDATE dispatch_offer
+                SET status = CASE WHEN surveyor_id = ? THEN 'ACCEPTED' ELSE 'CLOSED' END,
+                    accepted_at = CASE WHEN surveyor_id = ? THEN CURRENT_TIMESTAMP END
+                WHERE offer_group = ? AND status IN ('PENDING', 'QUEUED')
+                  AND EXISTS (SELECT 1 FROM dispatch_offer w
+                              WHERE w.offer_group = ? AND w.surveyor_id = ? AND w.status = 'PENDING' AND w.expires_at > ?)
+                  AND NOT EXISTS (SELECT 1 FROM conflicts)
+                RETURNING offer_group, fnol_id, surveyor_id, status
+            ), accepted AS (
+                SELECT offer_group, fnol_id, surveyor_id FROM decided WHERE status = 'ACCEPTED' LIMIT 1
+            ), job AS (
+                INSERT INTO job_assignment (offer_group, fnol_id, surveyor_id, status, start_time, end_time, created_at)
+                SELECT offer_group, fnol_id, surveyor_id, 'ASSIGNED', ?, ?, CURRENT_TIMESTAMP FROM accepted
+                RETURNING id
+            ), busy AS (
+                INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, source, updated_at)
+                SELECT surveyor_id, ?, ?, 'BUSY', 'CMX', CURRENT_TIMESTAMP FROM accepted
+                RETURNING id
+            )
+            SELECT (SELECT id FROM job) AS job_id,
+                   (SELECT fnol_id FROM accepted) AS fnol_id,
+                   ARRAY(SELECT id FROM conflicts ORDER BY id) AS conflicts
+            """;
+
+    /*
+     * Serialises accepts by one surveyor across offer groups, so the second one's conflict check sees
+     * the first one's busy block. It has to be a statement of its own: every CTE of ACCEPT_POSTGRES
+     * reads the snapshot taken when that statement started, even after waiting on a lock inside it.
+     */
+    private static final String LOCK_SURVEYOR = "SELECT id FROM surveyor WHERE id = ? FOR UPDATE";
+
     private final DispatchOfferRepository dispatchOfferRepository;
     private final JobAssignmentRepository jobAssignmentRepository;
     private final AvailabilityService availabilityService;
+    private final EventHubService eventHub;
     private final JdbcTemplate jdbc;
+    private final OfferNotifier offerNotifier;
+    private final OfferExpiryScheduler offerExpiry;
+    private final CandidateRanker candidateRanker;
+    private final DatabaseDialect dialect;
+    private final AvailabilityOverlap overlap;
+    private final TransactionTemplate tx;
 
     public DispatchService(DispatchOfferRepository dispatchOfferRepository,
                            JobAssignmentRepository jobAssignmentRepository,
                            AvailabilityService availabilityService,
-                           JdbcTemplate jdbc) {
+                           EventHubService eventHub,
+                           JdbcTemplate jdbc,
+                           OfferNotifier offerNotifier,
+                           OfferExpiryScheduler offerExpiry,
+                           CandidateRanker candidateRanker,
+                           DatabaseDialect dialect,
+                           AvailabilityOverlap overlap,
+                           PlatformTransactionManager transactionManager) {
         this.dispatchOfferRepository = dispatchOfferRepository;
         this.jobAssignmentRepository = jobAssignmentRepository;
         this.availabilityService = availabilityService;
+        this.eventHub = eventHub;
         this.jdbc = jdbc;
+        this.offerNotifier = offerNotifier;
+        this.offerExpiry = offerExpiry;
+        this.candidateRanker = candidateRanker;
+        this.dialect = dialect;
+        this.overlap = overlap;
+        this.tx = new TransactionTemplate(transactionManager);
     }
 
-    public OfferResponse createOffers(String fnolId, List<Long> candidateSurveyorIds, long ttlSeconds) {
+    /**
+     * Offer a job to all candidates at once, or in waves of {@code waveSize}.
+     *
+     * The offers are written as one batch in one transaction (rewritten into a multi-row insert on
+     * PostgreSQL), so a group is never half-created. With waves only the first is PENDING; the rest
+     * are QUEUED and opened one by one by the {@link OfferExpiryScheduler} as earlier waves expire.
+     * Candidates are pushed in parallel only after the commit, so a surveyor cannot act on an offer
+     * that is not visible yet.
+     *
+     * @param waveSize candidates per wave, or null to offer to everyone at once
+     */
+    @Transactional
+    public OfferResponse createOffers(String fnolId, List<Long> candidateSurveyorIds, long ttlSeconds, Integer waveSize) {
+        if (waveSize != null && waveSize < 1) {
+            throw new IllegalArgumentException("waveSize must be at least 1");
+        }
+        long createdNanos = System.nanoTime();
         OffsetDateTime now = OffsetDateTime.now();
         OffsetDateTime expiresAt = now.plusSeconds(ttlSeconds);
         UUID offerGroup = UUID.randomUUID();
+        List<Long> surveyorIds = new ArrayList<>(new LinkedHashSet<>(candidateSurveyorIds));
+        int perWave = waveSize != null ? waveSize : Math.max(1, surveyorIds.size());
 
-        for (Long surveyorId : candidateSurveyorIds) {
-            jdbc.update(
-                    "INSERT INTO dispatch_offer (offer_group, fnol_id, surveyor_id, status, expires_at, created_at) VALUES (?, ?, ?, 'PENDING', ?, CURRENT_TIMESTAMP)",
-                    offerGroup.toString(),
-                    fnolId,
-                    surveyorId,
-                    Timestamp.from(expiresAt.toInstant())
-            );
-        }
+        jdbc.batchUpdate(
+                "INSERT INTO dispatch_offer (offer_group, fnol_id, surveyor_id, status, wave, ttl_seconds, expires_at, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)",
+                IntStream.range(0, surveyorIds.size()).boxed().toList(), surveyorIds.size(), (ps, i) -> {
+                    int wave = i / perWave;
+                    ps.setObject(1, offerGroup);
+                    ps.setString(2, fnolId);
+                    ps.setLong(3, surveyorIds.get(i));
+                    ps.setString(4, wave == 0 ? DispatchOffer.Status.PENDING.name() : DispatchOffer.Status.QUEUED.name());
+                    ps.setInt(5, wave);
+                    ps.setLong(6, ttlSeconds);
+                    // When this wave would close if every earlier one runs out; reset when it opens
+                    ps.setTimestamp(7, Timestamp.from(expiresAt.plusSeconds(ttlSeconds * wave).toInstant()));
+                });
+
+        Map<Long, Long> offerIds = new HashMap<>();
+        jdbc.query("SELECT id, surveyor_id FROM dispatch_offer WHERE offer_group = ?",
+                rs -> {
+                    offerIds.put(rs.getLong("surveyor_id"), rs.getLong("id"));
+                },
+                offerGroup);
+        List<Candidate> candidates = surveyorIds.stream().map(id -> new Candidate(id, offerIds.get(id))).toList();
+        List<Candidate> firstWave = candidates.subList(0, Math.min(perWave, candidates.size()));
 
-        return new OfferResponse(offerGroup.toString(), expiresAt.toString());
+        afterCommit(() -> {
+            offerExpiry.schedule(offerGroup, expiresAt.toInstant());
+            offerNotifier.notifyCandidates(offerGroup.toString(), fnolId, firstWave, expiresAt.toInstant(), createdNanos);
+            eventHub.publish(Topic.OFFERS, "offer-created", Map.of(
+                    "offerGroup", offerGroup.toString(),
+                    "fnolId", fnolId,
+                    "candidateSurveyorIds", firstWave.stream().map(Candidate::surveyorId).toList(),
+                    "expiresAt", expiresAt.toString()
+            ));
+        });
+
+        return new OfferResponse(offerGroup.toString(), expiresAt.toString(),
+                candidates.stream().map(Candidate::offerId).toList());
     }
 
+    /**
+     * Offer a job to the nearest eligible surveyors picked by the {@link CandidateRanker}, nearest
+     * first, so with waves the closest candidates are asked first.
+     *
+     * @throws IllegalArgumentException if no surveyor is eligible
+     */
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = "availabilityCache", allEntries = true),
-            @CacheEvict(value = "surveyorsCache", allEntries = true)
-    })
+    public OfferResponse createOffers(String fnolId, CandidateRanker.Criteria criteria, long ttlSeconds, Integer waveSize) {
+        List<Long> ranked = candidateRanker.rank(criteria).stream().map(RankedCandidate::surveyorId).toList();
+        if (ranked.isEmpty()) {
+            throw new IllegalArgumentException("No eligible surveyors near " + criteria.lat() + "," + criteria.lng());
+        }
+        return createOffers(fnolId, ranked, ttlSeconds, waveSize);
+    }
+
+    /**
+     * Accept an offer for one surveyor: the offer becomes ACCEPTED, its siblings CLOSED, and a
+     * two-hour job and matching BUSY block are created, all or nothing.
+     *
+     * On PostgreSQL this is a single statement (see {@link #ACCEPT_POSTGRES}) behind locks on the
+     * surveyor row, which serialises one surveyor's accepts of different groups, and on the group's
+     * offer rows. Concurrent accepts of one group and its expiry serialise on those: every accept moves
+     * all open rows of the group at once, so a racer that waited finds none left and gets nothing.
+     * H2 cannot modify data in a CTE, so there the steps after the locks run as separate statements.
+     *
+     * @throws OfferExpiredException if the offer is gone, expired or already taken
+     * @throws ScheduleConflictException if the surveyor is already busy at that time
+     */
     public AcceptOfferResponse acceptOffer(String offerGroupStr, Long surveyorId) {
-        OffsetDateTime now = OffsetDateTime.now();
+        UUID offerGroup = UUID.fromString(offerGroupStr);
+        OffsetDateTime start = OffsetDateTime.now();
+        OffsetDateTime end = start.plusHours(2);
 
-        // Check if already accepted using JdbcTemplate
-        Integer acceptedCount = jdbc.queryForObject(
-                "SELECT COUNT(*) FROM dispatch_offer WHERE offer_group = ? AND status = 'ACCEPTED'",
-                Integer.class,
-                offerGroupStr
-        );
+        Accepted accepted = dialect.isPostgres()
+                ? acceptInOneStatement(offerGroup, surveyorId, start, end)
+                : tx.execute(status -> acceptInSteps(offerGroup, surveyorId, start, end));
 
-        if (acceptedCount != null && acceptedCount > 0) {
-            throw new OfferExpiredException(offerGroupStr);
-        }
+        offerExpiry.cancel(offerGroup);
+        eventHub.publish(Topic.OFFERS, "offer-accepted", Map.of(
+                "offerGroup", offerGroupStr,
+                "fnolId", accepted.fnolId(),
+                "surveyorId", surveyorId,
+                "jobId", accepted.jobId()
+        ));
 
-        // Try to accept the offer
-        int updated = jdbc.update(
-                "UPDATE dispatch_offer SET status = 'ACCEPTED', accepted_at = CURRENT_TIMESTAMP " +
-                "WHERE offer_group = ? AND surveyor_id = ? AND status = 'PENDING' AND expires_at > ?",
-                offerGroupStr,
-                surveyorId,
-                Timestamp.from(now.toInstant())
-        );
+        return new AcceptOfferResponse(true, accepted.jobId(), null);
+    }
 
-        if (updated != 1) {
-            throw new OfferExpiredException(offerGroupStr);
-        }
+    private record Accepted(Long jobId, String fnolId) {}
 
-        // Get fnolId from the accepted offer
-        String fnolId = jdbc.queryForObject(
-                "SELECT fnol_id FROM dispatch_offer WHERE offer_group = ? LIMIT 1",
-                String.class,
-                offerGroupStr
-        );
+    private Accepted acceptInOneStatement(UUID offerGroup, Long surveyorId, OffsetDateTime start, OffsetDateTime end) {
+        Timestamp from = Timestamp.from(start.toInstant());
+        Timestamp to = Timestamp.from(end.toInstant());
+        Map<String, Object> row;
+        try {
+            row = tx.execute(status -> {
+                jdbc.query(LOCK_SURVEYOR, rs -> { }, surveyorId);
+                jdbc.query(OfferExpiryScheduler.LOCK_GROUP, rs -> { }, offerGroup);
+                return jdbc.queryForMap(ACCEPT_POSTGRES.replace("{overlap}", overlap.predicate()),
+                        surveyorId, from, to,
+                        surveyorId, surveyorId, offerGroup, offerGroup, surveyorId, from,
+                        from, to,
+                        from, to);
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (AvailabilityOverlap.isBusyOverlap(e)) {
+                throw new ScheduleConflictException(surveyorId, List.of());
+            }
+            throw e;
+        } catch (PessimisticLockingFailureException e) {
+            // Deadlock with a concurrent accept of the same group; the other one goes through
+            throw new OfferExpiredException(offerGroup.toString());
+        }
 
-        // Create job assignment using JdbcTemplate to avoid type conversion issues
-        OffsetDateTime start = now;
-        OffsetDateTime end = now.plusHours(2);
-
-        jdbc.update(
-                "INSERT INTO job_assignment (offer_group, fnol_id, surveyor_id, status, start_time, end_time, created_at) " +
-                "VALUES (?, ?, ?, 'ASSIGNED', ?, ?, CURRENT_TIMESTAMP)",
-                offerGroupStr,
-                fnolId,
-                surveyorId,
-                Timestamp.from(start.toInstant()),
-                Timestamp.from(end.toInstant())
-        );
+        if (row.get("job_id") == null) {
+            List<Long> conflicts = ids(row.get("conflicts"));
+            if (!conflicts.isEmpty()) {
+                throw new ScheduleConflictException(surveyorId, conflicts);
+            }
+            throw new OfferExpiredException(offerGroup.toString());
+        }
+        availabilityService.busyBlockAdded(surveyorId, start, end);
+        return new Accepted(((Number) row.get("job_id")).longValue(), (String) row.get("fnol_id"));
+    }
 
-        // Get the generated job ID
-        Long jobId = jdbc.queryForObject("SELECT MAX(id) FROM job_assignment WHERE offer_group = ?", Long.class, offerGroupStr);
+    private Accepted acceptInSteps(UUID offerGroup, Long surveyorId, OffsetDateTime start, OffsetDateTime end) {
+        jdbc.query(LOCK_SURVEYOR, rs -> { }, surveyorId);
+        jdbc.query(OfferExpiryScheduler.LOCK_GROUP, rs -> { }, offerGroup);
+        List<String> fnolIds = jdbc.queryForList(
+                "SELECT fnol_id FROM dispatch_offer WHERE offer_group = ? AND surveyor_id = ? AND status = 'PENDING' AND expires_at > ?",
+                String.class, offerGroup, surveyorId, Timestamp.from(start.toInstant()));
+        if (fnolIds.isEmpty()) {
+            throw new OfferExpiredException(offerGroup.toString());
+        }
 
-        // Create busy block for the surveyor
         availabilityService.createBusyBlock(surveyorId, start, end);
+        jdbc.update("UPDATE dispatch_offer SET status = CASE WHEN surveyor_id = ? THEN 'ACCEPTED' ELSE 'CLOSED' END, " +
+                        "accepted_at = CASE WHEN surveyor_id = ? THEN CURRENT_TIMESTAMP END " +
+                        "WHERE offer_group = ? AND status IN ('PENDING', 'QUEUED')",
+                surveyorId, surveyorId, offerGroup);
 
-        // Close remaining pending offers
-        jdbc.update(
-                "UPDATE dispatch_offer SET status = 'CLOSED' WHERE offer_group = ? AND status = 'PENDING'",
-                offerGroupStr
-        );
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO job_assignment (offer_group, fnol_id, surveyor_id, status, start_time, end_time, created_at) " +
+                    "VALUES (?, ?, ?, 'ASSIGNED', ?, ?, CURRENT_TIMESTAMP)", new String[]{"id"});
+            ps.setObject(1, offerGroup);
+            ps.setString(2, fnolIds.get(0));
+            ps.setLong(3, surveyorId);
+            ps.setTimestamp(4, Timestamp.from(start.toInstant()));
+            ps.setTimestamp(5, Timestamp.from(end.toInstant()));
+            return ps;
+        }, keys);
+        return new Accepted(keys.getKey().longValue(), fnolIds.get(0));
+    }
 
-        return new AcceptOfferResponse(true, jobId, null);
+    private static List<Long> ids(Object array) {
+        try {
+            if (array instanceof Array sql) {
+                List<Long> ids = new ArrayList<>();
+                for (Object id : (Object[]) sql.getArray()) {
+                    ids.add(((Number) id).longValue());
+                }
+                return ids;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read conflicting block ids", e);
+        }
+        return List.of();
     }
 
     public Map<String, Object> completeJob(Long jobId) {
@@ -130,4 +323,18 @@ public class DispatchService {
         );
         return Map.of("ok", updated == 1);
     }
+
+    // Runs the action once the surrounding transaction commits, or right away without one
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
@@ -0,0 +1,253 @@
+package com.cmx.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.stream.Collectors;
+
+/**
+ * Topic-based hub for all server push streams.
+ *
+ * Every SSE connection registers here once with the set of topics it wants. Publishers hand over an
+ * event per topic; the payload is serialized and framed once and the same frame is written to every
+ * subscriber of that topic, so one dispatcher tab needs a single connection for locations, activity
+ * and offers instead of one connection per stream.
+ */
+@Service
+public class EventHubService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventHubService.class);
+
+    /**
+     * Topics a client can subscribe to. The wire name is what clients pass in {@code ?topics=}.
+     */
+    public enum Topic {
+        LOCATIONS("locations"),
+        LOCATIONS_COMPACT("locations-compact"),
+        ACTIVITY("activity"),
+        OFFERS("offers"),
+        CHAT("chat");
+
+        private final String wireName;
+
+        Topic(String wireName) {
+            this.wireName = wireName;
+        }
+
+        public String wireName() {
+            return wireName;
+        }
+
+        public static Topic fromWireName(String name) {
+            for (Topic topic : values()) {
+                if (topic.wireName.equalsIgnoreCase(name.trim())) {
+                    return topic;
+                }
+            }
+            throw new IllegalArgumentException("Unknown topic: " + name + ". Valid topics: " +
+                    Arrays.stream(values()).map(Topic::wireName).collect(Collectors.joining(",")));
+        }
+
+        /**
+         * Parse a comma-separated topic list. A null or blank list subscribes to every JSON topic.
+         */
+        public static Set<Topic> parse(String topics) {
+            if (topics == null || topics.isBlank()) {
+                return EnumSet.complementOf(EnumSet.of(LOCATIONS_COMPACT));
+            }
+            EnumSet<Topic> result = EnumSet.noneOf(Topic.class);
+            for (String name : topics.split(",")) {
+                if (!name.isBlank()) {
+                    result.add(fromWireName(name));
+                }
+            }
+            return result;
+        }
+    }
+
+    // Shared subscriber registry: topic -> emitters subscribed to it
+    private final Map<Topic, Set<SseEmitter>> subscribers = new EnumMap<>(Topic.class);
+    // All live connections with their topic set, used for cleanup and connection counts
+    private final Map<SseEmitter, Set<Topic>> connections = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+
+    public EventHubService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        for (Topic topic : Topic.values()) {
+            subscribers.put(topic, new CopyOnWriteArraySet<>());
+        }
+    }
+
+    /**
+     * Register a new SSE connection for the given topics.
+     *
+     * @param topics         topics to receive events for
+     * @param timeoutMillis  emitter timeout ({@code Long.MAX_VALUE} for no timeout)
+     * @param connectMessage message carried by the initial "connected" event
+     */
+    public SseEmitter subscribe(Set<Topic> topics, long timeoutMillis, String connectMessage) {
+        SseEmitter emitter = newEmitter(timeoutMillis);
+        Set<Topic> subscribed = topics.isEmpty() ? Topic.parse(null) : EnumSet.copyOf(topics);
+
+        emitter.onCompletion(() -> {
+            unsubscribe(emitter);
+            logger.debug("SSE client disconnected. Active clients: {}", connections.size());
+        });
+        emitter.onTimeout(() -> {
+            emitter.complete();
+            unsubscribe(emitter);
+        });
+        emitter.onError(e -> {
+            emitter.complete();
+            unsubscribe(emitter);
+        });
+
+        connections.put(emitter, subscribed);
+        for (Topic topic : subscribed) {
+            subscribers.get(topic).add(emitter);
+        }
+        logger.info("New SSE client connected for topics {}. Active clients: {}", subscribed, connections.size());
+
+        try {
+            emitter.send(SseEmitter.event()
+                    .name("connected")
+                    .data(serialize(Map.of(
+                            "status", "connected",
+                            "message", connectMessage,
+                            "topics", subscribed.stream().map(Topic::wireName).toList(),
+                            "timestamp", System.currentTimeMillis()))));
+        } catch (IOException e) {
+            logger.error("Failed to send initial SSE event", e);
+        }
+
+        return emitter;
+    }
+
+    /**
+     * Publish an event to every subscriber of a topic. The payload is serialized once and the
+     * resulting frame is shared by all subscribers.
+     */
+    public void publish(Topic topic, String eventName, Object data) {
+        Set<SseEmitter> targets = subscribers.get(topic);
+        if (targets.isEmpty()) {
+            logger.debug("No SSE clients subscribed to {}, skipping event: {}", topic, eventName);
+            return;
+        }
+
+        String json;
+        try {
+            json = serialize(data);
+        } catch (Exception e) {
+            logger.error("Error serializing SSE data for event {}", eventName, e);
+            return;
+        }
+
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = SseEmitter.event()
+                .name(eventName)
+                .data(json)
+                .build();
+
+        for (SseEmitter emitter : targets) {
+            try {
+                emitter.send(frame);
+            } catch (Exception e) {
+                // Don't call complete() here - the connection is already broken
+                unsubscribe(emitter);
+                logger.debug("Removing dead SSE client on {} event: {}", eventName, e.getMessage());
+            }
+        }
+    }
+
+    public boolean hasSubscribers(Topic topic) {
+        return !subscribers.get(topic).isEmpty();
+    }
+
+    public int getSubscriberCount(Topic topic) {
+        return subscribers.get(topic).size();
+    }
+
+    /**
+     * Number of open SSE connections across all topics.
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public Map<String, Integer> getSubscriberCounts() {
+        return Arrays.stream(Topic.values())
+                .collect(Collectors.toMap(Topic::wireName, this::getSubscriberCount));
+    }
+
+    /**
+     * Close all connections (for shutdown)
+     */
+    public void closeAll() {
+        List<SseEmitter> open = List.copyOf(connections.keySet());
+        for (SseEmitter emitter : open) {
+            try {
+                emitter.complete();
+            } catch (Exception e) {
+                // Ignore
+            }
+            unsubscribe(emitter);
+        }
+        logger.info("All SSE connections closed");
+    }
+
+    /**
+     * Close the connections of one topic (for shutdown of a single stream). Connections that are
+     * also subscribed to other topics stay open and only stop receiving this one.
+     */
+    public void closeTopic(Topic topic) {
+        int closed = 0;
+        for (SseEmitter emitter : List.copyOf(subscribers.get(topic))) {
+            subscribers.get(topic).remove(emitter);
+            Set<Topic> remaining = connections.computeIfPresent(emitter, (e, topics) -> {
+                EnumSet<Topic> rest = EnumSet.copyOf(topics);
+                rest.remove(topic);
+                return rest.isEmpty() ? null : rest;
+            });
+            if (remaining == null) {
+                try {
+                    emitter.complete();
+                } catch (Exception e) {
+                    // Ignore
+                }
+                closed++;
+            }
+        }
+        logger.info("Closed {} SSE connections of topic {}", closed, topic);
+    }
+
+    // Overridden in tests to observe sends
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void unsubscribe(SseEmitter emitter) {
+        Collection<Topic> topics = connections.remove(emitter);
+        if (topics != null) {
+            for (Topic topic : topics) {
+                subscribers.get(topic).remove(emitter);
+            }
+        }
+    }
+
+    private String serialize(Object data) throws IOException {
+        return data instanceof String s ? s : objectMapper.writeValueAsString(data);
+    }
+}
@@ -0,0 +1,121 @@
+package com.cmx.service;
+
+import com.cmx.schedule.AvailabilityIndex;
+import com.cmx.schedule.AvailabilityOverlap;
+import com.cmx.schedule.FreeSlotFinder;
+import com.cmx.schedule.FreeSlotFinder.Busy;
+import com.cmx.schedule.FreeSlotFinder.FreeSlot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Free-slot search across many surveyors for dispatchers.
+ *
+ * Busy intervals come from the {@link AvailabilityIndex} when the window lies within its horizon,
+ * otherwise from one query for all requested surveyors (ids bound as a single array). The sweep
+ * itself is {@link FreeSlotFinder}.
+ */
+@Service
+public class FreeSlotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FreeSlotService.class);
+
+    static final int MAX_SURVEYORS = 2000;
+    static final Duration MAX_WINDOW = Duration.ofDays(31);
+    static final int MAX_SLOTS = 500;
+
+    private final JdbcTemplate jdbc;
+    private final AvailabilityIndex availabilityIndex;
+    private final AvailabilityOverlap overlap;
+
+    public FreeSlotService(JdbcTemplate jdbc, AvailabilityIndex availabilityIndex, AvailabilityOverlap overlap) {
+        this.jdbc = jdbc;
+        this.availabilityIndex = availabilityIndex;
+        this.overlap = overlap;
+    }
+
+    /**
+     * Ranked free windows of at least {@code duration} within [from, to) for the given surveyors.
+     */
+    public List<FreeSlot> findFreeSlots(List<Long> surveyorIds, Instant from, Instant to, Duration duration, int limit) {
+        if (surveyorIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one surveyor ID is required");
+        }
+        if (surveyorIds.size() > MAX_SURVEYORS) {
+            throw new IllegalArgumentException("At most " + MAX_SURVEYORS + " surveyors per search");
+        }
+        if (!to.isAfter(from) || Duration.between(from, to).compareTo(MAX_WINDOW) > 0) {
+            throw new IllegalArgumentException("'to' must be after 'from' and at most " + MAX_WINDOW.toDays() + " days later");
+        }
+        if (duration.getSeconds() < 1) {
+            throw new IllegalArgumentException("Duration must be at least one second");
+        }
+
+        long started = System.nanoTime();
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(surveyorIds));
+        Map<Long, Busy> busy = fromIndex(ids, from, to);
+        String source = "index";
+        if (busy == null) {
+            busy = fromDatabase(ids, from, to);
+            source = "database";
+        }
+        List<FreeSlot> slots = FreeSlotFinder.find(busy, from, to, duration, Math.min(Math.max(limit, 1), MAX_SLOTS));
+        logger.debug("Free-slot search: {} surveyors from {}, {} slots in {}ms",
+                ids.size(), source, slots.size(), (System.nanoTime() - started) / 1_000_000);
+        return slots;
+    }
+
+    private Map<Long, Busy> fromIndex(List<Long> ids, Instant from, Instant to) {
+        Map<Long, Busy> busy = new HashMap<>();
+        for (Long id : ids) {
+            Busy intervals = availabilityIndex.busyBetween(id, from, to, FreeSlotFinder.FREE_STATES);
+            if (intervals == null) {
+                return null;
+            }
+            busy.put(id, intervals);
+        }
+        return busy;
+    }
+
+    private Map<Long, Busy> fromDatabase(List<Long> ids, Instant from, Instant to) {
+        Map<Long, List<long[]>> rows = new HashMap<>();
+        jdbc.query("SELECT surveyor_id, start_time, end_time, state FROM surveyor_availability " +
+                        "WHERE surveyor_id = ANY(?) AND " + overlap.predicate() + " ORDER BY surveyor_id, start_time",
+                rs -> {
+                    if (!FreeSlotFinder.FREE_STATES.contains(rs.getString("state"))) {
+                        rows.computeIfAbsent(rs.getLong("surveyor_id"), k -> new ArrayList<>())
+                                .add(new long[]{rs.getTimestamp("start_time").toInstant().getEpochSecond(),
+                                                rs.getTimestamp("end_time").toInstant().getEpochSecond()});
+                    }
+                },
+                ids.toArray(new Long[0]), Timestamp.from(from), Timestamp.from(to));
+
+        Map<Long, Busy> busy = new HashMap<>();
+        for (Long id : ids) {
+            List<long[]> intervals = rows.get(id);
+            if (intervals == null) {
+                busy.put(id, Busy.NONE);
+                continue;
+            }
+            long[] starts = new long[intervals.size()];
+            long[] ends = new long[intervals.size()];
+            for (int i = 0; i < intervals.size(); i++) {
+                starts[i] = intervals.get(i)[0];
+                ends[i] = intervals.get(i)[1];
+            }
+            busy.put(id, new Busy(starts, ends));
+        }
+        return busy;
+    }
+}
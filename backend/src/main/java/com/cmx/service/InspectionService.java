@@ -1,7 +1,10 @@
 package com.cmx.service;
 
+import com.cmx.dto.InspectionDto.InspectionDetail;
+import com.cmx.dto.InspectionDto.InspectionSummary;
 import com.cmx.model.InspectionReport;
 import com.cmx.repository.InspectionReportRepository;
+import com.cmx.model.Surveyor;
 import com.cmx.repository.SurveyorRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -121,41 +124,41 @@ public class InspectionService {
     /**
      * Get inspection report by ID
      */
-    public Optional<Map<String, Object>> getInspectionById(Long reportId) {
+    public Optional<InspectionDetail> getInspectionById(Long reportId) {
         return inspectionRepository.findById(reportId)
-                .map(this::toDetailedMap);
+                .map(this::toDetail);
     }
 
     /**
      * Get inspection report by appointment ID
      */
-    public Optional<Map<String, Object>> getInspectionByAppointment(Long appointmentId) {
+    public Optional<InspectionDetail> getInspectionByAppointment(Long appointmentId) {
         return inspectionRepository.findByAppointmentId(appointmentId)
-                .map(this::toDetailedMap);
+                .map(this::toDetail);
     }
 
     /**
      * Get all inspections for a surveyor
      */
-    public List<Map<String, Object>> getInspectionsBySurveyor(Long surveyorId, int limit, int offset) {
+    public List<InspectionSummary> getInspectionsBySurveyor(Long surveyorId, int limit, int offset) {
         return inspectionRepository.findBySurveyorId(surveyorId, limit, offset)
                 .stream()
-                .map(this::toSummaryMap)
+                .map(this::toSummary)
                 .toList();
     }
 
     /**
      * Get all inspections with optional filters
      */
-    public List<Map<String, Object>> getInspections(Long surveyorId, String status,
-                                                      Integer days, int limit, int offset) {
+    public List<InspectionSummary> getInspections(Long surveyorId, String status,
+                                                  Integer days, int limit, int offset) {
         Instant since = days != null
                 ? Instant.now().minus(days, ChronoUnit.DAYS)
                 : Instant.EPOCH;
 
         return inspectionRepository.findWithFilters(surveyorId, status, since, limit, offset)
                 .stream()
-                .map(this::toSummaryMap)
+                .map(this::toSummary)
                 .toList();
     }
 
@@ -207,61 +210,59 @@ public class InspectionService {
         );
     }
 
-    // Helper to convert report to detailed map
-    private Map<String, Object> toDetailedMap(InspectionReport report) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("id", report.getId());
-        map.put("surveyorId", report.getSurveyorId());
-        map.put("appointmentId", report.getAppointmentId());
-        map.put("vehicleTitle", report.getVehicleTitle());
-        map.put("notes", report.getNotes());
-        map.put("signatureUrl", report.getSignatureUrl());
-        map.put("totalSteps", report.getTotalSteps());
-        map.put("latitude", report.getLatitude());
-        map.put("longitude", report.getLongitude());
-        map.put("status", report.getStatus());
-        map.put("submittedAt", report.getSubmittedAt().toString());
-        map.put("updatedAt", report.getUpdatedAt().toString());
+    // Helper to convert report to the detailed response
+    private InspectionDetail toDetail(InspectionReport report) {
+        List<?> photoUrls = List.of();
+        List<?> completedSteps = List.of();
 
         // Parse JSON arrays
         try {
             if (report.getPhotoUrls() != null && !report.getPhotoUrls().isEmpty()) {
-                map.put("photoUrls", objectMapper.readValue(report.getPhotoUrls(), List.class));
-            } else {
-                map.put("photoUrls", List.of());
+                photoUrls = objectMapper.readValue(report.getPhotoUrls(), List.class);
             }
             if (report.getCompletedSteps() != null && !report.getCompletedSteps().isEmpty()) {
-                map.put("completedSteps", objectMapper.readValue(report.getCompletedSteps(), List.class));
-            } else {
-                map.put("completedSteps", List.of());
+                completedSteps = objectMapper.readValue(report.getCompletedSteps(), List.class);
             }
         } catch (JsonProcessingException e) {
             log.warn("Failed to parse JSON in report {}: {}", report.getId(), e.getMessage());
-            map.put("photoUrls", List.of());
-            map.put("completedSteps", List.of());
+            photoUrls = List.of();
+            completedSteps = List.of();
         }
 
         // Add surveyor info if available
-        surveyorRepository.findById(report.getSurveyorId()).ifPresent(surveyor -> {
-            map.put("surveyorName", surveyor.getDisplayName());
-            map.put("surveyorCode", surveyor.getCode());
-        });
-
-        return map;
+        Optional<Surveyor> surveyor = surveyorRepository.findById(report.getSurveyorId());
+
+        return new InspectionDetail(
+                report.getId(),
+                report.getSurveyorId(),
+                report.getAppointmentId(),
+                report.getVehicleTitle(),
+                report.getNotes(),
+                report.getSignatureUrl(),
+                report.getTotalSteps(),
+                report.getLatitude(),
+                report.getLongitude(),
+                report.getStatus(),
+                report.getSubmittedAt(),
+                report.getUpdatedAt(),
+                photoUrls,
+                completedSteps,
+                surveyor.map(Surveyor::getDisplayName).orElse(null),
+                surveyor.map(Surveyor::getCode).orElse(null)
+        );
     }
 
-    // Helper to convert report to summary map (for lists)
-    private Map<String, Object> toSummaryMap(InspectionReport report) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("id", report.getId());
-        map.put("surveyorId", report.getSurveyorId());
-        map.put("appointmentId", report.getAppointmentId());
-        map.put("vehicleTitle", report.getVehicleTitle());
-        map.put("photoCount", report.getPhotoCount());
-        map.put("hasSignature", report.hasSignature());
-        map.put("status", report.getStatus());
-        map.put("submittedAt", report.getSubmittedAt().toString());
-
-        return map;
+    // Helper to convert report to the summary response (for lists)
+    private InspectionSummary toSummary(InspectionReport report) {
+        return new InspectionSummary(
+                report.getId(),
+                report.getSurveyorId(),
+                report.getAppointmentId(),
+                report.getVehicleTitle(),
+                report.getPhotoCount(),
+                report.hasSignature(),
+                report.getStatus(),
+                report.getSubmittedAt()
+        );
     }
 }
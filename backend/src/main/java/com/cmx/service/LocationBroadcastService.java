@@ -1,62 +1,52 @@
 package com.cmx.service;
 
+import com.cmx.location.CompactLocationCodec;
+import com.cmx.location.CompactLocationCodec.LocationFrame;
+import com.cmx.location.TrailPoint;
+import com.cmx.service.EventHubService.Topic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Service for broadcasting real-time location updates to connected clients via SSE.
+ * Fan-out goes through {@link EventHubService} on the {@code locations} topic.
  */
 @Service
 public class LocationBroadcastService {
 
     private static final Logger logger = LoggerFactory.getLogger(LocationBroadcastService.class);
 
-    // Connected SSE clients
-    private final CopyOnWriteArrayList<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final EventHubService eventHub;
 
     // Location history for trail visualization (last N positions per surveyor)
     private final ConcurrentHashMap<Long, CopyOnWriteArrayList<LocationPoint>> locationHistory = new ConcurrentHashMap<>();
 
     private static final int MAX_HISTORY_POINTS = 20; // Keep last 20 positions for trail
 
+    public LocationBroadcastService(EventHubService eventHub) {
+        this.eventHub = eventHub;
+    }
+
     public SseEmitter subscribe() {
-        SseEmitter emitter = new SseEmitter(Long.MAX_VALUE); // No timeout
-
-        emitter.onCompletion(() -> {
-            emitters.remove(emitter);
-            logger.debug("SSE client disconnected. Active clients: {}", emitters.size());
-        });
-
-        emitter.onTimeout(() -> {
-            emitter.complete();
-            emitters.remove(emitter);
-        });
-
-        emitter.onError(e -> {
-            emitter.complete();
-            emitters.remove(emitter);
-        });
-
-        emitters.add(emitter);
-        logger.info("New SSE client connected. Active clients: {}", emitters.size());
-
-        // Send initial connection event
-        try {
-            emitter.send(SseEmitter.event()
-                    .name("connected")
-                    .data(Map.of("message", "Connected to location stream", "timestamp", System.currentTimeMillis())));
-        } catch (IOException e) {
-            logger.error("Failed to send initial event", e);
-        }
+        return subscribe(false);
+    }
 
-        return emitter;
+    /**
+     * Subscribe to the location stream. Compact subscribers receive "location" events as
+     * base64 {@link CompactLocationCodec} frames instead of JSON.
+     */
+    public SseEmitter subscribe(boolean compact) {
+        Topic topic = compact ? Topic.LOCATIONS_COMPACT : Topic.LOCATIONS;
+        return eventHub.subscribe(EnumSet.of(topic), Long.MAX_VALUE, "Connected to location stream"); // No timeout
     }
 
     /**
@@ -66,33 +56,30 @@ public class LocationBroadcastService {
         // Add to history
         addToHistory(surveyorId, lat, lng);
 
-        // Create event data
-        Map<String, Object> data = Map.of(
-                "surveyorId", surveyorId,
-                "lat", lat,
-                "lng", lng,
-                "status", status != null ? status : "AVAILABLE",
-                "displayName", displayName != null ? displayName : "Surveyor " + surveyorId,
-                "timestamp", System.currentTimeMillis(),
-                "trail", getLocationTrail(surveyorId)
-        );
+        String resolvedStatus = status != null ? status : "AVAILABLE";
+        String resolvedName = displayName != null ? displayName : "Surveyor " + surveyorId;
+        long timestamp = System.currentTimeMillis();
+
+        if (eventHub.hasSubscribers(Topic.LOCATIONS)) {
+            Map<String, Object> data = Map.of(
+                    "surveyorId", surveyorId,
+                    "lat", lat,
+                    "lng", lng,
+                    "status", resolvedStatus,
+                    "displayName", resolvedName,
+                    "timestamp", timestamp,
+                    "trail", getLocationTrail(surveyorId)
+            );
+            eventHub.publish(Topic.LOCATIONS, "location", data);
+        }
 
-        // Broadcast to all connected clients - collect dead emitters for removal
-        java.util.List<SseEmitter> deadEmitters = new java.util.ArrayList<>();
-        for (SseEmitter emitter : emitters) {
-            try {
-                emitter.send(SseEmitter.event()
-                        .name("location")
-                        .data(data));
-            } catch (Exception e) {
-                // Don't call complete() here - just mark for removal
-                deadEmitters.add(emitter);
-                logger.debug("Removing dead SSE client on location broadcast");
-            }
+        if (eventHub.hasSubscribers(Topic.LOCATIONS_COMPACT)) {
+            LocationFrame frame = new LocationFrame(surveyorId, lat, lng, timestamp,
+                    resolvedStatus, resolvedName, getCompactTrail(surveyorId));
+            eventHub.publish(Topic.LOCATIONS_COMPACT, "location", CompactLocationCodec.encodeBase64(frame));
         }
-        emitters.removeAll(deadEmitters);
 
-        logger.debug("Broadcasted location for surveyor {}: ({}, {}). Clients: {}", surveyorId, lat, lng, emitters.size());
+        logger.debug("Broadcasted location for surveyor {}: ({}, {}). Clients: {}", surveyorId, lat, lng, getActiveClientCount());
     }
 
     /**
@@ -106,18 +93,8 @@ public class LocationBroadcastService {
                 "timestamp", System.currentTimeMillis()
         );
 
-        java.util.List<SseEmitter> deadEmitters = new java.util.ArrayList<>();
-        for (SseEmitter emitter : emitters) {
-            try {
-                emitter.send(SseEmitter.event()
-                        .name("status")
-                        .data(data));
-            } catch (Exception e) {
-                deadEmitters.add(emitter);
-                logger.debug("Removing dead SSE client on status broadcast");
-            }
-        }
-        emitters.removeAll(deadEmitters);
+        eventHub.publish(Topic.LOCATIONS, "status", data);
+        eventHub.publish(Topic.LOCATIONS_COMPACT, "status", data);
     }
 
     /**
@@ -138,10 +115,10 @@ public class LocationBroadcastService {
     /**
      * Get location trail for a surveyor
      */
-    public java.util.List<Map<String, Object>> getLocationTrail(Long surveyorId) {
+    public List<Map<String, Object>> getLocationTrail(Long surveyorId) {
         CopyOnWriteArrayList<LocationPoint> history = locationHistory.get(surveyorId);
         if (history == null || history.isEmpty()) {
-            return java.util.Collections.emptyList();
+            return Collections.emptyList();
         }
 
         return history.stream()
@@ -149,11 +126,21 @@ public class LocationBroadcastService {
                 .toList();
     }
 
+    private List<TrailPoint> getCompactTrail(Long surveyorId) {
+        CopyOnWriteArrayList<LocationPoint> history = locationHistory.get(surveyorId);
+        if (history == null || history.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return history.stream()
+                .map(p -> new TrailPoint(p.lat, p.lng, p.timestamp))
+                .toList();
+    }
+
     /**
      * Get all location trails for initial load
      */
-    public Map<Long, java.util.List<Map<String, Object>>> getAllTrails() {
-        java.util.HashMap<Long, java.util.List<Map<String, Object>>> trails = new java.util.HashMap<>();
+    public Map<Long, List<Map<String, Object>>> getAllTrails() {
+        java.util.HashMap<Long, List<Map<String, Object>>> trails = new java.util.HashMap<>();
         for (Long surveyorId : locationHistory.keySet()) {
             trails.put(surveyorId, getLocationTrail(surveyorId));
         }
@@ -168,7 +155,7 @@ public class LocationBroadcastService {
     }
 
     public int getActiveClientCount() {
-        return emitters.size();
+        return eventHub.getSubscriberCount(Topic.LOCATIONS) + eventHub.getSubscriberCount(Topic.LOCATIONS_COMPACT);
     }
 
     /**
@@ -0,0 +1,283 @@
+package com.cmx.service;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.location.TrailPoint;
+import com.cmx.location.TrailSimplifier;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent surveyor location history.
+ *
+ * Positions are queued in memory on the ingest path and written to {@code surveyor_location_history}
+ * in batches by a scheduled flush, so a location ping never waits on an INSERT. If the queue is full
+ * (database down or far behind) new samples are dropped and counted rather than blocking ingestion.
+ *
+ * On PostgreSQL the table is partitioned by UTC day; this service creates partitions ahead of time
+ * and drops whole partitions past the retention window. Rows that reached the default partition
+ * (a backfilled day with no partition yet) are moved into the day's partition when it is created,
+ * and any left there past the retention window are deleted. On H2 retention is a plain DELETE.
+ */
+@Service
+public class LocationHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationHistoryService.class);
+
+    private static final String TABLE = "surveyor_location_history";
+    private static final String PARTITION_PREFIX = TABLE + "_p";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final int PARTITIONS_AHEAD = 2;
+    private static final Duration MAX_QUERY_RANGE = Duration.ofDays(7);
+    private static final int DEFAULT_MAX_POINTS = 300;
+    private static final int MAX_POINTS_LIMIT = 5000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO " + TABLE + " (surveyor_id, lat, lng, recorded_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final TransactionTemplate tx;
+
+    @Value("${location.history.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${location.history.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${location.history.retention-days:30}")
+    private int retentionDays;
+
+    private BlockingQueue<Sample> queue;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public record Sample(long surveyorId, double lat, double lng, Instant recordedAt) {}
+
+    public LocationHistoryService(JdbcTemplate jdbcTemplate, DatabaseDialect dialect,
+                                  PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Queue a position for persistence. Never blocks; returns false if the sample was dropped.
+     */
+    public boolean record(Long surveyorId, double lat, double lng, Instant recordedAt) {
+        if (queue.offer(new Sample(surveyorId, lat, lng, recordedAt))) {
+            return true;
+        }
+        long total = dropped.incrementAndGet();
+        if (total % 1000 == 1) {
+            logger.warn("Location history queue full ({} samples), {} samples dropped so far", queueCapacity, total);
+        }
+        return false;
+    }
+
+    /**
+     * Write queued samples in batches.
+     */
+    @Scheduled(fixedDelayString = "${location.history.flush-interval-ms:2000}")
+    public void flush() {
+        List<Sample> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                insertAll(batch);
+            } catch (DataAccessException e) {
+                dropped.addAndGet(batch.size());
+                logger.error("Failed to write {} location history samples: {}", batch.size(), e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Insert samples synchronously, bypassing the queue. Joins the caller's transaction if there is one.
+     */
+    public void insertAll(List<Sample> samples) {
+        if (samples.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, samples, batchSize, (ps, sample) -> {
+            ps.setLong(1, sample.surveyorId());
+            ps.setDouble(2, sample.lat());
+            ps.setDouble(3, sample.lng());
+            ps.setTimestamp(4, Timestamp.from(sample.recordedAt()));
+        });
+        written.addAndGet(samples.size());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    /**
+     * Create upcoming daily partitions and apply retention. Runs shortly after midnight UTC.
+     */
+    @Scheduled(cron = "0 5 0 * * *", zone = "UTC")
+    public void maintainPartitions() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate cutoff = today.minusDays(retentionDays);
+        try {
+            if (dialect.isPostgres()) {
+                for (int i = 0; i <= PARTITIONS_AHEAD; i++) {
+                    createPartition(today.plusDays(i));
+                }
+                dropPartitionsBefore(cutoff);
+                int deleted = jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE recorded_at < ?",
+                        Timestamp.from(cutoff.atStartOfDay(ZoneOffset.UTC).toInstant()));
+                if (deleted > 0) {
+                    logger.info("Deleted {} location history rows older than {} from the default partition", deleted, cutoff);
+                }
+            } else {
+                int deleted = jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE recorded_at < ?",
+                        Timestamp.from(cutoff.atStartOfDay(ZoneOffset.UTC).toInstant()));
+                if (deleted > 0) {
+                    logger.info("Deleted {} location history rows older than {}", deleted, cutoff);
+                }
+            }
+        } catch (DataAccessException e) {
+            logger.error("Location history partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private void createPartition(LocalDate day) {
+        String name = PARTITION_PREFIX + day.format(PARTITION_SUFFIX);
+        String bounds = " FOR VALUES FROM ('" + day + " 00:00:00+00') TO ('" + day.plusDays(1) + " 00:00:00+00')";
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + TABLE + bounds);
+        } catch (DataAccessException e) {
+            // The default partition already holds rows for this day
+            movePartitionOutOfDefault(day, name, bounds);
+        }
+    }
+
+    /**
+     * Create the day's partition from the rows the default partition holds for it. The default is
+     * locked first so no new row for the day can land there before the partition is attached.
+     */
+    private void movePartitionOutOfDefault(LocalDate day, String name, String bounds) {
+        try {
+            Integer moved = tx.execute(status -> {
+                jdbcTemplate.execute("LOCK TABLE " + DEFAULT_PARTITION + " IN SHARE ROW EXCLUSIVE MODE");
+                jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                int rows = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION +
+                                " WHERE recorded_at >= ? AND recorded_at < ? RETURNING *) INSERT INTO " + name + " SELECT * FROM moved",
+                        Timestamp.from(day.atStartOfDay(ZoneOffset.UTC).toInstant()),
+                        Timestamp.from(day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant()));
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + name + bounds);
+                return rows;
+            });
+            logger.info("Created location history partition {} with {} rows moved from the default partition", name, moved);
+        } catch (DataAccessException e) {
+            logger.warn("Could not create location history partition {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void dropPartitionsBefore(LocalDate cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = ?", String.class, TABLE);
+        for (String name : partitions) {
+            if (!name.startsWith(PARTITION_PREFIX)) {
+                continue;
+            }
+            try {
+                LocalDate day = LocalDate.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+                if (day.isBefore(cutoff)) {
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+                    logger.info("Dropped location history partition {}", name);
+                }
+            } catch (DateTimeParseException e) {
+                logger.debug("Skipping unrecognised partition {}", name);
+            }
+        }
+    }
+
+    /**
+     * Get a surveyor's trail between two instants, downsampled to at most {@code maxPoints} points.
+     */
+    public Map<String, Object> getTrail(Long surveyorId, String from, String to, Integer maxPoints) {
+        OffsetDateTime fromTime = OffsetDateTime.parse(from);
+        OffsetDateTime toTime = OffsetDateTime.parse(to);
+        if (!toTime.isAfter(fromTime)) {
+            throw new IllegalArgumentException("'to' must be after 'from'");
+        }
+        if (Duration.between(fromTime, toTime).compareTo(MAX_QUERY_RANGE) > 0) {
+            throw new IllegalArgumentException("Time range must not exceed " + MAX_QUERY_RANGE.toDays() + " days");
+        }
+        int budget = maxPoints != null ? maxPoints : DEFAULT_MAX_POINTS;
+        if (budget < 2 || budget > MAX_POINTS_LIMIT) {
+            throw new IllegalArgumentException("maxPoints must be between 2 and " + MAX_POINTS_LIMIT);
+        }
+
+        List<TrailPoint> raw = jdbcTemplate.query(
+                "SELECT lat, lng, recorded_at FROM " + TABLE +
+                " WHERE surveyor_id = ? AND recorded_at >= ? AND recorded_at < ? ORDER BY recorded_at",
+                (rs, rowNum) -> new TrailPoint(rs.getDouble("lat"), rs.getDouble("lng"),
+                        rs.getTimestamp("recorded_at").getTime()),
+                surveyorId, Timestamp.from(fromTime.toInstant()), Timestamp.from(toTime.toInstant()));
+
+        List<TrailPoint> simplified = TrailSimplifier.simplify(raw, budget);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("surveyorId", surveyorId);
+        result.put("from", fromTime.toString());
+        result.put("to", toTime.toString());
+        result.put("totalPoints", raw.size());
+        result.put("returnedPoints", simplified.size());
+        result.put("points", simplified.stream()
+                .map(p -> Map.<String, Object>of("lat", p.lat(), "lng", p.lng(), "timestamp", p.timestamp()))
+                .toList());
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "queued", queue.size(),
+                "written", written.get(),
+                "dropped", dropped.get()
+        );
+    }
+}
@@ -0,0 +1,580 @@
+package com.cmx.service;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.dto.LocationDto.BatchItemResult;
+import com.cmx.dto.LocationDto.LocationBatchResponse;
+import com.cmx.dto.LocationDto.LocationMessage;
+import com.cmx.location.LocationUpdateFilter;
+import com.cmx.service.LocationHistoryService.Sample;
+import com.cmx.service.LocationPipelineMetrics.Stage;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind ingestion of surveyor positions.
+ *
+ * A ping updates the in-memory latest position and is broadcast to SSE clients straight away; the
+ * caller never touches the database. A scheduled flusher persists every surveyor whose position
+ * changed since the last flush, collapsing any number of pings per surveyor into one row and all
+ * surveyors into one {@code UPDATE surveyor ... FROM (VALUES ...)} statement on PostgreSQL
+ * (a JDBC batch on H2).
+ *
+ * The {@code surveyor} table therefore lags live positions by up to one flush interval; readers
+ * that need the live position should use {@link #getLastKnown(Long)}.
+ *
+ * Single pings pass through {@link LocationUpdateFilter} first, so stationary and out-of-order
+ * pings are dropped before they cost a write, a history sample or a broadcast.
+ *
+ * Every position and status is range-checked before it is queued, because one row the database
+ * refuses fails the whole multi-row statement. Should a chunk still be refused, its rows are
+ * written one by one and only those refused on their own are dropped.
+ *
+ * Statuses are also written directly (status-only updates and batches). A flush and a direct write
+ * are serialized on one lock, and the direct write clears the pending status first, so a flush can
+ * never write an older queued status over a newer direct one.
+ */
+@Service
+public class LocationIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationIngestService.class);
+
+    // 5 parameters per row keeps a chunk well under the PostgreSQL bind parameter limit
+    private static final int ROWS_PER_STATEMENT = 1000;
+    private static final int MAX_BATCH_SIZE = 500;
+    // Width of surveyor.current_status
+    private static final int MAX_STATUS_LENGTH = 16;
+    private static final Set<String> MESSAGE_TYPES = Set.of("location", "status", "location_status");
+
+    // Positions never move backwards in time, so a late offline upload cannot overwrite a newer fix
+    private static final String H2_UPDATE_SQL =
+            "UPDATE surveyor SET current_lat = ?, current_lng = ?, current_status = COALESCE(?, current_status), " +
+            "last_location_update = ? WHERE id = ? AND (last_location_update IS NULL OR last_location_update <= ?)";
+
+    /**
+     * Latest known position of a surveyor. {@code status} is null when the ping did not carry one.
+     */
+    public record Position(long surveyorId, double lat, double lng, String status, long timestamp) {}
+
+    private record StatusChange(long surveyorId, String status, long timestamp) {}
+
+    private final SurveyorService surveyorService;
+    private final LocationBroadcastService broadcastService;
+    private final LocationHistoryService historyService;
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final LocationUpdateFilter filter;
+    private final LocationPipelineMetrics metrics;
+    private final SurveyorCacheEvictor cacheEvictor;
+
+    // Latest position per surveyor, kept for live reads
+    private final Map<Long, Position> lastKnown = new ConcurrentHashMap<>();
+    // Positions not yet persisted; the newest ping per surveyor wins
+    private final Map<Long, Position> dirty = new ConcurrentHashMap<>();
+    // Held by a flush from draining dirty until its last write, and by direct status writes
+    private final Object writeLock = new Object();
+
+    private final AtomicLong pingsAccepted = new AtomicLong();
+    private final AtomicLong rowsFlushed = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong rowsDropped = new AtomicLong();
+
+    public LocationIngestService(SurveyorService surveyorService,
+                                 LocationBroadcastService broadcastService,
+                                 LocationHistoryService historyService,
+                                 JdbcTemplate jdbcTemplate,
+                                 DatabaseDialect dialect,
+                                 LocationUpdateFilter filter,
+                                 LocationPipelineMetrics metrics,
+                                 SurveyorCacheEvictor cacheEvictor) {
+        this.surveyorService = surveyorService;
+        this.broadcastService = broadcastService;
+        this.historyService = historyService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.filter = filter;
+        this.metrics = metrics;
+        this.cacheEvictor = cacheEvictor;
+    }
+
+    /**
+     * Seed the live positions from the database so reads are served from memory after a restart.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadLastKnown() {
+        try {
+            jdbcTemplate.query(
+                    "SELECT id, current_lat, current_lng, current_status, last_location_update FROM surveyor " +
+                    "WHERE current_lat IS NOT NULL AND current_lng IS NOT NULL",
+                    rs -> {
+                        Timestamp updated = rs.getTimestamp("last_location_update");
+                        long id = rs.getLong("id");
+                        lastKnown.putIfAbsent(id, new Position(id, rs.getDouble("current_lat"), rs.getDouble("current_lng"),
+                                rs.getString("current_status"), updated != null ? updated.getTime() : 0L));
+                    });
+            logger.info("Loaded {} last known surveyor positions", lastKnown.size());
+        } catch (DataAccessException e) {
+            logger.warn("Could not load last known surveyor positions: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Accept a position ping timestamped on arrival. Returns false if the surveyor is unknown.
+     *
+     * @param status new status, or null to keep the current one
+     * @throws IllegalArgumentException if lat/lng is out of range or the status is too long
+     */
+    public boolean ingest(Long surveyorId, double lat, double lng, String status) {
+        return ingest(surveyorId, lat, lng, status, null);
+    }
+
+    /**
+     * Accept a position ping. Returns false if the surveyor is unknown; a ping dropped by the
+     * {@link LocationUpdateFilter} still counts as handled.
+     *
+     * @param status          new status, or null to keep the current one
+     * @param deviceTimestamp when the device took the fix (epoch millis), or null if not reported
+     * @throws IllegalArgumentException if lat/lng is out of range or the status is too long
+     */
+    public boolean ingest(Long surveyorId, double lat, double lng, String status, Long deviceTimestamp) {
+        String invalid = invalidPing(lat, lng, status);
+        if (invalid != null) {
+            throw new IllegalArgumentException(invalid);
+        }
+        long lookupStart = System.nanoTime();
+        String displayName = surveyorService.getDisplayName(surveyorId);
+        metrics.record(Stage.LOOKUP, lookupStart);
+        if (displayName == null) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        // A device clock running ahead must not push the live state into the future
+        long timestamp = deviceTimestamp != null ? Math.min(deviceTimestamp, now) : now;
+        Position known = lastKnown.get(surveyorId);
+        boolean statusChanged = status != null && (known == null || !status.equals(known.status()));
+        if (!filter.evaluate(surveyorId, lat, lng, timestamp, statusChanged, now).isAccepted()) {
+            return true;
+        }
+
+        Position position = lastKnown.compute(surveyorId, (id, previous) -> new Position(id, lat, lng,
+                status != null ? status : (previous != null ? previous.status() : null), timestamp));
+        dirty.merge(surveyorId, new Position(surveyorId, lat, lng, status, timestamp),
+                (pending, next) -> next.status() != null ? next
+                        : new Position(surveyorId, lat, lng, pending.status(), timestamp));
+        pingsAccepted.incrementAndGet();
+
+        historyService.record(surveyorId, lat, lng, Instant.ofEpochMilli(timestamp));
+        long broadcastStart = System.nanoTime();
+        broadcastService.broadcastLocationUpdate(surveyorId, lat, lng, position.status(), displayName);
+        metrics.record(Stage.BROADCAST, broadcastStart);
+        if (deviceTimestamp != null) {
+            metrics.recordLag(deviceTimestamp, System.currentTimeMillis());
+        }
+        return true;
+    }
+
+    /**
+     * Read a device timestamp from a request payload: epoch millis as a number or digit string,
+     * or an ISO-8601 offset date-time. Returns null if absent or unreadable.
+     */
+    public static Long deviceTimestamp(Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof String text && !text.isBlank()) {
+            try {
+                return parseTimestamp(text, 0L);
+            } catch (DateTimeException | NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ingest a batch of buffered messages (e.g. positions a phone collected while offline).
+     *
+     * All messages are validated up front and invalid ones are reported per item without failing the
+     * batch. Every valid position is appended to history; only the newest position and status per
+     * surveyor are applied to the live state, and only if they are newer than what is already known.
+     * History rows and surveyor rows are written in one transaction; the live map and SSE clients are
+     * updated after commit.
+     */
+    @Transactional
+    public LocationBatchResponse ingestBatch(List<LocationMessage> messages) {
+        if (messages == null || messages.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one message");
+        }
+        if (messages.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch must not exceed " + MAX_BATCH_SIZE + " messages");
+        }
+
+        long receivedAt = System.currentTimeMillis();
+        List<BatchItemResult> results = new ArrayList<>(messages.size());
+        List<Sample> history = new ArrayList<>();
+        Map<Long, Position> newestPositions = new HashMap<>();
+        Map<Long, StatusChange> newestStatuses = new HashMap<>();
+
+        for (int i = 0; i < messages.size(); i++) {
+            LocationMessage message = messages.get(i);
+            String error = validate(message);
+            long timestamp = 0;
+            if (error == null) {
+                try {
+                    // Clamped like single pings, so a device clock running ahead cannot block later fixes
+                    timestamp = Math.min(parseTimestamp(message.timestamp(), receivedAt), receivedAt);
+                } catch (DateTimeException | NumberFormatException e) {
+                    error = "Invalid timestamp: " + message.timestamp();
+                }
+            }
+            if (error != null) {
+                results.add(new BatchItemResult(i, false, error));
+                continue;
+            }
+
+            long surveyorId = message.surveyorId();
+            if (message.lat() != null) {
+                Position position = new Position(surveyorId, message.lat(), message.lng(), null, timestamp);
+                history.add(new Sample(surveyorId, message.lat(), message.lng(), Instant.ofEpochMilli(timestamp)));
+                newestPositions.merge(surveyorId, position, (a, b) -> b.timestamp() >= a.timestamp() ? b : a);
+            }
+            if (message.status() != null && !message.status().isBlank()) {
+                newestStatuses.merge(surveyorId, new StatusChange(surveyorId, message.status(), timestamp),
+                        (a, b) -> b.timestamp() >= a.timestamp() ? b : a);
+            }
+            results.add(new BatchItemResult(i, true, null));
+        }
+
+        // Drop anything older than the live state (late offline uploads only feed history)
+        List<Position> positions = newestPositions.values().stream()
+                .filter(p -> isNewer(p.surveyorId(), p.timestamp()))
+                .toList();
+        List<StatusChange> statuses = newestStatuses.values().stream()
+                .filter(c -> isNewer(c.surveyorId(), c.timestamp()))
+                .toList();
+
+        // Before this transaction locks any row, so a flush waiting on those rows cannot hold the lock
+        synchronized (writeLock) {
+            for (StatusChange change : statuses) {
+                clearPendingStatus(change.surveyorId());
+            }
+        }
+        historyService.insertAll(history);
+        for (int from = 0; from < positions.size(); from += ROWS_PER_STATEMENT) {
+            write(positions.subList(from, Math.min(from + ROWS_PER_STATEMENT, positions.size())));
+        }
+        if (!statuses.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE surveyor SET current_status = ? WHERE id = ?",
+                    statuses, statuses.size(), (ps, c) -> {
+                        ps.setString(1, c.status());
+                        ps.setLong(2, c.surveyorId());
+                    });
+        }
+
+        Runnable publish = () -> applyBatch(positions, statuses);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+
+        int accepted = (int) results.stream().filter(BatchItemResult::success).count();
+        pingsAccepted.addAndGet(history.size());
+        return new LocationBatchResponse(messages.size(), accepted, messages.size() - accepted,
+                positions.size(), statuses.size(), results);
+    }
+
+    private String validate(LocationMessage message) {
+        if (message == null) {
+            return "Message is empty";
+        }
+        if (message.type() == null || !MESSAGE_TYPES.contains(message.type())) {
+            return "Unknown payload type: " + message.type();
+        }
+        if (message.surveyorId() == null) {
+            return "surveyorId is required";
+        }
+        if ((message.lat() == null) != (message.lng() == null)) {
+            return "lat and lng must be provided together";
+        }
+        boolean hasPosition = message.lat() != null;
+        boolean hasStatus = message.status() != null && !message.status().isBlank();
+        String invalid = invalidPing(message.lat(), message.lng(), hasStatus ? message.status() : null);
+        if (invalid != null) {
+            return invalid;
+        }
+        if ("location".equals(message.type()) && !hasPosition) {
+            return "location message requires lat and lng";
+        }
+        if ("status".equals(message.type()) && !hasStatus) {
+            return "status message requires status";
+        }
+        if (!hasPosition && !hasStatus) {
+            return "No location or status provided";
+        }
+        if (surveyorService.getDisplayName(message.surveyorId()) == null) {
+            return "Unknown surveyor: " + message.surveyorId();
+        }
+        return null;
+    }
+
+    /**
+     * Why a position or status cannot be stored, or null if it can. NaN coordinates are out of range.
+     */
+    private static String invalidPing(Double lat, Double lng, String status) {
+        if (lat != null && !(Math.abs(lat) <= 90 && Math.abs(lng) <= 180)) {
+            return "lat/lng out of range";
+        }
+        if (status != null && status.length() > MAX_STATUS_LENGTH) {
+            return "status must be " + MAX_STATUS_LENGTH + " characters or less";
+        }
+        return null;
+    }
+
+    private static long parseTimestamp(String value, long defaultValue) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        if (value.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(value);
+        }
+        return OffsetDateTime.parse(value).toInstant().toEpochMilli();
+    }
+
+    private boolean isNewer(long surveyorId, long timestamp) {
+        Position known = lastKnown.get(surveyorId);
+        return known == null || timestamp >= known.timestamp();
+    }
+
+    private void applyBatch(List<Position> positions, List<StatusChange> statuses) {
+        long now = System.currentTimeMillis();
+        Map<Long, String> newStatus = new HashMap<>();
+        for (StatusChange change : statuses) {
+            newStatus.put(change.surveyorId(), change.status());
+            statusChanged(change.surveyorId(), change.status());
+            cacheEvictor.detailsChanged(change.surveyorId());
+        }
+        for (Position p : positions) {
+            Position live = lastKnown.merge(p.surveyorId(), p, (old, next) -> next.timestamp() >= old.timestamp()
+                    ? new Position(next.surveyorId(), next.lat(), next.lng(),
+                            newStatus.getOrDefault(next.surveyorId(), old.status()), next.timestamp())
+                    : old);
+            // The batch already persisted this position; drop an older pending write for it
+            dirty.computeIfPresent(p.surveyorId(), (id, pending) -> pending.timestamp() <= p.timestamp() ? null : pending);
+            filter.record(p.surveyorId(), p.lat(), p.lng(), p.timestamp(), now);
+            broadcastService.broadcastLocationUpdate(p.surveyorId(), live.lat(), live.lng(), live.status(),
+                    surveyorService.getDisplayName(p.surveyorId()));
+        }
+        // Location events carry the status; surveyors without a new position get a status event
+        Set<Long> moved = positions.stream().map(Position::surveyorId).collect(Collectors.toSet());
+        for (StatusChange change : statuses) {
+            if (!moved.contains(change.surveyorId())) {
+                broadcastService.broadcastStatusUpdate(change.surveyorId(), change.status(),
+                        surveyorService.getDisplayName(change.surveyorId()));
+            }
+        }
+    }
+
+    /**
+     * Write a status straight to the database, for updates that carry no position. Returns false if
+     * the surveyor is unknown.
+     */
+    public boolean updateStatus(Long surveyorId, String status) {
+        String invalid = invalidPing(null, null, status);
+        if (invalid != null) {
+            throw new IllegalArgumentException(invalid);
+        }
+        synchronized (writeLock) {
+            clearPendingStatus(surveyorId);
+            if (!surveyorService.updateStatus(surveyorId, status)) {
+                return false;
+            }
+        }
+        statusChanged(surveyorId, status);
+        return true;
+    }
+
+    private void clearPendingStatus(long surveyorId) {
+        dirty.computeIfPresent(surveyorId, (id, p) -> new Position(id, p.lat(), p.lng(), null, p.timestamp()));
+    }
+
+    /**
+     * Apply a status already written to the database to the live state.
+     */
+    private void statusChanged(long surveyorId, String status) {
+        lastKnown.computeIfPresent(surveyorId, (id, p) -> new Position(id, p.lat(), p.lng(), status, p.timestamp()));
+        clearPendingStatus(surveyorId);
+    }
+
+    public Position getLastKnown(Long surveyorId) {
+        return lastKnown.get(surveyorId);
+    }
+
+    public Map<Long, Position> getLastKnownPositions() {
+        return Collections.unmodifiableMap(lastKnown);
+    }
+
+    /**
+     * Persist all dirty positions.
+     */
+    @Scheduled(fixedDelayString = "${location.ingest.flush-interval-ms:500}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            flushPending();
+        }
+    }
+
+    private void flushPending() {
+        List<Position> pending = new ArrayList<>(dirty.size());
+        Iterator<Long> ids = dirty.keySet().iterator();
+        while (ids.hasNext()) {
+            Position position = dirty.remove(ids.next());
+            if (position != null) {
+                pending.add(position);
+            }
+        }
+
+        for (int from = 0; from < pending.size(); from += ROWS_PER_STATEMENT) {
+            List<Position> chunk = pending.subList(from, Math.min(from + ROWS_PER_STATEMENT, pending.size()));
+            try {
+                write(chunk);
+            } catch (DataIntegrityViolationException e) {
+                flushFailures.incrementAndGet();
+                logger.warn("Database refused a row of {} surveyor positions, writing them one by one: {}",
+                        chunk.size(), e.getMessage());
+                writeEach(chunk);
+            } catch (DataAccessException e) {
+                flushFailures.incrementAndGet();
+                logger.error("Failed to flush {} surveyor positions, will retry: {}", chunk.size(), e.getMessage());
+                requeue(chunk);
+            }
+        }
+    }
+
+    /**
+     * Write a refused chunk row by row, dropping the rows refused on their own so they cannot fail
+     * every later flush. Rows that fail for any other reason are retried.
+     */
+    private void writeEach(List<Position> chunk) {
+        List<Position> failed = new ArrayList<>();
+        for (Position p : chunk) {
+            try {
+                write(List.of(p));
+            } catch (DataIntegrityViolationException e) {
+                rowsDropped.incrementAndGet();
+                logger.error("Dropping position of surveyor {} refused by the database: {}", p.surveyorId(), e.getMessage());
+            } catch (DataAccessException e) {
+                failed.add(p);
+            }
+        }
+        requeue(failed);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    private void write(List<Position> chunk) {
+        long start = System.nanoTime();
+        if (dialect.isPostgres()) {
+            writePostgres(chunk);
+        } else {
+            writeBatch(chunk);
+        }
+        metrics.record(Stage.DB_WRITE, start);
+        rowsFlushed.addAndGet(chunk.size());
+        for (Position p : chunk) {
+            cacheEvictor.detailsChanged(p.surveyorId());
+        }
+    }
+
+    private void writePostgres(List<Position> chunk) {
+        StringBuilder sql = new StringBuilder(
+                "UPDATE surveyor AS s SET current_lat = v.lat, current_lng = v.lng, " +
+                "current_status = COALESCE(v.status, s.current_status), last_location_update = v.ts FROM (VALUES ");
+        Object[] args = new Object[chunk.size() * 5];
+        int i = 0;
+        for (Position p : chunk) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(CAST(? AS BIGINT), CAST(? AS DECIMAL(9,6)), CAST(? AS DECIMAL(9,6)), " +
+                       "CAST(? AS VARCHAR(16)), CAST(? AS TIMESTAMPTZ))");
+            args[i++] = p.surveyorId();
+            args[i++] = p.lat();
+            args[i++] = p.lng();
+            args[i++] = p.status();
+            args[i++] = new Timestamp(p.timestamp());
+        }
+        sql.append(") AS v(id, lat, lng, status, ts) WHERE s.id = v.id " +
+                   "AND (s.last_location_update IS NULL OR s.last_location_update <= v.ts)");
+        jdbcTemplate.update(sql.toString(), args);
+    }
+
+    private void writeBatch(List<Position> chunk) {
+        jdbcTemplate.batchUpdate(H2_UPDATE_SQL, chunk, chunk.size(), (ps, p) -> {
+            ps.setDouble(1, p.lat());
+            ps.setDouble(2, p.lng());
+            ps.setString(3, p.status());
+            ps.setTimestamp(4, new Timestamp(p.timestamp()));
+            ps.setLong(5, p.surveyorId());
+            ps.setTimestamp(6, new Timestamp(p.timestamp()));
+        });
+    }
+
+    /**
+     * Put failed positions back unless a newer ping arrived in the meantime.
+     */
+    private void requeue(List<Position> chunk) {
+        for (Position p : chunk) {
+            dirty.merge(p.surveyorId(), p, (newer, failed) -> newer.status() != null || failed.status() == null ? newer
+                    : new Position(newer.surveyorId(), newer.lat(), newer.lng(), failed.status(), newer.timestamp()));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "pingsAccepted", pingsAccepted.get(),
+                "pendingPositions", dirty.size(),
+                "rowsFlushed", rowsFlushed.get(),
+                "flushFailures", flushFailures.get(),
+                "rowsDropped", rowsDropped.get(),
+                "filter", filter.getStats()
+        );
+    }
+}
@@ -0,0 +1,91 @@
+package com.cmx.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer timers for the location ingest pipeline.
+ *
+ * Each stage a message passes through (payload parse, surveyor name lookup, database write,
+ * SSE broadcast) has its own timer under {@code location.ingest.stage}, so a throughput drop can be
+ * traced to the stage that slowed down. {@code location.ingest.lag} measures end-to-end lag from the
+ * device's fix timestamp to the broadcast leaving this node, which includes time spent in QStash.
+ */
+@Component
+public class LocationPipelineMetrics {
+
+    public enum Stage {
+        PARSE("parse"),
+        LOOKUP("lookup"),
+        DB_WRITE("db_write"),
+        BROADCAST("broadcast");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Timer lag;
+
+    public LocationPipelineMetrics(MeterRegistry meterRegistry) {
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("location.ingest.stage")
+                    .description("Time spent in one stage of location ingestion")
+                    .tag("stage", stage.tag)
+                    .register(meterRegistry));
+        }
+        this.lag = Timer.builder("location.ingest.lag")
+                .description("Lag from the device fix timestamp to the SSE broadcast")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record a stage that started at {@code startNanos} ({@link System#nanoTime()}) and ends now.
+     */
+    public void record(Stage stage, long startNanos) {
+        stageTimers.get(stage).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record device-to-broadcast lag. Negative lag (device clock ahead) is ignored.
+     */
+    public void recordLag(long deviceTimestamp, long broadcastAt) {
+        long millis = broadcastAt - deviceTimestamp;
+        if (millis >= 0) {
+            lag.record(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public Timer timer(Stage stage) {
+        return stageTimers.get(stage);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            Timer timer = stageTimers.get(stage);
+            stats.put(stage.tag, Map.of(
+                    "count", timer.count(),
+                    "meanMs", timer.mean(TimeUnit.MILLISECONDS),
+                    "maxMs", timer.max(TimeUnit.MILLISECONDS)));
+        }
+        stats.put("lag", Map.of(
+                "count", lag.count(),
+                "meanMs", lag.mean(TimeUnit.MILLISECONDS),
+                "maxMs", lag.max(TimeUnit.MILLISECONDS)));
+        return stats;
+    }
+}
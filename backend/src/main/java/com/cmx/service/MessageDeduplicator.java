@@ -0,0 +1,200 @@
+package com.cmx.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Idempotency guard for QStash deliveries, keyed on the {@code Upstash-Message-Id} header.
+ *
+ * QStash redelivers a message after a timeout or a non-2xx response, with the same message id.
+ * Ids are remembered in a bounded, time-expiring Caffeine cache so a redelivery can be acknowledged
+ * without repeating the database write, broadcast and history append. With
+ * {@code qstash.dedup.persistent=true} ids are also claimed in {@code processed_webhook_message},
+ * whose primary key makes the check hold across nodes. A persisted claim is PENDING, leased for
+ * {@code qstash.dedup.lease-seconds}, until {@link #complete} marks it DONE; only DONE rows are
+ * duplicates. A live claim of another node is {@link Outcome#IN_PROGRESS}, and an expired one (the
+ * node died before settling the message) is taken over by the next delivery, so a crash costs a
+ * retry instead of the message.
+ *
+ * A message that is still being processed when its redelivery arrives is reported as
+ * {@link Outcome#IN_PROGRESS} so the caller can ask QStash to retry later instead of acknowledging it;
+ * a message whose processing failed is {@link #release released} so the next delivery runs again.
+ */
+@Service
+public class MessageDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageDeduplicator.class);
+
+    public enum Outcome { NEW, DUPLICATE, IN_PROGRESS }
+
+    private enum State { IN_PROGRESS, DONE }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<String, State> seen;
+    private final Duration window;
+    private final boolean persistent;
+    private final Duration lease;
+    private final Counter duplicates;
+    private final Counter inProgress;
+
+    public MessageDeduplicator(JdbcTemplate jdbcTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${qstash.dedup.window-minutes:1440}") long windowMinutes,
+                               @Value("${qstash.dedup.max-entries:100000}") long maxEntries,
+                               @Value("${qstash.dedup.persistent:false}") boolean persistent,
+                               @Value("${qstash.dedup.lease-seconds:300}") long leaseSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.window = Duration.ofMinutes(windowMinutes);
+        this.persistent = persistent;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.seen = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(window)
+                .build();
+        this.duplicates = Counter.builder("qstash.messages.deduplicated")
+                .description("Redelivered QStash messages acknowledged without reprocessing")
+                .register(meterRegistry);
+        this.inProgress = Counter.builder("qstash.messages.redelivered.in_progress")
+                .description("Redeliveries that arrived while the original was still being processed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claim a message id for processing. Messages without an id are always {@link Outcome#NEW}.
+     */
+    public Outcome tryAcquire(String messageId) {
+        if (messageId == null || messageId.isBlank()) {
+            return Outcome.NEW;
+        }
+
+        State existing = seen.asMap().putIfAbsent(messageId, State.IN_PROGRESS);
+        if (existing == State.DONE) {
+            duplicates.increment();
+            return Outcome.DUPLICATE;
+        }
+        if (existing == State.IN_PROGRESS) {
+            inProgress.increment();
+            return Outcome.IN_PROGRESS;
+        }
+
+        Outcome claimed = persistent ? claimInDatabase(messageId) : Outcome.NEW;
+        if (claimed == Outcome.DUPLICATE) {
+            // Processed by another node
+            seen.put(messageId, State.DONE);
+            duplicates.increment();
+        } else if (claimed == Outcome.IN_PROGRESS) {
+            // Another node holds a live claim; it may still fail, so remember nothing locally
+            seen.asMap().remove(messageId, State.IN_PROGRESS);
+            inProgress.increment();
+        }
+        return claimed;
+    }
+
+    /**
+     * Mark a claimed message as processed; later deliveries are acknowledged as duplicates.
+     */
+    public void complete(String messageId) {
+        if (messageId == null || messageId.isBlank()) {
+            return;
+        }
+        seen.put(messageId, State.DONE);
+        if (persistent) {
+            try {
+                jdbcTemplate.update("UPDATE processed_webhook_message SET state = 'DONE' WHERE message_id = ?", messageId);
+            } catch (DataAccessException e) {
+                // The claim then expires and a redelivery is processed again, which is the safe side
+                logger.warn("Could not mark QStash message {} processed: {}", messageId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Forget a claimed message after a failure so its redelivery is processed again.
+     */
+    public void release(String messageId) {
+        if (messageId == null || messageId.isBlank()) {
+            return;
+        }
+        seen.invalidate(messageId);
+        if (persistent) {
+            try {
+                jdbcTemplate.update("DELETE FROM processed_webhook_message WHERE message_id = ?", messageId);
+            } catch (DataAccessException e) {
+                logger.warn("Could not release QStash message {}: {}", messageId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Insert a PENDING claim, or take over an expired one; otherwise report the existing row's state.
+     */
+    private Outcome claimInDatabase(String messageId) {
+        try {
+            Timestamp now = Timestamp.from(Instant.now());
+            if (jdbcTemplate.update(
+                    "INSERT INTO processed_webhook_message (message_id, received_at, state, claimed_at) " +
+                    "VALUES (?, ?, 'PENDING', ?) ON CONFLICT DO NOTHING",
+                    messageId, now, now) > 0) {
+                return Outcome.NEW;
+            }
+            if (jdbcTemplate.update(
+                    "UPDATE processed_webhook_message SET claimed_at = ? " +
+                    "WHERE message_id = ? AND state = 'PENDING' AND claimed_at < ?",
+                    now, messageId, Timestamp.from(now.toInstant().minus(lease))) > 0) {
+                logger.info("Taking over expired claim of QStash message {}", messageId);
+                return Outcome.NEW;
+            }
+            List<String> state = jdbcTemplate.queryForList(
+                    "SELECT state FROM processed_webhook_message WHERE message_id = ?", String.class, messageId);
+            // A row released between the statements is reported in progress; the retry claims it
+            return state.size() == 1 && State.DONE.name().equals(state.get(0)) ? Outcome.DUPLICATE : Outcome.IN_PROGRESS;
+        } catch (DataAccessException e) {
+            // Fall back to the local guard rather than rejecting the delivery
+            logger.warn("Could not record QStash message {}, deduplicating locally only: {}", messageId, e.getMessage());
+            return Outcome.NEW;
+        }
+    }
+
+    /**
+     * Purge persisted ids older than the dedup window.
+     */
+    @Scheduled(fixedDelayString = "${qstash.dedup.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        if (!persistent) {
+            return;
+        }
+        try {
+            int deleted = jdbcTemplate.update("DELETE FROM processed_webhook_message WHERE received_at < ?",
+                    Timestamp.from(Instant.now().minus(window)));
+            if (deleted > 0) {
+                logger.info("Purged {} processed QStash message ids", deleted);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Failed to purge processed QStash message ids: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "trackedIds", seen.estimatedSize(),
+                "duplicatesSkipped", (long) duplicates.count(),
+                "redeliveriesWhileInProgress", (long) inProgress.count(),
+                "persistent", persistent
+        );
+    }
+}
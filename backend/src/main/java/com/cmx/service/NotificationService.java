@@ -1,5 +1,9 @@
 package com.cmx.service;
 
+import com.cmx.dto.AvailabilityDto.ImportResult;
+import com.cmx.dto.AvailabilityDto.ImportedSurveyor;
+import com.cmx.dto.AvailabilityDto.UpsertResult;
+import com.cmx.dto.AvailabilityDto.UpsertedBlock;
 import com.cmx.dto.NotificationDto.NotificationStatus;
 import com.cmx.dto.NotificationDto.TestNotificationResult;
 import com.cmx.dto.SurveyorDto.SurveyorContact;
@@ -38,10 +42,12 @@ import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class NotificationService {
@@ -54,6 +60,13 @@ public class NotificationService {
     // Expo Push API configuration
     private static final String EXPO_PUSH_API_URL = "https://exp.host/--/api/v2/push/send";
     private static final String EXPO_TOKEN_PREFIX = "ExponentPushToken[";
+
+    /**
+     * What came of a push to one surveyor: at least one device accepted it, the surveyor has no
+     * registered devices, or every device failed.
+     */
+    public enum PushOutcome { DELIVERED, NO_TOKENS, UNDELIVERED }
+
     private final HttpClient httpClient = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(10))
             .build();
@@ -65,6 +78,7 @@ public class NotificationService {
     private final EmailService emailService;
     private final SmsService smsService;
     private final NotificationAuditService auditService;
+    private final SurveyorDirectory surveyorDirectory;
     private boolean firebaseInitialized = false;
 
     @Value("${firebase.credentials.path:}")
@@ -78,13 +92,15 @@ public class NotificationService {
                                NotificationLogRepository notificationLogRepository,
                                EmailService emailService,
                                SmsService smsService,
-                               NotificationAuditService auditService) {
+                               NotificationAuditService auditService,
+                               SurveyorDirectory surveyorDirectory) {
         this.surveyorRepository = surveyorRepository;
         this.deviceTokenRepository = deviceTokenRepository;
         this.notificationLogRepository = notificationLogRepository;
         this.emailService = emailService;
         this.smsService = smsService;
         this.auditService = auditService;
+        this.surveyorDirectory = surveyorDirectory;
     }
 
     @PostConstruct
@@ -206,6 +222,94 @@ public class NotificationService {
         }
     }
 
+    /**
+     * One notification for an availability upsert batch. A single-block batch is announced exactly
+     * like a single appointment; larger batches get one summary push, email and SMS instead of one
+     * per block, dated by the earliest block.
+     */
+    @Async
+    public void sendScheduleBatchNotification(UpsertResult result) {
+        List<UpsertedBlock> blocks = result.blocks();
+        if (blocks.isEmpty()) {
+            return;
+        }
+        if (blocks.size() == 1) {
+            UpsertedBlock b = blocks.get(0);
+            sendAppointmentNotification(result.surveyorId(), b.state(), b.title(), b.description(), b.startTime(), b.endTime());
+            return;
+        }
+        Long surveyorId = result.surveyorId();
+        UpsertedBlock first = blocks.stream().min(Comparator.comparing(UpsertedBlock::startTime)).orElseThrow();
+        String summary = String.format("%d added, %d updated", result.insertedCount(), result.updatedCount());
+        log.info("========== NOTIFICATION: SCHEDULE UPDATED ==========");
+        log.info("Surveyor ID: {}, Blocks: {} ({})", surveyorId, blocks.size(), summary);
+
+        SurveyorContact contact = getSurveyorContact(surveyorId);
+        String title = blocks.size() + " appointments";
+        String pushBody = String.format("%s: %s, starting %s at %s",
+                title, summary, first.startTime().format(DATE_FORMAT), first.startTime().format(TIME_FORMAT));
+
+        Map<String, String> data = Map.of(
+                "type", "SCHEDULE_UPDATED",
+                "surveyorId", String.valueOf(surveyorId),
+                "appointmentIds", blocks.stream().map(b -> String.valueOf(b.id())).collect(Collectors.joining(",")),
+                "inserted", String.valueOf(result.insertedCount()),
+                "updated", String.valueOf(result.updatedCount()),
+                "startTime", first.startTime().toString()
+        );
+
+        sendNotificationToSurveyor(surveyorId, "Schedule Updated", pushBody, data);
+
+        if (contact.hasEmail()) {
+            emailService.sendAppointmentCreatedEmail(surveyorId, contact.email(), contact.name(),
+                    title, summary, first.startTime(), first.endTime());
+        }
+
+        if (contact.hasPhone()) {
+            smsService.sendAppointmentCreatedSms(surveyorId, contact.phone(), contact.name(),
+                    title, first.startTime(), first.endTime());
+        }
+    }
+
+    /**
+     * One summary push/email/SMS per surveyor whose calendar a bulk import changed.
+     */
+    @Async
+    public void sendImportSummaryNotifications(ImportResult result) {
+        for (ImportedSurveyor s : result.surveyors()) {
+            int blocks = s.inserted() + s.updated();
+            String summary = String.format("%d added, %d updated", s.inserted(), s.updated());
+            log.info("========== NOTIFICATION: SCHEDULE IMPORTED ==========");
+            log.info("Surveyor ID: {}, Blocks: {} ({})", s.surveyorId(), blocks, summary);
+
+            SurveyorContact contact = getSurveyorContact(s.surveyorId());
+            String title = blocks + " appointments imported";
+            String pushBody = String.format("%s: %s, from %s to %s", title, summary,
+                    s.firstStart().format(DATE_FORMAT), s.lastEnd().format(DATE_FORMAT));
+
+            Map<String, String> data = Map.of(
+                    "type", "SCHEDULE_IMPORTED",
+                    "surveyorId", String.valueOf(s.surveyorId()),
+                    "inserted", String.valueOf(s.inserted()),
+                    "updated", String.valueOf(s.updated()),
+                    "startTime", s.firstStart().toString(),
+                    "endTime", s.lastEnd().toString()
+            );
+
+            sendNotificationToSurveyor(s.surveyorId(), "Schedule Updated", pushBody, data);
+
+            if (contact.hasEmail()) {
+                emailService.sendAppointmentCreatedEmail(s.surveyorId(), contact.email(), contact.name(),
+                        title, summary, s.firstStart(), s.lastEnd());
+            }
+
+            if (contact.hasPhone()) {
+                smsService.sendAppointmentCreatedSms(s.surveyorId(), contact.phone(), contact.name(),
+                        title, s.firstStart(), s.lastEnd());
+            }
+        }
+    }
+
     @Async
     public void sendAppointmentUpdateNotification(Long surveyorId, Long appointmentId, String appointmentTitle,
                                                    String appointmentDescription, OffsetDateTime startTime,
@@ -314,13 +418,13 @@ public class NotificationService {
         }
     }
 
-    public void sendNotificationToSurveyor(Long surveyorId, String title, String body, Map<String, String> data) {
+    public PushOutcome sendNotificationToSurveyor(Long surveyorId, String title, String body, Map<String, String> data) {
         List<String> tokens = deviceTokenRepository.findTokensBySurveyorId(surveyorId);
 
         if (tokens.isEmpty()) {
             log.info("No device tokens found for surveyor {}", surveyorId);
             auditService.logPushNotification(surveyorId, title, body, data, "NO_TOKENS", "No device tokens registered", null, null);
-            return;
+            return PushOutcome.NO_TOKENS;
         }
 
         // Separate Expo tokens from FCM tokens
@@ -337,9 +441,11 @@ public class NotificationService {
 
         log.info("Sending notifications to surveyor {}: {} Expo tokens, {} FCM tokens", surveyorId, expoTokens.size(), fcmTokens.size());
 
+        int delivered = 0;
+
         // Send to Expo tokens via Expo Push API
         if (!expoTokens.isEmpty()) {
-            sendViaExpoPushApi(surveyorId, title, body, data, expoTokens);
+            delivered += sendViaExpoPushApi(surveyorId, title, body, data, expoTokens);
         }
 
         // Send to FCM tokens via Firebase
@@ -356,6 +462,7 @@ public class NotificationService {
                         String response = FirebaseMessaging.getInstance().send(message);
                         log.info("FCM notification sent successfully to surveyor {}: {}", surveyorId, response);
                         auditService.logPushNotification(surveyorId, title, body, data, "SENT", null, token, response);
+                        delivered++;
                     } catch (FirebaseMessagingException e) {
                         log.error("Failed to send FCM notification to surveyor {}: {}", surveyorId, e.getMessage());
                         auditService.logPushNotification(surveyorId, title, body, data, "FAILED", e.getMessage(), token, null);
@@ -368,13 +475,18 @@ public class NotificationService {
                 }
             }
         }
+        return delivered > 0 ? PushOutcome.DELIVERED : PushOutcome.UNDELIVERED;
     }
 
     private boolean isExpoToken(String token) {
         return token != null && token.startsWith(EXPO_TOKEN_PREFIX);
     }
 
-    private void sendViaExpoPushApi(Long surveyorId, String title, String body, Map<String, String> data, List<String> expoTokens) {
+    /**
+     * @return the number of tokens Expo accepted the message for
+     */
+    private int sendViaExpoPushApi(Long surveyorId, String title, String body, Map<String, String> data, List<String> expoTokens) {
+        int accepted = 0;
         try {
             // Build the request payload for Expo Push API
             List<Map<String, Object>> messages = new ArrayList<>();
@@ -427,6 +539,7 @@ public class NotificationService {
                         if ("ok".equals(status)) {
                             log.info("Expo notification sent successfully to token {}..., ticket: {}", token.substring(0, Math.min(30, token.length())), ticketId);
                             auditService.logPushNotification(surveyorId, title, body, data, "SENT", null, token, ticketId);
+                            accepted++;
                         } else {
                             String errorMessage = (String) ticket.get("message");
                             Map<String, Object> details = (Map<String, Object>) ticket.get("details");
@@ -455,6 +568,7 @@ public class NotificationService {
                 auditService.logPushNotification(surveyorId, title, body, data, "FAILED", e.getMessage(), token, null);
             }
         }
+        return accepted;
     }
 
     public TestNotificationResult sendTestNotification(Long surveyorId, String title, String message) {
@@ -584,9 +698,7 @@ public class NotificationService {
     }
 
     private SurveyorContact getSurveyorContact(Long surveyorId) {
-        return surveyorRepository.findById(surveyorId)
-                .map(s -> new SurveyorContact(s.getId(), s.getDisplayName(), s.getEmail(), s.getPhone()))
-                .orElse(new SurveyorContact(surveyorId, "Surveyor " + surveyorId, null, null));
+        return surveyorDirectory.getContact(surveyorId);
     }
 
     private static String titleOrState(String title, String state) {
@@ -0,0 +1,199 @@
+package com.cmx.service;
+
+import com.cmx.schedule.HashedTimingWheel;
+import com.cmx.service.EventHubService.Topic;
+import com.cmx.service.OfferNotifier.Candidate;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Expires offer groups when their open wave runs out, without polling {@code dispatch_offer}.
+ *
+ * Every group with PENDING offers has one timeout in a {@link HashedTimingWheel}, set when the
+ * group (or its next wave) is created and rebuilt from the table on startup. When it fires, one
+ * UPDATE expires the group's PENDING offers and, if later waves are QUEUED, promotes the next one to
+ * PENDING with a fresh expiry; the promoted candidates are then pushed and the group rescheduled.
+ * An accepted group has nothing left to move, so a late or stale timeout is a no-op. A failed
+ * expiry is rescheduled a few seconds later rather than dropped.
+ */
+@Component
+public class OfferExpiryScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfferExpiryScheduler.class);
+
+    // A failed expiry is tried again after this long, so the group cannot stay open until a restart
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    /*
+     * Locks a group's offer rows in id order. Accepts and expiry take it before writing the group,
+     * so they cannot deadlock on each other and the statement that follows reads the rows as left
+     * by whichever went first.
+     */
+    static final String LOCK_GROUP = "SELECT id FROM dispatch_offer WHERE offer_group = ? ORDER BY id FOR UPDATE";
+
+    /*
+     * PENDING offers past their expiry become EXPIRED; the lowest QUEUED wave becomes PENDING for its
+     * ttl_seconds, but only once no PENDING offer of the group is still open. Offers an accept already
+     * moved are not PENDING or QUEUED, so they are left alone. Parameters: now x2, group, now, group x2, now.
+     */
+    private static final String EXPIRE_AND_ADVANCE = """
+            UPDATE dispatch_offer
+            SET status = CASE WHEN status = 'PENDING' THEN 'EXPIRED' ELSE 'PENDING' END,
+                expires_at = CASE WHEN status = 'QUEUED'
+                                  THEN CAST(? AS TIMESTAMP) + COALESCE(ttl_seconds, 0) * INTERVAL '1' SECOND
+                                  ELSE expires_at END,
+                created_at = CASE WHEN status = 'QUEUED' THEN CAST(? AS TIMESTAMP) ELSE created_at END
+            WHERE offer_group = ?
+              AND ((status = 'PENDING' AND expires_at <= ?)
+                   OR (status = 'QUEUED'
+                       AND wave = (SELECT MIN(q.wave) FROM dispatch_offer q WHERE q.offer_group = ? AND q.status = 'QUEUED')
+                       AND NOT EXISTS (SELECT 1 FROM dispatch_offer p WHERE p.offer_group = ? AND p.status = 'PENDING' AND p.expires_at > ?)))
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final OfferNotifier offerNotifier;
+    private final EventHubService eventHub;
+    private final HashedTimingWheel<UUID> wheel;
+    private final Map<UUID, HashedTimingWheel<UUID>.Timeout> timeouts = new ConcurrentHashMap<>();
+    private final ExecutorService expiryWorker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "offer-expiry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public OfferExpiryScheduler(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+                                OfferNotifier offerNotifier, EventHubService eventHub,
+                                @Value("${dispatch.offer.expiry-tick-ms:100}") long tickMillis,
+                                @Value("${dispatch.offer.expiry-wheel-size:512}") int wheelSize) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.offerNotifier = offerNotifier;
+        this.eventHub = eventHub;
+        this.wheel = new HashedTimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis(),
+                group -> expiryWorker.execute(() -> expire(group)));
+    }
+
+    /**
+     * Schedule every group that still has open offers, including ones that expired while the
+     * application was down (those fire on the first tick).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rehydrate() {
+        int[] groups = {0};
+        jdbc.query("SELECT offer_group, MIN(expires_at) AS expires_at FROM dispatch_offer WHERE status = 'PENDING' GROUP BY offer_group",
+                rs -> {
+                    schedule(UUID.fromString(rs.getString("offer_group")), rs.getTimestamp("expires_at").toInstant());
+                    groups[0]++;
+                });
+        wheel.start("offer-expiry-wheel");
+        logger.info("Offer expiry wheel started with {} open offer groups", groups[0]);
+    }
+
+    /**
+     * Expire the group's open wave at {@code expiresAt}, replacing any earlier timeout for it.
+     */
+    public void schedule(UUID offerGroup, Instant expiresAt) {
+        HashedTimingWheel<UUID>.Timeout previous = timeouts.put(offerGroup, wheel.schedule(offerGroup, expiresAt.toEpochMilli()));
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    /**
+     * The group was settled (accepted); drop its timeout.
+     */
+    public void cancel(UUID offerGroup) {
+        HashedTimingWheel<UUID>.Timeout timeout = timeouts.remove(offerGroup);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of("openGroups", timeouts.size(), "pendingTimeouts", wheel.pending());
+    }
+
+    void expire(UUID offerGroup) {
+        timeouts.computeIfPresent(offerGroup, (group, timeout) -> timeout.isExpired() ? null : timeout);
+        try {
+            Timestamp now = Timestamp.from(Instant.now());
+            Integer moved = tx.execute(status -> {
+                jdbc.query(LOCK_GROUP, rs -> { }, offerGroup);
+                return jdbc.update(EXPIRE_AND_ADVANCE, now, now, offerGroup, now, offerGroup, offerGroup, now);
+            });
+            if (moved == null || moved == 0) {
+                // A retry may find the wave already moved by the failed attempt; keep it scheduled
+                if (!timeouts.containsKey(offerGroup)) {
+                    scheduleOpenWave(offerGroup);
+                }
+                return;
+            }
+
+            List<Candidate> wave = new ArrayList<>();
+            String[] fnolId = {null};
+            Instant[] expiresAt = {null};
+            jdbc.query("SELECT id, surveyor_id, fnol_id, expires_at FROM dispatch_offer WHERE offer_group = ? AND status = 'PENDING' ORDER BY id",
+                    rs -> {
+                        wave.add(new Candidate(rs.getLong("surveyor_id"), rs.getLong("id")));
+                        fnolId[0] = rs.getString("fnol_id");
+                        Instant expires = rs.getTimestamp("expires_at").toInstant();
+                        expiresAt[0] = expiresAt[0] == null || expires.isBefore(expiresAt[0]) ? expires : expiresAt[0];
+                    },
+                    offerGroup);
+
+            if (wave.isEmpty()) {
+                logger.info("Offer group {} expired without an accept", offerGroup);
+                eventHub.publish(Topic.OFFERS, "offer-expired", Map.of("offerGroup", offerGroup.toString()));
+                return;
+            }
+            schedule(offerGroup, expiresAt[0]);
+            offerNotifier.notifyCandidates(offerGroup.toString(), fnolId[0], wave, expiresAt[0], System.nanoTime());
+            logger.info("Offer group {} expired; next wave of {} candidates open until {}", offerGroup, wave.size(), expiresAt[0]);
+            eventHub.publish(Topic.OFFERS, "offer-wave", Map.of(
+                    "offerGroup", offerGroup.toString(),
+                    "fnolId", fnolId[0],
+                    "candidateSurveyorIds", wave.stream().map(Candidate::surveyorId).toList(),
+                    "expiresAt", expiresAt[0].toString()
+            ));
+        } catch (RuntimeException e) {
+            logger.error("Failed to expire offer group {}, retrying in {}s: {}", offerGroup, RETRY_DELAY.toSeconds(),
+                    e.getMessage(), e);
+            schedule(offerGroup, Instant.now().plus(RETRY_DELAY));
+        }
+    }
+
+    private void scheduleOpenWave(UUID offerGroup) {
+        Timestamp expiresAt = jdbc.queryForObject(
+                "SELECT MIN(expires_at) FROM dispatch_offer WHERE offer_group = ? AND status = 'PENDING'",
+                Timestamp.class, offerGroup);
+        if (expiresAt != null) {
+            schedule(offerGroup, expiresAt.toInstant());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        wheel.stop();
+        expiryWorker.shutdownNow();
+    }
+}
@@ -0,0 +1,154 @@
+package com.cmx.service;
+
+import com.cmx.service.NotificationService.PushOutcome;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes a new offer group to all of its candidates at once.
+ *
+ * Each candidate's push runs on its own worker, so one slow device or provider does not hold back
+ * the others; the first surveyor to see the offer usually takes it. Pushes are only useful while the
+ * offer is open, so every send is bounded by the offer's expiry: a push still queued at expiry is
+ * dropped, and one still running is no longer waited for. A push that finishes after it was cut off
+ * keeps its expired outcome; each push is counted once.
+ *
+ * {@code dispatch.offer.first_notification} times offer creation to the first push of the group that
+ * reached a device; {@code dispatch.offer.notifications} counts pushes by outcome (sent, no_tokens,
+ * failed, expired).
+ */
+@Component
+public class OfferNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfferNotifier.class);
+
+    /**
+     * One candidate of an offer group.
+     */
+    public record Candidate(Long surveyorId, Long offerId) {}
+
+    private final NotificationService notificationService;
+    private final ExecutorService workers;
+    private final Timer firstNotification;
+    private final Counter sent;
+    private final Counter noTokens;
+    private final Counter failed;
+    private final Counter expired;
+
+    public OfferNotifier(NotificationService notificationService, MeterRegistry meterRegistry,
+                         @Value("${dispatch.offer.notify-threads:16}") int threads) {
+        this.notificationService = notificationService;
+        AtomicInteger n = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "offer-notify-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.firstNotification = Timer.builder("dispatch.offer.first_notification")
+                .description("Time from offer creation to the first candidate notified")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofMinutes(1))
+                .register(meterRegistry);
+        this.sent = outcome(meterRegistry, "sent");
+        this.noTokens = outcome(meterRegistry, "no_tokens");
+        this.failed = outcome(meterRegistry, "failed");
+        this.expired = outcome(meterRegistry, "expired");
+    }
+
+    /**
+     * Start pushing the offer to every candidate; returns once all pushes are scheduled.
+     *
+     * @param createdNanos {@link System#nanoTime()} when the offer group was created
+     * @return completes when every push finished or was cut off by the expiry
+     */
+    public CompletableFuture<Void> notifyCandidates(String offerGroup, String fnolId, List<Candidate> candidates,
+                                                    Instant expiresAt, long createdNanos) {
+        long deadlineNanos = System.nanoTime() + Math.max(0, Duration.between(Instant.now(), expiresAt).toNanos());
+        AtomicBoolean first = new AtomicBoolean();
+        List<CompletableFuture<Void>> pushes = new ArrayList<>(candidates.size());
+
+        for (Candidate c : candidates) {
+            Map<String, String> data = Map.of(
+                    "type", "JOB_OFFER",
+                    "offerGroup", offerGroup,
+                    "offerId", String.valueOf(c.offerId()),
+                    "fnolId", fnolId,
+                    "expiresAt", expiresAt.toString()
+            );
+            long remaining = deadlineNanos - System.nanoTime();
+            // The push and the timeout below race to record the outcome; whichever sets this first wins
+            AtomicBoolean settled = new AtomicBoolean();
+            CompletableFuture<Void> push = CompletableFuture.runAsync(() -> {
+                if (System.nanoTime() >= deadlineNanos) {
+                    if (settled.compareAndSet(false, true)) {
+                        expired.increment();
+                    }
+                    return;
+                }
+                try {
+                    PushOutcome outcome = notificationService.sendNotificationToSurveyor(c.surveyorId(),
+                            "New job offer", "Job " + fnolId + " is available. Accept before the offer expires.", data);
+                    if (!settled.compareAndSet(false, true)) {
+                        return;
+                    }
+                    switch (outcome) {
+                        case DELIVERED -> {
+                            sent.increment();
+                            if (first.compareAndSet(false, true)) {
+                                firstNotification.record(System.nanoTime() - createdNanos, TimeUnit.NANOSECONDS);
+                            }
+                        }
+                        case NO_TOKENS -> noTokens.increment();
+                        case UNDELIVERED -> failed.increment();
+                    }
+                } catch (RuntimeException e) {
+                    if (settled.compareAndSet(false, true)) {
+                        failed.increment();
+                    }
+                    logger.warn("Offer push to surveyor {} for group {} failed: {}", c.surveyorId(), offerGroup, e.getMessage());
+                }
+            }, workers).orTimeout(Math.max(remaining, 1), TimeUnit.NANOSECONDS).exceptionally(e -> {
+                if ((e instanceof TimeoutException || e.getCause() instanceof TimeoutException)
+                        && settled.compareAndSet(false, true)) {
+                    expired.increment();
+                    logger.info("Offer push to surveyor {} for group {} still running at expiry", c.surveyorId(), offerGroup);
+                }
+                return null;
+            });
+            pushes.add(push);
+        }
+        return CompletableFuture.allOf(pushes.toArray(new CompletableFuture[0]));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("dispatch.offer.notifications")
+                .description("Offer pushes by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,82 @@
+package com.cmx.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Monotonic version counters for polled read resources, used to answer conditional GETs.
+ *
+ * Write paths bump the versions of the resources they change; read endpoints derive a strong ETag
+ * from the version and return 304 on a matching {@code If-None-Match} before running any query.
+ * Inside a transaction the bump is repeated after commit, so a poll that lands between the write
+ * and the commit cannot pin the new ETag to the old data.
+ *
+ * ETags include a per-process boot id, so tags issued before a restart or by another node never
+ * match. Resources whose content also depends on the clock (e.g. "current" state) add a time bucket.
+ */
+@Component
+public class ResourceVersions {
+
+    public static final String SURVEYORS = "surveyors";
+    public static final String AVAILABILITY = "availability";
+
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    public static String appointments(Long surveyorId) {
+        return "appointments:" + surveyorId;
+    }
+
+    public static String unread(Long userId, String userType) {
+        return "unread:" + userType + ":" + userId;
+    }
+
+    /**
+     * Advance the given resources' versions now and, inside a transaction, again after commit.
+     */
+    public void bump(String... resources) {
+        List<String> changed = List.of(resources);
+        changed.forEach(this::increment);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changed.forEach(ResourceVersions.this::increment);
+                }
+            });
+        }
+    }
+
+    public long version(String resource) {
+        return versions.getOrDefault(resource, 0L);
+    }
+
+    /**
+     * Strong ETag for a resource.
+     *
+     * @param timeBucket     width of the clock bucket folded into the tag, or null if the content
+     *                       does not depend on the current time
+     * @param discriminators request parameters that select a different representation
+     */
+    public String etag(String resource, Duration timeBucket, Object... discriminators) {
+        StringBuilder tag = new StringBuilder("\"").append(bootId).append('-').append(version(resource));
+        if (timeBucket != null) {
+            tag.append('-').append(Long.toString(System.currentTimeMillis() / timeBucket.toMillis(), 36));
+        }
+        if (discriminators.length > 0) {
+            tag.append('-').append(Integer.toHexString(Arrays.deepHashCode(discriminators)));
+        }
+        return tag.append('"').toString();
+    }
+
+    private void increment(String resource) {
+        versions.merge(resource, 1L, Long::sum);
+    }
+}
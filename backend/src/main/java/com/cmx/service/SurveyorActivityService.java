@@ -1,10 +1,8 @@
 package com.cmx.service;
 
-import com.cmx.model.Surveyor;
 import com.cmx.model.SurveyorActivityLog;
 import com.cmx.model.JobAssignment;
 import com.cmx.repository.SurveyorActivityLogRepository;
-import com.cmx.repository.SurveyorRepository;
 import com.cmx.repository.JobAssignmentRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,7 +21,8 @@ public class SurveyorActivityService {
     private static final Logger logger = LoggerFactory.getLogger(SurveyorActivityService.class);
 
     private final SurveyorActivityLogRepository activityLogRepository;
-    private final SurveyorRepository surveyorRepository;
+    private final SurveyorDirectory surveyorDirectory;
+    private final LocationIngestService locationIngestService;
     private final JobAssignmentRepository jobAssignmentRepository;
     private final SseService sseService;
 
@@ -32,11 +31,13 @@ public class SurveyorActivityService {
 
     public SurveyorActivityService(
             SurveyorActivityLogRepository activityLogRepository,
-            SurveyorRepository surveyorRepository,
+            SurveyorDirectory surveyorDirectory,
+            LocationIngestService locationIngestService,
             JobAssignmentRepository jobAssignmentRepository,
             SseService sseService) {
         this.activityLogRepository = activityLogRepository;
-        this.surveyorRepository = surveyorRepository;
+        this.surveyorDirectory = surveyorDirectory;
+        this.locationIngestService = locationIngestService;
         this.jobAssignmentRepository = jobAssignmentRepository;
         this.sseService = sseService;
     }
@@ -155,10 +156,11 @@ public class SurveyorActivityService {
     private void enrichActivityLogs(List<SurveyorActivityLog> logs) {
         for (SurveyorActivityLog log : logs) {
             // Get surveyor details
-            surveyorRepository.findById(log.getSurveyorId()).ifPresent(surveyor -> {
-                log.setSurveyorName(surveyor.getDisplayName());
-                log.setSurveyorCode(surveyor.getCode());
-            });
+            SurveyorDirectory.Entry surveyor = surveyorDirectory.find(log.getSurveyorId());
+            if (surveyor != null) {
+                log.setSurveyorName(surveyor.displayName());
+                log.setSurveyorCode(surveyor.code());
+            }
 
             // Get job/appointment details if applicable
             if (log.getAppointmentId() != null) {
@@ -175,7 +177,7 @@ public class SurveyorActivityService {
     @Async
     public void notifyDispatcher(Long surveyorId, String activityType, String newValue, Long appointmentId) {
         try {
-            Surveyor surveyor = surveyorRepository.findById(surveyorId).orElse(null);
+            SurveyorDirectory.Entry surveyor = surveyorDirectory.find(surveyorId);
             if (surveyor == null) {
                 logger.warn("Could not find surveyor {} for dispatcher notification", surveyorId);
                 return;
@@ -184,15 +186,16 @@ public class SurveyorActivityService {
             Map<String, Object> eventData = new HashMap<>();
             eventData.put("type", "SURVEYOR_ACTIVITY");
             eventData.put("surveyorId", surveyorId);
-            eventData.put("surveyorName", surveyor.getDisplayName());
-            eventData.put("surveyorCode", surveyor.getCode());
+            eventData.put("surveyorName", surveyor.displayName());
+            eventData.put("surveyorCode", surveyor.code());
             eventData.put("activityType", activityType);
             eventData.put("newValue", newValue);
             eventData.put("timestamp", Instant.now().toString());
 
-            if (surveyor.getCurrentLat() != null && surveyor.getCurrentLng() != null) {
-                eventData.put("latitude", surveyor.getCurrentLat());
-                eventData.put("longitude", surveyor.getCurrentLng());
+            LocationIngestService.Position position = locationIngestService.getLastKnown(surveyorId);
+            if (position != null) {
+                eventData.put("latitude", position.lat());
+                eventData.put("longitude", position.lng());
             }
 
             if (appointmentId != null) {
@@ -203,7 +206,7 @@ public class SurveyorActivityService {
             }
 
             // Build message based on activity type
-            String message = buildActivityMessage(surveyor.getDisplayName(), activityType, newValue);
+            String message = buildActivityMessage(surveyor.displayName(), activityType, newValue);
             eventData.put("message", message);
 
             // Send SSE to all connected dispatchers
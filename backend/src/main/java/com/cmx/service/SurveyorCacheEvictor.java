@@ -0,0 +1,113 @@
+package com.cmx.service;
+
+import com.cmx.config.CacheConfig;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+
+/**
+ * Targeted eviction of per-surveyor cache entries.
+ *
+ * Surveyor details and appointment lists are cached per surveyor, so a write only drops the
+ * affected surveyor's entries instead of flushing the fleet. The surveyor list cache holds one
+ * entry per filter combination, each spanning every surveyor, so it is cleared on calendar changes.
+ *
+ * Calendar blocks are cached per surveyor-day in the {@link CalendarDayCache}; writes that know the
+ * time range they touched drop only those days.
+ *
+ * Inside a transaction entries are evicted again after commit, so a read that raced the write
+ * cannot leave a pre-commit value behind. The matching {@link ResourceVersions} are advanced as
+ * well, so ETags change together with the cached data.
+ */
+@Component
+public class SurveyorCacheEvictor {
+
+    private final CacheManager cacheManager;
+    private final CalendarDayCache dayCache;
+    private final ResourceVersions resourceVersions;
+
+    public SurveyorCacheEvictor(CacheManager cacheManager, CalendarDayCache dayCache, ResourceVersions resourceVersions) {
+        this.cacheManager = cacheManager;
+        this.dayCache = dayCache;
+        this.resourceVersions = resourceVersions;
+    }
+
+    /**
+     * Key for a surveyor's cached appointment list.
+     */
+    public static String appointmentsKey(Long surveyorId, boolean upcomingOnly) {
+        return surveyorId + ":" + upcomingOnly;
+    }
+
+    /**
+     * A surveyor's calendar changed: drop their details, appointments and the fleet list.
+     */
+    public void calendarChanged(Long surveyorId) {
+        if (surveyorId == null) {
+            return;
+        }
+        runNowAndAfterCommit(() -> {
+            evict(CacheConfig.SURVEYOR_DETAILS_CACHE, surveyorId);
+            evict(CacheConfig.APPOINTMENTS_CACHE, appointmentsKey(surveyorId, true));
+            evict(CacheConfig.APPOINTMENTS_CACHE, appointmentsKey(surveyorId, false));
+            Cache surveyors = cacheManager.getCache(CacheConfig.SURVEYORS_CACHE);
+            if (surveyors != null) {
+                surveyors.clear();
+            }
+        });
+        resourceVersions.bump(ResourceVersions.SURVEYORS, ResourceVersions.AVAILABILITY,
+                ResourceVersions.appointments(surveyorId));
+    }
+
+    /**
+     * A surveyor's block in [start, end) was written: drop those days and everything
+     * {@link #calendarChanged(Long)} drops.
+     */
+    public void calendarChanged(Long surveyorId, Instant start, Instant end) {
+        daysChanged(surveyorId, start, end);
+        calendarChanged(surveyorId);
+    }
+
+    /**
+     * Drop only the surveyor's cached days touched by [start, end); for writes that call
+     * {@link #calendarChanged(Long)} once for a batch.
+     */
+    public void daysChanged(Long surveyorId, Instant start, Instant end) {
+        if (surveyorId != null && start != null && end != null) {
+            runNowAndAfterCommit(() -> dayCache.invalidate(surveyorId, start, end));
+        }
+    }
+
+    /**
+     * A surveyor's live status or position was written: drop only their details.
+     */
+    public void detailsChanged(Long surveyorId) {
+        if (surveyorId != null) {
+            runNowAndAfterCommit(() -> evict(CacheConfig.SURVEYOR_DETAILS_CACHE, surveyorId));
+            resourceVersions.bump(ResourceVersions.SURVEYORS);
+        }
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    private static void runNowAndAfterCommit(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
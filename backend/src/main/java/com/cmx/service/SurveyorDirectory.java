@@ -0,0 +1,130 @@
+package com.cmx.service;
+
+import com.cmx.dto.SurveyorDto.SurveyorContact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory directory of surveyor identity and contact details.
+ *
+ * Hot paths (location ingestion, dispatcher notifications, push/SMS/email contact lookup, chat
+ * party names) read from an immutable snapshot instead of loading the surveyor row each time.
+ * The snapshot is rebuilt with a single query and swapped atomically, so readers always see a
+ * consistent version without locking. It is loaded on first use, refreshed on a schedule to pick
+ * up rows changed outside the application, and refreshed early when an unknown id is looked up.
+ *
+ * Only slowly changing columns are held here; live position and status come from
+ * {@link LocationIngestService}.
+ */
+@Service
+public class SurveyorDirectory {
+
+    private static final Logger logger = LoggerFactory.getLogger(SurveyorDirectory.class);
+
+    // Minimum gap between refreshes triggered by lookups of unknown ids
+    private static final long MISS_REFRESH_INTERVAL_MS = 10_000;
+
+    public record Entry(
+            long id,
+            String displayName,
+            String code,
+            String surveyorType,
+            String email,
+            String phone
+    ) {
+        public SurveyorContact toContact() {
+            return new SurveyorContact(id, displayName, email, phone);
+        }
+    }
+
+    public record Snapshot(long version, Instant builtAt, Map<Long, Entry> entries) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Snapshot snapshot;
+
+    public SurveyorDirectory(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Current snapshot, loading it on first use.
+     */
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Look up a surveyor, or null if the id is unknown.
+     */
+    public Entry find(Long surveyorId) {
+        if (surveyorId == null) {
+            return null;
+        }
+        Snapshot current = snapshot();
+        Entry entry = current.entries().get(surveyorId);
+        if (entry == null && System.currentTimeMillis() - current.builtAt().toEpochMilli() > MISS_REFRESH_INTERVAL_MS) {
+            entry = refresh().entries().get(surveyorId);
+        }
+        return entry;
+    }
+
+    public String getDisplayName(Long surveyorId) {
+        Entry entry = find(surveyorId);
+        return entry != null ? entry.displayName() : null;
+    }
+
+    public SurveyorContact getContact(Long surveyorId) {
+        Entry entry = find(surveyorId);
+        return entry != null
+                ? entry.toContact()
+                : new SurveyorContact(surveyorId, "Surveyor " + surveyorId, null, null);
+    }
+
+    /**
+     * Rebuild the snapshot from the surveyor table. The version only advances when the content changed.
+     */
+    public synchronized Snapshot refresh() {
+        Map<Long, Entry> entries = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT id, display_name, code, surveyor_type, email, phone FROM surveyor",
+                rs -> {
+                    long id = rs.getLong("id");
+                    String name = rs.getString("display_name");
+                    entries.put(id, new Entry(id, name != null ? name : "", rs.getString("code"),
+                            rs.getString("surveyor_type"), rs.getString("email"), rs.getString("phone")));
+                });
+
+        Snapshot previous = snapshot;
+        Map<Long, Entry> frozen = Map.copyOf(entries);
+        long version = previous == null ? 1
+                : previous.entries().equals(frozen) ? previous.version() : previous.version() + 1;
+        Snapshot next = new Snapshot(version, Instant.now(),
+                previous != null && version == previous.version() ? previous.entries() : frozen);
+        snapshot = next;
+
+        if (previous == null || version != previous.version()) {
+            logger.info("Surveyor directory loaded: {} surveyors (version {})", frozen.size(), version);
+        }
+        return next;
+    }
+
+    @Scheduled(fixedDelayString = "${surveyor.directory.refresh-interval-ms:60000}",
+               initialDelayString = "${surveyor.directory.refresh-interval-ms:60000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (DataAccessException e) {
+            logger.warn("Surveyor directory refresh failed, keeping version {}: {}",
+                    snapshot != null ? snapshot.version() : 0, e.getMessage());
+        }
+    }
+}
@@ -1,15 +1,27 @@
 package com.cmx.service;
 
+import com.cmx.config.CacheConfig;
 import com.cmx.dto.SurveyorDto.SurveyorContact;
+import com.cmx.dto.SurveyorDto.SurveyorListItem;
 import com.cmx.exception.ResourceNotFoundException;
 import com.cmx.model.Surveyor;
 import com.cmx.repository.DeviceTokenRepository;
 import com.cmx.repository.SurveyorRepository;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -22,6 +34,9 @@ public class SurveyorService {
     private final DeviceTokenRepository deviceTokenRepository;
     private final AvailabilityService availabilityService;
     private final JdbcTemplate jdbcTemplate;
+    private final SurveyorDirectory surveyorDirectory;
+    private final SurveyorCacheEvictor cacheEvictor;
+    private final CacheManager cacheManager;
 
     private static final RowMapper<Surveyor> SURVEYOR_MAPPER = (rs, rowNum) -> {
         // Handle potentially null numeric values safely
@@ -54,56 +69,76 @@ public class SurveyorService {
         return s;
     };
 
+    // Reads list rows straight into the response record, without an intermediate entity or map
+    private static final RowMapper<SurveyorListItem> LIST_ITEM_MAPPER = (rs, rowNum) -> {
+        Timestamp lastUpdate = rs.getTimestamp("last_location_update");
+        return new SurveyorListItem(
+            rs.getLong("id"),
+            orEmpty(rs.getString("code")),
+            orEmpty(rs.getString("display_name")),
+            rs.getDouble("home_lat"),
+            rs.getDouble("home_lng"),
+            orEmpty(rs.getString("status")),
+            orEmpty(rs.getString("surveyor_type")),
+            orEmpty(rs.getString("email")),
+            orEmpty(rs.getString("phone")),
+            rs.getString("availability_state"),
+            nullableDouble(rs, "current_lat"),
+            nullableDouble(rs, "current_lng"),
+            lastUpdate != null ? OffsetDateTime.ofInstant(lastUpdate.toInstant(), ZoneId.systemDefault()) : null
+        );
+    };
+
     public SurveyorService(SurveyorRepository surveyorRepository,
                            DeviceTokenRepository deviceTokenRepository,
                            AvailabilityService availabilityService,
-                           JdbcTemplate jdbcTemplate) {
+                           JdbcTemplate jdbcTemplate,
+                           SurveyorDirectory surveyorDirectory,
+                           SurveyorCacheEvictor cacheEvictor,
+                           CacheManager cacheManager) {
         this.surveyorRepository = surveyorRepository;
         this.deviceTokenRepository = deviceTokenRepository;
         this.availabilityService = availabilityService;
         this.jdbcTemplate = jdbcTemplate;
+        this.surveyorDirectory = surveyorDirectory;
+        this.cacheEvictor = cacheEvictor;
+        this.cacheManager = cacheManager;
     }
 
-    public List<Map<String, Object>> listSurveyors(String type, String currentStatus) {
-        List<Surveyor> surveyors;
-
+    /**
+     * List surveyors with their current availability state.
+     *
+     * The state is resolved for the whole result set in the same statement (a correlated lookup
+     * per row on {@code ix_av_surveyor_time}, portable between PostgreSQL and H2), and the
+     * {@code currentStatus} filter is applied in SQL, so a page load is one query however many
+     * surveyors there are.
+     *
+     * Results are cached briefly per filter combination; positions on the list may lag by the cache
+     * TTL, live positions come from the location stream.
+     */
+    @Cacheable(value = CacheConfig.SURVEYORS_CACHE, key = "#type + ':' + #currentStatus")
+    public List<SurveyorListItem> listSurveyors(String type, String currentStatus) {
+        Timestamp now = Timestamp.from(Instant.now());
+        StringBuilder sql = new StringBuilder(
+                "SELECT * FROM (" +
+                "SELECT s.*, COALESCE((" +
+                "SELECT a.state FROM surveyor_availability a " +
+                "WHERE a.surveyor_id = s.id AND a.start_time <= ? AND a.end_time > ? " +
+                "ORDER BY a.start_time DESC LIMIT 1), 'AVAILABLE') AS availability_state " +
+                "FROM surveyor s");
+        List<Object> args = new ArrayList<>(List.of(now, now));
         if (hasFilter(type)) {
-            surveyors = jdbcTemplate.query(
-                    "SELECT * FROM surveyor WHERE surveyor_type = ? ORDER BY display_name",
-                    SURVEYOR_MAPPER,
-                    type.toUpperCase()
-            );
-        } else {
-            surveyors = jdbcTemplate.query(
-                    "SELECT * FROM surveyor ORDER BY display_name",
-                    SURVEYOR_MAPPER
-            );
+            sql.append(" WHERE s.surveyor_type = ?");
+            args.add(type.toUpperCase());
+        }
+        sql.append(") listed");
+        if (hasFilter(currentStatus)) {
+            sql.append(" WHERE listed.availability_state = ?");
+            args.add(currentStatus.toUpperCase());
         }
+        sql.append(" ORDER BY listed.display_name");
 
-        OffsetDateTime now = OffsetDateTime.now();
-
-        return surveyors.stream()
-                .map(s -> {
-                    String status = availabilityService.getCurrentState(s.getId(), now);
-                    java.util.HashMap<String, Object> map = new java.util.HashMap<>();
-                    map.put("id", s.getId());
-                    map.put("code", s.getCode() != null ? s.getCode() : "");
-                    map.put("display_name", s.getDisplayName() != null ? s.getDisplayName() : "");
-                    map.put("home_lat", s.getHomeLat() != null ? s.getHomeLat() : 0.0);
-                    map.put("home_lng", s.getHomeLng() != null ? s.getHomeLng() : 0.0);
-                    map.put("status", s.getStatus() != null ? s.getStatus() : "");
-                    map.put("surveyor_type", s.getSurveyorType() != null ? s.getSurveyorType() : "");
-                    map.put("email", s.getEmail() != null ? s.getEmail() : "");
-                    map.put("phone", s.getPhone() != null ? s.getPhone() : "");
-                    map.put("current_status", status != null ? status : "AVAILABLE");
-                    // Location tracking fields for real-time map view
-                    map.put("current_lat", s.getCurrentLat());
-                    map.put("current_lng", s.getCurrentLng());
-                    map.put("last_location_update", s.getLastLocationUpdate() != null ? s.getLastLocationUpdate().toString() : null);
-                    return (Map<String, Object>) map;
-                })
-                .filter(s -> !hasFilter(currentStatus) || currentStatus.equalsIgnoreCase((String) s.get("current_status")))
-                .toList();
+        return jdbcTemplate.query(sql.toString(), LIST_ITEM_MAPPER, args.toArray());
     }
 
     public Surveyor findById(Long id) {
@@ -112,9 +147,7 @@ public class SurveyorService {
     }
 
     public SurveyorContact getContact(Long surveyorId) {
-        return surveyorRepository.findById(surveyorId)
-                .map(s -> new SurveyorContact(s.getId(), s.getDisplayName(), s.getEmail(), s.getPhone()))
-                .orElse(new SurveyorContact(surveyorId, "Surveyor " + surveyorId, null, null));
+        return surveyorDirectory.getContact(surveyorId);
     }
 
     public List<Long> getAllSurveyorIds() {
@@ -141,19 +174,17 @@ public class SurveyorService {
         deviceTokenRepository.deleteByToken(token);
     }
 
-    private static boolean hasFilter(String value) {
-        return value != null && !value.isEmpty() && !ALL_FILTER.equalsIgnoreCase(value);
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
     }
 
-    /**
-     * Update surveyor's current location
-     */
-    public boolean updateLocation(Long surveyorId, Double lat, Double lng) {
-        int updated = jdbcTemplate.update(
-                "UPDATE surveyor SET current_lat = ?, current_lng = ?, last_location_update = CURRENT_TIMESTAMP WHERE id = ?",
-                lat, lng, surveyorId
-        );
-        return updated == 1;
+    private static Double nullableDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static boolean hasFilter(String value) {
+        return value != null && !value.isEmpty() && !ALL_FILTER.equalsIgnoreCase(value);
     }
 
     /**
@@ -164,29 +195,52 @@ public class SurveyorService {
                 "UPDATE surveyor SET current_status = ? WHERE id = ?",
                 status, surveyorId
         );
+        if (updated == 1) {
+            cacheEvictor.detailsChanged(surveyorId);
+        }
         return updated == 1;
     }
 
     /**
-     * Update both location and status
+     * Get a surveyor's display name from the in-memory directory, or null if the surveyor does not exist.
      */
-    public boolean updateLocationAndStatus(Long surveyorId, Double lat, Double lng, String status) {
-        int updated = jdbcTemplate.update(
-                "UPDATE surveyor SET current_lat = ?, current_lng = ?, current_status = ?, last_location_update = CURRENT_TIMESTAMP WHERE id = ?",
-                lat, lng, status, surveyorId
-        );
-        return updated == 1;
+    public String getDisplayName(Long surveyorId) {
+        return surveyorDirectory.getDisplayName(surveyorId);
     }
 
     /**
-     * Get surveyor details including current location and status
+     * Get surveyor details including current location and status.
+     *
+     * The surveyor row is cached per surveyor and evicted when that surveyor's status, position or
+     * calendar is written. Without a live status, {@code current_status} falls back to the calendar
+     * state, which changes when a block starts or ends without any write, so it is looked up on every
+     * read (from the in-memory availability index) rather than cached.
      */
     public Map<String, Object> getSurveyorDetails(Long surveyorId) {
-        Surveyor s = findById(surveyorId);
-        OffsetDateTime now = OffsetDateTime.now();
-        String currentAvailabilityStatus = availabilityService.getCurrentState(surveyorId, now);
+        Cache cache = cacheManager.getCache(CacheConfig.SURVEYOR_DETAILS_CACHE);
+        Map<String, Object> cached;
+        try {
+            cached = cache != null
+                    ? cache.get(surveyorId, () -> loadDetails(surveyorId))
+                    : loadDetails(surveyorId);
+        } catch (Cache.ValueRetrievalException e) {
+            // The cache wraps loader failures; unwrap so an unknown surveyor is still a 404
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        Map<String, Object> details = new HashMap<>(cached);
+        if (details.get("current_status") == null) {
+            details.put("current_status", availabilityService.getCurrentState(surveyorId, OffsetDateTime.now()));
+        }
+        return details;
+    }
 
-        java.util.HashMap<String, Object> details = new java.util.HashMap<>();
+    private Map<String, Object> loadDetails(Long surveyorId) {
+        Surveyor s = findById(surveyorId);
+        Map<String, Object> details = new HashMap<>();
         details.put("id", s.getId());
         details.put("code", s.getCode() != null ? s.getCode() : "");
         details.put("display_name", s.getDisplayName() != null ? s.getDisplayName() : "");
@@ -196,7 +250,7 @@ public class SurveyorService {
         details.put("surveyor_type", s.getSurveyorType() != null ? s.getSurveyorType() : "");
         details.put("email", s.getEmail() != null ? s.getEmail() : "");
         details.put("phone", s.getPhone() != null ? s.getPhone() : "");
-        details.put("current_status", s.getCurrentStatus() != null ? s.getCurrentStatus() : currentAvailabilityStatus);
+        details.put("current_status", s.getCurrentStatus());
         details.put("current_lat", s.getCurrentLat());
         details.put("current_lng", s.getCurrentLng());
         details.put("last_location_update", s.getLastLocationUpdate() != null ? s.getLastLocationUpdate().toString() : null);
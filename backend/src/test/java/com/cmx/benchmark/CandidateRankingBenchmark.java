@@ -0,0 +1,109 @@
+package com.cmx.benchmark;
+
+import com.cmx.location.GeoMath;
+import com.cmx.schedule.SurveyorSpatialIndex;
+import com.cmx.schedule.SurveyorSpatialIndex.Hit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * k-nearest candidate ranking over 10k surveyors spread across a Bangkok-sized region, with the
+ * type and open-job filters applied during the search, against a full haversine scan and sort.
+ * The grid query is expected to stay well under a millisecond.
+ *
+ * Not part of the test suite; run {@link #main} from the test classpath after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CandidateRankingBenchmark {
+
+    @Param({"10000"})
+    public int surveyors;
+
+    @Param({"10"})
+    public int k;
+
+    private long[] ids;
+    private double[] lats;
+    private double[] lngs;
+    private boolean[] internal;
+    private int[] openJobs;
+    private SurveyorSpatialIndex index;
+    private boolean[] indexedInternal;
+    private int[] indexedOpenJobs;
+    private double[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        ids = new long[surveyors];
+        lats = new double[surveyors];
+        lngs = new double[surveyors];
+        internal = new boolean[surveyors];
+        openJobs = new int[surveyors];
+        for (int i = 0; i < surveyors; i++) {
+            ids[i] = i + 1;
+            lats[i] = 13.4 + random.nextDouble() * 0.8;
+            lngs[i] = 100.2 + random.nextDouble() * 0.8;
+            internal[i] = random.nextBoolean();
+            openJobs[i] = random.nextInt(4);
+        }
+        index = new SurveyorSpatialIndex(ids, lats, lngs, 0.05);
+        // Filters are looked up by index position, as CandidateRanker does
+        indexedInternal = new boolean[surveyors];
+        indexedOpenJobs = new int[surveyors];
+        for (int i = 0; i < surveyors; i++) {
+            int from = (int) index.surveyorId(i) - 1;
+            indexedInternal[i] = internal[from];
+            indexedOpenJobs[i] = openJobs[from];
+        }
+        queries = new double[256][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new double[]{13.4 + random.nextDouble() * 0.8, 100.2 + random.nextDouble() * 0.8};
+        }
+    }
+
+    @Benchmark
+    public List<Hit> gridNearest() {
+        double[] q = queries[next++ & (queries.length - 1)];
+        return index.nearest(q[0], q[1], k, i -> indexedInternal[i] && indexedOpenJobs[i] <= 1);
+    }
+
+    @Benchmark
+    public long[] fullScan() {
+        double[] q = queries[next++ & (queries.length - 1)];
+        double[] meters = new double[surveyors];
+        Integer[] order = new Integer[surveyors];
+        int eligible = 0;
+        for (int i = 0; i < surveyors; i++) {
+            if (internal[i] && openJobs[i] <= 1) {
+                meters[i] = GeoMath.haversineMeters(q[0], q[1], lats[i], lngs[i]);
+                order[eligible++] = i;
+            }
+        }
+        Arrays.sort(order, 0, eligible, (a, b) -> Double.compare(meters[a], meters[b]));
+        long[] nearest = new long[Math.min(k, eligible)];
+        for (int i = 0; i < nearest.length; i++) {
+            nearest[i] = ids[order[i]];
+        }
+        return nearest;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CandidateRankingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,91 @@
+package com.cmx.benchmark;
+
+import com.cmx.schedule.FreeSlotFinder;
+import com.cmx.schedule.FreeSlotFinder.Busy;
+import com.cmx.schedule.FreeSlotFinder.FreeSlot;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Free-slot search over generated calendars: 1k surveyors, a two-week horizon, and a few busy blocks
+ * per working day (some overlapping) for each surveyor, searching for one-hour slots.
+ *
+ * Not part of the test suite; run {@link #main} from the test classpath after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FreeSlotFinderBenchmark {
+
+    @Param({"1000"})
+    public int surveyors;
+
+    @Param({"14"})
+    public int days;
+
+    @Param({"6"})
+    public int blocksPerDay;
+
+    private Map<Long, Busy> busy;
+    private Instant from;
+    private Instant to;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        from = Instant.now().truncatedTo(ChronoUnit.DAYS);
+        to = from.plus(Duration.ofDays(days));
+        busy = new HashMap<>();
+        for (long id = 1; id <= surveyors; id++) {
+            int n = days * blocksPerDay;
+            long[] starts = new long[n];
+            long[] ends = new long[n];
+            for (int i = 0; i < n; i++) {
+                // Working hours 08:00-18:00, 30-150 minute blocks
+                long dayStart = from.getEpochSecond() + (i / blocksPerDay) * 86_400L + 8 * 3600L;
+                starts[i] = dayStart + random.nextInt(10 * 60) * 60L;
+                ends[i] = starts[i] + (30 + random.nextInt(121)) * 60L;
+            }
+            sortByStart(starts, ends);
+            busy.put(id, new Busy(starts, ends));
+        }
+    }
+
+    @Benchmark
+    public List<FreeSlot> findFreeSlots() {
+        return FreeSlotFinder.find(busy, from, to, Duration.ofHours(1), 50);
+    }
+
+    private static void sortByStart(long[] starts, long[] ends) {
+        Integer[] order = new Integer[starts.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (a, b) -> Long.compare(starts[a], starts[b]));
+        long[] s = starts.clone();
+        long[] e = ends.clone();
+        for (int i = 0; i < order.length; i++) {
+            starts[i] = s[order[i]];
+            ends[i] = e[order[i]];
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FreeSlotFinderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
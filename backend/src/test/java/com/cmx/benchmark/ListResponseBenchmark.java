@@ -0,0 +1,108 @@
+package com.cmx.benchmark;
+
+import com.cmx.config.JacksonConfig;
+import com.cmx.dto.SurveyorDto.SurveyorListItem;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.OutputStream;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building and writing one 1k-row surveyor list response: a HashMap per row (as the list
+ * endpoints used to) versus the typed record with its hand-written serializer.
+ *
+ * Both variants start from the same column values, standing in for the ResultSet. Run with the GC
+ * profiler, which {@link #main} adds; {@code gc.alloc.rate.norm} is the bytes allocated per response.
+ *
+ * Not part of the test suite; run {@link #main} from the test classpath after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListResponseBenchmark {
+
+    @Param({"1000"})
+    public int rows;
+
+    private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+    private final OutputStream sink = OutputStream.nullOutputStream();
+
+    private long[] ids;
+    private String[] codes;
+    private String[] names;
+    private double[] lats;
+    private double[] lngs;
+    private OffsetDateTime[] updates;
+
+    @Setup
+    public void setUp() {
+        ids = new long[rows];
+        codes = new String[rows];
+        names = new String[rows];
+        lats = new double[rows];
+        lngs = new double[rows];
+        updates = new OffsetDateTime[rows];
+        OffsetDateTime now = OffsetDateTime.now();
+        for (int i = 0; i < rows; i++) {
+            ids[i] = i + 1;
+            codes[i] = String.format("SV%04d", i + 1);
+            names[i] = "Surveyor " + (i + 1);
+            lats[i] = 1.30 + i * 0.0001;
+            lngs[i] = 103.80 + i * 0.0001;
+            updates[i] = now.minusSeconds(i);
+        }
+    }
+
+    @Benchmark
+    public void mapRows() throws Exception {
+        List<Map<String, Object>> response = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", ids[i]);
+            map.put("code", codes[i]);
+            map.put("display_name", names[i]);
+            map.put("home_lat", lats[i]);
+            map.put("home_lng", lngs[i]);
+            map.put("status", "ACTIVE");
+            map.put("surveyor_type", "INTERNAL");
+            map.put("email", "");
+            map.put("phone", "");
+            map.put("current_status", "AVAILABLE");
+            map.put("current_lat", lats[i]);
+            map.put("current_lng", lngs[i]);
+            map.put("last_location_update", updates[i].toString());
+            response.add(map);
+        }
+        objectMapper.writeValue(sink, response);
+    }
+
+    @Benchmark
+    public void recordRows() throws Exception {
+        List<SurveyorListItem> response = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            response.add(new SurveyorListItem(ids[i], codes[i], names[i], lats[i], lngs[i], "ACTIVE",
+                    "INTERNAL", "", "", "AVAILABLE", lats[i], lngs[i], updates[i]));
+        }
+        objectMapper.writeValue(sink, response);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ListResponseBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,76 @@
+package com.cmx.benchmark;
+
+import com.cmx.location.CompactLocationCodec;
+import com.cmx.location.CompactLocationCodec.LocationFrame;
+import com.cmx.location.TrailPoint;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding cost of one location event: the JSON map published on the locations topic versus the
+ * compact frame published on locations-compact.
+ *
+ * Not part of the test suite; run {@link #main} from the test classpath after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocationEncodingBenchmark {
+
+    @Param({"0", "20"})
+    public int trailPoints;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private LocationFrame frame;
+    private Map<String, Object> jsonEvent;
+
+    @Setup
+    public void setUp() {
+        long now = System.currentTimeMillis();
+        List<TrailPoint> trail = new ArrayList<>();
+        List<Map<String, Object>> jsonTrail = new ArrayList<>();
+        for (int i = 0; i < trailPoints; i++) {
+            TrailPoint p = new TrailPoint(1.352083 + i * 0.0001, 103.819836 + i * 0.0001, now - (trailPoints - i) * 5000L);
+            trail.add(p);
+            jsonTrail.add(Map.of("lat", p.lat(), "lng", p.lng(), "timestamp", p.timestamp()));
+        }
+        frame = new LocationFrame(42L, 1.352083, 103.819836, now, "AVAILABLE", "Surveyor 42", trail);
+
+        jsonEvent = new LinkedHashMap<>();
+        jsonEvent.put("surveyorId", 42L);
+        jsonEvent.put("lat", frame.lat());
+        jsonEvent.put("lng", frame.lng());
+        jsonEvent.put("status", frame.status());
+        jsonEvent.put("displayName", frame.displayName());
+        jsonEvent.put("timestamp", now);
+        jsonEvent.put("trail", jsonTrail);
+    }
+
+    @Benchmark
+    public String json() throws Exception {
+        return objectMapper.writeValueAsString(jsonEvent);
+    }
+
+    @Benchmark
+    public String compact() {
+        return CompactLocationCodec.encodeBase64(frame);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LocationEncodingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,106 @@
+package com.cmx.dto;
+
+import com.cmx.config.JacksonConfig;
+import com.cmx.dto.AvailabilityDto.AppointmentEntry;
+import com.cmx.dto.AvailabilityDto.AvailabilityEntry;
+import com.cmx.dto.InspectionDto.InspectionDetail;
+import com.cmx.dto.SurveyorDto.SurveyorListItem;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The typed responses must serialize exactly like the maps they replaced.
+ */
+@DisplayName("ResponseSerializers Tests")
+class ResponseSerializersTest {
+
+    private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+
+    @Test
+    @DisplayName("surveyor list row keeps the snake_case map format")
+    void surveyorListItem_MatchesMapFormat() throws Exception {
+        OffsetDateTime lastUpdate = OffsetDateTime.parse("2024-05-01T09:30:15+08:00");
+        SurveyorListItem item = new SurveyorListItem(7L, "SV007", "Surveyor 7", 1.35, 103.8, "ACTIVE",
+                "INTERNAL", "", "", "BUSY", 1.36, null, lastUpdate);
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("id", 7L);
+        expected.put("code", "SV007");
+        expected.put("display_name", "Surveyor 7");
+        expected.put("home_lat", 1.35);
+        expected.put("home_lng", 103.8);
+        expected.put("status", "ACTIVE");
+        expected.put("surveyor_type", "INTERNAL");
+        expected.put("email", "");
+        expected.put("phone", "");
+        expected.put("current_status", "BUSY");
+        expected.put("current_lat", 1.36);
+        expected.put("current_lng", null);
+        expected.put("last_location_update", lastUpdate.toString());
+
+        assertSameJson(item, expected);
+    }
+
+    @Test
+    @DisplayName("appointment row adds the response fields to the block fields")
+    void appointmentEntry_MatchesMapFormat() throws Exception {
+        OffsetDateTime start = OffsetDateTime.parse("2024-05-01T09:00Z");
+        AvailabilityEntry block = new AvailabilityEntry(11L, 7L, start, start.plusHours(2), "BUSY", "CMX", "", "", null);
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("id", 11L);
+        expected.put("surveyor_id", 7L);
+        expected.put("start_time", start.toString());
+        expected.put("end_time", start.plusHours(2).toString());
+        expected.put("state", "BUSY");
+        expected.put("source", "CMX");
+        expected.put("title", "");
+        expected.put("description", "");
+        expected.put("updated_at", "");
+        assertSameJson(block, expected);
+
+        expected.put("response_status", "PENDING");
+        expected.put("responded_at", null);
+        assertSameJson(new AppointmentEntry(block, "PENDING", null), expected);
+    }
+
+    @Test
+    @DisplayName("inspection detail omits surveyor fields when the surveyor is gone")
+    void inspectionDetail_OmitsMissingSurveyor() throws Exception {
+        Instant submitted = Instant.parse("2024-05-01T10:00:00Z");
+        InspectionDetail detail = new InspectionDetail(3L, 7L, 11L, "Toyota Camry", null, null, 5, null, null,
+                "SUBMITTED", submitted, submitted, List.of("a.jpg"), List.of(), null, null);
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("id", 3L);
+        expected.put("surveyorId", 7L);
+        expected.put("appointmentId", 11L);
+        expected.put("vehicleTitle", "Toyota Camry");
+        expected.put("notes", null);
+        expected.put("signatureUrl", null);
+        expected.put("totalSteps", 5);
+        expected.put("latitude", null);
+        expected.put("longitude", null);
+        expected.put("status", "SUBMITTED");
+        expected.put("submittedAt", submitted.toString());
+        expected.put("updatedAt", submitted.toString());
+        expected.put("photoUrls", List.of("a.jpg"));
+        expected.put("completedSteps", List.of());
+
+        assertSameJson(detail, expected);
+    }
+
+    private void assertSameJson(Object record, Map<String, Object> expected) throws Exception {
+        assertThat(objectMapper.readTree(objectMapper.writeValueAsString(record)))
+                .isEqualTo(objectMapper.readTree(objectMapper.writeValueAsString(expected)));
+    }
+}
@@ -0,0 +1,123 @@
+package com.cmx.integration;
+
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks on a real PostgreSQL that overlap reads use the GiST index from changelog 027 at
+ * production-like volume. Seeding takes minutes, so it only runs when asked for with the number of
+ * blocks, e.g. {@code -Davailability.explain.rows=10000000}. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "availability.explain.rows", matches = "\\d+")
+@DisplayName("Availability period index Tests")
+class AvailabilityPeriodIndexTest {
+
+    private static final int ROWS = Integer.getInteger("availability.explain.rows", 0);
+    private static final int SURVEYORS = 10_000;
+
+    @Container
+    @SuppressWarnings("resource")
+    static final GenericContainer<?> postgres = new GenericContainer<>("postgres:16-alpine")
+            .withEnv("POSTGRES_PASSWORD", "test")
+            .withExposedPorts(5432)
+            .waitingFor(Wait.forLogMessage(".*database system is ready to accept connections.*", 2)
+                    .withStartupTimeout(Duration.ofMinutes(2)));
+
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataSource = new SingleConnectionDataSource("jdbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getMappedPort(5432) + "/postgres", "postgres", "test", true);
+        jdbc = new JdbcTemplate(dataSource);
+
+        // Table and B-tree indexes as created by the earlier changelogs
+        jdbc.execute("CREATE TABLE surveyor_availability (id BIGSERIAL PRIMARY KEY, surveyor_id BIGINT NOT NULL, " +
+                "start_time TIMESTAMP NOT NULL, end_time TIMESTAMP NOT NULL, state VARCHAR(16) NOT NULL, " +
+                "source VARCHAR(16) NOT NULL, updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        jdbc.execute("CREATE INDEX idx_availability_start_time ON surveyor_availability (start_time)");
+        jdbc.execute("CREATE INDEX ix_av_surveyor_start_id ON surveyor_availability (surveyor_id, start_time, id)");
+
+        // Non-overlapping two-hour blocks every three hours per surveyor, every fourth one BUSY
+        jdbc.update("INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, source) " +
+                "SELECT g % ?, TIMESTAMP '2024-01-01' + (g / ?) * INTERVAL '3 hours', " +
+                "TIMESTAMP '2024-01-01' + (g / ?) * INTERVAL '3 hours' + INTERVAL '2 hours', " +
+                "CASE WHEN g % 4 = 0 THEN 'BUSY' ELSE 'AVAILABLE' END, 'CMX' " +
+                "FROM generate_series(0, ? - 1) g", SURVEYORS, SURVEYORS, SURVEYORS, ROWS);
+
+        try (Connection connection = dataSource.getConnection()) {
+            new Liquibase("db/changelog/changes/027-availability-period-gist.xml",
+                    new ClassLoaderResourceAccessor(), new JdbcConnection(connection)).update(new Contexts());
+        }
+        jdbc.execute("ANALYZE surveyor_availability");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Range-only overlap read is answered by the GiST index")
+    void rangeRead_UsesGistIndex() {
+        String plan = explain("SELECT * FROM surveyor_availability " +
+                "WHERE period && tsrange('2024-03-01 10:00', '2024-03-01 12:00', '[)')");
+
+        assertThat(plan).contains("ix_av_surveyor_period").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    @DisplayName("Per-surveyor overlap read does not scan the table")
+    void surveyorRead_UsesIndex() {
+        String plan = explain("SELECT * FROM surveyor_availability WHERE surveyor_id = 42 " +
+                "AND period && tsrange('2024-03-01 00:00', '2024-03-08 00:00', '[)') ORDER BY start_time");
+
+        assertThat(plan).contains("Index").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    @DisplayName("Exclusion constraint is added on clean data and rejects overlapping BUSY blocks")
+    void exclusionConstraint_RejectsOverlap() {
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM pg_constraint WHERE conname = 'ex_av_busy_no_overlap'",
+                Integer.class)).isEqualTo(1);
+
+        Integer violations = jdbc.execute((Connection connection) -> {
+            try (var statement = connection.createStatement()) {
+                statement.executeUpdate("INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, source) " +
+                        "VALUES (0, '2024-01-01 01:00', '2024-01-01 03:00', 'BUSY', 'CMX')");
+                return 0;
+            } catch (java.sql.SQLException e) {
+                return "23P01".equals(e.getSQLState()) ? 1 : -1;
+            }
+        });
+        assertThat(violations).isEqualTo(1);
+    }
+
+    private static String explain(String sql) {
+        List<String> lines = jdbc.queryForList("EXPLAIN " + sql, String.class);
+        return String.join("\n", lines);
+    }
+}
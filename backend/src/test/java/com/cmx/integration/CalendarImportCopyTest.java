@@ -0,0 +1,100 @@
+package com.cmx.integration;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.dto.AvailabilityDto.ImportResult;
+import com.cmx.schedule.AvailabilityIndex;
+import com.cmx.schedule.CalendarImportReader.Format;
+import com.cmx.service.CalendarImportService;
+import com.cmx.service.NotificationService;
+import com.cmx.service.SurveyorCacheEvictor;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Calendar import through {@code COPY} on a real PostgreSQL. All imports share one connection, so a
+ * failed import that left it in COPY mode would break the next one. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Calendar import COPY Tests")
+class CalendarImportCopyTest {
+
+    @Container
+    @SuppressWarnings("resource")
+    static final GenericContainer<?> postgres = new GenericContainer<>("postgres:16-alpine")
+            .withEnv("POSTGRES_PASSWORD", "test")
+            .withExposedPorts(5432)
+            .waitingFor(Wait.forLogMessage(".*database system is ready to accept connections.*", 2)
+                    .withStartupTimeout(Duration.ofMinutes(2)));
+
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbc;
+    private static CalendarImportService importService;
+    private static long surveyorId;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataSource = new SingleConnectionDataSource("jdbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getMappedPort(5432) + "/postgres", "postgres", "test", true);
+        jdbc = new JdbcTemplate(dataSource);
+        try (Connection connection = dataSource.getConnection()) {
+            new Liquibase("db/changelog/db.changelog-master.xml",
+                    new ClassLoaderResourceAccessor(), new JdbcConnection(connection)).update(new Contexts());
+        }
+        surveyorId = jdbc.queryForObject("INSERT INTO surveyor (code, display_name) VALUES ('IMPORT-1', 'Import surveyor') RETURNING id",
+                Long.class);
+        importService = new CalendarImportService(jdbc, new DataSourceTransactionManager(dataSource), new DatabaseDialect(jdbc),
+                mock(AvailabilityIndex.class), mock(SurveyorCacheEvictor.class), mock(NotificationService.class), "UTC");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("a CSV with a bad header cancels the COPY and the connection stays usable")
+    void badHeader_CancelsCopy() throws Exception {
+        assertThatThrownBy(() -> importService.importCalendar(Format.CSV, stream("""
+                surveyor_id,from,to,state
+                %d,2024-05-01T09:00:00Z,2024-05-01T10:00:00Z,BUSY
+                """.formatted(surveyorId)), null, false))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        ImportResult result = importService.importCalendar(Format.CSV, stream("""
+                surveyor_id,start_time,end_time,state
+                %d,2024-05-01T09:00:00Z,2024-05-01T10:00:00Z,BUSY
+                """.formatted(surveyorId)), null, false);
+
+        assertThat(result.rows()).isEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM surveyor_availability WHERE surveyor_id = ?",
+                Integer.class, surveyorId)).isEqualTo(1);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,99 @@
+package com.cmx.integration;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.service.LocationHistoryService;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Location history partition maintenance on a real PostgreSQL, starting from rows that reached the
+ * default partition because no daily partition existed for them. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Location history partition Tests")
+class LocationHistoryPartitionTest {
+
+    @Container
+    @SuppressWarnings("resource")
+    static final GenericContainer<?> postgres = new GenericContainer<>("postgres:16-alpine")
+            .withEnv("POSTGRES_PASSWORD", "test")
+            .withExposedPorts(5432)
+            .waitingFor(Wait.forLogMessage(".*database system is ready to accept connections.*", 2)
+                    .withStartupTimeout(Duration.ofMinutes(2)));
+
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataSource = new SingleConnectionDataSource("jdbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getMappedPort(5432) + "/postgres", "postgres", "test", true);
+        jdbc = new JdbcTemplate(dataSource);
+        try (Connection connection = dataSource.getConnection()) {
+            new Liquibase("db/changelog/db.changelog-master.xml",
+                    new ClassLoaderResourceAccessor(), new JdbcConnection(connection)).update(new Contexts());
+        }
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("today's rows move out of the default partition and rows past retention are deleted from it")
+    void maintainPartitions_EmptiesDefaultPartition() {
+        Instant now = Instant.now();
+        insert(now);
+        insert(now.minus(5, ChronoUnit.DAYS));
+        insert(now.minus(40, ChronoUnit.DAYS));
+        assertThat(count("surveyor_location_history_default")).isEqualTo(3);
+
+        LocationHistoryService history = new LocationHistoryService(jdbc, new DatabaseDialect(jdbc),
+                new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(history, "retentionDays", 30);
+        history.maintainPartitions();
+
+        String today = LocalDate.now(ZoneOffset.UTC).format(DateTimeFormatter.BASIC_ISO_DATE);
+        assertThat(count("surveyor_location_history_p" + today)).isEqualTo(1);
+        // The backfilled day has no partition of its own and stays until it falls out of retention
+        assertThat(count("surveyor_location_history_default")).isEqualTo(1);
+        assertThat(count("surveyor_location_history")).isEqualTo(2);
+    }
+
+    private static void insert(Instant recordedAt) {
+        jdbc.update("INSERT INTO surveyor_location_history (surveyor_id, lat, lng, recorded_at) VALUES (1, 13.7, 100.5, ?)",
+                Timestamp.from(recordedAt));
+    }
+
+    private static int count(String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
@@ -0,0 +1,234 @@
+package com.cmx.integration;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.dto.DispatchDto.OfferResponse;
+import com.cmx.exception.OfferExpiredException;
+import com.cmx.exception.ScheduleConflictException;
+import com.cmx.repository.DispatchOfferRepository;
+import com.cmx.repository.JobAssignmentRepository;
+import com.cmx.schedule.AvailabilityOverlap;
+import com.cmx.service.AvailabilityService;
+import com.cmx.service.CandidateRanker;
+import com.cmx.service.DispatchService;
+import com.cmx.service.EventHubService;
+import com.cmx.service.OfferExpiryScheduler;
+import com.cmx.service.OfferNotifier;
+import com.zaxxer.hikari.HikariDataSource;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Contention benchmark for offer acceptance on a real PostgreSQL: {@value #SURVEYORS} surveyors
+ * accept the same offer group at the same instant, {@value #ROUNDS} times over. Each round must
+ * produce exactly one job and one busy block; p50/p99 accept latency is printed at the end.
+ * Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Offer accept contention Tests")
+class OfferAcceptContentionTest {
+
+    private static final int SURVEYORS = 50;
+    private static final int ROUNDS = Integer.getInteger("dispatch.contention.rounds", 20);
+
+    @Container
+    @SuppressWarnings("resource")
+    static final GenericContainer<?> postgres = new GenericContainer<>("postgres:16-alpine")
+            .withEnv("POSTGRES_PASSWORD", "test")
+            .withExposedPorts(5432)
+            .waitingFor(Wait.forLogMessage(".*database system is ready to accept connections.*", 2)
+                    .withStartupTimeout(Duration.ofMinutes(2)));
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbc;
+    private static DispatchService dispatchService;
+    private static List<Long> surveyorIds;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:postgresql://" + postgres.getHost() + ":" + postgres.getMappedPort(5432) + "/postgres");
+        dataSource.setUsername("postgres");
+        dataSource.setPassword("test");
+        dataSource.setMaximumPoolSize(SURVEYORS + 2);
+        jdbc = new JdbcTemplate(dataSource);
+
+        try (Connection connection = dataSource.getConnection()) {
+            new Liquibase("db/changelog/db.changelog-master.xml",
+                    new ClassLoaderResourceAccessor(), new JdbcConnection(connection)).update(new Contexts());
+        }
+        surveyorIds = jdbc.queryForList("INSERT INTO surveyor (code, display_name) " +
+                "SELECT 'BENCH-' || g, 'Bench surveyor ' || g FROM generate_series(1, ?) g RETURNING id", Long.class, SURVEYORS);
+
+        DatabaseDialect dialect = new DatabaseDialect(jdbc);
+        dispatchService = new DispatchService(mock(DispatchOfferRepository.class), mock(JobAssignmentRepository.class),
+                mock(AvailabilityService.class), mock(EventHubService.class), jdbc, mock(OfferNotifier.class), mock(OfferExpiryScheduler.class), mock(CandidateRanker.class),
+                dialect, new AvailabilityOverlap(dialect), new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Racing accepts of one offer group produce exactly one winner")
+    void concurrentAccepts_OneWinner() throws Exception {
+        List<Long> latencies = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(SURVEYORS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                // Previous rounds' busy blocks would make every later accept a conflict
+                jdbc.update("DELETE FROM surveyor_availability WHERE surveyor_id = ANY(?)", (Object) surveyorIds.toArray(new Long[0]));
+                OfferResponse offer = dispatchService.createOffers("FNOL-BENCH-" + round, surveyorIds, 300, null);
+
+                CountDownLatch go = new CountDownLatch(1);
+                List<Future<long[]>> attempts = new ArrayList<>();
+                for (Long surveyorId : surveyorIds) {
+                    attempts.add(pool.submit(() -> {
+                        go.await();
+                        long started = System.nanoTime();
+                        long won;
+                        try {
+                            dispatchService.acceptOffer(offer.offerGroup(), surveyorId);
+                            won = 1;
+                        } catch (OfferExpiredException e) {
+                            won = 0;
+                        }
+                        return new long[]{won, System.nanoTime() - started};
+                    }));
+                }
+                go.countDown();
+
+                int winners = 0;
+                for (Future<long[]> attempt : attempts) {
+                    long[] result = attempt.get(30, TimeUnit.SECONDS);
+                    winners += (int) result[0];
+                    latencies.add(result[1]);
+                }
+
+                assertThat(winners).isEqualTo(1);
+                assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM job_assignment WHERE offer_group = ?::uuid",
+                        Integer.class, offer.offerGroup())).isEqualTo(1);
+                assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM dispatch_offer WHERE offer_group = ?::uuid AND status = 'ACCEPTED'",
+                        Integer.class, offer.offerGroup())).isEqualTo(1);
+                assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM dispatch_offer WHERE offer_group = ?::uuid AND status = 'PENDING'",
+                        Integer.class, offer.offerGroup())).isZero();
+                assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM surveyor_availability WHERE surveyor_id = ANY(?) AND state = 'BUSY'",
+                        Integer.class, (Object) surveyorIds.toArray(new Long[0]))).isEqualTo(1);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("Offer accept under contention: %d surveyors x %d rounds, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                SURVEYORS, ROUNDS, percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+    }
+
+    @Test
+    @DisplayName("Racing accepts by one surveyor of different offer groups produce one job")
+    void concurrentAcceptsOfOneSurveyor_OneJob() throws Exception {
+        Long surveyorId = surveyorIds.get(0);
+        jdbc.update("DELETE FROM surveyor_availability WHERE surveyor_id = ?", surveyorId);
+        List<String> groups = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            groups.add(dispatchService.createOffers("FNOL-SAME-" + i, List.of(surveyorId), 300, null).offerGroup());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(groups.size());
+        try {
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (String group : groups) {
+                attempts.add(pool.submit(() -> {
+                    go.await();
+                    try {
+                        dispatchService.acceptOffer(group, surveyorId);
+                        return true;
+                    } catch (ScheduleConflictException e) {
+                        return false;
+                    }
+                }));
+            }
+            go.countDown();
+
+            int winners = 0;
+            for (Future<Boolean> attempt : attempts) {
+                winners += attempt.get(30, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertThat(winners).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM surveyor_availability WHERE surveyor_id = ? AND state = 'BUSY'",
+                Integer.class, surveyorId)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("An accept that waited on the expiry of its wave leaves the next wave open")
+    void acceptBehindExpiry_KeepsNextWave() throws Exception {
+        List<Long> candidates = surveyorIds.subList(10, 13);
+        jdbc.update("DELETE FROM surveyor_availability WHERE surveyor_id = ANY(?)", (Object) candidates.toArray(new Long[0]));
+        OfferResponse offer = dispatchService.createOffers("FNOL-EXPIRY", candidates, 300, 2);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try (Connection expiry = dataSource.getConnection()) {
+            // Stand-in for OfferExpiryScheduler: lock the group, expire the first wave, open the second
+            expiry.setAutoCommit(false);
+            try (var lock = expiry.prepareStatement("SELECT id FROM dispatch_offer WHERE offer_group = ?::uuid ORDER BY id FOR UPDATE");
+                 var advance = expiry.prepareStatement("UPDATE dispatch_offer " +
+                         "SET status = CASE WHEN status = 'PENDING' THEN 'EXPIRED' ELSE 'PENDING' END WHERE offer_group = ?::uuid")) {
+                lock.setString(1, offer.offerGroup());
+                lock.executeQuery().close();
+                advance.setString(1, offer.offerGroup());
+                advance.executeUpdate();
+            }
+
+            Future<?> accept = pool.submit(() -> dispatchService.acceptOffer(offer.offerGroup(), candidates.get(0)));
+            while (jdbc.queryForObject("SELECT COUNT(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock'", Integer.class) == 0) {
+                Thread.sleep(10);
+            }
+            expiry.commit();
+
+            assertThatThrownBy(() -> accept.get(30, TimeUnit.SECONDS)).hasCauseInstanceOf(OfferExpiredException.class);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(jdbc.queryForList("SELECT status FROM dispatch_offer WHERE offer_group = ?::uuid ORDER BY id",
+                String.class, offer.offerGroup())).containsExactly("EXPIRED", "EXPIRED", "PENDING");
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM job_assignment WHERE offer_group = ?::uuid",
+                Integer.class, offer.offerGroup())).isZero();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,95 @@
+package com.cmx.location;
+
+import com.cmx.location.CompactLocationCodec.LocationFrame;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("CompactLocationCodec Tests")
+class CompactLocationCodecTest {
+
+    private static LocationFrame sampleFrame(int trailPoints) {
+        long now = 1_760_000_000_000L;
+        List<TrailPoint> trail = new ArrayList<>();
+        for (int i = 0; i < trailPoints; i++) {
+            trail.add(new TrailPoint(1.352083 + i * 0.00011, 103.819836 - i * 0.00007, now - (trailPoints - i) * 5000L));
+        }
+        return new LocationFrame(42L, 1.352083, 103.819836, now, "AVAILABLE", "Alex Tan", trail);
+    }
+
+    @Test
+    @DisplayName("encode/decode round-trips position, status and trail")
+    void roundTrip_PreservesFrame() {
+        LocationFrame frame = sampleFrame(20);
+
+        LocationFrame decoded = CompactLocationCodec.decodeBase64(CompactLocationCodec.encodeBase64(frame));
+
+        assertThat(decoded.surveyorId()).isEqualTo(42L);
+        assertThat(decoded.lat()).isCloseTo(frame.lat(), within(5e-7));
+        assertThat(decoded.lng()).isCloseTo(frame.lng(), within(5e-7));
+        assertThat(decoded.timestamp()).isEqualTo(frame.timestamp());
+        assertThat(decoded.status()).isEqualTo("AVAILABLE");
+        assertThat(decoded.displayName()).isEqualTo("Alex Tan");
+        assertThat(decoded.trail()).hasSize(20);
+        for (int i = 0; i < 20; i++) {
+            assertThat(decoded.trail().get(i).lat()).isCloseTo(frame.trail().get(i).lat(), within(5e-7));
+            assertThat(decoded.trail().get(i).lng()).isCloseTo(frame.trail().get(i).lng(), within(5e-7));
+            assertThat(decoded.trail().get(i).timestamp()).isEqualTo(frame.trail().get(i).timestamp());
+        }
+    }
+
+    @Test
+    @DisplayName("custom status strings and negative coordinates survive encoding")
+    void roundTrip_CustomStatusAndNegativeCoordinates() {
+        LocationFrame frame = new LocationFrame(7L, -33.868820, -151.209296, 1L, "ON_BREAK", "", List.of());
+
+        LocationFrame decoded = CompactLocationCodec.decode(CompactLocationCodec.encode(frame));
+
+        assertThat(decoded.status()).isEqualTo("ON_BREAK");
+        assertThat(decoded.lat()).isCloseTo(-33.868820, within(5e-7));
+        assertThat(decoded.lng()).isCloseTo(-151.209296, within(5e-7));
+        assertThat(decoded.trail()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("compact frame is much smaller than the JSON event")
+    void encode_IsSmallerThanJson() throws Exception {
+        LocationFrame frame = sampleFrame(20);
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("surveyorId", frame.surveyorId());
+        json.put("lat", frame.lat());
+        json.put("lng", frame.lng());
+        json.put("status", frame.status());
+        json.put("displayName", frame.displayName());
+        json.put("timestamp", frame.timestamp());
+        json.put("trail", frame.trail().stream()
+                .map(p -> Map.of("lat", p.lat(), "lng", p.lng(), "timestamp", p.timestamp()))
+                .toList());
+
+        int jsonBytes = new ObjectMapper().writeValueAsString(json).getBytes(StandardCharsets.UTF_8).length;
+        int compactBytes = CompactLocationCodec.encodeBase64(frame).length();
+
+        assertThat(compactBytes).isLessThan(jsonBytes / 4);
+    }
+
+    @Test
+    @DisplayName("truncated frames are rejected")
+    void decode_TruncatedFrame_Throws() {
+        byte[] encoded = CompactLocationCodec.encode(sampleFrame(3));
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 2);
+
+        assertThatThrownBy(() -> CompactLocationCodec.decode(truncated))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
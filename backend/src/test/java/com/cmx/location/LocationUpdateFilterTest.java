@@ -0,0 +1,49 @@
+package com.cmx.location;
+
+import com.cmx.location.LocationUpdateFilter.Decision;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("LocationUpdateFilter Tests")
+class LocationUpdateFilterTest {
+
+    private final LocationUpdateFilter filter = new LocationUpdateFilter(true, 10, 60_000);
+
+    @Test
+    @DisplayName("haversine matches a known distance")
+    void haversine_KnownDistance() {
+        // One thousandth of a degree of latitude is about 111 m anywhere on Earth
+        assertThat(GeoMath.haversineMeters(1.300, 103.800, 1.301, 103.800)).isCloseTo(111.2, within(0.5));
+        assertThat(GeoMath.haversineMeters(1.3, 103.8, 1.3, 103.8)).isZero();
+    }
+
+    @Test
+    @DisplayName("small moves are suppressed until the keep-alive interval passes")
+    void evaluate_StationaryThenKeepAlive() {
+        assertThat(filter.evaluate(1L, 1.3, 103.8, 1_000, false, 1_000)).isEqualTo(Decision.ACCEPTED);
+        assertThat(filter.evaluate(1L, 1.30003, 103.8, 2_000, false, 2_000)).isEqualTo(Decision.SUPPRESSED);
+        assertThat(filter.evaluate(1L, 1.30003, 103.8, 3_000, true, 3_000)).isEqualTo(Decision.ACCEPTED);
+        assertThat(filter.evaluate(1L, 1.3, 103.8, 63_000, false, 63_000)).isEqualTo(Decision.KEEP_ALIVE);
+        assertThat(filter.evaluate(1L, 1.301, 103.8, 64_000, false, 64_000)).isEqualTo(Decision.ACCEPTED);
+
+        assertThat(filter.getStats())
+                .containsEntry("accepted", 3L)
+                .containsEntry("keepAlives", 1L)
+                .containsEntry("suppressedStationary", 1L);
+    }
+
+    @Test
+    @DisplayName("pings older than the last accepted device timestamp are stale")
+    void evaluate_OutOfOrder_Stale() {
+        filter.evaluate(1L, 1.3, 103.8, 10_000, false, 10_000);
+
+        assertThat(filter.evaluate(1L, 1.4, 103.9, 9_000, true, 11_000)).isEqualTo(Decision.STALE);
+
+        filter.record(1L, 1.5, 104.0, 20_000, 12_000);
+        assertThat(filter.evaluate(1L, 1.6, 104.1, 15_000, false, 13_000)).isEqualTo(Decision.STALE);
+        assertThat(filter.getStats()).containsEntry("rejectedStale", 2L);
+    }
+}
@@ -0,0 +1,54 @@
+package com.cmx.location;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("TrailSimplifier Tests")
+class TrailSimplifierTest {
+
+    @Test
+    @DisplayName("trails within budget are returned unchanged")
+    void simplify_WithinBudget_ReturnsInput() {
+        List<TrailPoint> trail = List.of(
+                new TrailPoint(1.30, 103.80, 0),
+                new TrailPoint(1.31, 103.81, 1000),
+                new TrailPoint(1.32, 103.82, 2000));
+
+        assertThat(TrailSimplifier.simplify(trail, 10)).isSameAs(trail);
+    }
+
+    @Test
+    @DisplayName("downsampled trail respects budget and keeps endpoints and corners")
+    void simplify_LShapedTrail_KeepsCorner() {
+        List<TrailPoint> trail = new ArrayList<>();
+        long ts = 0;
+        // 1000 points north, then 1000 points east
+        for (int i = 0; i < 1000; i++) {
+            trail.add(new TrailPoint(1.30 + i * 0.0001, 103.80, ts += 1000));
+        }
+        for (int i = 1; i <= 1000; i++) {
+            trail.add(new TrailPoint(1.30 + 999 * 0.0001, 103.80 + i * 0.0001, ts += 1000));
+        }
+
+        List<TrailPoint> simplified = TrailSimplifier.simplify(trail, 50);
+
+        assertThat(simplified).hasSizeLessThanOrEqualTo(50);
+        assertThat(simplified.get(0)).isEqualTo(trail.get(0));
+        assertThat(simplified.get(simplified.size() - 1)).isEqualTo(trail.get(trail.size() - 1));
+        assertThat(simplified).contains(trail.get(999));
+        assertThat(simplified).isSortedAccordingTo((a, b) -> Long.compare(a.timestamp(), b.timestamp()));
+    }
+
+    @Test
+    @DisplayName("a budget below two points is rejected")
+    void simplify_InvalidBudget_Throws() {
+        assertThatThrownBy(() -> TrailSimplifier.simplify(List.of(), 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,90 @@
+package com.cmx.schedule;
+
+import com.cmx.support.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("AvailabilityIndex Tests")
+class AvailabilityIndexTest {
+
+    private final Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    private SingleConnectionDataSource h2;
+    private JdbcTemplate jdbcTemplate;
+    private AvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        h2 = TestDatabase.create("availability_index_test");
+        jdbcTemplate = new JdbcTemplate(h2);
+        TestDatabase.insertSurveyors(jdbcTemplate, 1, 2);
+        index = new AvailabilityIndex(jdbcTemplate, 7);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.drop(h2);
+    }
+
+    @Test
+    @DisplayName("state lookups follow block boundaries and the latest-starting overlapping block")
+    void stateAt_BlocksAndOverlaps() {
+        addBlock(1, hours(1), hours(3), "BUSY");
+        addBlock(1, hours(2), hours(2.5), "OFFLINE");
+        addBlock(1, hours(-2), hours(6), "ON_LEAVE");
+        index.reload();
+
+        assertThat(index.stateAt(1, now.plus(hours(0)))).isEqualTo("ON_LEAVE");
+        assertThat(index.stateAt(1, now.plus(hours(1.5)))).isEqualTo("BUSY");
+        assertThat(index.stateAt(1, now.plus(hours(2.25)))).isEqualTo("OFFLINE");
+        assertThat(index.stateAt(1, now.plus(hours(3)))).isEqualTo("ON_LEAVE");
+        assertThat(index.stateAt(1, now.plus(hours(6)))).isEqualTo(AvailabilityIndex.DEFAULT_STATE);
+        assertThat(index.isFree(2, now)).isTrue();
+    }
+
+    @Test
+    @DisplayName("instants outside the horizon are left to the database")
+    void stateAt_OutsideHorizon_ReturnsNull() {
+        assertThat(index.stateAt(1, now)).isNull();
+
+        index.reload();
+
+        assertThat(index.stateAt(1, now.plus(8, ChronoUnit.DAYS))).isNull();
+        assertThat(index.stateAt(1, now.minus(2, ChronoUnit.DAYS))).isNull();
+    }
+
+    @Test
+    @DisplayName("refreshSurveyor picks up writes for that surveyor")
+    void refreshSurveyor_PicksUpWrites() {
+        index.reload();
+        addBlock(1, hours(-1), hours(1), "BUSY");
+        assertThat(index.stateAt(1, now)).isEqualTo("AVAILABLE");
+
+        index.refreshSurveyor(1L);
+        assertThat(index.stateAt(1, now)).isEqualTo("BUSY");
+
+        jdbcTemplate.update("DELETE FROM surveyor_availability");
+        index.refreshSurveyor(1L);
+        assertThat(index.isFree(1, now)).isTrue();
+    }
+
+    private Duration hours(double hours) {
+        return Duration.ofMinutes((long) (hours * 60));
+    }
+
+    private void addBlock(long surveyorId, Duration from, Duration to, String state) {
+        jdbcTemplate.update("INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, source) VALUES (?, ?, ?, ?, 'CMX')",
+                surveyorId, Timestamp.from(now.plus(from)), Timestamp.from(now.plus(to)), state);
+    }
+}
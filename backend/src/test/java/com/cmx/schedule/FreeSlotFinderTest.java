@@ -0,0 +1,66 @@
+package com.cmx.schedule;
+
+import com.cmx.schedule.FreeSlotFinder.Busy;
+import com.cmx.schedule.FreeSlotFinder.FreeSlot;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("FreeSlotFinder Tests")
+class FreeSlotFinderTest {
+
+    private static final long HOUR = 3600;
+
+    @Test
+    @DisplayName("Overlapping and nested busy intervals merge into one")
+    void mergesOverlappingAndNested() {
+        // 1-5 contains 2-3; 4-6 overlaps its tail
+        Busy busy = new Busy(new long[]{1 * HOUR, 2 * HOUR, 4 * HOUR}, new long[]{5 * HOUR, 3 * HOUR, 6 * HOUR});
+
+        List<FreeSlot> slots = FreeSlotFinder.freeWindows(7, busy, 0, 10 * HOUR, HOUR);
+
+        assertThat(slots).containsExactly(
+                new FreeSlot(7, 0, HOUR),
+                new FreeSlot(7, 6 * HOUR, 10 * HOUR));
+    }
+
+    @Test
+    @DisplayName("Gaps shorter than the duration and intervals past the window are skipped")
+    void respectsDurationAndWindow() {
+        Busy busy = new Busy(new long[]{-HOUR, 2 * HOUR, 12 * HOUR}, new long[]{HOUR, 8 * HOUR, 14 * HOUR});
+
+        List<FreeSlot> slots = FreeSlotFinder.freeWindows(1, busy, 0, 10 * HOUR, 2 * HOUR);
+
+        // 1-2 is too short; 8-10 is exactly long enough; 12-14 lies past the window
+        assertThat(slots).containsExactly(new FreeSlot(1, 8 * HOUR, 10 * HOUR));
+    }
+
+    @Test
+    @DisplayName("A surveyor without busy intervals is free for the whole window")
+    void noBusyIntervals() {
+        assertThat(FreeSlotFinder.freeWindows(3, Busy.NONE, 0, 4 * HOUR, HOUR))
+                .containsExactly(new FreeSlot(3, 0, 4 * HOUR));
+    }
+
+    @Test
+    @DisplayName("Slots across surveyors are ranked by start, then length, then surveyor, and limited")
+    void ranksAcrossSurveyors() {
+        Map<Long, Busy> busy = Map.of(
+                1L, new Busy(new long[]{0}, new long[]{2 * HOUR}),
+                2L, new Busy(new long[]{6 * HOUR}, new long[]{10 * HOUR}),
+                3L, new Busy(new long[]{4 * HOUR}, new long[]{10 * HOUR}));
+
+        List<FreeSlot> slots = FreeSlotFinder.find(busy, Instant.ofEpochSecond(0), Instant.ofEpochSecond(10 * HOUR),
+                Duration.ofHours(1), 2);
+
+        assertThat(slots).containsExactly(
+                new FreeSlot(2, 0, 6 * HOUR),
+                new FreeSlot(3, 0, 4 * HOUR));
+    }
+}
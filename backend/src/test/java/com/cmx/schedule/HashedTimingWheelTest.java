@@ -0,0 +1,75 @@
+package com.cmx.schedule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("HashedTimingWheel Tests")
+class HashedTimingWheelTest {
+
+    private final List<String> fired = new ArrayList<>();
+
+    @Test
+    @DisplayName("timeouts fire in deadline order, never before their deadline")
+    void advance_FiresDueTimeouts() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(100, 8, 0, fired::add);
+        wheel.schedule("b", 450);
+        wheel.schedule("a", 120);
+        wheel.schedule("c", 900);
+
+        wheel.advanceTo(199);
+        assertThat(fired).isEmpty();
+        wheel.advanceTo(200);
+        assertThat(fired).containsExactly("a");
+        wheel.advanceTo(500);
+        assertThat(fired).containsExactly("a", "b");
+        assertThat(wheel.pending()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("deadlines several turns of the wheel away wait for their round")
+    void advance_MultipleRounds() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(10, 4, 0, fired::add);
+        wheel.schedule("far", 1_000);
+        wheel.schedule("near", 30);
+
+        wheel.advanceTo(990);
+        assertThat(fired).containsExactly("near");
+        wheel.advanceTo(1_000);
+        assertThat(fired).containsExactly("near", "far");
+        assertThat(wheel.pending()).isZero();
+    }
+
+    @Test
+    @DisplayName("cancelled timeouts never fire, whether or not they reached the wheel yet")
+    void cancel_BeforeAndAfterTransfer() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(100, 8, 0, fired::add);
+        HashedTimingWheel<String>.Timeout early = wheel.schedule("early", 300);
+        wheel.advanceTo(100);
+        HashedTimingWheel<String>.Timeout late = wheel.schedule("late", 300);
+        HashedTimingWheel<String>.Timeout kept = wheel.schedule("kept", 300);
+
+        assertThat(early.cancel()).isTrue();
+        assertThat(late.cancel()).isTrue();
+        wheel.advanceTo(1_000);
+
+        assertThat(fired).containsExactly("kept");
+        assertThat(kept.isExpired()).isTrue();
+        assertThat(kept.cancel()).isFalse();
+        assertThat(wheel.pending()).isZero();
+    }
+
+    @Test
+    @DisplayName("deadlines already past fire on the next tick")
+    void schedule_PastDeadline() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(100, 8, 5_000, fired::add);
+        wheel.schedule("overdue", 1_000);
+
+        wheel.advanceTo(5_000);
+        assertThat(fired).containsExactly("overdue");
+    }
+}
@@ -0,0 +1,122 @@
+package com.cmx.schedule;
+
+import com.cmx.location.GeoMath;
+import com.cmx.schedule.SurveyorSpatialIndex.Hit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("SurveyorSpatialIndex Tests")
+class SurveyorSpatialIndexTest {
+
+    @Test
+    @DisplayName("nearest matches a brute-force scan, including queries far outside the grid")
+    void nearest_MatchesBruteForce() {
+        Random random = new Random(7);
+        int n = 2_000;
+        long[] ids = new long[n];
+        double[] lats = new double[n];
+        double[] lngs = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+            lats[i] = 13.0 + random.nextDouble() * 1.5;
+            lngs[i] = 100.0 + random.nextDouble() * 1.5;
+        }
+        SurveyorSpatialIndex index = new SurveyorSpatialIndex(ids, lats, lngs, 0.05);
+
+        double[][] queries = {{13.75, 100.5}, {13.0, 100.0}, {14.6, 101.6}, {10.0, 98.0}};
+        for (double[] q : queries) {
+            List<Long> expected = IntStream.range(0, n).boxed()
+                    .sorted(Comparator.comparingDouble(i -> GeoMath.haversineMeters(q[0], q[1], lats[i], lngs[i])))
+                    .limit(15).map(i -> ids[i]).toList();
+
+            List<Hit> hits = index.nearest(q[0], q[1], 15, i -> true);
+
+            assertThat(hits).extracting(Hit::surveyorId).containsExactlyElementsOf(expected);
+            assertThat(hits).extracting(Hit::meters).isSorted();
+        }
+    }
+
+    @Test
+    @DisplayName("ineligible surveyors are skipped without shrinking the result")
+    void nearest_SkipsIneligible() {
+        long[] ids = {1, 2, 3, 4};
+        double[] lats = {13.70, 13.71, 13.72, 13.90};
+        double[] lngs = {100.50, 100.50, 100.50, 100.50};
+        SurveyorSpatialIndex index = new SurveyorSpatialIndex(ids, lats, lngs, 0.05);
+
+        List<Hit> hits = index.nearest(13.70, 100.50, 2, i -> index.surveyorId(i) != 2);
+
+        assertThat(hits).extracting(Hit::surveyorId).containsExactly(1L, 3L);
+        assertThat(hits.get(0).meters()).isZero();
+        assertThat(hits.get(1).meters()).isBetween(2_200.0, 2_250.0);
+    }
+
+    @Test
+    @DisplayName("cells on both sides of the equator and the prime meridian are searched")
+    void nearest_AcrossZero() {
+        Random random = new Random(3);
+        int n = 2_000;
+        long[] ids = new long[n];
+        double[] lats = new double[n];
+        double[] lngs = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+            lats[i] = -0.75 + random.nextDouble() * 1.5;
+            lngs[i] = -0.75 + random.nextDouble() * 1.5;
+        }
+        SurveyorSpatialIndex index = new SurveyorSpatialIndex(ids, lats, lngs, 0.05);
+
+        for (double[] q : new double[][]{{0.01, -0.01}, {-0.7, 0.7}, {0.5, -0.5}}) {
+            List<Long> expected = IntStream.range(0, n).boxed()
+                    .sorted(Comparator.comparingDouble(i -> GeoMath.haversineMeters(q[0], q[1], lats[i], lngs[i])))
+                    .limit(20).map(i -> ids[i]).toList();
+
+            assertThat(index.nearest(q[0], q[1], 20, i -> true)).extracting(Hit::surveyorId)
+                    .containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("a far outlier and a filter leaving fewer than k points still give the brute-force answer")
+    void nearest_OutlierAndSparseFilter() {
+        Random random = new Random(11);
+        int n = 10_001;
+        long[] ids = new long[n];
+        double[] lats = new double[n];
+        double[] lngs = new double[n];
+        for (int i = 0; i < n - 1; i++) {
+            ids[i] = i + 1;
+            lats[i] = 13.0 + random.nextDouble();
+            lngs[i] = 100.0 + random.nextDouble();
+        }
+        ids[n - 1] = n;
+        lats[n - 1] = 89.9;
+        lngs[n - 1] = -170.0;
+        SurveyorSpatialIndex index = new SurveyorSpatialIndex(ids, lats, lngs, 0.05);
+
+        List<Hit> hits = index.nearest(13.5, 100.5, 10, i -> index.surveyorId(i) % 3_000 == 0);
+
+        assertThat(hits).extracting(Hit::surveyorId).containsExactlyInAnyOrder(3_000L, 6_000L, 9_000L);
+        assertThat(hits).extracting(Hit::meters).isSorted();
+    }
+
+    @Test
+    @DisplayName("fewer eligible points than k returns all of them")
+    void nearest_FewerThanK() {
+        SurveyorSpatialIndex index = new SurveyorSpatialIndex(new long[]{5, 6}, new double[]{-33.9, 51.5},
+                new double[]{18.4, -0.1}, 0.05);
+
+        assertThat(index.nearest(0, 0, 10, i -> true)).extracting(Hit::surveyorId)
+                .containsExactlyInAnyOrderElementsOf(Arrays.asList(5L, 6L));
+        assertThat(new SurveyorSpatialIndex(new long[0], new double[0], new double[0], 0.05)
+                .nearest(0, 0, 3, i -> true)).isEmpty();
+    }
+}
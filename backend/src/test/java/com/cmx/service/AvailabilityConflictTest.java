@@ -0,0 +1,101 @@
+package com.cmx.service;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.dto.AvailabilityDto.AvailabilityEntry;
+import com.cmx.exception.ScheduleConflictException;
+import com.cmx.repository.AvailabilityRepository;
+import com.cmx.schedule.AvailabilityIndex;
+import com.cmx.schedule.AvailabilityOverlap;
+import com.cmx.support.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Availability conflict Tests")
+class AvailabilityConflictTest {
+
+    private static final OffsetDateTime NINE = OffsetDateTime.parse("2024-05-01T09:00:00Z");
+
+    @Mock
+    private AvailabilityRepository availabilityRepository;
+
+    @Mock
+    private SurveyorCacheEvictor cacheEvictor;
+
+    private SingleConnectionDataSource h2;
+    private JdbcTemplate jdbc;
+    private AvailabilityService availabilityService;
+
+    @BeforeEach
+    void setUp() {
+        h2 = TestDatabase.create("availability_conflict_test");
+        jdbc = new JdbcTemplate(h2);
+        TestDatabase.insertSurveyors(jdbc, 1, 2);
+        AvailabilityOverlap overlap = new AvailabilityOverlap(new DatabaseDialect(jdbc));
+        availabilityService = new AvailabilityService(availabilityRepository, jdbc, new AvailabilityIndex(jdbc, 7),
+                overlap, new DatabaseDialect(jdbc), new CalendarDayCache(jdbc, overlap, "UTC", 1000, 30), cacheEvictor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.drop(h2);
+    }
+
+    @Test
+    @DisplayName("createBusyBlock rejects a block overlapping another busy block")
+    void createBusyBlock_RejectsOverlap() {
+        long existing = insert(1L, NINE, NINE.plusHours(2), "BUSY");
+
+        assertThatThrownBy(() -> availabilityService.createBusyBlock(1L, NINE.plusHours(1), NINE.plusHours(3)))
+                .isInstanceOf(ScheduleConflictException.class)
+                .satisfies(e -> assertThat(((ScheduleConflictException) e).getConflictingIds()).containsExactly(existing));
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM surveyor_availability", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("createBusyBlock allows adjacent blocks, free states and other surveyors")
+    void createBusyBlock_AllowsNonConflicting() {
+        insert(1L, NINE, NINE.plusHours(2), "BUSY");
+        insert(1L, NINE.plusHours(2), NINE.plusHours(4), "AVAILABLE");
+        insert(1L, NINE.plusHours(2), NINE.plusHours(5), "CANCELLED");
+
+        availabilityService.createBusyBlock(1L, NINE.plusHours(2), NINE.plusHours(3));
+        availabilityService.createBusyBlock(2L, NINE, NINE.plusHours(2));
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM surveyor_availability WHERE state = 'BUSY'", Integer.class))
+                .isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("findConflicts returns overlapping busy blocks in start order")
+    void findConflicts_ReturnsOverlappingBusyBlocks() {
+        long later = insert(1L, NINE.plusHours(3), NINE.plusHours(5), "AWAY");
+        long earlier = insert(1L, NINE, NINE.plusHours(1), "BUSY");
+        insert(1L, NINE.plusHours(5), NINE.plusHours(6), "BUSY");
+
+        assertThat(availabilityService.findConflicts(1L, NINE.plusMinutes(30), NINE.plusHours(5)))
+                .extracting(AvailabilityEntry::id)
+                .containsExactly(earlier, later);
+        assertThatThrownBy(() -> availabilityService.findConflicts(1L, NINE, NINE))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private long insert(Long surveyorId, OffsetDateTime start, OffsetDateTime end, String state) {
+        jdbc.update("INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, source) VALUES (?, ?, ?, ?, 'CMX')",
+                surveyorId, Timestamp.from(start.toInstant()), Timestamp.from(end.toInstant()), state);
+        return jdbc.queryForObject("SELECT MAX(id) FROM surveyor_availability", Long.class);
+    }
+}
@@ -0,0 +1,97 @@
+package com.cmx.service;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.config.JacksonConfig;
+import com.cmx.schedule.AvailabilityOverlap;
+import com.cmx.service.AvailabilityExportService.Format;
+import com.cmx.support.TestDatabase;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("AvailabilityExportService Tests")
+class AvailabilityExportServiceTest {
+
+    private static final OffsetDateTime DAY = OffsetDateTime.parse("2024-05-01T00:00:00Z");
+
+    private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+    private SingleConnectionDataSource h2;
+    private JdbcTemplate jdbc;
+    private AvailabilityExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        h2 = TestDatabase.create("availability_export_test");
+        jdbc = new JdbcTemplate(h2);
+        TestDatabase.insertSurveyors(jdbc, 1, 2);
+        exportService = new AvailabilityExportService(jdbc, new AvailabilityOverlap(new DatabaseDialect(jdbc)),
+                new DataSourceTransactionManager(h2), objectMapper, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.drop(h2);
+    }
+
+    @Test
+    @DisplayName("NDJSON export streams every row in the range past the fetch size, one object per line")
+    void export_Ndjson_AllRowsInRange() throws Exception {
+        for (int hour = 0; hour < 7; hour++) {
+            addBlock(1, DAY.plusHours(hour), "BUSY", null);
+        }
+        addBlock(2, DAY.plusHours(3), "AVAILABLE", null);
+        addBlock(1, DAY.plusDays(2), "BUSY", null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.export(Format.NDJSON, DAY, DAY.plusDays(1), List.of(), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(rows).isEqualTo(8);
+        assertThat(lines).hasSize(8);
+        JsonNode last = objectMapper.readTree(lines[7]);
+        assertThat(last.get("surveyor_id").asLong()).isEqualTo(2);
+        assertThat(last.get("state").asText()).isEqualTo("AVAILABLE");
+    }
+
+    @Test
+    @DisplayName("CSV export writes a header and quotes fields with separators")
+    void export_Csv_FilteredAndEscaped() throws Exception {
+        addBlock(1, DAY.plusHours(1), "BUSY", "Inspection, \"urgent\"");
+        addBlock(2, DAY.plusHours(2), "BUSY", "Other surveyor");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(Format.CSV, DAY, DAY.plusDays(1), List.of(1L), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).isEqualTo(AvailabilityExportService.CSV_HEADER);
+        assertThat(lines[1]).startsWith("1,1,").contains(",BUSY,MOBILE,\"Inspection, \"\"urgent\"\"\",");
+    }
+
+    @Test
+    @DisplayName("unknown formats are rejected")
+    void format_Unknown() {
+        assertThat(Format.parse(" CSV ")).isEqualTo(Format.CSV);
+        assertThatThrownBy(() -> Format.parse("xml")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void addBlock(long surveyorId, OffsetDateTime start, String state, String title) {
+        jdbc.update("INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, source, title) VALUES (?, ?, ?, ?, 'MOBILE', ?)",
+                surveyorId, Timestamp.from(start.toInstant()), Timestamp.from(start.plusMinutes(30).toInstant()), state, title);
+    }
+}
@@ -0,0 +1,114 @@
+package com.cmx.service;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.dto.AvailabilityDto.AvailabilityEntry;
+import com.cmx.dto.AvailabilityDto.AvailabilityPage;
+import com.cmx.repository.AvailabilityRepository;
+import com.cmx.schedule.AvailabilityIndex;
+import com.cmx.schedule.AvailabilityOverlap;
+import com.cmx.support.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Availability paging Tests")
+class AvailabilityPagingTest {
+
+    private static final String FROM = "2024-05-01T00:00:00Z";
+    private static final String TO = "2024-05-02T00:00:00Z";
+
+    @Mock
+    private AvailabilityRepository availabilityRepository;
+
+    @Mock
+    private SurveyorCacheEvictor cacheEvictor;
+
+    private SingleConnectionDataSource h2;
+    private JdbcTemplate jdbc;
+    private AvailabilityService availabilityService;
+
+    @BeforeEach
+    void setUp() {
+        h2 = TestDatabase.create("availability_paging_test");
+        jdbc = new JdbcTemplate(h2);
+        TestDatabase.insertSurveyors(jdbc, 1, 2, 3);
+        AvailabilityOverlap overlap = new AvailabilityOverlap(new DatabaseDialect(jdbc));
+        availabilityService = new AvailabilityService(availabilityRepository, jdbc, new AvailabilityIndex(jdbc, 7),
+                overlap, new DatabaseDialect(jdbc), new CalendarDayCache(jdbc, overlap, "UTC", 1000, 30), cacheEvictor);
+
+        OffsetDateTime day = OffsetDateTime.parse(FROM);
+        for (long surveyor = 3; surveyor >= 1; surveyor--) {
+            for (int hour = 0; hour < 3; hour++) {
+                addBlock(surveyor, day.plusHours(9 + hour));
+            }
+        }
+        // Same start as an existing block, so the id breaks the tie
+        addBlock(2, day.plusHours(10), 15);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.drop(h2);
+    }
+
+    @Test
+    @DisplayName("following cursors visits every row once, in offset order")
+    void keysetPages_MatchOffsetOrder() {
+        List<AvailabilityEntry> all = availabilityService.getAvailability(FROM, TO, null, null, 100, 0);
+
+        List<AvailabilityEntry> paged = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+        while (cursor != null) {
+            AvailabilityPage page = availabilityService.getAvailabilityPage(FROM, TO, null, null, 3, cursor);
+            paged.addAll(page.entries());
+            cursor = page.nextCursor();
+            pages++;
+        }
+
+        assertThat(all).hasSize(10);
+        assertThat(paged).extracting(AvailabilityEntry::id).containsExactlyElementsOf(all.stream().map(AvailabilityEntry::id).toList());
+        assertThat(pages).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("surveyor ids are bound as one array parameter")
+    void surveyorIds_BoundAsArray() {
+        AvailabilityPage page = availabilityService.getAvailabilityPage(FROM, TO, null, "3, 1", 100, null);
+
+        assertThat(page.entries()).extracting(AvailabilityEntry::surveyorId).containsOnly(1L, 3L).hasSize(6);
+        assertThat(page.nextCursor()).isNull();
+        assertThat(availabilityService.getAvailability(FROM, TO, 2L, null, 100, 0)).hasSize(4);
+    }
+
+    @Test
+    @DisplayName("malformed cursors are rejected")
+    void invalidCursor_Rejected() {
+        assertThatThrownBy(() -> availabilityService.getAvailabilityPage(FROM, TO, null, null, 3, "not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void addBlock(long surveyorId, OffsetDateTime start) {
+        addBlock(surveyorId, start, 30);
+    }
+
+    private void addBlock(long surveyorId, OffsetDateTime start, int minutes) {
+        jdbc.update("INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, source) VALUES (?, ?, ?, 'BUSY', 'CMX')",
+                surveyorId, Timestamp.from(start.toInstant()), Timestamp.from(start.plusMinutes(minutes).toInstant()));
+    }
+}
@@ -1,7 +1,9 @@
 package com.cmx.service;
 
+import com.cmx.dto.AvailabilityDto.AvailabilityEntry;
 import com.cmx.model.SurveyorAvailability;
 import com.cmx.repository.AvailabilityRepository;
+import com.cmx.schedule.AvailabilityIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -11,7 +13,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -25,11 +26,14 @@ class AvailabilityServiceTest {
     @Mock
     private AvailabilityRepository availabilityRepository;
 
+    @Mock
+    private SurveyorCacheEvictor cacheEvictor;
+
     private AvailabilityService availabilityService;
 
     @BeforeEach
     void setUp() {
-        availabilityService = new AvailabilityService(availabilityRepository, null);
+        availabilityService = new AvailabilityService(availabilityRepository, null, new AvailabilityIndex(null, 7), null, null, null, cacheEvictor);
     }
 
     @Test
@@ -48,13 +52,13 @@ class AvailabilityServiceTest {
         when(availabilityRepository.findByTimeRange(any(), any(), anyInt(), anyInt()))
                 .thenReturn(List.of(availability));
 
-        List<Map<String, Object>> result = availabilityService.getAvailability(
+        List<AvailabilityEntry> result = availabilityService.getAvailability(
                 now.toString(), now.plusDays(1).toString(), null, null, 500, 0
         );
 
         assertThat(result).hasSize(1);
-        assertThat(result.get(0).get("id")).isEqualTo(1L);
-        assertThat(result.get(0).get("state")).isEqualTo("AVAILABLE");
+        assertThat(result.get(0).id()).isEqualTo(1L);
+        assertThat(result.get(0).state()).isEqualTo("AVAILABLE");
     }
 
     @Test
@@ -65,7 +69,7 @@ class AvailabilityServiceTest {
         when(availabilityRepository.findByTimeRangeAndSurveyorId(any(), any(), eq(1L), anyInt(), anyInt()))
                 .thenReturn(List.of());
 
-        List<Map<String, Object>> result = availabilityService.getAvailability(
+        List<AvailabilityEntry> result = availabilityService.getAvailability(
                 now.toString(), now.plusDays(1).toString(), 1L, null, 500, 0
         );
 
@@ -0,0 +1,150 @@
+package com.cmx.service;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.dto.AvailabilityDto.AvailabilityBlock;
+import com.cmx.dto.AvailabilityDto.UpsertResult;
+import com.cmx.dto.AvailabilityDto.UpsertedBlock;
+import com.cmx.exception.ScheduleConflictException;
+import com.cmx.repository.AvailabilityRepository;
+import com.cmx.schedule.AvailabilityIndex;
+import com.cmx.schedule.AvailabilityOverlap;
+import com.cmx.support.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Availability upsert Tests")
+class AvailabilityUpsertTest {
+
+    @Mock
+    private AvailabilityRepository availabilityRepository;
+
+    @Mock
+    private SurveyorCacheEvictor cacheEvictor;
+
+    private SingleConnectionDataSource h2;
+    private JdbcTemplate jdbc;
+    private AvailabilityIndex availabilityIndex;
+    private AvailabilityService availabilityService;
+
+    @BeforeEach
+    void setUp() {
+        h2 = TestDatabase.create("availability_upsert_test");
+        jdbc = new JdbcTemplate(h2);
+        TestDatabase.insertSurveyors(jdbc, 1, 2, 3);
+        AvailabilityOverlap overlap = new AvailabilityOverlap(new DatabaseDialect(jdbc));
+        availabilityIndex = new AvailabilityIndex(jdbc, 7);
+        availabilityService = new AvailabilityService(availabilityRepository, jdbc, availabilityIndex,
+                overlap, new DatabaseDialect(jdbc), new CalendarDayCache(jdbc, overlap, "UTC", 1000, 30), cacheEvictor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.drop(h2);
+    }
+
+    @Test
+    @DisplayName("upsert reports inserted and updated rows with their ids")
+    void upsert_ReportsInsertedAndUpdated() {
+        UpsertResult first = availabilityService.upsertAvailability(1L, List.of(
+                block("2024-05-01T09:00:00Z", "2024-05-01T10:00:00Z", "BUSY", "A"),
+                block("2024-05-01T11:00:00Z", "2024-05-01T12:00:00Z", "BUSY", "B")));
+
+        assertThat(first.insertedCount()).isEqualTo(2);
+        assertThat(first.blocks()).extracting(UpsertedBlock::title).containsExactly("A", "B");
+
+        // Same range written with a different offset is the same block
+        UpsertResult second = availabilityService.upsertAvailability(1L, List.of(
+                block("2024-05-01T19:00:00+08:00", "2024-05-01T20:00:00+08:00", "AWAY", "B2"),
+                block("2024-05-01T13:00:00Z", "2024-05-01T14:00:00Z", "BUSY", "C")));
+
+        assertThat(second.blocks()).extracting(UpsertedBlock::inserted).containsExactly(false, true);
+        assertThat(second.blocks().get(0).id()).isEqualTo(first.blocks().get(1).id());
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM surveyor_availability", Integer.class)).isEqualTo(3);
+        assertThat(jdbc.queryForObject("SELECT state FROM surveyor_availability WHERE id = ?", String.class,
+                second.blocks().get(0).id())).isEqualTo("AWAY");
+        verify(cacheEvictor, times(2)).calendarChanged(1L);
+    }
+
+    @Test
+    @DisplayName("repeated time ranges in one batch collapse into the last block")
+    void upsert_DuplicateRangesCollapse() {
+        UpsertResult result = availabilityService.upsertAvailability(2L, List.of(
+                block("2024-05-02T09:00:00Z", "2024-05-02T10:00:00Z", "BUSY", "first"),
+                block("2024-05-02T09:00:00Z", "2024-05-02T10:00:00Z", "AWAY", "last")));
+
+        assertThat(result.blocks()).singleElement().satisfies(b -> {
+            assertThat(b.inserted()).isTrue();
+            assertThat(b.title()).isEqualTo("last");
+        });
+        assertThat(jdbc.queryForObject("SELECT title FROM surveyor_availability WHERE surveyor_id = 2", String.class))
+                .isEqualTo("last");
+    }
+
+    @Test
+    @DisplayName("overlapping BUSY blocks rejected by the exclusion constraint are a schedule conflict")
+    void upsert_BusyOverlapIsConflict() {
+        JdbcTemplate refusing = new JdbcTemplate(h2) {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                           ParameterizedPreparedStatementSetter<T> pss) {
+                throw new DataIntegrityViolationException("ex_av_busy_no_overlap",
+                        new SQLException("conflicting key value violates exclusion constraint", "23P01"));
+            }
+        };
+        AvailabilityOverlap overlap = new AvailabilityOverlap(new DatabaseDialect(refusing));
+        AvailabilityService service = new AvailabilityService(availabilityRepository, refusing, availabilityIndex,
+                overlap, new DatabaseDialect(refusing), new CalendarDayCache(refusing, overlap, "UTC", 1000, 30), cacheEvictor);
+
+        assertThatThrownBy(() -> service.upsertAvailability(1L, List.of(
+                block("2024-05-03T09:00:00Z", "2024-05-03T11:00:00Z", "BUSY", "A"),
+                block("2024-05-03T10:00:00Z", "2024-05-03T12:00:00Z", "BUSY", "B"))))
+                .isInstanceOf(ScheduleConflictException.class);
+    }
+
+    @Test
+    @DisplayName("the availability index sees an upsert only once it commits")
+    void upsert_IndexRefreshedAfterCommit() {
+        availabilityIndex.reload();
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(h2));
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        List<AvailabilityBlock> busyNow = List.of(
+                block(now.minusHours(1).toString(), now.plusHours(1).toString(), "BUSY", "now"));
+
+        tx.executeWithoutResult(status -> {
+            availabilityService.upsertAvailability(3L, busyNow);
+            assertThat(availabilityIndex.stateAt(3L, now.toInstant())).isEqualTo(AvailabilityIndex.DEFAULT_STATE);
+            status.setRollbackOnly();
+        });
+        assertThat(availabilityIndex.stateAt(3L, now.toInstant())).isEqualTo(AvailabilityIndex.DEFAULT_STATE);
+
+        tx.executeWithoutResult(status -> availabilityService.upsertAvailability(3L, busyNow));
+        assertThat(availabilityIndex.stateAt(3L, now.toInstant())).isEqualTo("BUSY");
+    }
+
+    private static AvailabilityBlock block(String start, String end, String state, String title) {
+        return new AvailabilityBlock(start, end, state, title, null);
+    }
+}
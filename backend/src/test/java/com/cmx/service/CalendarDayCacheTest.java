@@ -0,0 +1,93 @@
+package com.cmx.service;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.dto.AvailabilityDto.AvailabilityEntry;
+import com.cmx.schedule.AvailabilityOverlap;
+import com.cmx.support.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("CalendarDayCache Tests")
+class CalendarDayCacheTest {
+
+    private static final Instant MAY_1 = Instant.parse("2024-05-01T00:00:00Z");
+    private static final Instant MAY_8 = Instant.parse("2024-05-08T00:00:00Z");
+
+    private SingleConnectionDataSource h2;
+    private JdbcTemplate jdbc;
+    private CalendarDayCache cache;
+
+    @BeforeEach
+    void setUp() {
+        h2 = TestDatabase.create("calendar_day_cache_test");
+        jdbc = new JdbcTemplate(h2);
+        TestDatabase.insertSurveyors(jdbc, 1, 2);
+        cache = new CalendarDayCache(jdbc, new AvailabilityOverlap(new DatabaseDialect(jdbc)), "UTC", 1000, 30);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.drop(h2);
+    }
+
+    @Test
+    @DisplayName("a range is assembled from day buckets, with blocks spanning midnight once")
+    void read_AssemblesRangeFromDays() {
+        long overnight = insert(1L, "2024-05-02T22:00:00Z", "2024-05-03T02:00:00Z", "night");
+        long morning = insert(1L, "2024-05-03T09:00:00Z", "2024-05-03T10:00:00Z", "morning");
+        long other = insert(2L, "2024-05-02T09:00:00Z", "2024-05-02T10:00:00Z", "other");
+        insert(1L, "2024-05-09T09:00:00Z", "2024-05-09T10:00:00Z", "next week");
+
+        List<AvailabilityEntry> week = cache.read(List.of(2L, 1L), MAY_1, MAY_8);
+
+        assertThat(week).extracting(AvailabilityEntry::id).containsExactly(overnight, morning, other);
+        assertThat(week.get(0).startTime().toInstant()).isEqualTo(Instant.parse("2024-05-02T22:00:00Z"));
+        assertThat(week.get(0).updatedAt()).isNotNull();
+
+        // A narrower range inside cached days still clips to the requested window
+        assertThat(cache.read(List.of(1L), Instant.parse("2024-05-03T03:00:00Z"), MAY_8))
+                .extracting(AvailabilityEntry::id).containsExactly(morning);
+    }
+
+    @Test
+    @DisplayName("warm days are served without a query until a write invalidates them")
+    void read_ServesWarmDaysUntilInvalidated() {
+        insert(1L, "2024-05-02T09:00:00Z", "2024-05-02T10:00:00Z", "first");
+        cache.read(List.of(1L), MAY_1, MAY_8);
+
+        long added = insert(1L, "2024-05-04T09:00:00Z", "2024-05-04T10:00:00Z", "second");
+        assertThat(cache.read(List.of(1L), MAY_1, MAY_8)).hasSize(1);
+
+        // Invalidating another day leaves May 4th stale; invalidating May 4th picks the block up
+        cache.invalidate(1L, Instant.parse("2024-05-05T09:00:00Z"), Instant.parse("2024-05-05T10:00:00Z"));
+        assertThat(cache.read(List.of(1L), MAY_1, MAY_8)).hasSize(1);
+        cache.invalidate(1L, Instant.parse("2024-05-04T09:00:00Z"), Instant.parse("2024-05-04T10:00:00Z"));
+        assertThat(cache.read(List.of(1L), MAY_1, MAY_8)).extracting(AvailabilityEntry::id).endsWith(added);
+    }
+
+    @Test
+    @DisplayName("reads spanning too many surveyor-days are not cached")
+    void read_TooLargeReturnsNull() {
+        List<Long> ids = LongStream.rangeClosed(1, CalendarDayCache.MAX_CELLS / 7 + 1).boxed().toList();
+
+        assertThat(cache.read(ids, MAY_1, MAY_8)).isNull();
+    }
+
+    private long insert(Long surveyorId, String start, String end, String title) {
+        jdbc.update("INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, source, title) " +
+                        "VALUES (?, ?, ?, 'BUSY', 'CMX', ?)",
+                surveyorId, Timestamp.from(Instant.parse(start)), Timestamp.from(Instant.parse(end)), title);
+        return jdbc.queryForObject("SELECT MAX(id) FROM surveyor_availability", Long.class);
+    }
+}
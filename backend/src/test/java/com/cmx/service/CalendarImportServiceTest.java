@@ -0,0 +1,153 @@
+package com.cmx.service;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.dto.AvailabilityDto.ImportResult;
+import com.cmx.dto.AvailabilityDto.ImportedSurveyor;
+import com.cmx.schedule.AvailabilityIndex;
+import com.cmx.schedule.CalendarImportReader.Format;
+import com.cmx.support.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Calendar import Tests")
+class CalendarImportServiceTest {
+
+    @Mock
+    private AvailabilityIndex availabilityIndex;
+
+    @Mock
+    private SurveyorCacheEvictor cacheEvictor;
+
+    @Mock
+    private NotificationService notificationService;
+
+    private SingleConnectionDataSource h2;
+    private JdbcTemplate jdbc;
+    private CalendarImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        h2 = TestDatabase.create("calendar_import_test");
+        jdbc = new JdbcTemplate(h2);
+        TestDatabase.insertSurveyors(jdbc, 1, 2);
+        importService = new CalendarImportService(jdbc, new DataSourceTransactionManager(h2), new DatabaseDialect(jdbc),
+                availabilityIndex, cacheEvictor, notificationService, "UTC");
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.drop(h2);
+    }
+
+    @Test
+    @DisplayName("CSV rows are merged; the last row for a range wins and unknown surveyors are skipped")
+    void importCsv_MergesAndReports() throws IOException {
+        jdbc.update("INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, source) VALUES (1, ?, ?, 'BUSY', 'MOBILE')",
+                Timestamp.from(Instant.parse("2024-05-01T09:00:00Z")),
+                Timestamp.from(Instant.parse("2024-05-01T10:00:00Z")));
+
+        ImportResult result = importService.importCalendar(Format.CSV, stream("""
+                surveyor_id,start_time,end_time,state,title,description
+                1,2024-05-01T09:00:00Z,2024-05-01T10:00:00Z,BUSY,"Site visit, Leeds",
+                1,2024-05-01T11:00:00Z,2024-05-01T12:00:00Z,BUSY,first,
+                1,2024-05-01T11:00:00Z,2024-05-01T12:00:00Z,AWAY,second,"two
+                lines"
+                2,2024-05-02T09:00:00Z,2024-05-02T17:00:00Z,AVAILABLE,,
+                9,2024-05-02T09:00:00Z,2024-05-02T10:00:00Z,BUSY,ghost,
+                2,not-a-time,2024-05-02T10:00:00Z,BUSY,,
+                """), null, true);
+
+        assertThat(result.rows()).isEqualTo(4);
+        assertThat(result.skipped()).isEqualTo(2);
+        assertThat(result.errors()).hasSize(2).anyMatch(e -> e.contains("unknown surveyor 9"));
+        assertThat(result.surveyors()).extracting(ImportedSurveyor::surveyorId).containsExactly(1L, 2L);
+        assertThat(result.surveyors().get(0).inserted()).isEqualTo(1);
+        assertThat(result.surveyors().get(0).updated()).isEqualTo(1);
+        assertThat(result.surveyors().get(0).lastEnd().toInstant()).isEqualTo(Instant.parse("2024-05-01T12:00:00Z"));
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM surveyor_availability", Integer.class)).isEqualTo(3);
+        assertThat(jdbc.queryForList("SELECT title FROM surveyor_availability WHERE surveyor_id = 1 ORDER BY start_time", String.class))
+                .containsExactly("Site visit, Leeds", "second");
+        assertThat(jdbc.queryForObject("SELECT description FROM surveyor_availability WHERE title = 'second'", String.class))
+                .isEqualTo("two\nlines");
+        verify(cacheEvictor).calendarChanged(1L, Instant.parse("2024-05-01T09:00:00Z"), Instant.parse("2024-05-01T12:00:00Z"));
+        verify(availabilityIndex).refreshSurveyor(2L);
+        verify(notificationService).sendImportSummaryNotifications(result);
+    }
+
+    @Test
+    @DisplayName("ICS events with folded lines, TZID and all-day dates import for the default surveyor")
+    void importIcs_DefaultSurveyor() throws IOException {
+        ImportResult result = importService.importCalendar(Format.ICS, stream("""
+                BEGIN:VCALENDAR\r
+                BEGIN:VEVENT\r
+                DTSTART;TZID=Europe/London:20240701T090000\r
+                DTEND;TZID=Europe/London:20240701T100000\r
+                SUMMARY:Roof survey at a very long address that\r
+                  continues on the next line\r
+                END:VEVENT\r
+                BEGIN:VEVENT\r
+                DTSTART;VALUE=DATE:20240702\r
+                DTEND;VALUE=DATE:20240703\r
+                SUMMARY:Leave\r
+                STATUS:CANCELLED\r
+                END:VEVENT\r
+                END:VCALENDAR\r
+                """), 2L, false);
+
+        assertThat(result.rows()).isEqualTo(2);
+        assertThat(result.surveyors()).singleElement().satisfies(s -> {
+            assertThat(s.inserted()).isEqualTo(2);
+            assertThat(s.firstStart().toInstant()).isEqualTo(Instant.parse("2024-07-01T08:00:00Z"));
+            assertThat(s.lastEnd().toInstant()).isEqualTo(Instant.parse("2024-07-03T00:00:00Z"));
+        });
+        assertThat(jdbc.queryForList("SELECT title FROM surveyor_availability ORDER BY start_time", String.class))
+                .containsExactly("Roof survey at a very long address that continues on the next line", "Leave");
+        assertThat(jdbc.queryForList("SELECT DISTINCT source FROM surveyor_availability", String.class))
+                .containsExactly(CalendarImportService.SOURCE);
+        verify(notificationService, never()).sendImportSummaryNotifications(any());
+    }
+
+    @Test
+    @DisplayName("a CSV with a bad header is rejected and leaves nothing staged or written")
+    void importCsv_BadHeaderRejected() throws IOException {
+        assertThatThrownBy(() -> importService.importCalendar(Format.CSV, stream("""
+                surveyor_id,from,to,state
+                1,2024-05-01T09:00:00Z,2024-05-01T10:00:00Z,BUSY
+                """), null, false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("start_time and end_time");
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM surveyor_availability", Integer.class)).isZero();
+        ImportResult next = importService.importCalendar(Format.CSV, stream("""
+                surveyor_id,start_time,end_time,state
+                1,2024-05-01T09:00:00Z,2024-05-01T10:00:00Z,BUSY
+                """), null, false);
+        assertThat(next.rows()).isEqualTo(1);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,133 @@
+package com.cmx.service;
+
+import com.cmx.dto.DispatchDto.RankedCandidate;
+import com.cmx.schedule.AvailabilityIndex;
+import com.cmx.support.TestDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CandidateRanker Tests")
+class CandidateRankerTest {
+
+    @Mock
+    private LocationIngestService locationIngest;
+
+    @Mock
+    private AvailabilityService availabilityService;
+
+    private SingleConnectionDataSource h2;
+    private JdbcTemplate jdbc;
+    private CandidateRanker candidateRanker;
+
+    @BeforeEach
+    void setUp() {
+        h2 = TestDatabase.create("candidate_ranker_test");
+        jdbc = new JdbcTemplate(h2);
+        lenient().when(locationIngest.getLastKnownPositions()).thenReturn(Map.of());
+        lenient().when(availabilityService.getCurrentState(anyLong(), any())).thenReturn(AvailabilityIndex.DEFAULT_STATE);
+        candidateRanker = new CandidateRanker(jdbc, locationIngest, availabilityService, new SimpleMeterRegistry(), 0.05);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.drop(h2);
+    }
+
+    @Test
+    @DisplayName("type, open-job and availability filters skip surveyors without shrinking the result")
+    void rank_AppliesFilters() {
+        surveyor(1, "INTERNAL", 13.700, 100.500);
+        surveyor(2, "EXTERNAL", 13.701, 100.500);
+        surveyor(3, "INTERNAL", 13.702, 100.500);
+        surveyor(4, "INTERNAL", 13.703, 100.500);
+        surveyor(5, "INTERNAL", 13.704, 100.500);
+        job(3, "ASSIGNED");
+        job(3, "ASSIGNED");
+        job(4, "COMPLETED");
+        when(availabilityService.getCurrentState(eq(4L), any())).thenReturn("BUSY");
+
+        assertThat(candidateRanker.rank(new CandidateRanker.Criteria(13.700, 100.500, 2, "internal", 1)))
+                .extracting(RankedCandidate::surveyorId).containsExactly(1L, 5L);
+        assertThat(candidateRanker.rank(new CandidateRanker.Criteria(13.700, 100.500, 3, null, null)))
+                .extracting(RankedCandidate::surveyorId).containsExactly(1L, 2L, 3L);
+        assertThat(candidateRanker.rank(new CandidateRanker.Criteria(13.700, 100.500, 1, "EXTERNAL", null)))
+                .singleElement().satisfies(c -> {
+                    assertThat(c.surveyorId()).isEqualTo(2L);
+                    assertThat(c.distanceMeters()).isBetween(100L, 120L);
+                });
+    }
+
+    @Test
+    @DisplayName("a half-set current position falls back to home as a pair, and no position at all is skipped")
+    void refresh_TakesPositionPairsWhole() {
+        jdbc.update("INSERT INTO surveyor (id, code, display_name, surveyor_type, status, current_lat, current_lng, home_lat, home_lng) VALUES " +
+                "(1, 'SVY-1', 'Surveyor 1', 'INTERNAL', 'ACTIVE', 13.700, NULL, 13.800, 100.600), " +
+                "(2, 'SVY-2', 'Surveyor 2', 'INTERNAL', 'ACTIVE', NULL, 100.500, NULL, NULL), " +
+                "(3, 'SVY-3', 'Surveyor 3', 'INTERNAL', 'ACTIVE', 13.700, 100.500, NULL, NULL), " +
+                "(4, 'SVY-4', 'Surveyor 4', 'INTERNAL', 'INACTIVE', 13.700, 100.500, NULL, NULL)");
+
+        candidateRanker.refresh();
+
+        assertThat(candidateRanker.getStats()).containsEntry("surveyors", 2);
+        assertThat(candidateRanker.rank(new CandidateRanker.Criteria(13.800, 100.600, 2, null, null)))
+                .extracting(RankedCandidate::surveyorId, RankedCandidate::distanceMeters)
+                .first().isEqualTo(tuple(1L, 0L));
+    }
+
+    @Test
+    @DisplayName("positions outside the globe are left out of the index")
+    void refresh_DropsImpossiblePositions() {
+        surveyor(1, "INTERNAL", 13.700, 100.500);
+        surveyor(2, "INTERNAL", 13.701, 100.500);
+        when(locationIngest.getLastKnownPositions()).thenReturn(Map.of(
+                2L, new LocationIngestService.Position(2L, 300.0, 100.500, null, 0L)));
+
+        candidateRanker.refresh();
+
+        assertThat(candidateRanker.getStats()).containsEntry("surveyors", 1);
+        assertThat(candidateRanker.rank(new CandidateRanker.Criteria(13.700, 100.500, 2, null, null)))
+                .extracting(RankedCandidate::surveyorId).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("limits outside 1..200 are rejected")
+    void criteria_LimitBounded() {
+        assertThatThrownBy(() -> new CandidateRanker.Criteria(13.7, 100.5, 0, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CandidateRanker.Criteria(13.7, 100.5, CandidateRanker.Criteria.MAX_LIMIT + 1, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void surveyor(long id, String type, double lat, double lng) {
+        jdbc.update("INSERT INTO surveyor (id, code, display_name, surveyor_type, status, current_lat, current_lng) " +
+                "VALUES (?, ?, ?, ?, 'ACTIVE', ?, ?)", id, "SVY-" + id, "Surveyor " + id, type, lat, lng);
+    }
+
+    private void job(long surveyorId, String status) {
+        LocalDateTime start = LocalDateTime.of(2024, 5, 1, 9, 0);
+        jdbc.update("INSERT INTO job_assignment (offer_group, fnol_id, surveyor_id, status, start_time, end_time) " +
+                "VALUES (?, 'FNOL-1', ?, ?, ?, ?)", UUID.randomUUID(), surveyorId, status, start, start.plusHours(2));
+    }
+}
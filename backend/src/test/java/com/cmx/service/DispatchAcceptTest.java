@@ -0,0 +1,184 @@
+package com.cmx.service;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.dto.DispatchDto.AcceptOfferResponse;
+import com.cmx.dto.DispatchDto.OfferResponse;
+import com.cmx.exception.OfferExpiredException;
+import com.cmx.exception.ScheduleConflictException;
+import com.cmx.repository.AvailabilityRepository;
+import com.cmx.repository.DispatchOfferRepository;
+import com.cmx.repository.JobAssignmentRepository;
+import com.cmx.schedule.AvailabilityIndex;
+import com.cmx.schedule.AvailabilityOverlap;
+import com.cmx.support.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Dispatch accept Tests")
+class DispatchAcceptTest {
+
+    @Mock
+    private DispatchOfferRepository dispatchOfferRepository;
+
+    @Mock
+    private JobAssignmentRepository jobAssignmentRepository;
+
+    @Mock
+    private AvailabilityRepository availabilityRepository;
+
+    @Mock
+    private SurveyorCacheEvictor cacheEvictor;
+
+    @Mock
+    private EventHubService eventHub;
+
+    @Mock
+    private OfferNotifier offerNotifier;
+
+    @Mock
+    private OfferExpiryScheduler offerExpiry;
+
+    @Mock
+    private CandidateRanker candidateRanker;
+
+    private SingleConnectionDataSource h2;
+    private JdbcTemplate jdbc;
+    private DispatchService dispatchService;
+
+    @BeforeEach
+    void setUp() {
+        h2 = TestDatabase.create("dispatch_accept_test");
+        jdbc = new JdbcTemplate(h2);
+        TestDatabase.insertSurveyors(jdbc, 1, 2, 3);
+
+        AvailabilityOverlap overlap = new AvailabilityOverlap(new DatabaseDialect(jdbc));
+        AvailabilityService availabilityService = new AvailabilityService(availabilityRepository, jdbc,
+                new AvailabilityIndex(jdbc, 7), overlap, new DatabaseDialect(jdbc), new CalendarDayCache(jdbc, overlap, "UTC", 1000, 30), cacheEvictor);
+        dispatchService = new DispatchService(dispatchOfferRepository, jobAssignmentRepository, availabilityService,
+                eventHub, jdbc, offerNotifier, offerExpiry, candidateRanker, new DatabaseDialect(jdbc), overlap, new DataSourceTransactionManager(h2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.drop(h2);
+    }
+
+    @Test
+    @DisplayName("accept creates the job and busy block and closes the other offers; later accepts lose")
+    void accept_OneWinner() {
+        OfferResponse offer = dispatchService.createOffers("FNOL-1", List.of(1L, 2L, 3L, 2L), 300, null);
+        assertThat(offer.offerIds()).hasSize(3).doesNotContainNull();
+
+        AcceptOfferResponse accepted = dispatchService.acceptOffer(offer.offerGroup(), 2L);
+
+        assertThat(accepted.ok()).isTrue();
+        assertThat(jdbc.queryForObject("SELECT surveyor_id FROM job_assignment WHERE id = ?", Long.class, accepted.jobId()))
+                .isEqualTo(2L);
+        assertThat(jdbc.queryForList("SELECT status FROM dispatch_offer ORDER BY surveyor_id", String.class))
+                .containsExactly("CLOSED", "ACCEPTED", "CLOSED");
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM surveyor_availability WHERE surveyor_id = 2 AND state = 'BUSY'",
+                Integer.class)).isEqualTo(1);
+
+        assertThatThrownBy(() -> dispatchService.acceptOffer(offer.offerGroup(), 3L))
+                .isInstanceOf(OfferExpiredException.class);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM job_assignment", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("a busy surveyor cannot accept and the offer stays open for the others")
+    void accept_BusySurveyorRejected() {
+        OfferResponse offer = dispatchService.createOffers("FNOL-2", List.of(1L, 2L), 300, null);
+        Instant now = Instant.now();
+        jdbc.update("INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, source) VALUES (1, ?, ?, 'BUSY', 'CMX')",
+                Timestamp.from(now.minus(1, ChronoUnit.HOURS)), Timestamp.from(now.plus(1, ChronoUnit.HOURS)));
+
+        assertThatThrownBy(() -> dispatchService.acceptOffer(offer.offerGroup(), 1L))
+                .isInstanceOf(ScheduleConflictException.class);
+        assertThat(jdbc.queryForList("SELECT DISTINCT status FROM dispatch_offer", String.class)).containsExactly("PENDING");
+
+        assertThat(dispatchService.acceptOffer(offer.offerGroup(), 2L).ok()).isTrue();
+    }
+
+    @Test
+    @DisplayName("an expired offer cannot be accepted")
+    void accept_Expired() {
+        OfferResponse offer = dispatchService.createOffers("FNOL-3", List.of(1L), 0, null);
+
+        assertThatThrownBy(() -> dispatchService.acceptOffer(offer.offerGroup(), 1L))
+                .isInstanceOf(OfferExpiredException.class);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM job_assignment", Integer.class)).isZero();
+    }
+
+    @Test
+    @DisplayName("an expired wave is closed in one update and the next wave opens for its ttl")
+    void expiry_OpensNextWave() {
+        OfferResponse offer = dispatchService.createOffers("FNOL-4", List.of(1L, 2L, 3L), 0, 2);
+        UUID group = UUID.fromString(offer.offerGroup());
+        verify(offerExpiry).schedule(eq(group), any());
+        assertThat(jdbc.queryForList("SELECT status FROM dispatch_offer ORDER BY surveyor_id", String.class))
+                .containsExactly("PENDING", "PENDING", "QUEUED");
+
+        OfferExpiryScheduler scheduler = new OfferExpiryScheduler(jdbc, new DataSourceTransactionManager(h2), offerNotifier, eventHub, 100, 64);
+        scheduler.expire(group);
+
+        assertThat(jdbc.queryForList("SELECT status FROM dispatch_offer ORDER BY surveyor_id", String.class))
+                .containsExactly("EXPIRED", "EXPIRED", "PENDING");
+        verify(offerNotifier).notifyCandidates(eq(offer.offerGroup()), eq("FNOL-4"),
+                eq(List.of(new OfferNotifier.Candidate(3L, offer.offerIds().get(2)))), any(), anyLong());
+
+        // The last wave runs out too; nothing is left to open
+        scheduler.expire(group);
+        assertThat(jdbc.queryForList("SELECT DISTINCT status FROM dispatch_offer", String.class)).containsExactly("EXPIRED");
+        verify(eventHub).publish(eq(EventHubService.Topic.OFFERS), eq("offer-expired"), any());
+        scheduler.shutdown();
+    }
+
+    @Test
+    @DisplayName("an expiry that fails is rescheduled and opens the next wave when retried")
+    void expiry_FailureRescheduled() {
+        OfferResponse offer = dispatchService.createOffers("FNOL-5", List.of(1L, 2L), 0, 1);
+        UUID group = UUID.fromString(offer.offerGroup());
+        PlatformTransactionManager flaky = spy(new DataSourceTransactionManager(h2));
+        doThrow(new CannotCreateTransactionException("Connection refused"))
+                .doCallRealMethod().when(flaky).getTransaction(any());
+        OfferExpiryScheduler scheduler = new OfferExpiryScheduler(jdbc, flaky, offerNotifier, eventHub, 100, 64);
+
+        scheduler.expire(group);
+
+        assertThat(scheduler.getStats()).containsEntry("openGroups", 1);
+        assertThat(jdbc.queryForList("SELECT status FROM dispatch_offer ORDER BY surveyor_id", String.class))
+                .containsExactly("PENDING", "QUEUED");
+
+        scheduler.expire(group);
+
+        assertThat(jdbc.queryForList("SELECT status FROM dispatch_offer ORDER BY surveyor_id", String.class))
+                .containsExactly("EXPIRED", "PENDING");
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,110 @@
+package com.cmx.service;
+
+import com.cmx.service.EventHubService.Topic;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("EventHubService Tests")
+class EventHubServiceTest {
+
+    /**
+     * Emitter that records the frames published to it instead of writing to a response.
+     */
+    static class RecordingEmitter extends SseEmitter {
+        final List<String> frames = new ArrayList<>();
+        boolean failing;
+        boolean completed;
+
+        RecordingEmitter(long timeout) {
+            super(timeout);
+        }
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            frames.add(items.stream().map(item -> String.valueOf(item.getData())).collect(Collectors.joining()));
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+    }
+
+    private final List<RecordingEmitter> emitters = new ArrayList<>();
+    private EventHubService eventHub;
+
+    @BeforeEach
+    void setUp() {
+        eventHub = new EventHubService(new ObjectMapper()) {
+            @Override
+            SseEmitter newEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = new RecordingEmitter(timeoutMillis);
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("publish reaches only the subscribers of the topic")
+    void publish_OnlyToTopicSubscribers() {
+        eventHub.subscribe(EnumSet.of(Topic.OFFERS), 1_000, "offers");
+        eventHub.subscribe(EnumSet.of(Topic.ACTIVITY), 1_000, "activity");
+
+        eventHub.publish(Topic.OFFERS, "offer-created", Map.of("offerGroup", "g-1"));
+
+        assertThat(emitters.get(0).frames).singleElement().asString()
+                .contains("offer-created").contains("\"offerGroup\":\"g-1\"");
+        assertThat(emitters.get(1).frames).isEmpty();
+    }
+
+    @Test
+    @DisplayName("closing a topic completes its connections and leaves other streams open")
+    void closeTopic_LeavesOtherStreams() {
+        eventHub.subscribe(EnumSet.of(Topic.ACTIVITY), 1_000, "dispatcher");
+        eventHub.subscribe(EnumSet.of(Topic.LOCATIONS), 1_000, "locations");
+        eventHub.subscribe(EnumSet.of(Topic.ACTIVITY, Topic.OFFERS), 1_000, "events");
+
+        eventHub.closeTopic(Topic.ACTIVITY);
+
+        assertThat(emitters.get(0).completed).isTrue();
+        assertThat(emitters.get(1).completed).isFalse();
+        assertThat(emitters.get(2).completed).isFalse();
+        assertThat(eventHub.getSubscriberCount(Topic.ACTIVITY)).isZero();
+        assertThat(eventHub.getSubscriberCount(Topic.LOCATIONS)).isEqualTo(1);
+        assertThat(eventHub.getSubscriberCount(Topic.OFFERS)).isEqualTo(1);
+        assertThat(eventHub.getConnectionCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("a subscriber whose send fails is removed from every topic")
+    void publish_DropsBrokenConnection() {
+        eventHub.subscribe(EnumSet.of(Topic.OFFERS, Topic.CHAT), 1_000, "broken");
+        eventHub.subscribe(EnumSet.of(Topic.OFFERS), 1_000, "healthy");
+        emitters.get(0).failing = true;
+
+        eventHub.publish(Topic.OFFERS, "offer-created", "{}");
+
+        assertThat(eventHub.getSubscriberCount(Topic.OFFERS)).isEqualTo(1);
+        assertThat(eventHub.getSubscriberCount(Topic.CHAT)).isZero();
+        assertThat(eventHub.getConnectionCount()).isEqualTo(1);
+        assertThat(emitters.get(1).frames).hasSize(1);
+    }
+}
@@ -0,0 +1,237 @@
+package com.cmx.service;
+
+import com.cmx.config.DatabaseDialect;
+import com.cmx.dto.LocationDto.LocationBatchResponse;
+import com.cmx.dto.LocationDto.LocationMessage;
+import com.cmx.location.LocationUpdateFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("LocationIngestService Tests")
+class LocationIngestServiceTest {
+
+    @Mock
+    private SurveyorService surveyorService;
+
+    @Mock
+    private LocationBroadcastService broadcastService;
+
+    @Mock
+    private LocationHistoryService historyService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private DatabaseDialect dialect;
+
+    @Mock
+    private SurveyorCacheEvictor cacheEvictor;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private LocationIngestService ingestService;
+
+    @BeforeEach
+    void setUp() {
+        ingestService = new LocationIngestService(surveyorService, broadcastService, historyService, jdbcTemplate, dialect,
+                new LocationUpdateFilter(true, 10, 60_000), new LocationPipelineMetrics(meterRegistry), cacheEvictor);
+    }
+
+    @Test
+    @DisplayName("ingest broadcasts immediately without touching the database")
+    void ingest_BroadcastsWithoutDatabaseWrite() {
+        when(surveyorService.getDisplayName(1L)).thenReturn("Alex");
+
+        boolean accepted = ingestService.ingest(1L, 1.30, 103.80, "AVAILABLE");
+
+        assertThat(accepted).isTrue();
+        verify(broadcastService).broadcastLocationUpdate(1L, 1.30, 103.80, "AVAILABLE", "Alex");
+        verifyNoInteractions(jdbcTemplate);
+        assertThat(ingestService.getLastKnown(1L).lat()).isEqualTo(1.30);
+    }
+
+    @Test
+    @DisplayName("stationary and out-of-order pings are dropped before broadcast and history")
+    void ingest_FilteredPings_NotBroadcast() {
+        when(surveyorService.getDisplayName(1L)).thenReturn("Alex");
+        long now = System.currentTimeMillis();
+
+        ingestService.ingest(1L, 1.30, 103.80, null, now - 5_000);
+        ingestService.ingest(1L, 1.30001, 103.80001, null, now - 4_000);
+        ingestService.ingest(1L, 1.35, 103.85, null, now - 6_000);
+
+        verify(broadcastService, times(1)).broadcastLocationUpdate(anyLong(), anyDouble(), anyDouble(), any(), any());
+        verify(historyService, times(1)).record(anyLong(), anyDouble(), anyDouble(), any());
+        assertThat(ingestService.getLastKnown(1L).timestamp()).isEqualTo(now - 5_000);
+        assertThat(meterRegistry.get("location.ingest.stage").tag("stage", "lookup").timer().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("location.ingest.stage").tag("stage", "broadcast").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("location.ingest.lag").timer().max(TimeUnit.MILLISECONDS))
+                .isGreaterThanOrEqualTo(5_000);
+    }
+
+    @Test
+    @DisplayName("ingest rejects unknown surveyors")
+    void ingest_UnknownSurveyor_ReturnsFalse() {
+        when(surveyorService.getDisplayName(99L)).thenReturn(null);
+
+        assertThat(ingestService.ingest(99L, 1.30, 103.80, null)).isFalse();
+        verifyNoInteractions(broadcastService);
+    }
+
+    @Test
+    @DisplayName("ingest rejects positions and statuses the surveyor table cannot hold")
+    void ingest_InvalidPing_Rejected() {
+        assertThatThrownBy(() -> ingestService.ingest(1L, 300, 103.80, null))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("out of range");
+        assertThatThrownBy(() -> ingestService.ingest(1L, Double.NaN, 103.80, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ingestService.ingest(1L, 1.30, 103.80, "A".repeat(17)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("16 characters");
+
+        assertThat(ingestService.getLastKnown(1L)).isNull();
+        assertThat(ingestService.getStats()).containsEntry("pendingPositions", 0);
+        verifyNoInteractions(surveyorService, broadcastService, historyService);
+    }
+
+    @Test
+    @DisplayName("a row the database refuses is dropped alone instead of failing every flush")
+    void flush_RefusedRow_DroppedAlone() {
+        when(surveyorService.getDisplayName(anyLong())).thenReturn("Surveyor");
+        doAnswer(invocation -> {
+            Collection<LocationIngestService.Position> rows = invocation.getArgument(1);
+            if (rows.stream().anyMatch(p -> p.surveyorId() == 2L)) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            return new int[][]{new int[rows.size()]};
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+
+        ingestService.ingest(1L, 1.30, 103.80, null);
+        ingestService.ingest(2L, 1.40, 103.90, null);
+        ingestService.ingest(3L, 1.50, 104.00, null);
+
+        ingestService.flush();
+        ingestService.flush();
+
+        // The chunk of three, then each row on its own; nothing is left to retry
+        verify(jdbcTemplate, times(4)).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        assertThat(ingestService.getStats())
+                .containsEntry("pendingPositions", 0)
+                .containsEntry("rowsFlushed", 2L)
+                .containsEntry("rowsDropped", 1L);
+    }
+
+    @Test
+    @DisplayName("a direct status write waits for an in-flight flush and clears the queued status")
+    void updateStatus_SerializedWithFlush() throws InterruptedException {
+        List<String> writes = Collections.synchronizedList(new ArrayList<>());
+        when(surveyorService.getDisplayName(1L)).thenReturn("Alex");
+        when(surveyorService.updateStatus(1L, "OFFLINE")).thenAnswer(invocation -> writes.add("direct OFFLINE"));
+        Thread direct = new Thread(() -> ingestService.updateStatus(1L, "OFFLINE"));
+        doAnswer(invocation -> {
+            Collection<LocationIngestService.Position> rows = invocation.getArgument(1);
+            if (direct.getState() == Thread.State.NEW) {
+                direct.start();
+                Thread.sleep(200);
+            }
+            writes.add("flush " + rows.iterator().next().status());
+            return new int[][]{new int[rows.size()]};
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+
+        ingestService.ingest(1L, 1.30, 103.80, "BUSY");
+        ingestService.flush();
+        direct.join();
+
+        assertThat(writes).containsExactly("flush BUSY", "direct OFFLINE");
+        assertThat(ingestService.getLastKnown(1L).status()).isEqualTo("OFFLINE");
+
+        ingestService.ingest(1L, 1.35, 103.85, "BUSY");
+        when(surveyorService.updateStatus(1L, "AVAILABLE")).thenReturn(true);
+        ingestService.updateStatus(1L, "AVAILABLE");
+        writes.clear();
+        ingestService.flush();
+
+        assertThat(writes).containsExactly("flush null");
+    }
+
+    @Test
+    @DisplayName("flush writes the newest position per surveyor in one statement on PostgreSQL")
+    void flush_Postgres_SingleStatementWithNewestPositions() {
+        when(surveyorService.getDisplayName(anyLong())).thenReturn("Surveyor");
+        when(dialect.isPostgres()).thenReturn(true);
+
+        ingestService.ingest(1L, 1.30, 103.80, "BUSY");
+        ingestService.ingest(1L, 1.31, 103.81, null);
+        ingestService.ingest(2L, 1.40, 103.90, null);
+
+        ingestService.flush();
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, times(1)).update(contains("FROM (VALUES"), args.capture());
+        assertThat(args.getValue()).hasSize(10);
+        assertThat(args.getValue()).contains(1.31, "BUSY");
+        assertThat(args.getValue()).doesNotContain(1.30);
+
+        ingestService.flush();
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("batch reports invalid items and applies only the newest position per surveyor")
+    void ingestBatch_PartialFailures_NewestPositionWins() {
+        when(surveyorService.getDisplayName(1L)).thenReturn("Alex");
+        when(surveyorService.getDisplayName(2L)).thenReturn(null);
+
+        LocationBatchResponse response = ingestService.ingestBatch(List.of(
+                new LocationMessage("location", 1L, 1.30, 103.80, null, "2025-10-18T09:00:00Z"),
+                new LocationMessage("location", 1L, 1.32, 103.82, null, "2025-10-18T09:02:00Z"),
+                new LocationMessage("location", 1L, 1.31, 103.81, null, "2025-10-18T09:01:00Z"),
+                new LocationMessage("location", 2L, 1.40, 103.90, null, null),
+                new LocationMessage("teleport", 1L, 1.40, 103.90, null, null),
+                new LocationMessage("location", 1L, 1.33, null, null, null)));
+
+        assertThat(response.received()).isEqualTo(6);
+        assertThat(response.accepted()).isEqualTo(3);
+        assertThat(response.rejected()).isEqualTo(3);
+        assertThat(response.positionsUpdated()).isEqualTo(1);
+        assertThat(response.results().get(3).error()).contains("Unknown surveyor");
+        assertThat(response.results().get(4).error()).contains("Unknown payload type");
+        assertThat(response.results().get(5).success()).isFalse();
+
+        verify(historyService).insertAll(argThat(samples -> samples.size() == 3));
+        verify(broadcastService).broadcastLocationUpdate(eq(1L), eq(1.32), eq(103.82), isNull(), eq("Alex"));
+        assertThat(ingestService.getLastKnown(1L).lat()).isEqualTo(1.32);
+    }
+
+    @Test
+    @DisplayName("batch clamps device timestamps from the future to the time of receipt")
+    void ingestBatch_FutureTimestamp_Clamped() {
+        when(surveyorService.getDisplayName(1L)).thenReturn("Alex");
+        long before = System.currentTimeMillis();
+
+        ingestService.ingestBatch(List.of(
+                new LocationMessage("location", 1L, 1.30, 103.80, null, String.valueOf(before + 3_600_000))));
+
+        assertThat(ingestService.getLastKnown(1L).timestamp()).isBetween(before, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,94 @@
+package com.cmx.service;
+
+import com.cmx.service.MessageDeduplicator.Outcome;
+import com.cmx.support.TestDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MessageDeduplicator Tests")
+class MessageDeduplicatorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("redelivery of a completed message is a duplicate, of a failed one is processed again")
+    void tryAcquire_LocalLifecycle() {
+        MessageDeduplicator deduplicator = new MessageDeduplicator(jdbcTemplate, meterRegistry, 60, 1000, false, 300);
+
+        assertThat(deduplicator.tryAcquire("msg_1")).isEqualTo(Outcome.NEW);
+        assertThat(deduplicator.tryAcquire("msg_1")).isEqualTo(Outcome.IN_PROGRESS);
+
+        deduplicator.complete("msg_1");
+        assertThat(deduplicator.tryAcquire("msg_1")).isEqualTo(Outcome.DUPLICATE);
+
+        assertThat(deduplicator.tryAcquire("msg_2")).isEqualTo(Outcome.NEW);
+        deduplicator.release("msg_2");
+        assertThat(deduplicator.tryAcquire("msg_2")).isEqualTo(Outcome.NEW);
+
+        assertThat(deduplicator.tryAcquire(null)).isEqualTo(Outcome.NEW);
+        assertThat(meterRegistry.counter("qstash.messages.deduplicated").count()).isEqualTo(1.0);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("a live claim of another node is in progress; only a completed one is a duplicate")
+    void tryAcquire_Persistent_ClaimedElsewhere() {
+        SingleConnectionDataSource h2 = TestDatabase.create("message_dedup_test");
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(h2);
+            MessageDeduplicator nodeA = new MessageDeduplicator(jdbc, meterRegistry, 60, 1000, true, 300);
+            MessageDeduplicator nodeB = new MessageDeduplicator(jdbc, meterRegistry, 60, 1000, true, 300);
+
+            assertThat(nodeA.tryAcquire("msg_1")).isEqualTo(Outcome.NEW);
+            assertThat(nodeB.tryAcquire("msg_1")).isEqualTo(Outcome.IN_PROGRESS);
+
+            nodeA.complete("msg_1");
+            assertThat(nodeB.tryAcquire("msg_1")).isEqualTo(Outcome.DUPLICATE);
+
+            assertThat(nodeA.tryAcquire("msg_2")).isEqualTo(Outcome.NEW);
+            nodeA.release("msg_2");
+            assertThat(nodeB.tryAcquire("msg_2")).isEqualTo(Outcome.NEW);
+        } finally {
+            TestDatabase.drop(h2);
+        }
+    }
+
+    @Test
+    @DisplayName("a claim left behind by a crashed node is taken over once its lease expires")
+    void tryAcquire_Persistent_ExpiredClaimTakenOver() {
+        SingleConnectionDataSource h2 = TestDatabase.create("message_dedup_test");
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(h2);
+            MessageDeduplicator crashed = new MessageDeduplicator(jdbc, meterRegistry, 60, 1000, true, 300);
+            MessageDeduplicator survivor = new MessageDeduplicator(jdbc, meterRegistry, 60, 1000, true, 300);
+
+            assertThat(crashed.tryAcquire("msg_1")).isEqualTo(Outcome.NEW);
+            jdbc.update("UPDATE processed_webhook_message SET claimed_at = ?",
+                    Timestamp.from(Instant.now().minusSeconds(301)));
+
+            assertThat(survivor.tryAcquire("msg_1")).isEqualTo(Outcome.NEW);
+            assertThat(crashed.tryAcquire("msg_1")).isEqualTo(Outcome.IN_PROGRESS);
+            survivor.complete("msg_1");
+            assertThat(jdbc.queryForObject("SELECT state FROM processed_webhook_message WHERE message_id = 'msg_1'",
+                    String.class)).isEqualTo("DONE");
+        } finally {
+            TestDatabase.drop(h2);
+        }
+    }
+}
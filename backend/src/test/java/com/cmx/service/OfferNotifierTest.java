@@ -0,0 +1,112 @@
+package com.cmx.service;
+
+import com.cmx.service.NotificationService.PushOutcome;
+import com.cmx.service.OfferNotifier.Candidate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OfferNotifier Tests")
+class OfferNotifierTest {
+
+    @Mock
+    private NotificationService notificationService;
+
+    private SimpleMeterRegistry registry;
+    private OfferNotifier offerNotifier;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        offerNotifier = new OfferNotifier(notificationService, registry, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        offerNotifier.shutdown();
+    }
+
+    @Test
+    @DisplayName("candidates are pushed in parallel and the first push is timed once per group")
+    void notifyCandidates_Parallel() throws Exception {
+        // Every push blocks until all three are in flight, which only happens if they run concurrently
+        CountDownLatch inFlight = new CountDownLatch(3);
+        doAnswer(inv -> {
+            inFlight.countDown();
+            inFlight.await(5, TimeUnit.SECONDS);
+            return PushOutcome.DELIVERED;
+        }).when(notificationService).sendNotificationToSurveyor(anyLong(), anyString(), anyString(), anyMap());
+
+        offerNotifier.notifyCandidates("g1", "FNOL-1",
+                List.of(new Candidate(1L, 11L), new Candidate(2L, 12L), new Candidate(3L, 13L)),
+                Instant.now().plusSeconds(30), System.nanoTime()).get(5, TimeUnit.SECONDS);
+
+        assertThat(inFlight.getCount()).isZero();
+        assertThat(registry.get("dispatch.offer.first_notification").timer().count()).isEqualTo(1);
+        assertThat(registry.get("dispatch.offer.notifications").tag("outcome", "sent").counter().count()).isEqualTo(3);
+        verify(notificationService).sendNotificationToSurveyor(eq(2L), anyString(), anyString(), anyMap());
+    }
+
+    @Test
+    @DisplayName("a push still running at the offer's expiry is cut off and counted only as expired")
+    void notifyCandidates_DeadlineFromTtl() throws Exception {
+        // One worker, so the follow-up offer below only runs once the late push has returned
+        offerNotifier.shutdown();
+        offerNotifier = new OfferNotifier(notificationService, registry, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return PushOutcome.DELIVERED;
+        }).when(notificationService).sendNotificationToSurveyor(anyLong(), anyString(), anyString(), anyMap());
+
+        long started = System.nanoTime();
+        offerNotifier.notifyCandidates("g2", "FNOL-2", List.of(new Candidate(1L, 21L)),
+                Instant.now().plusMillis(200), started).get(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(2000);
+
+        offerNotifier.notifyCandidates("g2b", "FNOL-2", List.of(new Candidate(2L, 22L)),
+                Instant.now().plusSeconds(30), System.nanoTime()).get(5, TimeUnit.SECONDS);
+
+        assertThat(registry.get("dispatch.offer.notifications").tag("outcome", "expired").counter().count()).isEqualTo(1);
+        assertThat(registry.get("dispatch.offer.notifications").tag("outcome", "sent").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("candidates without devices or whose every device failed are not counted as sent")
+    void notifyCandidates_UndeliveredOutcomes() throws Exception {
+        when(notificationService.sendNotificationToSurveyor(eq(1L), anyString(), anyString(), anyMap()))
+                .thenReturn(PushOutcome.NO_TOKENS);
+        when(notificationService.sendNotificationToSurveyor(eq(2L), anyString(), anyString(), anyMap()))
+                .thenReturn(PushOutcome.UNDELIVERED);
+
+        offerNotifier.notifyCandidates("g3", "FNOL-3", List.of(new Candidate(1L, 31L), new Candidate(2L, 32L)),
+                Instant.now().plusSeconds(30), System.nanoTime()).get(5, TimeUnit.SECONDS);
+
+        assertThat(registry.get("dispatch.offer.notifications").tag("outcome", "no_tokens").counter().count()).isEqualTo(1);
+        assertThat(registry.get("dispatch.offer.notifications").tag("outcome", "failed").counter().count()).isEqualTo(1);
+        assertThat(registry.get("dispatch.offer.notifications").tag("outcome", "sent").counter().count()).isZero();
+        assertThat(registry.get("dispatch.offer.first_notification").timer().count()).isZero();
+    }
+}
@@ -0,0 +1,68 @@
+package com.cmx.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ResourceVersions Tests")
+class ResourceVersionsTest {
+
+    private final ResourceVersions versions = new ResourceVersions();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("ETag is stable until the resource is bumped")
+    void etag_ChangesOnlyOnBump() {
+        String first = versions.etag(ResourceVersions.SURVEYORS, null, "INTERNAL", null);
+
+        assertThat(versions.etag(ResourceVersions.SURVEYORS, null, "INTERNAL", null)).isEqualTo(first);
+        assertThat(versions.etag(ResourceVersions.SURVEYORS, null, "EXTERNAL", null)).isNotEqualTo(first);
+
+        versions.bump(ResourceVersions.appointments(1L));
+        assertThat(versions.etag(ResourceVersions.SURVEYORS, null, "INTERNAL", null)).isEqualTo(first);
+
+        versions.bump(ResourceVersions.SURVEYORS);
+        assertThat(versions.etag(ResourceVersions.SURVEYORS, null, "INTERNAL", null)).isNotEqualTo(first);
+    }
+
+    @Test
+    @DisplayName("Bump inside a transaction is repeated after commit")
+    void bump_RepeatedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        versions.bump(ResourceVersions.AVAILABILITY);
+        String duringTransaction = versions.etag(ResourceVersions.AVAILABILITY, null);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(versions.version(ResourceVersions.AVAILABILITY)).isEqualTo(2);
+        assertThat(versions.etag(ResourceVersions.AVAILABILITY, null)).isNotEqualTo(duringTransaction);
+    }
+
+    @Test
+    @DisplayName("Matching If-None-Match is answered with 304")
+    void checkNotModified_MatchingTag() {
+        String etag = versions.etag(ResourceVersions.unread(7L, "SURVEYOR"), null);
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/chat/unread");
+        servletRequest.addHeader("If-None-Match", etag);
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        boolean notModified = new ServletWebRequest(servletRequest, servletResponse).checkNotModified(etag);
+
+        assertThat(notModified).isTrue();
+        assertThat(servletResponse.getStatus()).isEqualTo(304);
+        assertThat(servletResponse.getHeader("ETag")).isEqualTo(etag);
+    }
+}
@@ -0,0 +1,67 @@
+package com.cmx.service;
+
+import com.cmx.config.CacheConfig;
+import com.cmx.config.DatabaseDialect;
+import com.cmx.repository.AvailabilityRepository;
+import com.cmx.schedule.AvailabilityIndex;
+import com.cmx.schedule.AvailabilityOverlap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Cache wiring of per-surveyor reads, checked through the Spring proxies.
+ */
+@SpringJUnitConfig(classes = {CacheConfig.class, SurveyorCacheEvictor.class, ResourceVersions.class, AvailabilityService.class})
+@DisplayName("Surveyor caching Tests")
+class SurveyorCachingTest {
+
+    @MockBean
+    private JdbcTemplate jdbc;
+
+    @MockBean
+    private AvailabilityRepository availabilityRepository;
+
+    @MockBean
+    private AvailabilityIndex availabilityIndex;
+
+    @MockBean
+    private AvailabilityOverlap availabilityOverlap;
+
+    @MockBean
+    private DatabaseDialect dialect;
+
+    @MockBean
+    private CalendarDayCache calendarDayCache;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Test
+    @DisplayName("a calendar edit for one surveyor keeps other surveyors' cached appointments")
+    void calendarEdit_EvictsOnlyThatSurveyor() {
+        for (long id = 1; id <= 3; id++) {
+            availabilityService.getAppointmentsForSurveyor(id, true);
+            availabilityService.getAppointmentsForSurveyor(id, true);
+        }
+        verify(jdbc, times(3)).query(anyString(), any(RowMapper.class), anyLong());
+
+        availabilityService.upsertAvailability(1L, List.of());
+
+        for (long id = 1; id <= 3; id++) {
+            availabilityService.getAppointmentsForSurveyor(id, true);
+        }
+        verify(jdbc, times(2)).query(anyString(), any(RowMapper.class), eq(1L));
+        verify(jdbc, times(1)).query(anyString(), any(RowMapper.class), eq(2L));
+        verify(jdbc, times(1)).query(anyString(), any(RowMapper.class), eq(3L));
+    }
+}
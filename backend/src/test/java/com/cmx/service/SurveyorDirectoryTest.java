@@ -0,0 +1,82 @@
+package com.cmx.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SurveyorDirectory Tests")
+class SurveyorDirectoryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SurveyorDirectory directory;
+    private final List<Object[]> rows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = new SurveyorDirectory(jdbcTemplate);
+        rows.add(new Object[]{1L, "Alex Tan", "SV001", "INTERNAL", "alex@example.com", "+6590000001"});
+
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Object[] row : rows) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("id")).thenReturn((Long) row[0]);
+                when(rs.getString("display_name")).thenReturn((String) row[1]);
+                when(rs.getString("code")).thenReturn((String) row[2]);
+                when(rs.getString("surveyor_type")).thenReturn((String) row[3]);
+                when(rs.getString("email")).thenReturn((String) row[4]);
+                when(rs.getString("phone")).thenReturn((String) row[5]);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @DisplayName("lookups are served from one snapshot load")
+    void find_LoadsOnceAndServesFromMemory() {
+        assertThat(directory.getDisplayName(1L)).isEqualTo("Alex Tan");
+        assertThat(directory.getContact(1L).email()).isEqualTo("alex@example.com");
+        assertThat(directory.find(1L).code()).isEqualTo("SV001");
+
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @DisplayName("unknown ids fall back to a placeholder contact")
+    void getContact_UnknownId_ReturnsPlaceholder() {
+        directory.refresh();
+
+        assertThat(directory.getContact(42L).name()).isEqualTo("Surveyor 42");
+        assertThat(directory.getDisplayName(42L)).isNull();
+    }
+
+    @Test
+    @DisplayName("version advances only when surveyor rows change")
+    void refresh_VersionAdvancesOnChange() {
+        long first = directory.refresh().version();
+        assertThat(directory.refresh().version()).isEqualTo(first);
+
+        rows.add(new Object[]{2L, "Bea Lim", "SV002", "EXTERNAL", null, null});
+        SurveyorDirectory.Snapshot changed = directory.refresh();
+
+        assertThat(changed.version()).isEqualTo(first + 1);
+        assertThat(changed.entries()).containsKeys(1L, 2L);
+    }
+}
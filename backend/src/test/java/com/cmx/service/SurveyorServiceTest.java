@@ -0,0 +1,174 @@
+package com.cmx.service;
+
+import com.cmx.config.CacheConfig;
+import com.cmx.dto.SurveyorDto.SurveyorListItem;
+import com.cmx.exception.ResourceNotFoundException;
+import com.cmx.model.Surveyor;
+import com.cmx.repository.DeviceTokenRepository;
+import com.cmx.repository.SurveyorRepository;
+import com.cmx.support.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SurveyorService Tests")
+class SurveyorServiceTest {
+
+    @Mock
+    private SurveyorRepository surveyorRepository;
+
+    @Mock
+    private DeviceTokenRepository deviceTokenRepository;
+
+    @Mock
+    private AvailabilityService availabilityService;
+
+    @Mock
+    private SurveyorDirectory surveyorDirectory;
+
+    @Mock
+    private SurveyorCacheEvictor cacheEvictor;
+
+    private SingleConnectionDataSource h2;
+    private JdbcTemplate setup;
+    private final AtomicInteger statements = new AtomicInteger();
+    private SurveyorService surveyorService;
+
+    @BeforeEach
+    void setUp() {
+        h2 = TestDatabase.create("surveyor_service_test");
+        setup = new JdbcTemplate(h2);
+
+        surveyorService = new SurveyorService(surveyorRepository, deviceTokenRepository, availabilityService,
+                new JdbcTemplate(countingDataSource()), surveyorDirectory, cacheEvictor,
+                new ConcurrentMapCacheManager(CacheConfig.SURVEYOR_DETAILS_CACHE));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.drop(h2);
+    }
+
+    @Test
+    @DisplayName("listSurveyors issues one statement regardless of fleet size")
+    void listSurveyors_StatementCountIndependentOfSize() {
+        addSurveyors(1, 3);
+        statements.set(0);
+        assertThat(surveyorService.listSurveyors(null, null)).hasSize(3);
+        int small = statements.get();
+
+        addSurveyors(4, 50);
+        statements.set(0);
+        assertThat(surveyorService.listSurveyors(null, null)).hasSize(50);
+
+        assertThat(small).isEqualTo(1);
+        assertThat(statements.get()).isEqualTo(small);
+        verifyNoInteractions(availabilityService);
+    }
+
+    @Test
+    @DisplayName("listSurveyors resolves the current block and filters by it in SQL")
+    void listSurveyors_CurrentStatusFilter() {
+        addSurveyors(1, 3);
+        Instant now = Instant.now();
+        addBlock(1, now.minus(1, ChronoUnit.HOURS), now.plus(1, ChronoUnit.HOURS), "BUSY");
+        addBlock(2, now.minus(3, ChronoUnit.HOURS), now.minus(2, ChronoUnit.HOURS), "BUSY");
+
+        List<SurveyorListItem> busy = surveyorService.listSurveyors("ALL", "busy");
+        List<SurveyorListItem> available = surveyorService.listSurveyors("INTERNAL", "AVAILABLE");
+
+        assertThat(busy).extracting(SurveyorListItem::id).containsExactly(1L);
+        assertThat(busy.get(0).currentStatus()).isEqualTo("BUSY");
+        assertThat(available).extracting(SurveyorListItem::id).containsExactly(2L, 3L);
+    }
+
+    @Test
+    @DisplayName("cached details still report the calendar state of the moment they are read")
+    void getSurveyorDetails_CurrentStatusNotCached() {
+        Surveyor surveyor = new Surveyor();
+        surveyor.setId(1L);
+        surveyor.setDisplayName("Alex");
+        when(surveyorRepository.findById(1L)).thenReturn(Optional.of(surveyor));
+        when(availabilityService.getCurrentState(eq(1L), any())).thenReturn("AVAILABLE", "BUSY");
+
+        assertThat(surveyorService.getSurveyorDetails(1L)).containsEntry("current_status", "AVAILABLE");
+        assertThat(surveyorService.getSurveyorDetails(1L))
+                .containsEntry("current_status", "BUSY")
+                .containsEntry("display_name", "Alex");
+        verify(surveyorRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("an unknown surveyor is still reported as not found through the cache")
+    void getSurveyorDetails_UnknownSurveyor_NotFound() {
+        when(surveyorRepository.findById(99L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> surveyorService.getSurveyorDetails(99L))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private void addSurveyors(int from, int to) {
+        for (int id = from; id <= to; id++) {
+            setup.update("INSERT INTO surveyor (id, code, display_name, status, surveyor_type) VALUES (?, ?, ?, 'ACTIVE', 'INTERNAL')",
+                    id, String.format("SV%03d", id), String.format("Surveyor %03d", id));
+        }
+    }
+
+    private void addBlock(long surveyorId, Instant start, Instant end, String state) {
+        setup.update("INSERT INTO surveyor_availability (surveyor_id, start_time, end_time, state, source) VALUES (?, ?, ?, ?, 'CMX')",
+                surveyorId, Timestamp.from(start), Timestamp.from(end), state);
+    }
+
+    /**
+     * Data source whose connections count every statement they create.
+     */
+    private DelegatingDataSource countingDataSource() {
+        return new DelegatingDataSource(h2) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection target = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                        (proxy, method, args) -> {
+                            String name = method.getName();
+                            if (name.equals("prepareStatement") || name.equals("createStatement") || name.equals("prepareCall")) {
+                                statements.incrementAndGet();
+                            }
+                            try {
+                                return method.invoke(target, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+            }
+        };
+    }
+}
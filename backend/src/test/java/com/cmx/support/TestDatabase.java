@@ -0,0 +1,75 @@
+package com.cmx.support;
+
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * In-memory H2 databases in PostgreSQL mode with the schema from {@code db.changelog-master.xml}
+ * and none of its seed data, so JDBC tests run against the same tables, types and constraints as
+ * the application.
+ *
+ * The changelog is applied once per JVM to a scratch database; every test database is then created
+ * from that schema's DDL, which takes milliseconds instead of a full Liquibase run.
+ */
+public final class TestDatabase {
+
+    private static final String CHANGELOG = "db/changelog/db.changelog-master.xml";
+
+    private static List<String> schema;
+
+    private TestDatabase() {
+    }
+
+    /**
+     * A fresh database named {@code name}, to be closed with {@link #drop}.
+     */
+    public static SingleConnectionDataSource create(String name) {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:" + name + ";MODE=PostgreSQL", "sa", "", true);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        schema().forEach(jdbc::execute);
+        return dataSource;
+    }
+
+    /**
+     * Insert ACTIVE surveyors with the given ids, for rows that reference {@code surveyor}.
+     */
+    public static void insertSurveyors(JdbcTemplate jdbc, long... ids) {
+        for (long id : ids) {
+            jdbc.update("INSERT INTO surveyor (id, code, display_name) VALUES (?, ?, ?)", id, "SVY-" + id, "Surveyor " + id);
+        }
+    }
+
+    public static void drop(SingleConnectionDataSource dataSource) {
+        new JdbcTemplate(dataSource).execute("DROP ALL OBJECTS");
+        dataSource.destroy();
+    }
+
+    private static synchronized List<String> schema() {
+        if (schema == null) {
+            SingleConnectionDataSource scratch = new SingleConnectionDataSource(
+                    "jdbc:h2:mem:liquibase_schema;MODE=PostgreSQL", "sa", "", true);
+            try (Connection connection = scratch.getConnection()) {
+                new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), new JdbcConnection(connection))
+                        .update(new Contexts());
+            } catch (SQLException | LiquibaseException e) {
+                throw new IllegalStateException("Could not apply " + CHANGELOG + " to H2", e);
+            }
+            // Identities would otherwise continue after the seed rows that NODATA leaves out
+            schema = new JdbcTemplate(scratch).queryForList("SCRIPT NODATA NOPASSWORDS NOSETTINGS", String.class).stream()
+                    .map(statement -> statement.replaceAll(" RESTART WITH \\d+", ""))
+                    .toList();
+            drop(scratch);
+        }
+        return schema;
+    }
+}